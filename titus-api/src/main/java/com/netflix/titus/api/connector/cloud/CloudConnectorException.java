@@ -24,6 +24,7 @@ public class CloudConnectorException extends RuntimeException {
         Internal,
         InvalidData,
         NotFound,
+        Throttled,
     }
 
     private final ErrorCode errorCode;
@@ -38,6 +39,11 @@ public class CloudConnectorException extends RuntimeException {
         this.errorCode = errorCode;
     }
 
+    private CloudConnectorException(ErrorCode errorCode, String message, Throwable cause) {
+        super(message, cause);
+        this.errorCode = errorCode;
+    }
+
     public ErrorCode getErrorCode() {
         return errorCode;
     }
@@ -62,6 +68,10 @@ public class CloudConnectorException extends RuntimeException {
         return new CloudConnectorException(ErrorCode.InvalidData, message, args);
     }
 
+    public static CloudConnectorException throttled(Throwable cause, String message, Object... args) {
+        return new CloudConnectorException(ErrorCode.Throttled, String.format(message, args), cause);
+    }
+
     public static CloudConnectorException unrecognizedTargetGroup(String targetGroup) {
         return new CloudConnectorException(ErrorCode.NotFound, "Unrecognized target group:  " + targetGroup);
     }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.api.jobmanager.service;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Query predicate passed to {@link ReadOnlyJobOperations#findJobs} or {@link ReadOnlyJobOperations#findTasks}, which
+ * exposes the part of its criteria that can be resolved from the job indexes. The query implementation may use the
+ * most selective index to find the candidate jobs, and evaluate the full predicate on them only.
+ */
+public interface IndexedJobQuery {
+
+    enum Index {
+        JobId,
+        TaskId,
+        ApplicationName,
+        CapacityGroup,
+        ImageName,
+        /**
+         * Core {@link com.netflix.titus.api.jobmanager.model.job.TaskState} names.
+         */
+        TaskState
+    }
+
+    /**
+     * Returns the indexed criteria. A job can match the query only if for each index it has at least one of the
+     * given values.
+     */
+    Map<Index, Set<String>> getIndexedCriteria();
+
+    /**
+     * Names of all criteria set in the query, without their values (for example 'appName+taskStates'), for
+     * grouping query metrics.
+     */
+    String getCriteriaShape();
+}
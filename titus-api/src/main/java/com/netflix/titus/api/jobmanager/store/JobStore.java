@@ -16,10 +16,12 @@
 
 package com.netflix.titus.api.jobmanager.store;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.common.util.tuple.Either;
 import com.netflix.titus.common.util.tuple.Pair;
 import rx.Completable;
 import rx.Observable;
@@ -42,6 +44,22 @@ public interface JobStore {
      */
     Observable<Pair<List<Job<?>>, Integer>> retrieveJobs();
 
+    /**
+     * Streaming version of {@link #retrieveJobs()}, which emits each job as soon as it is loaded, so the caller can
+     * process it while other jobs are still being fetched. Records that could not be loaded are emitted as errors.
+     * The default implementation emits the jobs only after all of them are retrieved.
+     */
+    default Observable<Either<Job<?>, Throwable>> streamJobs() {
+        return retrieveJobs().flatMapIterable(jobsAndErrors -> {
+            List<Either<Job<?>, Throwable>> result = new ArrayList<>();
+            jobsAndErrors.getLeft().forEach(job -> result.add(Either.ofValue(job)));
+            for (int i = 0; i < jobsAndErrors.getRight(); i++) {
+                result.add(Either.ofError(new IllegalStateException("Corrupted job record")));
+            }
+            return result;
+        });
+    }
+
     /**
      * Retrieve the job with the specified jobId.
      *
@@ -20,6 +20,7 @@ import java.util.Collection;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.netflix.titus.api.agent.model.AgentInstance;
 import com.netflix.titus.api.agent.model.AgentInstanceGroup;
@@ -158,13 +159,21 @@ import com.netflix.titus.common.util.jackson.CommonObjectMappers;
  */
 public class ObjectMappers {
 
-    private static final ObjectMapper STORE = createStoreMapper();
+    private static final ObjectMapper STORE = createStoreMapper(new ObjectMapper());
+    private static final ObjectMapper BINARY_STORE = createStoreMapper(new ObjectMapper(new SmileFactory()));
     private static final ObjectMapper APP_SCALE_STORE = createAppScalePolicyMapper();
 
     public static ObjectMapper storeMapper() {
         return STORE;
     }
 
+    /**
+     * Same as {@link #storeMapper()}, but producing the binary Smile format instead of JSON text.
+     */
+    public static ObjectMapper binaryStoreMapper() {
+        return BINARY_STORE;
+    }
+
     public static ObjectMapper appScalePolicyMapper() {
         return APP_SCALE_STORE;
     }
@@ -221,8 +230,7 @@ public class ObjectMappers {
         return objectMapper;
     }
 
-    private static ObjectMapper createStoreMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+    private static ObjectMapper createStoreMapper(ObjectMapper objectMapper) {
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         objectMapper.registerModule(new Jdk8Module());
 
@@ -17,6 +17,7 @@
 package com.netflix.titus.runtime.connector.jobmanager;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
@@ -55,6 +56,20 @@ public interface JobManagementClient {
 
     Flux<JobManagerEvent<?>> observeJobs(Map<String, String> filteringCriteria);
 
+    /**
+     * Resumable version of {@link #observeJobs(Map)}. If the resume token is set, and the server can still provide
+     * the changes since the given position, the stream starts with these changes only, followed by the snapshot marker
+     * with {@link ResumableJobManagerEvent#isResumed()} set. Otherwise the stream starts with a full snapshot.
+     * The last snapshot is used to resolve jobs and tasks not included in the resumed stream.
+     * <p>
+     * The default implementation does not support resume, and never provides the resume tokens.
+     */
+    default Flux<ResumableJobManagerEvent> observeJobs(Map<String, String> filteringCriteria,
+                                                       Optional<String> resumeToken,
+                                                       JobSnapshot lastSnapshot) {
+        return observeJobs(filteringCriteria).map(ResumableJobManagerEvent::notResumable);
+    }
+
     Mono<Void> killJob(String jobId, CallMetadata callMetadata);
 
     Mono<Void> updateJobAttributes(String jobId, Map<String, String> attributes, CallMetadata callMetadata);
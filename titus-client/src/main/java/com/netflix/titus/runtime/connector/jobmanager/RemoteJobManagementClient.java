@@ -18,6 +18,8 @@ package com.netflix.titus.runtime.connector.jobmanager;
 
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -39,9 +41,11 @@ import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
 import com.netflix.titus.api.model.Page;
 import com.netflix.titus.api.model.PageResult;
+import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.grpc.protogen.JobAttributesDeleteRequest;
 import com.netflix.titus.grpc.protogen.JobAttributesUpdate;
 import com.netflix.titus.grpc.protogen.JobCapacityUpdate;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
 import com.netflix.titus.grpc.protogen.JobDisruptionBudgetUpdate;
 import com.netflix.titus.grpc.protogen.JobId;
 import com.netflix.titus.grpc.protogen.JobProcessesUpdate;
@@ -56,6 +60,7 @@ import com.netflix.titus.grpc.protogen.TaskMoveRequest;
 import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.JobStreamRevisions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -179,41 +184,39 @@ public class RemoteJobManagementClient implements JobManagementClient {
 
     @Override
     public Flux<JobManagerEvent<?>> observeJobs(Map<String, String> filteringCriteria) {
+        return observeJobs(filteringCriteria, Optional.empty(), JobSnapshot.empty()).map(ResumableJobManagerEvent::getEvent);
+    }
+
+    @Override
+    public Flux<ResumableJobManagerEvent> observeJobs(Map<String, String> filteringCriteria,
+                                                      Optional<String> resumeToken,
+                                                      JobSnapshot lastSnapshot) {
         return Flux.defer(() -> {
             Map<String, Job> jobMap = new ConcurrentHashMap<>();
             Map<String, Task> taskMap = new ConcurrentHashMap<>();
-            return stub.observeJobs(ObserveJobsQuery.newBuilder().putAllFilteringCriteria(filteringCriteria).build())
-                    .map(event -> {
-                        switch (event.getNotificationCase()) {
-                            case JOBUPDATE:
-                                Job newJob = GrpcJobManagementModelConverters.toCoreJob(event.getJobUpdate().getJob());
-                                Job oldJob = jobMap.get(newJob.getId());
-                                jobMap.put(newJob.getId(), newJob);
-                                return oldJob == null
-                                        ? JobUpdateEvent.newJob(newJob, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA)
-                                        : JobUpdateEvent.jobChange(newJob, oldJob, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
-                            case TASKUPDATE:
-                                com.netflix.titus.grpc.protogen.Task grpcTask = event.getTaskUpdate().getTask();
-                                Job job = jobMap.get(grpcTask.getJobId());
+            AtomicReference<String> epochRef = new AtomicReference<>();
 
-                                Task newTask = GrpcJobManagementModelConverters.toCoreTask(job, grpcTask);
-                                Task oldTask = taskMap.get(newTask.getId());
-                                taskMap.put(newTask.getId(), newTask);
-
-                                // Check if task moved
-                                if (isTaskMoved(newTask, oldTask)) {
-                                    return TaskUpdateEvent.newTaskFromAnotherJob(job, newTask, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
-                                }
+            ObserveJobsQuery query = ObserveJobsQuery.newBuilder().putAllFilteringCriteria(filteringCriteria).build();
+            if (resumeToken.isPresent()) {
+                query = JobStreamRevisions.withResumeToken(query, resumeToken.get());
+            }
 
-                                return oldTask == null
-                                        ? TaskUpdateEvent.newTask(job, newTask, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA)
-                                        : TaskUpdateEvent.taskChange(job, newTask, oldTask, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
-                            case SNAPSHOTEND:
-                                return JobManagerEvent.snapshotMarker();
-                            case NOTIFICATION_NOT_SET:
-                            default:
-                                return null;
+            return stub.observeJobs(query)
+                    .map(event -> {
+                        JobManagerEvent<?> coreEvent = toCoreEvent(event, jobMap, taskMap, lastSnapshot);
+                        if (coreEvent == null) {
+                            return null;
                         }
+                        boolean resumed = false;
+                        if (event.getNotificationCase() == JobChangeNotification.NotificationCase.SNAPSHOTEND) {
+                            JobStreamRevisions.getEpoch(event).ifPresent(epochRef::set);
+                            resumed = JobStreamRevisions.isResumed(event);
+                        }
+                        OptionalLong revision = JobStreamRevisions.getRevision(event);
+                        Optional<String> eventResumeToken = epochRef.get() != null && revision.isPresent()
+                                ? Optional.of(JobStreamRevisions.toResumeToken(epochRef.get(), revision.getAsLong()))
+                                : Optional.empty();
+                        return new ResumableJobManagerEvent(coreEvent, eventResumeToken, resumed);
                     })
                     .filter(Objects::nonNull);
         });
@@ -300,6 +303,41 @@ public class RemoteJobManagementClient implements JobManagementClient {
         );
     }
 
+    private JobManagerEvent<?> toCoreEvent(JobChangeNotification event, Map<String, Job> jobMap, Map<String, Task> taskMap, JobSnapshot lastSnapshot) {
+        switch (event.getNotificationCase()) {
+            case JOBUPDATE:
+                Job newJob = GrpcJobManagementModelConverters.toCoreJob(event.getJobUpdate().getJob());
+                Job oldJob = jobMap.containsKey(newJob.getId()) ? jobMap.get(newJob.getId()) : lastSnapshot.findJob(newJob.getId()).orElse(null);
+                jobMap.put(newJob.getId(), newJob);
+                return oldJob == null
+                        ? JobUpdateEvent.newJob(newJob, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA)
+                        : JobUpdateEvent.jobChange(newJob, oldJob, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
+            case TASKUPDATE:
+                com.netflix.titus.grpc.protogen.Task grpcTask = event.getTaskUpdate().getTask();
+                Job job = jobMap.containsKey(grpcTask.getJobId()) ? jobMap.get(grpcTask.getJobId()) : lastSnapshot.findJob(grpcTask.getJobId()).orElse(null);
+
+                Task newTask = GrpcJobManagementModelConverters.toCoreTask(job, grpcTask);
+                Task oldTask = taskMap.containsKey(newTask.getId())
+                        ? taskMap.get(newTask.getId())
+                        : lastSnapshot.findTaskById(newTask.getId()).map(Pair::getRight).orElse(null);
+                taskMap.put(newTask.getId(), newTask);
+
+                // Check if task moved
+                if (isTaskMoved(newTask, oldTask)) {
+                    return TaskUpdateEvent.newTaskFromAnotherJob(job, newTask, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
+                }
+
+                return oldTask == null
+                        ? TaskUpdateEvent.newTask(job, newTask, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA)
+                        : TaskUpdateEvent.taskChange(job, newTask, oldTask, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
+            case SNAPSHOTEND:
+                return JobManagerEvent.snapshotMarker();
+            case NOTIFICATION_NOT_SET:
+            default:
+                return null;
+        }
+    }
+
     private boolean isTaskMoved(Task newTask, Task oldTask) {
         if (oldTask == null || oldTask.getJobId().equals(newTask.getJobId())) {
             return false;
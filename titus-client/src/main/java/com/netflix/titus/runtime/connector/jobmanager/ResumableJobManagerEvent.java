@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+
+/**
+ * {@link JobManagerEvent} with the resume token of the event stream position it was received at. A client which
+ * keeps the last token, can reconnect from this position, and receive only the events it missed.
+ */
+public class ResumableJobManagerEvent {
+
+    private final JobManagerEvent<?> event;
+    private final Optional<String> resumeToken;
+    private final boolean resumed;
+
+    public ResumableJobManagerEvent(JobManagerEvent<?> event, Optional<String> resumeToken, boolean resumed) {
+        this.event = event;
+        this.resumeToken = resumeToken;
+        this.resumed = resumed;
+    }
+
+    public JobManagerEvent<?> getEvent() {
+        return event;
+    }
+
+    public Optional<String> getResumeToken() {
+        return resumeToken;
+    }
+
+    /**
+     * Set to true in the snapshot marker, if the stream was resumed. In such case the events preceding the marker
+     * are the changes since the requested position, and not a full snapshot.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    public static ResumableJobManagerEvent notResumable(JobManagerEvent<?> event) {
+        return new ResumableJobManagerEvent(event, Optional.empty(), false);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ResumableJobManagerEvent that = (ResumableJobManagerEvent) o;
+        return resumed == that.resumed &&
+                Objects.equals(event, that.event) &&
+                Objects.equals(resumeToken, that.resumeToken);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(event, resumeToken, resumed);
+    }
+
+    @Override
+    public String toString() {
+        return "ResumableJobManagerEvent{" +
+                "event=" + event +
+                ", resumeToken=" + resumeToken +
+                ", resumed=" + resumed +
+                '}';
+    }
+}
@@ -38,6 +38,7 @@ import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetri
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEvent;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.connector.jobmanager.ResumableJobManagerEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
@@ -50,6 +51,11 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
     private final JobManagementClient client;
     private final Map<String, String> filteringCriteria;
 
+    /**
+     * Survives reconnects, so a broken connection can be resumed from the last received event.
+     */
+    private final AtomicReference<Checkpoint> checkpointRef = new AtomicReference<>();
+
     public GrpcJobReplicatorEventStream(JobManagementClient client,
                                         DataReplicatorMetrics metrics,
                                         TitusRuntime titusRuntime,
@@ -70,50 +76,93 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
     @Override
     protected Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> newConnection() {
         return Flux.defer(() -> {
-            CacheUpdater cacheUpdater = new CacheUpdater();
-            logger.info("Connecting to the job event stream (filteringCriteria={})...", filteringCriteria);
-            return client.observeJobs(filteringCriteria).flatMap(cacheUpdater::onEvent);
+            Checkpoint checkpoint = checkpointRef.get();
+            CacheUpdater cacheUpdater = new CacheUpdater(checkpoint);
+            if (checkpoint == null) {
+                logger.info("Connecting to the job event stream (filteringCriteria={})...", filteringCriteria);
+                return client.observeJobs(filteringCriteria, Optional.empty(), JobSnapshot.empty()).flatMap(cacheUpdater::onEvent);
+            }
+            logger.info("Resuming the job event stream (filteringCriteria={}, resumeToken={})...", filteringCriteria, checkpoint.getResumeToken());
+            return client.observeJobs(filteringCriteria, Optional.of(checkpoint.getResumeToken()), checkpoint.getSnapshot()).flatMap(cacheUpdater::onEvent);
         });
     }
 
+    /**
+     * The last snapshot, and the position in the event stream it corresponds to.
+     */
+    private static class Checkpoint {
+
+        private final String resumeToken;
+        private final JobSnapshot snapshot;
+
+        private Checkpoint(String resumeToken, JobSnapshot snapshot) {
+            this.resumeToken = resumeToken;
+            this.snapshot = snapshot;
+        }
+
+        private String getResumeToken() {
+            return resumeToken;
+        }
+
+        private JobSnapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
     private class CacheUpdater {
 
+        private final Checkpoint resumeFrom;
+
         private List<JobManagerEvent<?>> snapshotEvents = new ArrayList<>();
         private AtomicReference<JobSnapshot> lastJobSnapshotRef = new AtomicReference<>();
 
-        private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> onEvent(JobManagerEvent<?> event) {
+        private CacheUpdater(Checkpoint resumeFrom) {
+            this.resumeFrom = resumeFrom;
+        }
+
+        private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> onEvent(ResumableJobManagerEvent resumableEvent) {
+            JobManagerEvent<?> event = resumableEvent.getEvent();
             try {
+                Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> result;
                 if (lastJobSnapshotRef.get() != null) {
-                    return processCacheUpdate(event);
-                }
-                if (event.equals(JobManagerEvent.snapshotMarker())) {
-                    return buildInitialCache();
-                }
-
-                if (event instanceof JobUpdateEvent) {
-                    JobUpdateEvent jobUpdateEvent = (JobUpdateEvent) event;
-                    Job job = jobUpdateEvent.getCurrent();
-                    if (job.getStatus().getState() != JobState.Finished) {
-                        snapshotEvents.add(event);
-                    }
-                } else if (event instanceof TaskUpdateEvent) {
-                    TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
-                    Task task = taskUpdateEvent.getCurrentTask();
-                    if (task.getStatus().getState() != TaskState.Finished) {
+                    result = processCacheUpdate(event);
+                } else if (event.equals(JobManagerEvent.snapshotMarker())) {
+                    result = resumableEvent.isResumed() && resumeFrom != null ? resumeCache() : buildInitialCache();
+                } else {
+                    // Finished jobs and tasks are removed from the cache when a resumed stream is applied.
+                    if (resumeFrom != null || isActive(event)) {
                         snapshotEvents.add(event);
                     }
+                    return Flux.empty();
                 }
+                checkpointRef.set(resumableEvent.getResumeToken()
+                        .map(resumeToken -> new Checkpoint(resumeToken, lastJobSnapshotRef.get()))
+                        .orElse(null)
+                );
+                return result;
             } catch (Exception e) {
                 logger.warn("Unexpected error when handling the job change notification: {}", event, e);
+                checkpointRef.set(null);
                 return Flux.error(e); // Return error to force the cache reconnect.
             }
-            return Flux.empty();
+        }
+
+        private boolean isActive(JobManagerEvent<?> event) {
+            if (event instanceof JobUpdateEvent) {
+                Job job = ((JobUpdateEvent) event).getCurrent();
+                return job.getStatus().getState() != JobState.Finished;
+            }
+            if (event instanceof TaskUpdateEvent) {
+                Task task = ((TaskUpdateEvent) event).getCurrentTask();
+                return task.getStatus().getState() != TaskState.Finished;
+            }
+            return false;
         }
 
         private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> buildInitialCache() {
             JobSnapshot.Builder builder = JobSnapshot.newBuilder(UUID.randomUUID().toString());
 
-            snapshotEvents.forEach(event -> {
+            snapshotEvents.stream().filter(this::isActive).forEach(event -> {
                 if (event instanceof JobUpdateEvent) {
                     builder.addOrUpdateJob(((JobUpdateEvent) event).getCurrent());
                 } else if (event instanceof TaskUpdateEvent) {
@@ -139,7 +188,34 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
             return Flux.just(new ReplicatorEvent<>(initialSnapshot, JobManagerEvent.snapshotMarker(), titusRuntime.getClock().wallTime()));
         }
 
+        /**
+         * Applies the changes received since the checkpoint to the checkpoint snapshot. Each change is emitted as
+         * a regular update. If there are no changes, the checkpoint snapshot is emitted with the snapshot marker.
+         */
+        private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> resumeCache() {
+            lastJobSnapshotRef.set(resumeFrom.getSnapshot());
+
+            List<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> updates = new ArrayList<>();
+            snapshotEvents.forEach(event -> applyUpdate(event).ifPresent(updates::add));
+
+            int missedEvents = snapshotEvents.size();
+            snapshotEvents.clear();
+
+            logger.info("Job snapshot resumed from {}: applied {} missed events: {}",
+                    resumeFrom.getResumeToken(), missedEvents, lastJobSnapshotRef.get().toSummaryString()
+            );
+
+            if (updates.isEmpty()) {
+                return Flux.just(new ReplicatorEvent<>(lastJobSnapshotRef.get(), JobManagerEvent.snapshotMarker(), titusRuntime.getClock().wallTime()));
+            }
+            return Flux.fromIterable(updates);
+        }
+
         private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> processCacheUpdate(JobManagerEvent<?> event) {
+            return applyUpdate(event).map(Flux::just).orElse(Flux.empty());
+        }
+
+        private Optional<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> applyUpdate(JobManagerEvent<?> event) {
             JobSnapshot lastSnapshot = lastJobSnapshotRef.get();
 
             Optional<JobSnapshot> newSnapshot;
@@ -173,9 +249,9 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
             }
             if (newSnapshot.isPresent()) {
                 lastJobSnapshotRef.set(newSnapshot.get());
-                return Flux.just(new ReplicatorEvent<>(newSnapshot.get(), coreEvent, titusRuntime.getClock().wallTime()));
+                return Optional.of(new ReplicatorEvent<>(newSnapshot.get(), coreEvent, titusRuntime.getClock().wallTime()));
             }
-            return Flux.empty();
+            return Optional.empty();
         }
 
         private JobManagerEvent<?> toJobCoreEvent(Job newJob) {
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
@@ -77,6 +78,7 @@ import com.netflix.titus.api.jobmanager.model.job.vpc.IpAddressLocation;
 import com.netflix.titus.api.jobmanager.model.job.vpc.SignedIpAddressAllocation;
 import com.netflix.titus.api.model.EfsMount;
 import com.netflix.titus.common.util.Evaluators;
+import com.netflix.titus.common.util.ProtobufProjection;
 import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.grpc.protogen.AddressAllocation;
 import com.netflix.titus.grpc.protogen.AddressLocation;
@@ -978,15 +980,74 @@ public final class GrpcJobManagementModelConverters {
     }
 
     public static com.netflix.titus.grpc.protogen.Job toGrpcJob(Job<?> coreJob) {
-        return com.netflix.titus.grpc.protogen.Job.newBuilder()
-                .setId(coreJob.getId())
-                .setJobDescriptor(toGrpcJobDescriptor(coreJob.getJobDescriptor()))
-                .setStatus(toGrpcJobStatus(coreJob.getStatus()))
-                .addAllStatusHistory(toGrpcJobStatusHistory(coreJob.getStatusHistory()))
-                .build();
+        return toGrpcJob(coreJob, field -> true);
+    }
+
+    /**
+     * Converts only the top level fields included in the given projection. Nested fields are not filtered, so the
+     * projection must still be applied to the result.
+     */
+    public static com.netflix.titus.grpc.protogen.Job toGrpcJob(Job<?> coreJob, ProtobufProjection<com.netflix.titus.grpc.protogen.Job> projection) {
+        return toGrpcJob(coreJob, projection::includes);
+    }
+
+    private static com.netflix.titus.grpc.protogen.Job toGrpcJob(Job<?> coreJob, Predicate<String> includes) {
+        com.netflix.titus.grpc.protogen.Job.Builder jobBuilder = com.netflix.titus.grpc.protogen.Job.newBuilder().setId(coreJob.getId());
+        if (includes.test("jobDescriptor")) {
+            jobBuilder.setJobDescriptor(toGrpcJobDescriptor(coreJob.getJobDescriptor()));
+        }
+        if (includes.test("status")) {
+            jobBuilder.setStatus(toGrpcJobStatus(coreJob.getStatus()));
+        }
+        if (includes.test("statusHistory")) {
+            jobBuilder.addAllStatusHistory(toGrpcJobStatusHistory(coreJob.getStatusHistory()));
+        }
+        return jobBuilder.build();
     }
 
     public static com.netflix.titus.grpc.protogen.Task toGrpcTask(Task coreTask, LogStorageInfo<Task> logStorageInfo) {
+        return toGrpcTask(coreTask, logStorageInfo, field -> true);
+    }
+
+    /**
+     * Converts only the top level fields included in the given projection. Nested fields are not filtered, so the
+     * projection must still be applied to the result.
+     */
+    public static com.netflix.titus.grpc.protogen.Task toGrpcTask(Task coreTask,
+                                                                  LogStorageInfo<Task> logStorageInfo,
+                                                                  ProtobufProjection<com.netflix.titus.grpc.protogen.Task> projection) {
+        return toGrpcTask(coreTask, logStorageInfo, projection::includes);
+    }
+
+    private static com.netflix.titus.grpc.protogen.Task toGrpcTask(Task coreTask, LogStorageInfo<Task> logStorageInfo, Predicate<String> includes) {
+        com.netflix.titus.grpc.protogen.Task.Builder taskBuilder = com.netflix.titus.grpc.protogen.Task.newBuilder()
+                .setId(coreTask.getId())
+                .setJobId(coreTask.getJobId());
+
+        if (includes.test("taskContext")) {
+            taskBuilder.putAllTaskContext(toGrpcTaskContext(coreTask));
+        }
+        if (includes.test("status")) {
+            taskBuilder.setStatus(toGrpcTaskStatus(coreTask.getStatus()));
+        }
+        if (includes.test("statusHistory")) {
+            taskBuilder.addAllStatusHistory(toGrpcTaskStatusHistory(coreTask.getStatusHistory()));
+        }
+        if (includes.test("attributes")) {
+            taskBuilder.putAllAttributes(coreTask.getAttributes());
+        }
+        if (includes.test("logLocation")) {
+            taskBuilder.setLogLocation(toGrpcLogLocation(coreTask, logStorageInfo));
+        }
+        if (coreTask instanceof ServiceJobTask && includes.test("migrationDetails")) {
+            ServiceJobTask serviceTask = (ServiceJobTask) coreTask;
+            taskBuilder.setMigrationDetails(toGrpcMigrationDetails(serviceTask.getMigrationDetails()));
+        }
+
+        return taskBuilder.build();
+    }
+
+    private static Map<String, String> toGrpcTaskContext(Task coreTask) {
         Map<String, String> taskContext = new HashMap<>(coreTask.getTaskContext());
         taskContext.put(TASK_ATTRIBUTES_TASK_ORIGINAL_ID, coreTask.getOriginalId());
         taskContext.put(TASK_ATTRIBUTES_RESUBMIT_NUMBER, Integer.toString(coreTask.getResubmitNumber()));
@@ -998,22 +1059,7 @@ public final class GrpcJobManagementModelConverters {
             BatchJobTask batchTask = (BatchJobTask) coreTask;
             taskContext.put(TASK_ATTRIBUTES_TASK_INDEX, Integer.toString(batchTask.getIndex()));
         }
-
-        com.netflix.titus.grpc.protogen.Task.Builder taskBuilder = com.netflix.titus.grpc.protogen.Task.newBuilder()
-                .setId(coreTask.getId())
-                .setJobId(coreTask.getJobId())
-                .setStatus(toGrpcTaskStatus(coreTask.getStatus()))
-                .addAllStatusHistory(toGrpcTaskStatusHistory(coreTask.getStatusHistory()))
-                .putAllTaskContext(taskContext)
-                .putAllAttributes(coreTask.getAttributes())
-                .setLogLocation(toGrpcLogLocation(coreTask, logStorageInfo));
-
-        if (coreTask instanceof ServiceJobTask) {
-            ServiceJobTask serviceTask = (ServiceJobTask) coreTask;
-            taskBuilder.setMigrationDetails(toGrpcMigrationDetails(serviceTask.getMigrationDetails()));
-        }
-
-        return taskBuilder.build();
+        return taskContext;
     }
 
     public static <TASK> LogLocation toGrpcLogLocation(TASK task, LogStorageInfo<TASK> logStorageInfo) {
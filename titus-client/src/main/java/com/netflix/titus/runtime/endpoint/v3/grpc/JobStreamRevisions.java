@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.ObserveJobsQuery;
+
+/**
+ * Revision metadata of the observeJobs stream, which allows a client to resume a broken stream, and receive only the
+ * events it missed:
+ * <ul>
+ * <li>each live event carries a revision, which is monotonic within the stream epoch</li>
+ * <li>the snapshot end marker carries the epoch, the last revision covered by the snapshot, and a flag which says
+ * if the stream was resumed (only missed events were sent), or started from a full snapshot</li>
+ * <li>the {@link ObserveJobsQuery} carries a resume token ('epoch:revision') of the last event seen by the client</li>
+ * <li>a client may request the stream end marker, which is a snapshot end marker with a stream end flag, sent as the
+ * last item before the stream completes, when the leader steps down cleanly. A stream that completes without it
+ * could have missed some changes</li>
+ * <li>a client which does not need the current state may request to skip the snapshot. If the stream cannot be
+ * resumed, it starts with the snapshot end marker, followed by the live events</li>
+ * </ul>
+ * The metadata is carried in unknown (extension) fields, so it is ignored by the clients and servers which do not
+ * support it.
+ */
+public final class JobStreamRevisions {
+
+    static final int REVISION_FIELD = 1001;
+    static final int EPOCH_FIELD = 1002;
+    static final int RESUMED_FIELD = 1003;
+    static final int STREAM_END_FIELD = 1004;
+    static final int RESUME_TOKEN_FIELD = 1001;
+    static final int STREAM_END_REQUESTED_FIELD = 1002;
+    static final int SNAPSHOT_SKIPPED_FIELD = 1003;
+
+    private static final char TOKEN_SEPARATOR = ':';
+
+    private JobStreamRevisions() {
+    }
+
+    public static JobChangeNotification withRevision(JobChangeNotification notification, long revision) {
+        return notification.toBuilder()
+                .mergeUnknownFields(UnknownFieldSet.newBuilder().addField(REVISION_FIELD, varint(revision)).build())
+                .build();
+    }
+
+    public static JobChangeNotification newSnapshotEnd(String epoch, long revision, boolean resumed) {
+        return JobChangeNotification.newBuilder()
+                .setSnapshotEnd(JobChangeNotification.SnapshotEnd.newBuilder())
+                .setUnknownFields(UnknownFieldSet.newBuilder()
+                        .addField(REVISION_FIELD, varint(revision))
+                        .addField(EPOCH_FIELD, UnknownFieldSet.Field.newBuilder().addLengthDelimited(ByteString.copyFromUtf8(epoch)).build())
+                        .addField(RESUMED_FIELD, varint(resumed ? 1 : 0))
+                        .build()
+                )
+                .build();
+    }
+
+    public static JobChangeNotification newStreamEnd(String epoch, long revision) {
+        JobChangeNotification snapshotEnd = newSnapshotEnd(epoch, revision, false);
+        return snapshotEnd.toBuilder()
+                .mergeUnknownFields(UnknownFieldSet.newBuilder().addField(STREAM_END_FIELD, varint(1)).build())
+                .build();
+    }
+
+    public static OptionalLong getRevision(JobChangeNotification notification) {
+        List<Long> values = notification.getUnknownFields().getField(REVISION_FIELD).getVarintList();
+        return values.isEmpty() ? OptionalLong.empty() : OptionalLong.of(values.get(values.size() - 1));
+    }
+
+    public static Optional<String> getEpoch(JobChangeNotification notification) {
+        List<ByteString> values = notification.getUnknownFields().getField(EPOCH_FIELD).getLengthDelimitedList();
+        return values.isEmpty() ? Optional.empty() : Optional.of(values.get(values.size() - 1).toStringUtf8());
+    }
+
+    public static boolean isResumed(JobChangeNotification notification) {
+        List<Long> values = notification.getUnknownFields().getField(RESUMED_FIELD).getVarintList();
+        return !values.isEmpty() && values.get(values.size() - 1) != 0;
+    }
+
+    public static boolean isStreamEnd(JobChangeNotification notification) {
+        List<Long> values = notification.getUnknownFields().getField(STREAM_END_FIELD).getVarintList();
+        return !values.isEmpty() && values.get(values.size() - 1) != 0;
+    }
+
+    public static ObserveJobsQuery withResumeToken(ObserveJobsQuery query, String resumeToken) {
+        return query.toBuilder()
+                .mergeUnknownFields(UnknownFieldSet.newBuilder()
+                        .addField(RESUME_TOKEN_FIELD, UnknownFieldSet.Field.newBuilder().addLengthDelimited(ByteString.copyFromUtf8(resumeToken)).build())
+                        .build()
+                )
+                .build();
+    }
+
+    public static Optional<String> getResumeToken(ObserveJobsQuery query) {
+        List<ByteString> values = query.getUnknownFields().getField(RESUME_TOKEN_FIELD).getLengthDelimitedList();
+        return values.isEmpty() ? Optional.empty() : Optional.of(values.get(values.size() - 1).toStringUtf8());
+    }
+
+    public static ObserveJobsQuery withStreamEndRequested(ObserveJobsQuery query) {
+        return query.toBuilder()
+                .mergeUnknownFields(UnknownFieldSet.newBuilder().addField(STREAM_END_REQUESTED_FIELD, varint(1)).build())
+                .build();
+    }
+
+    public static boolean isStreamEndRequested(ObserveJobsQuery query) {
+        List<Long> values = query.getUnknownFields().getField(STREAM_END_REQUESTED_FIELD).getVarintList();
+        return !values.isEmpty() && values.get(values.size() - 1) != 0;
+    }
+
+    public static ObserveJobsQuery withSnapshotSkipped(ObserveJobsQuery query) {
+        return query.toBuilder()
+                .mergeUnknownFields(UnknownFieldSet.newBuilder().addField(SNAPSHOT_SKIPPED_FIELD, varint(1)).build())
+                .build();
+    }
+
+    public static boolean isSnapshotSkipped(ObserveJobsQuery query) {
+        List<Long> values = query.getUnknownFields().getField(SNAPSHOT_SKIPPED_FIELD).getVarintList();
+        return !values.isEmpty() && values.get(values.size() - 1) != 0;
+    }
+
+    public static String toResumeToken(String epoch, long revision) {
+        return epoch + TOKEN_SEPARATOR + revision;
+    }
+
+    /**
+     * Parses a resume token into the (epoch, revision) pair. Returns {@link Optional#empty()} for a malformed token.
+     */
+    public static Optional<Pair<String, Long>> parseResumeToken(String resumeToken) {
+        int idx = resumeToken.lastIndexOf(TOKEN_SEPARATOR);
+        if (idx <= 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Pair.of(resumeToken.substring(0, idx), Long.parseLong(resumeToken.substring(idx + 1))));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static UnknownFieldSet.Field varint(long value) {
+        return UnknownFieldSet.Field.newBuilder().addVarint(value).build();
+    }
+}
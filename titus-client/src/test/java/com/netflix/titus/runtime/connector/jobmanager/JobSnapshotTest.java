@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobSnapshotTest {
+
+    private final Clock clock = Clocks.system();
+
+    private final Job<BatchJobExt> job1 = JobGenerator.oneBatchJob();
+    private final Job<BatchJobExt> job2 = JobGenerator.oneBatchJob();
+
+    private final List<Task> job1Tasks = new ArrayList<>(JobGenerator.batchTasks(job1).getValues(2));
+    private final List<Task> job2Tasks = new ArrayList<>(JobGenerator.batchTasks(job2).getValues(2));
+
+    private final JobSnapshot snapshot = JobSnapshot.newInstance(
+            "test",
+            ImmutableMap.of(job1.getId(), job1, job2.getId(), job2),
+            ImmutableMap.of(job1.getId(), job1Tasks, job2.getId(), job2Tasks)
+    );
+
+    @Test
+    public void testTaskUpdate() {
+        Task updated = JobFunctions.changeTaskStatus(job1Tasks.get(0), TaskState.Started, "test", "test", clock);
+        JobSnapshot newSnapshot = snapshot.updateTask(updated, false).orElseThrow(IllegalStateException::new);
+
+        assertThat(newSnapshot.getTasks()).hasSize(4).contains(updated);
+        assertThat(newSnapshot.getTasks(job1.getId())).containsExactlyInAnyOrder(updated, job1Tasks.get(1));
+        assertThat(newSnapshot.findTaskById(updated.getId()).get().getRight()).isEqualTo(updated);
+
+        // The previous snapshot is not affected.
+        assertThat(snapshot.getTasks(job1.getId())).hasSize(2).containsAll(job1Tasks);
+
+        // Task list views of the unchanged jobs are shared.
+        assertThat(newSnapshot.getTasks(job2.getId())).isSameAs(snapshot.getTasks(job2.getId()));
+    }
+
+    @Test
+    public void testFinishedTaskIsRemoved() {
+        Task finished = JobFunctions.changeTaskStatus(job1Tasks.get(0), TaskState.Finished, "test", "test", clock);
+        JobSnapshot newSnapshot = snapshot.updateTask(finished, false).orElseThrow(IllegalStateException::new);
+
+        assertThat(newSnapshot.getTasks()).hasSize(3);
+        assertThat(newSnapshot.getTasks(job1.getId())).containsExactly(job1Tasks.get(1));
+        assertThat(newSnapshot.findTaskById(finished.getId())).isEmpty();
+        assertThat(newSnapshot.updateTask(finished, false)).isEmpty();
+    }
+
+    @Test
+    public void testFinishedJobIsRemovedWithItsTasks() {
+        Job<?> finished = JobFunctions.changeJobStatus(job1, JobState.Finished, "test");
+        JobSnapshot newSnapshot = snapshot.updateJob(finished).orElseThrow(IllegalStateException::new);
+
+        assertThat(newSnapshot.getJobs()).containsExactly(job2);
+        assertThat(newSnapshot.getTasks()).hasSize(2).containsAll(job2Tasks);
+        assertThat(newSnapshot.getTasks(job1.getId())).isEmpty();
+        assertThat(newSnapshot.findTaskById(job1Tasks.get(0).getId())).isEmpty();
+        assertThat(newSnapshot.getJobsAndTasks()).hasSize(1);
+    }
+
+    @Test
+    public void testMovedTask() {
+        Task moved = JobFunctions.moveTask(job1.getId(), job2.getId(), job1Tasks.get(0));
+        JobSnapshot newSnapshot = snapshot.updateTask(moved, true).orElseThrow(IllegalStateException::new);
+
+        assertThat(newSnapshot.getTasks(job1.getId())).containsExactly(job1Tasks.get(1));
+        assertThat(newSnapshot.getTasks(job2.getId())).hasSize(3).contains(moved);
+        assertThat(newSnapshot.findTaskById(moved.getId()).get().getLeft()).isEqualTo(job2);
+        assertThat(newSnapshot.getTasks()).hasSize(4);
+    }
+
+    @Test
+    public void testTaskOfUnknownJobIsIgnored() {
+        Task task = JobGenerator.oneBatchTask();
+        assertThat(snapshot.updateTask(task, false)).isEmpty();
+        assertThat(JobSnapshot.empty().getTasks(task.getJobId())).isEqualTo(Collections.emptyList());
+    }
+}
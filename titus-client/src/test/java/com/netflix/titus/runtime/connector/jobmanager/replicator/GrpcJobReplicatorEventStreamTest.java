@@ -29,6 +29,7 @@ import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
 import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
@@ -40,18 +41,24 @@ import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetri
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEvent;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.connector.jobmanager.ResumableJobManagerEvent;
 import com.netflix.titus.testkit.model.job.JobComponentStub;
 import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
 import org.assertj.core.api.Condition;
 import org.junit.Before;
 import org.junit.Test;
+import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class GrpcJobReplicatorEventStreamTest {
@@ -62,6 +69,8 @@ public class GrpcJobReplicatorEventStreamTest {
     private static final int SERVICE_DESIRED = 5;
     private static final int BATCH_DESIRED = 1;
 
+    private static final CallMetadata CALL_METADATA = CallMetadata.newBuilder().withCallerId("Test").withCallReason("testing").build();
+
     private final TitusRuntime titusRuntime = TitusRuntimes.test();
 
     private final JobComponentStub dataGenerator = new JobComponentStub(titusRuntime);
@@ -223,8 +232,44 @@ public class GrpcJobReplicatorEventStreamTest {
                 .verify();
     }
 
+    @Test
+    public void testResumeAppliesMissedEventsToLastSnapshot() {
+        Job<?> job = JobGenerator.oneBatchJob();
+        Task task = JobGenerator.oneBatchTask().toBuilder().withJobId(job.getId()).build();
+        Task launchedTask = task.toBuilder().withStatus(TaskStatus.newBuilder().withState(TaskState.Launched).build()).build();
+
+        when(client.observeJobs(any(), eq(Optional.empty()), any())).thenReturn(Flux.just(
+                new ResumableJobManagerEvent(JobUpdateEvent.newJob(job, CALL_METADATA), Optional.empty(), false),
+                new ResumableJobManagerEvent(TaskUpdateEvent.newTask(job, task, CALL_METADATA), Optional.empty(), false),
+                new ResumableJobManagerEvent(JobManagerEvent.snapshotMarker(), Optional.of("epoch:2"), false)
+        ));
+        when(client.observeJobs(any(), eq(Optional.of("epoch:2")), any())).thenReturn(Flux.just(
+                new ResumableJobManagerEvent(TaskUpdateEvent.taskChange(job, launchedTask, task, CALL_METADATA), Optional.empty(), false),
+                new ResumableJobManagerEvent(JobManagerEvent.snapshotMarker(), Optional.of("epoch:3"), true)
+        ));
+        GrpcJobReplicatorEventStream stream = new GrpcJobReplicatorEventStream(client, new DataReplicatorMetrics("test", titusRuntime), titusRuntime, Schedulers.parallel());
+
+        StepVerifier.create(stream.connect())
+                .assertNext(next -> assertThat(next.getSnapshot().getTasks()).containsExactly(task))
+                .thenCancel()
+                .verify();
+
+        // The second connection gets the missed task update only.
+        StepVerifier.create(stream.connect())
+                .assertNext(next -> {
+                    assertThat(next.getTrigger()).isInstanceOf(TaskUpdateEvent.class);
+                    assertThat(next.getSnapshot().getJobs()).hasSize(1);
+                    assertThat(next.getSnapshot().getTasks()).containsExactly(launchedTask);
+                })
+                .thenCancel()
+                .verify();
+
+        verify(client).observeJobs(any(), eq(Optional.of("epoch:2")), argThat(snapshot -> snapshot.findTaskById(task.getId()).isPresent()));
+    }
+
     private GrpcJobReplicatorEventStream newStream() {
         when(client.observeJobs(any())).thenReturn(ReactorExt.toFlux(dataGenerator.observeJobs(true)));
+        when(client.observeJobs(any(), any(), any())).thenCallRealMethod();
         return new GrpcJobReplicatorEventStream(client, new DataReplicatorMetrics("test", titusRuntime), titusRuntime, Schedulers.parallel());
     }
 
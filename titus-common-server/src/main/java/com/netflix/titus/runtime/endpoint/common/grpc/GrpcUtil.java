@@ -18,6 +18,7 @@ package com.netflix.titus.runtime.endpoint.common.grpc;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -41,9 +42,11 @@ import reactor.core.publisher.MonoSink;
 import rx.Completable;
 import rx.Emitter;
 import rx.Observable;
+import rx.Subscriber;
 import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
+import rx.functions.Func1;
 
 import static io.grpc.stub.ClientCalls.asyncUnaryCall;
 
@@ -212,6 +215,24 @@ public class GrpcUtil {
         serverObserver.setOnCancelHandler(disposable::dispose);
     }
 
+    /**
+     * Writes the items emitted by the given observable to the server response stream. The next item is requested
+     * only when the transport is ready to send it (see {@link ServerCallStreamObserver#isReady()}), so the number of
+     * messages buffered in the transport for a slow client stays bounded. The subscription is cancelled when the
+     * client cancels the call.
+     */
+    public static <T> Subscription subscribeWithFlowControl(Observable<T> source,
+                                                            StreamObserver<T> responseObserver,
+                                                            Func1<Throwable, Throwable> errorMapper) {
+        ServerCallStreamObserver<T> serverObserver = (ServerCallStreamObserver<T>) responseObserver;
+        FlowControlledSubscriber<T> subscriber = new FlowControlledSubscriber<>(serverObserver, errorMapper);
+        serverObserver.setOnReadyHandler(subscriber::requestIfReady);
+        serverObserver.setOnCancelHandler(subscriber::unsubscribe);
+        source.subscribe(subscriber);
+        subscriber.requestIfReady();
+        return subscriber;
+    }
+
     public static <T> Observable<T> createRequestObservable(Action1<Emitter<T>> emitter) {
         return Observable.create(
                 emitter,
@@ -242,4 +263,49 @@ public class GrpcUtil {
     public static boolean isNotOK(Status oneStatus) {
         return !Status.Code.OK.equals(oneStatus.getCode());
     }
+
+    private static class FlowControlledSubscriber<T> extends Subscriber<T> {
+
+        private final ServerCallStreamObserver<T> serverObserver;
+        private final Func1<Throwable, Throwable> errorMapper;
+
+        /**
+         * Set when the next item should be requested once the transport is ready.
+         */
+        private final AtomicBoolean awaitingReady = new AtomicBoolean(true);
+
+        private FlowControlledSubscriber(ServerCallStreamObserver<T> serverObserver, Func1<Throwable, Throwable> errorMapper) {
+            this.serverObserver = serverObserver;
+            this.errorMapper = errorMapper;
+        }
+
+        @Override
+        public void onStart() {
+            request(0);
+        }
+
+        @Override
+        public void onNext(T value) {
+            serverObserver.onNext(value);
+            awaitingReady.set(true);
+            requestIfReady();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            serverObserver.onError(errorMapper.call(e));
+        }
+
+        @Override
+        public void onCompleted() {
+            serverObserver.onCompleted();
+        }
+
+        private void requestIfReady() {
+            // The flag guarantees that only one of the concurrent onNext/onReady callbacks requests the next item.
+            if (serverObserver.isReady() && awaitingReady.compareAndSet(true, false)) {
+                request(1);
+            }
+        }
+    }
 }
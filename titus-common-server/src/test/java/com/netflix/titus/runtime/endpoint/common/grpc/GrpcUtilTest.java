@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.runtime.endpoint.common.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import rx.Observable;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GrpcUtilTest {
+
+    @SuppressWarnings("unchecked")
+    private final ServerCallStreamObserver<Integer> responseObserver = mock(ServerCallStreamObserver.class);
+
+    private final AtomicBoolean ready = new AtomicBoolean();
+    private final List<Integer> written = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        when(responseObserver.isReady()).thenAnswer(invocation -> ready.get());
+        doAnswer(invocation -> written.add(invocation.getArgument(0))).when(responseObserver).onNext(any());
+    }
+
+    @Test
+    public void testItemsAreRequestedOnlyWhenTransportIsReady() {
+        GrpcUtil.subscribeWithFlowControl(Observable.range(1, 3), responseObserver, e -> e);
+        assertThat(written).isEmpty();
+
+        // Transport accepts one message, and becomes not ready again
+        ready.set(true);
+        doAnswer(invocation -> {
+            written.add(invocation.getArgument(0));
+            ready.set(false);
+            return null;
+        }).when(responseObserver).onNext(any());
+        onReadyHandler().run();
+        assertThat(written).containsExactly(1);
+
+        doAnswer(invocation -> written.add(invocation.getArgument(0))).when(responseObserver).onNext(any());
+        ready.set(true);
+        onReadyHandler().run();
+        assertThat(written).containsExactly(1, 2, 3);
+        verify(responseObserver).onCompleted();
+    }
+
+    @Test
+    public void testErrorIsMapped() {
+        ready.set(true);
+        RuntimeException mapped = new RuntimeException("mapped");
+        GrpcUtil.subscribeWithFlowControl(Observable.error(new RuntimeException("simulated error")), responseObserver, e -> mapped);
+        verify(responseObserver).onError(mapped);
+    }
+
+    @Test
+    public void testCancelUnsubscribes() {
+        ready.set(true);
+        PublishSubject<Integer> subject = PublishSubject.create();
+        Subscription subscription = GrpcUtil.subscribeWithFlowControl(subject, responseObserver, e -> e);
+
+        ArgumentCaptor<Runnable> cancelHandler = ArgumentCaptor.forClass(Runnable.class);
+        verify(responseObserver).setOnCancelHandler(cancelHandler.capture());
+        cancelHandler.getValue().run();
+
+        assertThat(subscription.isUnsubscribed()).isTrue();
+        assertThat(subject.hasObservers()).isFalse();
+    }
+
+    private Runnable onReadyHandler() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(responseObserver).setOnReadyHandler(captor.capture());
+        return captor.getValue();
+    }
+}
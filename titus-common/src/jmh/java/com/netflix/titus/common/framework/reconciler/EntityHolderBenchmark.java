@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of a single task update in a job with many tasks. Run with the GC profiler (the default for the
+ * 'jmh' Gradle task) to see the allocation per update ('gc.alloc.rate.norm'):
+ * <pre>
+ * ./gradlew :titus-common:jmh -PjmhInclude=EntityHolderBenchmark
+ * </pre>
+ * The 'copyOnWriteUpdate' benchmark reproduces the previous {@link EntityHolder} implementation, which copied the
+ * children map and list on each update, and is kept as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityHolderBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int taskCount;
+
+    private EntityHolder jobHolder;
+    private Map<String, EntityHolder> copyOnWriteChildren;
+    private String[] taskIds;
+    private int nextTask;
+
+    @Setup
+    public void setUp() {
+        this.taskIds = new String[taskCount];
+        this.copyOnWriteChildren = new HashMap<>();
+
+        EntityHolder holder = EntityHolder.newRoot("job", "jobEntity");
+        for (int i = 0; i < taskCount; i++) {
+            taskIds[i] = "task" + i;
+            EntityHolder taskHolder = EntityHolder.newRoot(taskIds[i], "taskEntity");
+            holder = holder.addChild(taskHolder);
+            copyOnWriteChildren.put(taskIds[i], taskHolder);
+        }
+        this.jobHolder = holder;
+    }
+
+    @Benchmark
+    public EntityHolder entityHolderUpdate() {
+        String taskId = nextTaskId();
+        jobHolder = jobHolder.addChild(EntityHolder.newRoot(taskId, "taskEntity"));
+        return jobHolder;
+    }
+
+    @Benchmark
+    public List<EntityHolder> copyOnWriteUpdate() {
+        String taskId = nextTaskId();
+        Map<String, EntityHolder> newChildren = new HashMap<>(copyOnWriteChildren);
+        newChildren.put(taskId, EntityHolder.newRoot(taskId, "taskEntity"));
+        copyOnWriteChildren = newChildren;
+        return new ArrayList<>(newChildren.values());
+    }
+
+    private String nextTaskId() {
+        String taskId = taskIds[nextTask];
+        nextTask = (nextTask + 1) % taskCount;
+        return taskId;
+    }
+}
@@ -18,33 +18,39 @@ package com.netflix.titus.common.framework.reconciler;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import com.netflix.titus.common.util.collections.PersistentHashMap;
 import com.netflix.titus.common.util.tuple.Pair;
 
 /**
  * Composite entity hierarchy. The parent-child association runs from parent to child only. {@link EntityHolder} instances
  * are immutable, thus each change produces a new version of an entity. Also each child update requires update of a parent
  * entity, when the reference to the child changes (a new version is created).
+ * <p>
+ * Children and attributes are kept in persistent maps, so a new version of an entity shares most of its state with the
+ * previous one, and the cost of a child update does not depend on the number of children.
  */
 public class EntityHolder {
 
     private final String id;
     private final Object entity;
 
-    private final List<EntityHolder> children;
-    private final Map<String, EntityHolder> childrenById;
-    private final Map<String, Object> attributes;
+    private final PersistentHashMap<String, EntityHolder> childrenById;
+    private final PersistentHashMap<String, Object> attributes;
 
-    private EntityHolder(String id, Object entity, Map<String, EntityHolder> childrenById, Map<String, Object> attributes) {
+    /**
+     * Materialized lazily on the first access, as most entity versions are never asked for the children list.
+     */
+    private volatile List<EntityHolder> children;
+
+    private EntityHolder(String id, Object entity, PersistentHashMap<String, EntityHolder> childrenById, PersistentHashMap<String, Object> attributes) {
         this.id = id;
         this.entity = entity;
         this.childrenById = childrenById;
-        this.children = new ArrayList<>(childrenById.values());
         this.attributes = attributes;
     }
 
@@ -57,7 +63,14 @@ public class EntityHolder {
     }
 
     public List<EntityHolder> getChildren() {
-        return children;
+        List<EntityHolder> result = children;
+        if (result == null) {
+            result = childrenById.isEmpty()
+                    ? Collections.emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(childrenById.values()));
+            this.children = result;
+        }
+        return result;
     }
 
     public Map<String, Object> getAttributes() {
@@ -72,14 +85,14 @@ public class EntityHolder {
     }
 
     public Optional<EntityHolder> findChildById(String childId) {
-        if (children.isEmpty()) {
+        if (childrenById.isEmpty()) {
             return Optional.empty();
         }
         EntityHolder entityHolder = childrenById.get(childId);
         if (entityHolder != null) {
             return Optional.of(entityHolder);
         }
-        for (EntityHolder child : children) {
+        for (EntityHolder child : childrenById.values()) {
             Optional<EntityHolder> result = child.findChildById(childId);
             if (result.isPresent()) {
                 return result;
@@ -89,35 +102,27 @@ public class EntityHolder {
     }
 
     public EntityHolder addChild(EntityHolder child) {
-        Map<String, EntityHolder> newChildrenById = new HashMap<>(childrenById);
-        newChildrenById.put(child.getId(), child);
-        return new EntityHolder(id, entity, newChildrenById, attributes);
+        return new EntityHolder(id, entity, childrenById.plus(child.getId(), child), attributes);
     }
 
     public Pair<EntityHolder, Optional<EntityHolder>> removeChild(String id) {
-        if (!childrenById.containsKey(id)) {
+        EntityHolder removedChild = childrenById.get(id);
+        if (removedChild == null) {
             return Pair.of(this, Optional.empty());
         }
-        Map<String, EntityHolder> newChildrenById = new HashMap<>(childrenById);
-        EntityHolder removedChild = newChildrenById.remove(id);
-
-        EntityHolder newRoot = new EntityHolder(this.id, this.entity, newChildrenById, this.attributes);
+        EntityHolder newRoot = new EntityHolder(this.id, this.entity, childrenById.minus(id), this.attributes);
         return Pair.of(newRoot, Optional.of(removedChild));
     }
 
     public EntityHolder addTag(String tagName, Object tagValue) {
-        Map<String, Object> newTags = new HashMap<>(attributes);
-        newTags.put(tagName, tagValue);
-        return new EntityHolder(id, entity, childrenById, newTags);
+        return new EntityHolder(id, entity, childrenById, attributes.plus(tagName, tagValue));
     }
 
     public EntityHolder removeTag(String tagName) {
         if (!attributes.containsKey(tagName)) {
             return this;
         }
-        Map<String, Object> newTags = new HashMap<>(attributes);
-        newTags.remove(tagName);
-        return new EntityHolder(id, entity, childrenById, newTags);
+        return new EntityHolder(id, entity, childrenById, attributes.minus(tagName));
     }
 
     public <E> EntityHolder setEntity(E entity) {
@@ -126,10 +131,22 @@ public class EntityHolder {
 
     public void visit(Consumer<EntityHolder> visitor) {
         visitor.accept(this);
-        children.forEach(c -> c.visit(visitor));
+        childrenById.forEach((childId, child) -> child.visit(visitor));
+    }
+
+    /**
+     * Reports the direct children that differ between this and the given version of the entity holder. Children
+     * shared by both versions are skipped, so for versions derived from each other the cost is proportional to the
+     * number of changes, not to the number of children.
+     *
+     * @param removed        called with children present in this version only
+     * @param addedOrUpdated called with children of the other version, that are new or have been updated
+     */
+    public void diffChildren(EntityHolder other, Consumer<EntityHolder> removed, Consumer<EntityHolder> addedOrUpdated) {
+        childrenById.diff(other.childrenById, (childId, child) -> removed.accept(child), (childId, child) -> addedOrUpdated.accept(child));
     }
 
     public static <E> EntityHolder newRoot(String id, E entity) {
-        return new EntityHolder(id, entity, Collections.emptyMap(), Collections.emptyMap());
+        return new EntityHolder(id, entity, PersistentHashMap.empty(), PersistentHashMap.empty());
     }
 }
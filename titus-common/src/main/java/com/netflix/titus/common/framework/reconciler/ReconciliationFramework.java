@@ -17,6 +17,7 @@
 package com.netflix.titus.common.framework.reconciler;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 
@@ -38,7 +39,7 @@ public interface ReconciliationFramework<EVENT> {
     /**
      * Stops the reconciliation framework
      *
-     * @return true if it was stopped in the specified timeout
+     * @return true if it was stopped in the specified timeout, and no running change action was interrupted
      */
     boolean stop(long timeoutMs);
 
@@ -65,6 +66,14 @@ public interface ReconciliationFramework<EVENT> {
      */
     <ORDER_BY> List<EntityHolder> orderedView(ORDER_BY orderingCriteria);
 
+    /**
+     * Returns roots of {@link ReconciliationEngine} instances having the given key in the requested secondary index,
+     * mapped by their ids. The returned map is immutable, and constitutes a snapshot of the entity model.
+     *
+     * @throws IllegalArgumentException if the index is not recognized
+     */
+    <INDEX_ID> Map<String, EntityHolder> indexedView(INDEX_ID indexId, String key);
+
     /**
      * Creates a new reconciliation engine.
      */
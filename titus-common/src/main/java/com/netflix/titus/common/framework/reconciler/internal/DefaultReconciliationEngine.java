@@ -56,7 +56,7 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
     private final TitusRuntime titusRuntime;
     private final Clock clock;
 
-    private IndexSet<EntityHolder> indexSet;
+    private final IndexSet<EntityHolder> indexSet;
 
     private Transaction pendingTransaction = EmptyTransaction.EMPTY;
 
@@ -65,6 +65,9 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
 
     private boolean firstTrigger;
 
+    private volatile Runnable readyListener = () -> {
+    };
+
     public DefaultReconciliationEngine(EntityHolder bootstrapModel,
                                        boolean newlyCreated,
                                        DifferenceResolver<EVENT> runningDifferenceResolver,
@@ -75,24 +78,25 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
                                        TitusRuntime titusRuntime) {
         this.runningDifferenceResolver = runningDifferenceResolver;
         this.eventFactory = eventFactory;
-        this.indexSet = IndexSet.newIndexSet(indexComparators);
+        this.indexSet = IndexSet.newIndexSet(indexComparators, EntityHolder::getId);
         this.titusRuntime = titusRuntime;
         this.clock = titusRuntime.getClock();
         this.eventObservable = ObservableExt.protectFromMissingExceptionHandlers(eventSubject, logger);
         this.modelHolder = new ModelHolder(bootstrapModel, bootstrapModel, bootstrapModel);
         this.firstTrigger = newlyCreated;
         this.metrics = new ReconciliationEngineMetrics<>(extraChangeActionTags, extraModelActionTags, titusRuntime.getRegistry(), clock);
-        indexEntityHolder(bootstrapModel);
+        indexSet.add(bootstrapModel.getChildren());
     }
 
     @Override
     public boolean applyModelUpdates() {
         return pendingTransaction.applyModelUpdates(modelHolder)
                 .map(newModelHolder -> {
-                    boolean isReferenceModelChanged = newModelHolder != modelHolder && newModelHolder.getReference() != modelHolder.getReference();
+                    EntityHolder previousReference = modelHolder.getReference();
+                    boolean isReferenceModelChanged = newModelHolder != modelHolder && newModelHolder.getReference() != previousReference;
                     this.modelHolder = newModelHolder;
                     if (isReferenceModelChanged) {
-                        indexEntityHolder(modelHolder.getReference());
+                        indexEntityHolder(previousReference, modelHolder.getReference());
                     }
                     return isReferenceModelChanged;
                 })
@@ -104,6 +108,11 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
         return !pendingTransaction.isClosed() || !referenceChangeActions.isEmpty();
     }
 
+    @Override
+    public void setReadyListener(Runnable readyListener) {
+        this.readyListener = readyListener;
+    }
+
     @Override
     public void emitEvents() {
         /*
@@ -172,6 +181,7 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
             changeActionEventQueue.add(eventFactory.newBeforeChangeEvent(this, referenceUpdate, transactionId));
             referenceChangeActions.add(new ChangeActionHolder(entityHolderId, referenceUpdate, subscriber, transactionId, clock.wallTime()));
             metrics.updateChangeActionQueueSize(referenceChangeActions.size());
+            signalReady();
         });
     }
 
@@ -200,10 +210,15 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
         return eventObservable;
     }
 
-    void shutdown() {
+    /**
+     * Returns true if a change action was still running, so its outcome may not have been reported as an event.
+     */
+    boolean shutdown() {
+        boolean interrupted = !pendingTransaction.isClosed();
         pendingTransaction.close();
         eventSubject.onCompleted();
         metrics.shutdown();
+        return interrupted;
     }
 
     ReconcileEventFactory<EVENT> getEventFactory() {
@@ -304,8 +319,23 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
         pendingTransaction = transactions.size() == 1 ? transactions.get(0) : new CompositeTransaction(transactions);
     }
 
-    private void indexEntityHolder(EntityHolder entityHolder) {
-        indexSet = indexSet.apply(entityHolder.getChildren());
+    private void indexEntityHolder(EntityHolder previous, EntityHolder current) {
+        List<String> removedIds = new ArrayList<>();
+        List<EntityHolder> addedOrUpdated = new ArrayList<>();
+        previous.diffChildren(current, removed -> removedIds.add(removed.getId()), addedOrUpdated::add);
+        indexSet.remove(removedIds);
+        indexSet.add(addedOrUpdated);
+    }
+
+    /**
+     * Called when there is new work for the event loop. Must be called after the state change it reports.
+     */
+    void signalReady() {
+        try {
+            readyListener.run();
+        } catch (Exception e) {
+            logger.warn("Ready listener threw an exception", e);
+        }
     }
 
     void emitEvent(EVENT event) {
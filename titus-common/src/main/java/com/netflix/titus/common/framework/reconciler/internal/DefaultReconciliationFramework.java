@@ -17,10 +17,12 @@
 package com.netflix.titus.common.framework.reconciler.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,12 +34,13 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
+import com.netflix.spectator.api.DistributionSummary;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Timer;
 import com.netflix.spectator.api.patterns.PolledMeter;
@@ -60,7 +63,13 @@ import rx.Subscriber;
 import rx.Subscription;
 import rx.schedulers.Schedulers;
 import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
 
+/**
+ * Reconciliation framework implementation running reconciliation engines in an event loop. The engines can be
+ * partitioned by their root entity holder id into multiple shards, each running its own event loop on a separate
+ * worker. With a single shard (the default), all engines are processed by one event loop.
+ */
 public class DefaultReconciliationFramework<EVENT> implements ReconciliationFramework<EVENT> {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultReconciliationFramework.class);
@@ -70,33 +79,37 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
     private static final String LAST_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "lastExecutionTime";
     private static final String LAST_FULL_CYCLE_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "lastFullCycleExecutionTime";
 
+    private static final String SHARD_ROOT_METRIC_NAME = ROOT_METRIC_NAME + "shard.";
+    private static final String SHARD_LOOP_EXECUTION_TIME_METRIC = SHARD_ROOT_METRIC_NAME + "executionTime";
+    private static final String SHARD_LAST_EXECUTION_TIME_METRIC = SHARD_ROOT_METRIC_NAME + "lastExecutionTime";
+    private static final String SHARD_ENGINES_METRIC = SHARD_ROOT_METRIC_NAME + "engines";
+    private static final String SHARD_DIRTY_ENGINES_METRIC = SHARD_ROOT_METRIC_NAME + "dirtyEngines";
+
     private final Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory;
     private final long idleTimeoutMs;
     private final long activeTimeoutMs;
 
-    private final ExecutorService executor;
-    private final Scheduler scheduler;
-
-    private final Set<InternalReconciliationEngine<EVENT>> engines = Collections.newSetFromMap(new ConcurrentHashMap<>());
-
-    private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> enginesAdded = new LinkedBlockingQueue<>();
-    private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> enginesToRemove = new LinkedBlockingQueue<>();
+    private final List<Shard> shards;
 
-    private final AtomicReference<Map<String, InternalReconciliationEngine<EVENT>>> idToEngineMapRef = new AtomicReference<>(Collections.emptyMap());
-    private IndexSet<EntityHolder> indexSet;
+    /**
+     * Maps ids of all entity holders (root and children) to their owning engines. Updated incrementally for the engines
+     * with model changes only.
+     */
+    private final Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap = new ConcurrentHashMap<>();
 
-    private final Scheduler.Worker worker;
+    /**
+     * Index shared by all shards. Updates are synchronized on the index instance, reads are lock free.
+     */
+    private final IndexSet<EntityHolder> indexSet;
 
     private volatile boolean runnable = true;
     private volatile boolean started = false;
 
-    private final PublishSubject<Observable<EVENT>> eventsMergeSubject = PublishSubject.create();
+    private final Subject<Observable<EVENT>, Observable<EVENT>> eventsMergeSubject = PublishSubject.<Observable<EVENT>>create().toSerialized();
     private final Observable<EVENT> eventsObservable;
     private final Subscription internalEventSubscription;
 
     private final Timer loopExecutionTime;
-    private volatile long lastFullCycleExecutionTimeMs; // Probed by a polled meter.
-    private volatile long lastExecutionTimeMs; // Probed by a polled meter.
 
     private final Object multiEngineChangeLock = new Object();
 
@@ -107,50 +120,72 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                                           Map<Object, Comparator<EntityHolder>> indexComparators,
                                           Registry registry,
                                           Optional<Scheduler> optionalScheduler) {
+        this(bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, 1, indexComparators, registry, optionalScheduler);
+    }
+
+    public DefaultReconciliationFramework(List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          int shardCount,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          Registry registry,
+                                          Optional<Scheduler> optionalScheduler) {
+        this(bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, shardCount, indexComparators,
+                Collections.emptyMap(), registry, optionalScheduler);
+    }
+
+    public DefaultReconciliationFramework(List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          int shardCount,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          Map<Object, Function<EntityHolder, Set<String>>> indexKeyExtractors,
+                                          Registry registry,
+                                          Optional<Scheduler> optionalScheduler) {
         Preconditions.checkArgument(idleTimeoutMs > 0, "idleTimeout <= 0 (%s)", idleTimeoutMs);
         Preconditions.checkArgument(activeTimeoutMs <= idleTimeoutMs, "activeTimeout(%s) > idleTimeout(%s)", activeTimeoutMs, idleTimeoutMs);
+        Preconditions.checkArgument(shardCount > 0, "shardCount <= 0 (%s)", shardCount);
 
         this.engineFactory = engineFactory;
-        this.indexSet = IndexSet.newIndexSet(indexComparators);
+        this.indexSet = IndexSet.newIndexSet(indexComparators, indexKeyExtractors, EntityHolder::getId);
 
         this.idleTimeoutMs = idleTimeoutMs;
         this.activeTimeoutMs = activeTimeoutMs;
 
-        if (optionalScheduler.isPresent()) {
-            this.scheduler = optionalScheduler.get();
-            this.executor = null;
-        } else {
-            this.executor = Executors.newSingleThreadExecutor(runnable -> {
-                Thread thread = new Thread(runnable, "TitusReconciliationFramework");
-                thread.setDaemon(true);
-                return thread;
-            });
-            this.scheduler = Schedulers.from(executor);
-        }
-
-        this.worker = scheduler.createWorker();
         this.eventsObservable = Observable.merge(eventsMergeSubject).share();
 
         // To keep eventsObservable permanently active.
         this.internalEventSubscription = eventsObservable.subscribe(ObservableExt.silentSubscriber());
 
         this.loopExecutionTime = registry.timer(LOOP_EXECUTION_TIME_METRIC);
-        this.lastFullCycleExecutionTimeMs = scheduler.now() - idleTimeoutMs;
-        this.lastExecutionTimeMs = scheduler.now();
-        PolledMeter.using(registry).withName(LAST_EXECUTION_TIME_METRIC).monitorValue(this, self -> scheduler.now() - self.lastExecutionTimeMs);
-        PolledMeter.using(registry).withName(LAST_FULL_CYCLE_EXECUTION_TIME_METRIC).monitorValue(this, self -> scheduler.now() - self.lastFullCycleExecutionTimeMs);
 
-        engines.addAll(bootstrapEngines);
-        bootstrapEngines.forEach(engine -> eventsMergeSubject.onNext(engine.events()));
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new Shard(i, shardCount, registry, optionalScheduler));
+        }
+        this.shards = shards;
+
+        Scheduler.Worker anyWorker = shards.get(0).worker;
+        PolledMeter.using(registry).withName(LAST_EXECUTION_TIME_METRIC).monitorValue(this,
+                self -> anyWorker.now() - self.shards.stream().mapToLong(shard -> shard.lastExecutionTimeMs).min().orElse(anyWorker.now())
+        );
+        PolledMeter.using(registry).withName(LAST_FULL_CYCLE_EXECUTION_TIME_METRIC).monitorValue(this,
+                self -> anyWorker.now() - self.shards.stream().mapToLong(shard -> shard.lastFullCycleExecutionTimeMs).min().orElse(anyWorker.now())
+        );
 
-        updateIndexSet();
+        for (InternalReconciliationEngine<EVENT> engine : bootstrapEngines) {
+            shardOf(engine.getReferenceView().getId()).addEngine(engine);
+        }
+        shards.forEach(shard -> shard.indexEngines(shard.engines));
     }
 
     @Override
     public void start() {
         Preconditions.checkArgument(!started, "Framework already started");
         started = true;
-        doSchedule(0);
+        shards.forEach(shard -> shard.doSchedule(0));
     }
 
     @Override
@@ -160,35 +195,31 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         // In the test code when we use the TestScheduler we would always block here. One way to solve this is to return
         // Completable as a result, but this makes the API inconvenient. Instead we chose to look at the worker type,
         // and handle this differently for TestScheduler.
-        if (worker.getClass().getName().contains("TestScheduler")) {
-            stopEngines();
-            return true;
+        AtomicBoolean interrupted = new AtomicBoolean();
+        if (shards.get(0).worker.getClass().getName().contains("TestScheduler")) {
+            shards.forEach(shard -> {
+                if (shard.stopEngines()) {
+                    interrupted.set(true);
+                }
+            });
+            return !interrupted.get();
         }
 
-        // Run this on internal thread, just like other actions.
-        CountDownLatch latch = new CountDownLatch(1);
-        worker.schedule(() -> {
-            stopEngines();
+        // Run this on internal threads, just like other actions.
+        CountDownLatch latch = new CountDownLatch(shards.size());
+        shards.forEach(shard -> shard.worker.schedule(() -> {
+            if (shard.stopEngines()) {
+                interrupted.set(true);
+            }
             latch.countDown();
-        });
+        }));
         ExceptionExt.silent(() -> latch.await(timeoutMs, TimeUnit.MILLISECONDS));
 
         internalEventSubscription.unsubscribe();
 
-        if (executor != null) {
-            executor.shutdownNow();
-        }
-
-        return latch.getCount() == 0;
-    }
+        shards.forEach(Shard::shutdownExecutor);
 
-    private void stopEngines() {
-        engines.forEach(e -> {
-            if (e instanceof DefaultReconciliationEngine) {
-                ((DefaultReconciliationEngine) e).shutdown();
-            }
-        });
-        engines.clear();
+        return latch.getCount() == 0 && !interrupted.get();
     }
 
     @Override
@@ -199,7 +230,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 return;
             }
             InternalReconciliationEngine newEngine = engineFactory.apply(bootstrapModel);
-            enginesAdded.add(Pair.of(newEngine, (Subscriber<ReconciliationEngine>) subscriber));
+            shardOf(bootstrapModel.getId()).enginesAdded.add(Pair.of(newEngine, (Subscriber<ReconciliationEngine>) subscriber));
         });
     }
 
@@ -212,7 +243,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 subscriber.onError(new IllegalStateException("Reconciliation engine is stopped"));
                 return;
             }
-            enginesToRemove.add(Pair.of((InternalReconciliationEngine<EVENT>) engine, (Subscriber<Void>) subscriber));
+            shardOf(engine.getReferenceView().getId()).enginesToRemove.add(Pair.of((InternalReconciliationEngine<EVENT>) engine, (Subscriber<Void>) subscriber));
         }).toCompletable();
     }
 
@@ -252,6 +283,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
             // Executing M1 requires that both M1/engineA and M1/engineB are at the top of the queue, but in this case
             // M2/engineB is ahead of the M1/engineB. On the other hand, M1/engineA is ahead of M2/engineB. Because
             // of that we have deadlock. Please, note that we can ignore here the regular (engine scoped) change actions.
+            // The lock is global (not per shard), as the engines may belong to different shards.
             Subscription subscription;
             synchronized (multiEngineChangeLock) {
                 subscription = Observable.mergeDelayError(engineActions).subscribe(
@@ -271,7 +303,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     @Override
     public Optional<ReconciliationEngine<EVENT>> findEngineByRootId(String id) {
-        InternalReconciliationEngine<EVENT> engine = idToEngineMapRef.get().get(id);
+        InternalReconciliationEngine<EVENT> engine = idToEngineMap.get(id);
         if (engine == null) {
             return Optional.empty();
         }
@@ -280,7 +312,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     @Override
     public Optional<Pair<ReconciliationEngine<EVENT>, EntityHolder>> findEngineByChildId(String childId) {
-        InternalReconciliationEngine<EVENT> engine = idToEngineMapRef.get().get(childId);
+        InternalReconciliationEngine<EVENT> engine = idToEngineMap.get(childId);
         if (engine == null) {
             return Optional.empty();
         }
@@ -296,127 +328,295 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         return indexSet.getOrdered(orderingCriteria);
     }
 
-    private void doSchedule(long delayMs) {
-        if (!runnable) {
-            return;
-        }
-        worker.schedule(() -> {
-            long startTimeMs = worker.now();
-            try {
-                boolean fullCycle = (startTimeMs - lastFullCycleExecutionTimeMs) >= idleTimeoutMs;
-                if (fullCycle) {
-                    lastFullCycleExecutionTimeMs = startTimeMs;
-                }
-
-                doLoop(fullCycle);
+    @Override
+    public <INDEX_ID> Map<String, EntityHolder> indexedView(INDEX_ID indexId, String key) {
+        return indexSet.getByKey(indexId, key);
+    }
 
-                doSchedule(activeTimeoutMs);
-            } catch (Exception e) {
-                logger.warn("Unexpected error in the reconciliation loop", e);
-                doSchedule(idleTimeoutMs);
-            } finally {
-                long now = worker.now();
-                lastExecutionTimeMs = now;
-                loopExecutionTime.record(now - startTimeMs, TimeUnit.MILLISECONDS);
-            }
-        }, delayMs, TimeUnit.MILLISECONDS);
+    private Shard shardOf(String rootId) {
+        return shards.get(Math.floorMod(rootId.hashCode(), shards.size()));
     }
 
-    private void doLoop(boolean fullReconciliationCycle) {
-        Set<InternalReconciliationEngine<EVENT>> mustRunEngines = new HashSet<>();
-
-        // Apply pending model updates/send events
-        boolean modelUpdates = false;
-        for (InternalReconciliationEngine engine : engines) {
-            try {
-                boolean anyChange = engine.applyModelUpdates();
-                modelUpdates = modelUpdates || anyChange;
-            } catch (Exception e) {
-                logger.warn("Unexpected error from reconciliation engine 'applyModelUpdates' method", e);
+    /**
+     * A partition of the reconciliation engines, processed by its own event loop.
+     */
+    private class Shard {
+
+        private final ExecutorService executor;
+        private final Scheduler.Worker worker;
+
+        private final Set<InternalReconciliationEngine<EVENT>> engines = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        /**
+         * Engines that signalled new work since the last loop iteration. Only these engines are processed in the
+         * event loop iterations that are not full reconciliation cycles.
+         */
+        private final Set<InternalReconciliationEngine<EVENT>> readyEngines = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> enginesAdded = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> enginesToRemove = new LinkedBlockingQueue<>();
+
+        /**
+         * Root entity holders of engines, as last seen by {@link #indexEngines(Collection)}. Accessed by the shard event loop only.
+         */
+        private final Map<InternalReconciliationEngine<EVENT>, EntityHolder> indexedRootHolders = new HashMap<>();
+
+        private final Timer shardLoopExecutionTime;
+        private final DistributionSummary dirtyEnginesSummary;
+        private volatile long lastFullCycleExecutionTimeMs; // Probed by a polled meter.
+        private volatile long lastExecutionTimeMs; // Probed by a polled meter.
+
+        private Shard(int shardIndex, int shardCount, Registry registry, Optional<Scheduler> optionalScheduler) {
+            Scheduler scheduler;
+            if (optionalScheduler.isPresent()) {
+                scheduler = optionalScheduler.get();
+                this.executor = null;
+            } else {
+                String threadName = shardCount == 1 ? "TitusReconciliationFramework" : "TitusReconciliationFramework-" + shardIndex;
+                this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                scheduler = Schedulers.from(executor);
             }
+            this.worker = scheduler.createWorker();
+
+            this.lastFullCycleExecutionTimeMs = scheduler.now() - idleTimeoutMs;
+            this.lastExecutionTimeMs = scheduler.now();
+
+            String shardTag = Integer.toString(shardIndex);
+            this.shardLoopExecutionTime = registry.timer(SHARD_LOOP_EXECUTION_TIME_METRIC, "shard", shardTag);
+            this.dirtyEnginesSummary = registry.distributionSummary(SHARD_DIRTY_ENGINES_METRIC, "shard", shardTag);
+            PolledMeter.using(registry).withName(SHARD_LAST_EXECUTION_TIME_METRIC).withTag("shard", shardTag)
+                    .monitorValue(this, self -> worker.now() - self.lastExecutionTimeMs);
+            PolledMeter.using(registry).withName(SHARD_ENGINES_METRIC).withTag("shard", shardTag)
+                    .monitorValue(this, self -> self.engines.size());
         }
 
-        // Add new engines.
-        List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> recentlyAdded = new ArrayList<>();
-        enginesAdded.drainTo(recentlyAdded);
-        recentlyAdded.forEach(pair -> {
-            InternalReconciliationEngine<EVENT> newEngine = pair.getLeft();
-            engines.add(newEngine);
-            mustRunEngines.add(newEngine);
-            eventsMergeSubject.onNext(newEngine.events());
-        });
+        private void doSchedule(long delayMs) {
+            if (!runnable) {
+                return;
+            }
+            worker.schedule(() -> {
+                long startTimeMs = worker.now();
+                try {
+                    boolean fullCycle = (startTimeMs - lastFullCycleExecutionTimeMs) >= idleTimeoutMs;
+                    if (fullCycle) {
+                        lastFullCycleExecutionTimeMs = startTimeMs;
+                    }
 
-        // Remove engines.
-        List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> recentlyRemoved = new ArrayList<>();
-        enginesToRemove.drainTo(recentlyRemoved);
-        shutdownEnginesToRemove(recentlyRemoved);
+                    doLoop(fullCycle);
 
-        boolean engineSetUpdate = !recentlyAdded.isEmpty() || !recentlyRemoved.isEmpty();
+                    doSchedule(activeTimeoutMs);
+                } catch (Exception e) {
+                    logger.warn("Unexpected error in the reconciliation loop", e);
+                    doSchedule(idleTimeoutMs);
+                } finally {
+                    long now = worker.now();
+                    lastExecutionTimeMs = now;
+                    loopExecutionTime.record(now - startTimeMs, TimeUnit.MILLISECONDS);
+                    shardLoopExecutionTime.record(now - startTimeMs, TimeUnit.MILLISECONDS);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
 
-        // Update indexes if there are model changes.
-        if (modelUpdates || engineSetUpdate) {
-            updateIndexSet();
+        private void addEngine(InternalReconciliationEngine<EVENT> engine) {
+            engines.add(engine);
+            engine.setReadyListener(() -> readyEngines.add(engine));
+            eventsMergeSubject.onNext(engine.events());
         }
 
-        // Complete engine add/remove subscribers.
-        // We want to complete the subscribers that create new engines, before the first event is emitted.
-        // Otherwise the initial event would be emitted immediately, before the subscriber has a chance to subscriber to the event stream.
-        recentlyAdded.forEach(pair -> {
-            Subscriber<ReconciliationEngine> subscriber = pair.getRight();
-            if (!subscriber.isUnsubscribed()) {
-                subscriber.onNext(pair.getLeft());
-                subscriber.onCompleted();
-            }
-        });
-        recentlyRemoved.forEach(pair -> pair.getRight().onCompleted());
-
-        // Emit events
-        for (InternalReconciliationEngine engine : engines) {
-            try {
-                engine.emitEvents();
-            } catch (Exception e) {
-                logger.warn("Unexpected error from reconciliation engine 'emitEvents' method", e);
+        /**
+         * An engine is removed from the ready set before it is processed, so a signal arriving during the processing
+         * is never lost.
+         */
+        private Set<InternalReconciliationEngine<EVENT>> drainReadyEngines() {
+            Set<InternalReconciliationEngine<EVENT>> dirtyEngines = new HashSet<>();
+            for (Iterator<InternalReconciliationEngine<EVENT>> it = readyEngines.iterator(); it.hasNext(); ) {
+                InternalReconciliationEngine<EVENT> engine = it.next();
+                it.remove();
+                if (engines.contains(engine)) {
+                    dirtyEngines.add(engine);
+                }
             }
+            return dirtyEngines;
         }
 
-        // Complete ChangeAction subscribers
-        for (InternalReconciliationEngine<EVENT> engine : engines) {
-            try {
-                if (engine.closeFinishedTransactions()) {
-                    mustRunEngines.add(engine);
+        private void doLoop(boolean fullReconciliationCycle) {
+            Set<InternalReconciliationEngine<EVENT>> mustRunEngines = new HashSet<>();
+
+            // In the full reconciliation cycle all engines are evaluated. Otherwise only the engines with new work.
+            Set<InternalReconciliationEngine<EVENT>> dirtyEngines = drainReadyEngines();
+            Collection<InternalReconciliationEngine<EVENT>> activeEngines = fullReconciliationCycle ? engines : dirtyEngines;
+
+            // Apply pending model updates/send events
+            List<InternalReconciliationEngine<EVENT>> updatedEngines = new ArrayList<>();
+            for (InternalReconciliationEngine<EVENT> engine : activeEngines) {
+                try {
+                    if (engine.applyModelUpdates()) {
+                        updatedEngines.add(engine);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Unexpected error from reconciliation engine 'applyModelUpdates' method", e);
                 }
-            } catch (Exception e) {
-                logger.warn("Unexpected error from reconciliation engine 'closeFinishedTransactions' method", e);
             }
-        }
 
-        // Trigger actions on engines.
-        for (InternalReconciliationEngine engine : engines) {
-            if (fullReconciliationCycle || engine.hasPendingTransactions() || mustRunEngines.contains(engine)) {
+            // Add new engines.
+            List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> recentlyAdded = new ArrayList<>();
+            enginesAdded.drainTo(recentlyAdded);
+            recentlyAdded.forEach(pair -> {
+                InternalReconciliationEngine<EVENT> newEngine = pair.getLeft();
+                addEngine(newEngine);
+                dirtyEngines.add(newEngine);
+                updatedEngines.add(newEngine);
+                mustRunEngines.add(newEngine);
+            });
+
+            // Remove engines.
+            List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> recentlyRemoved = new ArrayList<>();
+            enginesToRemove.drainTo(recentlyRemoved);
+            shutdownEnginesToRemove(recentlyRemoved);
+            recentlyRemoved.forEach(pair -> dirtyEngines.remove(pair.getLeft()));
+
+            dirtyEnginesSummary.record(activeEngines.size());
+
+            // Update indexes for engines with model changes only.
+            if (!updatedEngines.isEmpty()) {
+                indexEngines(updatedEngines);
+            }
+            if (!recentlyRemoved.isEmpty()) {
+                unindexEngines(recentlyRemoved.stream().map(Pair::getLeft).collect(Collectors.toList()));
+            }
+
+            // Complete engine add/remove subscribers.
+            // We want to complete the subscribers that create new engines, before the first event is emitted.
+            // Otherwise the initial event would be emitted immediately, before the subscriber has a chance to subscriber to the event stream.
+            recentlyAdded.forEach(pair -> {
+                Subscriber<ReconciliationEngine> subscriber = pair.getRight();
+                if (!subscriber.isUnsubscribed()) {
+                    subscriber.onNext(pair.getLeft());
+                    subscriber.onCompleted();
+                }
+            });
+            recentlyRemoved.forEach(pair -> pair.getRight().onCompleted());
+
+            // Emit events
+            for (InternalReconciliationEngine engine : activeEngines) {
                 try {
-                    engine.triggerActions();
+                    engine.emitEvents();
                 } catch (Exception e) {
-                    logger.warn("Unexpected error from reconciliation engine 'triggerActions' method", e);
+                    logger.warn("Unexpected error from reconciliation engine 'emitEvents' method", e);
+                }
+            }
+
+            // Complete ChangeAction subscribers
+            for (InternalReconciliationEngine<EVENT> engine : activeEngines) {
+                try {
+                    if (engine.closeFinishedTransactions()) {
+                        mustRunEngines.add(engine);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Unexpected error from reconciliation engine 'closeFinishedTransactions' method", e);
+                }
+            }
+
+            // Trigger actions on engines.
+            for (InternalReconciliationEngine engine : activeEngines) {
+                if (fullReconciliationCycle || engine.hasPendingTransactions() || mustRunEngines.contains(engine)) {
+                    try {
+                        engine.triggerActions();
+                    } catch (Exception e) {
+                        logger.warn("Unexpected error from reconciliation engine 'triggerActions' method", e);
+                    }
                 }
             }
         }
-    }
 
-    private void shutdownEnginesToRemove(List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> toRemove) {
-        toRemove.forEach(pair -> {
-            InternalReconciliationEngine e = pair.getLeft();
-            if (e instanceof DefaultReconciliationEngine) {
-                ((DefaultReconciliationEngine) e).shutdown();
+        private void shutdownEnginesToRemove(List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> toRemove) {
+            toRemove.forEach(pair -> {
+                InternalReconciliationEngine e = pair.getLeft();
+                if (e instanceof DefaultReconciliationEngine) {
+                    ((DefaultReconciliationEngine) e).shutdown();
+                }
+                engines.remove(e);
+            });
+        }
+
+        /**
+         * Returns true if a change action of any engine was interrupted.
+         */
+        private boolean stopEngines() {
+            boolean interrupted = false;
+            for (InternalReconciliationEngine<EVENT> engine : engines) {
+                if (engine instanceof DefaultReconciliationEngine && ((DefaultReconciliationEngine) engine).shutdown()) {
+                    interrupted = true;
+                }
             }
-            engines.remove(e);
-        });
-    }
+            engines.clear();
+            return interrupted;
+        }
 
-    private void updateIndexSet() {
-        Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap = new HashMap<>();
-        engines.forEach(engine -> engine.getReferenceView().visit(h -> idToEngineMap.put(h.getId(), engine)));
-        this.idToEngineMapRef.set(idToEngineMap);
+        private void shutdownExecutor() {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
 
-        indexSet = indexSet.apply(engines.stream().map(ReconciliationEngine::getReferenceView).collect(Collectors.toList()));
+        private void indexEngines(Collection<InternalReconciliationEngine<EVENT>> updatedEngines) {
+            List<EntityHolder> updatedRootHolders = new ArrayList<>();
+            for (InternalReconciliationEngine<EVENT> engine : updatedEngines) {
+                EntityHolder current = engine.getReferenceView();
+                EntityHolder previous = indexedRootHolders.put(engine, current);
+                if (previous == current) {
+                    continue;
+                }
+
+                if (previous == null) {
+                    current.visit(holder -> idToEngineMap.put(holder.getId(), engine));
+                } else {
+                    idToEngineMap.put(current.getId(), engine);
+                    updateChildMappings(engine, previous, current);
+                }
+                updatedRootHolders.add(current);
+            }
+            synchronized (indexSet) {
+                indexSet.add(updatedRootHolders);
+            }
+        }
+
+        /**
+         * Updates the id mappings of the children that differ between the two versions of an entity holder, so the cost
+         * is proportional to the number of changed children.
+         */
+        private void updateChildMappings(InternalReconciliationEngine<EVENT> engine, EntityHolder previous, EntityHolder current) {
+            previous.diffChildren(current,
+                    // A child may be moved to another engine in the same loop iteration, so remove only own mappings.
+                    removed -> removed.visit(holder -> idToEngineMap.remove(holder.getId(), engine)),
+                    addedOrUpdated -> {
+                        idToEngineMap.put(addedOrUpdated.getId(), engine);
+                        Optional<EntityHolder> previousChild = previous.findChildById(addedOrUpdated.getId());
+                        if (previousChild.isPresent()) {
+                            updateChildMappings(engine, previousChild.get(), addedOrUpdated);
+                        } else {
+                            addedOrUpdated.visit(holder -> idToEngineMap.put(holder.getId(), engine));
+                        }
+                    }
+            );
+        }
+
+        private void unindexEngines(Collection<InternalReconciliationEngine<EVENT>> removedEngines) {
+            List<String> removedRootIds = new ArrayList<>();
+            for (InternalReconciliationEngine<EVENT> engine : removedEngines) {
+                EntityHolder previous = indexedRootHolders.remove(engine);
+                if (previous != null) {
+                    previous.visit(holder -> idToEngineMap.remove(holder.getId(), engine));
+                    removedRootIds.add(previous.getId());
+                }
+            }
+            synchronized (indexSet) {
+                indexSet.remove(removedRootIds);
+            }
+        }
     }
 }
@@ -41,6 +41,9 @@ class FailedTransaction<EVENT> implements Transaction {
         this.engine = engine;
         this.changeActionHolder = changeActionHolder;
         this.error = error;
+
+        // The error is reported in the next event loop iteration.
+        engine.signalReady();
     }
 
     @Override
@@ -16,31 +16,69 @@
 
 package com.netflix.titus.common.framework.reconciler.internal;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.netflix.titus.common.util.collections.PersistentHashMap;
 
 /**
- * TODO Optimize. This is expensive and inefficient implementation.
+ * A set of indexes, each keeping the same collection of items ordered according to its own comparator. Indexes are
+ * maintained incrementally, so the cost of an update is proportional to the number of changed items, not to the
+ * size of the whole collection. Each index is backed by a persistent tree, and {@link #getOrdered(Object)} returns an
+ * immutable snapshot that is not affected by the subsequent updates.
+ * <p>
+ * The update methods are not thread safe, and must be called by a single writer (the reconciliation loop). The
+ * {@link #getOrdered(Object)} method may be called concurrently from any thread.
+ * <p>
+ * Besides the ordered indexes, the set may hold secondary indexes, which map keys extracted from an item to all items
+ * with that key. They are maintained the same way, and {@link #getByKey(Object, String)} returns immutable snapshots.
  */
 public class IndexSet<T> {
 
-    private static final IndexSet<?> EMPTY = new IndexSet<>(Collections.emptyMap());
-
+    private final Function<T, String> idExtractor;
     private final Map<Object, Index<T>> indexes;
+    private final Map<Object, SecondaryIndex<T>> secondaryIndexes;
+
+    private final Map<String, T> itemsById = new HashMap<>();
 
-    private IndexSet(Map<Object, Index<T>> indexes) {
+    private IndexSet(Function<T, String> idExtractor, Map<Object, Index<T>> indexes, Map<Object, SecondaryIndex<T>> secondaryIndexes) {
+        this.idExtractor = idExtractor;
         this.indexes = indexes;
+        this.secondaryIndexes = secondaryIndexes;
+    }
+
+    /**
+     * Adds new items, or replaces the already indexed items with the same id. Items identical to those that are
+     * already indexed are ignored.
+     */
+    public void add(Collection<T> addedOrUpdated) {
+        for (T item : addedOrUpdated) {
+            String id = idExtractor.apply(item);
+            T previous = itemsById.put(id, item);
+            if (previous != item) {
+                indexes.values().forEach(index -> index.replace(previous, item));
+                secondaryIndexes.values().forEach(index -> index.replace(id, item));
+            }
+        }
     }
 
-    public IndexSet<T> apply(Collection<T> added) {
-        Map<Object, Index<T>> copy = new HashMap<>();
-        indexes.forEach((k, v) -> copy.put(k, v.apply(added)));
-        return new IndexSet<>(copy);
+    /**
+     * Removes items with the given ids. Unknown ids are ignored.
+     */
+    public void remove(Collection<String> removedIds) {
+        for (String id : removedIds) {
+            T previous = itemsById.remove(id);
+            if (previous != null) {
+                indexes.values().forEach(index -> index.replace(previous, null));
+                secondaryIndexes.values().forEach(index -> index.replace(id, null));
+            }
+        }
     }
 
     public List<T> getOrdered(Object indexId) {
@@ -51,38 +89,107 @@ public class IndexSet<T> {
         return result.getOrdered();
     }
 
-    public static <T> IndexSet<T> empty() {
-        return (IndexSet<T>) EMPTY;
+    /**
+     * Returns all items having the given key in the secondary index, mapped by their ids. The result is an immutable
+     * snapshot.
+     */
+    public Map<String, T> getByKey(Object indexId, String key) {
+        SecondaryIndex<T> result = secondaryIndexes.get(indexId);
+        if (result == null) {
+            throw new IllegalArgumentException("Unknown secondary index id " + indexId);
+        }
+        return result.getByKey(key);
+    }
+
+    public static <T> IndexSet<T> newIndexSet(Map<Object, Comparator<T>> comparators, Function<T, String> idExtractor) {
+        return newIndexSet(comparators, Collections.emptyMap(), idExtractor);
     }
 
-    public static <T> IndexSet<T> newIndexSet(Map<Object, Comparator<T>> comparators) {
+    /**
+     * @param keyExtractors secondary index key extractors. An extractor may return any number of keys for an item.
+     */
+    public static <T> IndexSet<T> newIndexSet(Map<Object, Comparator<T>> comparators,
+                                              Map<Object, Function<T, Set<String>>> keyExtractors,
+                                              Function<T, String> idExtractor) {
         Map<Object, Index<T>> indexes = new HashMap<>();
-        comparators.forEach((k, v) -> indexes.put(k, Index.newIndex(v)));
-        return new IndexSet<>(indexes);
+        comparators.forEach((k, v) -> indexes.put(k, new Index<>(v.thenComparing(idExtractor))));
+        Map<Object, SecondaryIndex<T>> secondaryIndexes = new HashMap<>();
+        keyExtractors.forEach((k, v) -> secondaryIndexes.put(k, new SecondaryIndex<>(v)));
+        return new IndexSet<>(idExtractor, indexes, secondaryIndexes);
     }
 
     static class Index<T> {
 
-        private final Comparator<T> comparator;
-        private final List<T> ordered;
+        private volatile OrderedTree<T> ordered;
 
-        private Index(Comparator<T> comparator, List<T> ordered) {
-            this.comparator = comparator;
-            this.ordered = ordered;
+        /**
+         * @param comparator must include the item id as the last ordering criteria, so distinct items never compare as equal
+         */
+        private Index(Comparator<T> comparator) {
+            this.ordered = OrderedTree.empty(comparator);
         }
 
-        Index<T> apply(Collection<T> added) {
-            List<T> copy = new ArrayList<>(added);
-            copy.sort(comparator);
-            return new Index<>(comparator, copy);
+        private void replace(T previous, T current) {
+            OrderedTree<T> result = ordered;
+            if (previous != null) {
+                result = result.without(previous);
+            }
+            if (current != null) {
+                result = result.with(current);
+            }
+            this.ordered = result;
         }
 
         List<T> getOrdered() {
             return ordered;
         }
+    }
+
+    static class SecondaryIndex<T> {
+
+        private final Function<T, Set<String>> keyExtractor;
+
+        /**
+         * Keys of each indexed item, so they do not have to be extracted again from the previous item version.
+         */
+        private final Map<String, Set<String>> keysById = new HashMap<>();
+
+        private volatile PersistentHashMap<String, PersistentHashMap<String, T>> itemsByKey = PersistentHashMap.empty();
+
+        private SecondaryIndex(Function<T, Set<String>> keyExtractor) {
+            this.keyExtractor = keyExtractor;
+        }
+
+        private void replace(String id, T current) {
+            Set<String> previousKeys = keysById.getOrDefault(id, Collections.emptySet());
+            Set<String> currentKeys = current == null ? Collections.emptySet() : keyExtractor.apply(current);
+
+            PersistentHashMap<String, PersistentHashMap<String, T>> result = itemsByKey;
+            for (String key : previousKeys) {
+                if (!currentKeys.contains(key)) {
+                    PersistentHashMap<String, T> items = result.get(key);
+                    if (items != null) {
+                        PersistentHashMap<String, T> remaining = items.minus(id);
+                        result = remaining.isEmpty() ? result.minus(key) : result.plus(key, remaining);
+                    }
+                }
+            }
+            for (String key : currentKeys) {
+                PersistentHashMap<String, T> items = result.get(key);
+                result = result.plus(key, (items == null ? PersistentHashMap.<String, T>empty() : items).plus(id, current));
+            }
+            this.itemsByKey = result;
+
+            if (currentKeys.isEmpty()) {
+                keysById.remove(id);
+            } else {
+                keysById.put(id, currentKeys);
+            }
+        }
 
-        static <T> Index<T> newIndex(Comparator<T> comparator) {
-            return new Index<>(comparator, Collections.emptyList());
+        Map<String, T> getByKey(String key) {
+            PersistentHashMap<String, T> items = itemsByKey.get(key);
+            return items == null ? Collections.emptyMap() : items;
         }
     }
 }
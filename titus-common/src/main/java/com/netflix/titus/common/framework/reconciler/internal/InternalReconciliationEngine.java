@@ -22,6 +22,13 @@ public interface InternalReconciliationEngine<EVENT>  extends ReconciliationEngi
 
     boolean hasPendingTransactions();
 
+    /**
+     * Registers a listener, which is called each time the engine has new work for the event loop (a new change action
+     * is queued, or a running change action completed). The listener may be called from any thread. Engines without
+     * new work are processed during the full reconciliation cycles only.
+     */
+    void setReadyListener(Runnable readyListener);
+
     /**
      * Apply pending model updates. The model updates come from recently completed change actions (either requested or reconcile),
      * and must be processed by the event loop before next action(s) are started.
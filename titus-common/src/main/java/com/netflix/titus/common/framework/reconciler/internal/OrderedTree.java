@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, sorted list backed by a persistent AVL tree. Each update creates a new version of the tree, copying only
+ * the path from the root to the modified node (O(log n)), and sharing the remaining nodes with the previous version.
+ * The comparator must define a total order (distinct items must never compare as equal).
+ */
+final class OrderedTree<T> extends AbstractList<T> {
+
+    private final Comparator<T> comparator;
+    private final Node<T> root;
+
+    private OrderedTree(Comparator<T> comparator, Node<T> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    OrderedTree<T> with(T value) {
+        Node<T> newRoot = insert(root, value);
+        return newRoot == root ? this : new OrderedTree<>(comparator, newRoot);
+    }
+
+    OrderedTree<T> without(T value) {
+        Node<T> newRoot = delete(root, value);
+        return newRoot == root ? this : new OrderedTree<>(comparator, newRoot);
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        Node<T> current = root;
+        while (true) {
+            int leftSize = sizeOf(current.left);
+            if (index < leftSize) {
+                current = current.left;
+            } else if (index == leftSize) {
+                return current.value;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return sizeOf(root);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new InOrderIterator<>(root);
+    }
+
+    static <T> OrderedTree<T> empty(Comparator<T> comparator) {
+        return new OrderedTree<>(comparator, null);
+    }
+
+    private Node<T> insert(Node<T> node, T value) {
+        if (node == null) {
+            return new Node<>(value, null, null);
+        }
+        int result = comparator.compare(value, node.value);
+        if (result == 0) {
+            return node.value == value ? node : new Node<>(value, node.left, node.right);
+        }
+        if (result < 0) {
+            Node<T> newLeft = insert(node.left, value);
+            return newLeft == node.left ? node : balance(node.value, newLeft, node.right);
+        }
+        Node<T> newRight = insert(node.right, value);
+        return newRight == node.right ? node : balance(node.value, node.left, newRight);
+    }
+
+    private Node<T> delete(Node<T> node, T value) {
+        if (node == null) {
+            return null;
+        }
+        int result = comparator.compare(value, node.value);
+        if (result < 0) {
+            Node<T> newLeft = delete(node.left, value);
+            return newLeft == node.left ? node : balance(node.value, newLeft, node.right);
+        }
+        if (result > 0) {
+            Node<T> newRight = delete(node.right, value);
+            return newRight == node.right ? node : balance(node.value, node.left, newRight);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<T> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.value, node.left, deleteMin(node.right));
+    }
+
+    private static <T> Node<T> deleteMin(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.value, deleteMin(node.left), node.right);
+    }
+
+    private static <T> Node<T> balance(T value, Node<T> left, Node<T> right) {
+        int diff = heightOf(left) - heightOf(right);
+        if (diff > 1) {
+            if (heightOf(left.left) < heightOf(left.right)) {
+                left = rotateLeft(left.value, left.left, left.right);
+            }
+            return rotateRight(value, left, right);
+        }
+        if (diff < -1) {
+            if (heightOf(right.right) < heightOf(right.left)) {
+                right = rotateRight(right.value, right.left, right.right);
+            }
+            return rotateLeft(value, left, right);
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private static <T> Node<T> rotateRight(T value, Node<T> left, Node<T> right) {
+        return new Node<>(left.value, left.left, new Node<>(value, left.right, right));
+    }
+
+    private static <T> Node<T> rotateLeft(T value, Node<T> left, Node<T> right) {
+        return new Node<>(right.value, new Node<>(value, left, right.left), right.right);
+    }
+
+    private static int heightOf(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int sizeOf(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<T> {
+
+        private final T value;
+        private final Node<T> left;
+        private final Node<T> right;
+        private final int height;
+        private final int size;
+
+        private Node(T value, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(heightOf(left), heightOf(right)) + 1;
+            this.size = sizeOf(left) + sizeOf(right) + 1;
+        }
+    }
+
+    private static final class InOrderIterator<T> implements Iterator<T> {
+
+        private final Deque<Node<T>> stack = new ArrayDeque<>();
+
+        private InOrderIterator(Node<T> root) {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<T> node = stack.pop();
+            pushLeft(node.right);
+            return node.value;
+        }
+
+        private void pushLeft(Node<T> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
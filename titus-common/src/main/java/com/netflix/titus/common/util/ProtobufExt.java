@@ -16,20 +16,12 @@
 
 package com.netflix.titus.common.util;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import com.google.common.truth.AbstractFailureStrategy;
 import com.google.common.truth.TestVerb;
 import com.google.common.truth.extensions.proto.ProtoTruth;
-import com.google.protobuf.Descriptors;
-import com.google.protobuf.MapEntry;
 import com.google.protobuf.Message;
 
 /**
@@ -40,55 +32,12 @@ public final class ProtobufExt {
     private ProtobufExt() {
     }
 
+    /**
+     * Creates a copy of the given entity, with only the indicated fields included. When the same field set is applied
+     * to many entities, obtain a {@link ProtobufProjection} once, and apply it to each entity instead.
+     */
     public static <T extends Message> T copy(T entity, Set<String> fields) {
-        // Split nested field names
-        Map<String, Set<String>> topNames = PropertiesExt.splitNames(fields, 1);
-
-        // Filter
-        Message.Builder builder = entity.toBuilder();
-
-        // As we modify the builder, we need to take a snapshot this
-        Set<Descriptors.FieldDescriptor> fieldDescriptors = new HashSet<>(builder.getAllFields().keySet());
-        for (Descriptors.FieldDescriptor field : fieldDescriptors) {
-            if (!topNames.containsKey(field.getName())) {
-                builder.clearField(field);
-            } else {
-                Set<String> nested = topNames.get(field.getName());
-                if (nested != null) {
-                    Object value = builder.getField(field);
-                    if (value != null) {
-                        if (value instanceof Message) {
-                            Message messageValue = (Message) value;
-                            if (!messageValue.getAllFields().isEmpty()) {
-                                builder.setField(field, copy(messageValue, nested));
-                            }
-                        } else if (value instanceof Collection) {
-                            Collection<?> collection = (Collection<?>) value;
-                            if (!collection.isEmpty()) {
-                                Object first = CollectionsExt.first(collection);
-                                if (first instanceof MapEntry) {
-                                    if (((MapEntry) first).getKey() instanceof String) {
-                                        List<?> filteredMap = collection.stream().filter(item -> {
-                                            MapEntry<String, Object> entry = (MapEntry<String, Object>) item;
-                                            return nested.contains(entry.getKey());
-                                        }).collect(Collectors.toList());
-                                        builder.setField(field, filteredMap);
-                                    }
-                                } else if (first instanceof Message) {
-                                    Iterator<?> it = collection.iterator();
-                                    int size = collection.size();
-                                    for (int i = 0; i < size; i++) {
-                                        builder.setRepeatedField(field, i, copy((Message) it.next(), nested));
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        return (T) builder.build();
+        return ProtobufProjection.<T>of(entity.getDescriptorForType(), fields).apply(entity);
     }
 
     /**
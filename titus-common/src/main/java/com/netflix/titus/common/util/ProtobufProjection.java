@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.common.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * A field projection of protobuf messages of a given type, compiled once from a set of (possibly nested) field names.
+ * Applying a projection does not parse the field names, and copies only the selected fields into a new builder,
+ * instead of clearing the unwanted ones in a copy of the whole message. The field name semantics are the same as
+ * in {@link ProtobufExt#copy(Message, Set)}:
+ * <ul>
+ * <li>a top level name selects the whole field</li>
+ * <li>a nested name (for example 'status.state') selects a field of a nested message, or of each element of a repeated message field</li>
+ * <li>a nested name of a map field with string keys (for example 'attributes.owner') selects a map entry</li>
+ * </ul>
+ * Compiled projections are cached, so calling {@link #of(Descriptors.Descriptor, Collection)} once per query is cheap.
+ */
+public final class ProtobufProjection<T extends Message> {
+
+    private static final int MAX_CACHED_PROJECTIONS = 1_000;
+
+    private static final Cache<Pair<Descriptors.Descriptor, Set<String>>, ProtobufProjection<?>> PROJECTIONS = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_PROJECTIONS)
+            .build();
+
+    private final Descriptors.Descriptor descriptor;
+    private final Set<String> topLevelFieldNames;
+    private final List<FieldProjection> fieldProjections;
+
+    private ProtobufProjection(Descriptors.Descriptor descriptor, Collection<String> fields) {
+        this.descriptor = descriptor;
+
+        Map<String, Set<String>> nestedNames = groupByTopLevelName(fields);
+        List<FieldProjection> fieldProjections = new ArrayList<>();
+        for (FieldDescriptor field : descriptor.getFields()) {
+            if (nestedNames.containsKey(field.getName())) {
+                fieldProjections.add(newFieldProjection(field, nestedNames.get(field.getName())));
+            }
+        }
+        this.topLevelFieldNames = Collections.unmodifiableSet(new HashSet<>(nestedNames.keySet()));
+        this.fieldProjections = fieldProjections;
+    }
+
+    public Descriptors.Descriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Returns true, if the top level field with the given name is included (fully or partially) in the projection.
+     * Converters may use it to skip building fields that would be discarded anyway.
+     */
+    public boolean includes(String topLevelFieldName) {
+        return topLevelFieldNames.contains(topLevelFieldName);
+    }
+
+    public T apply(T message) {
+        return (T) project(message);
+    }
+
+    private Message project(Message message) {
+        Message.Builder builder = message.newBuilderForType();
+        for (FieldProjection fieldProjection : fieldProjections) {
+            fieldProjection.copy(message, builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns a projection for messages of the given type. Field names not present in the descriptor are ignored.
+     */
+    public static <T extends Message> ProtobufProjection<T> of(Descriptors.Descriptor descriptor, Collection<String> fields) {
+        Set<String> fieldSet = fields instanceof Set ? (Set<String>) fields : new HashSet<>(fields);
+        ProtobufProjection<?> projection = PROJECTIONS.getIfPresent(Pair.of(descriptor, fieldSet));
+        if (projection == null) {
+            Set<String> fieldSetCopy = new HashSet<>(fieldSet);
+            projection = PROJECTIONS.get(Pair.of(descriptor, fieldSetCopy), key -> new ProtobufProjection<>(descriptor, fieldSetCopy));
+        }
+        return (ProtobufProjection<T>) projection;
+    }
+
+    /**
+     * Splits the field names into top level names and their nested parts. A top level name with no nested parts selects
+     * the whole field, even if nested names of the same field are also given.
+     */
+    private static Map<String, Set<String>> groupByTopLevelName(Collection<String> fields) {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (String name : fields) {
+            Pair<String, String> parts = PropertiesExt.split(name, 1);
+            if (parts == null) {
+                if (!name.isEmpty()) {
+                    result.put(name, null);
+                }
+            } else if (!result.containsKey(parts.getLeft()) || result.get(parts.getLeft()) != null) {
+                result.computeIfAbsent(parts.getLeft(), n -> new HashSet<>()).add(parts.getRight());
+            }
+        }
+        return result;
+    }
+
+    private static FieldProjection newFieldProjection(FieldDescriptor field, Set<String> nestedNames) {
+        if (nestedNames == null) {
+            return new WholeFieldProjection(field);
+        }
+        if (field.isMapField()) {
+            FieldDescriptor keyField = field.getMessageType().findFieldByNumber(1);
+            return keyField.getJavaType() == FieldDescriptor.JavaType.STRING
+                    ? new MapEntriesProjection(field, keyField, nestedNames)
+                    : new WholeFieldProjection(field);
+        }
+        if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            return new MessageFieldProjection(field, new ProtobufProjection<>(field.getMessageType(), nestedNames));
+        }
+        return new WholeFieldProjection(field);
+    }
+
+    private static abstract class FieldProjection {
+
+        final FieldDescriptor field;
+
+        FieldProjection(FieldDescriptor field) {
+            this.field = field;
+        }
+
+        void copy(Message source, Message.Builder target) {
+            if (field.isRepeated()) {
+                int count = source.getRepeatedFieldCount(field);
+                for (int i = 0; i < count; i++) {
+                    copyRepeated(source.getRepeatedField(field, i), target);
+                }
+            } else if (source.hasField(field)) {
+                copySingular(source.getField(field), target);
+            }
+        }
+
+        void copySingular(Object value, Message.Builder target) {
+            target.setField(field, value);
+        }
+
+        void copyRepeated(Object value, Message.Builder target) {
+            target.addRepeatedField(field, value);
+        }
+    }
+
+    private static class WholeFieldProjection extends FieldProjection {
+
+        private WholeFieldProjection(FieldDescriptor field) {
+            super(field);
+        }
+
+        @Override
+        void copy(Message source, Message.Builder target) {
+            if (field.isRepeated()) {
+                if (source.getRepeatedFieldCount(field) > 0) {
+                    target.setField(field, source.getField(field));
+                }
+            } else if (source.hasField(field)) {
+                target.setField(field, source.getField(field));
+            }
+        }
+    }
+
+    private static class MessageFieldProjection extends FieldProjection {
+
+        private final ProtobufProjection<?> nested;
+
+        private MessageFieldProjection(FieldDescriptor field, ProtobufProjection<?> nested) {
+            super(field);
+            this.nested = nested;
+        }
+
+        @Override
+        void copySingular(Object value, Message.Builder target) {
+            target.setField(field, nested.project((Message) value));
+        }
+
+        @Override
+        void copyRepeated(Object value, Message.Builder target) {
+            target.addRepeatedField(field, nested.project((Message) value));
+        }
+    }
+
+    private static class MapEntriesProjection extends FieldProjection {
+
+        private final FieldDescriptor keyField;
+        private final Set<String> keys;
+
+        private MapEntriesProjection(FieldDescriptor field, FieldDescriptor keyField, Set<String> keys) {
+            super(field);
+            this.keyField = keyField;
+            this.keys = keys;
+        }
+
+        @Override
+        void copyRepeated(Object value, Message.Builder target) {
+            if (keys.contains(((Message) value).getField(keyField))) {
+                target.addRepeatedField(field, value);
+            }
+        }
+    }
+}
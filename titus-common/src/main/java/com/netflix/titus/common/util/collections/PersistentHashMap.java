@@ -0,0 +1,495 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable hash map with structural sharing, implemented as a hash array mapped trie (HAMT). Each update returns a new
+ * map instance, which shares all nodes with the original one, except the nodes on the path from the root to the
+ * modified entry. As the trie branching factor is 32, an update copies at most a few small arrays, independently of
+ * the map size.
+ * <p>
+ * Keys must not be null. Null values are allowed. The mutating {@link Map} methods throw
+ * {@link UnsupportedOperationException}; use {@link #plus(Object, Object)} and {@link #minus(Object)} instead.
+ *
+ * @param <K> type of keys. They must have correct implementations of <tt>equals()</tt> and <tt>hashCode()</tt>
+ * @param <V> type of values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Trie depth is bounded by 7 bitmap node levels (32 bit hash), plus one collision node level.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(0, hash(key), key) != NOT_FOUND;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Object result = root.find(0, hash(key), key);
+        return result == NOT_FOUND ? null : (V) result;
+    }
+
+    /**
+     * Returns a map with the given entry added, or its value replaced. If the map already contains the same
+     * (identical) value for the key, the same map instance is returned.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Preconditions.checkNotNull(key, "null key");
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the given key. If the key is not present, the same map instance is returned.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    /**
+     * Computes the difference between this map and the given one. Subtrees shared by the two maps are skipped, so the
+     * cost is proportional to the number of differences, not to the map size, when the other map was derived from this
+     * one. Values are compared by identity.
+     *
+     * @param removed       called with entries present in this map only
+     * @param addedOrChanged called with entries of the other map, that are not present in this map or have a different value
+     */
+    public void diff(PersistentHashMap<K, V> other, BiConsumer<K, V> removed, BiConsumer<K, V> addedOrChanged) {
+        diffNodes(root, other.root, (BiConsumer<Object, Object>) removed, (BiConsumer<Object, Object>) addedOrChanged);
+    }
+
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public static <K, V> PersistentHashMap<K, V> from(Map<K, V> map) {
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K, V>) map;
+        }
+        PersistentHashMap<K, V> result = empty();
+        for (Entry<K, V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitOf(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static void diffNodes(Node left, Node right, BiConsumer<Object, Object> removed, BiConsumer<Object, Object> addedOrChanged) {
+        if (left == right) {
+            return;
+        }
+        if (!(left instanceof BitmapNode) || !(right instanceof BitmapNode)) {
+            diffEntries(left.array, right.array, removed, addedOrChanged);
+            return;
+        }
+        BitmapNode leftNode = (BitmapNode) left;
+        BitmapNode rightNode = (BitmapNode) right;
+
+        int bits = leftNode.bitmap | rightNode.bitmap;
+        while (bits != 0) {
+            int bit = Integer.lowestOneBit(bits);
+            bits &= ~bit;
+
+            Object[] leftSlot = leftNode.slotOf(bit);
+            Object[] rightSlot = rightNode.slotOf(bit);
+            if (leftSlot == null) {
+                forEachInSlot(rightSlot, addedOrChanged);
+            } else if (rightSlot == null) {
+                forEachInSlot(leftSlot, removed);
+            } else if (leftSlot[0] == null && rightSlot[0] == null) {
+                diffNodes((Node) leftSlot[1], (Node) rightSlot[1], removed, addedOrChanged);
+            } else {
+                diffEntries(leftSlot, rightSlot, removed, addedOrChanged);
+            }
+        }
+    }
+
+    /**
+     * Fallback for nodes with a different structure. Both arrays hold key/value pairs, or subnodes with null keys.
+     */
+    private static void diffEntries(Object[] left, Object[] right, BiConsumer<Object, Object> removed, BiConsumer<Object, Object> addedOrChanged) {
+        Map<Object, Object> leftEntries = new HashMap<>();
+        forEachInArray(left, leftEntries::put);
+        forEachInArray(right, (key, value) -> {
+            if (!leftEntries.containsKey(key)) {
+                addedOrChanged.accept(key, value);
+            } else if (leftEntries.remove(key) != value) {
+                addedOrChanged.accept(key, value);
+            }
+        });
+        leftEntries.forEach(removed);
+    }
+
+    private static void forEachInSlot(Object[] slot, BiConsumer<Object, Object> consumer) {
+        if (slot[0] == null) {
+            ((Node) slot[1]).forEach(consumer);
+        } else {
+            consumer.accept(slot[0], slot[1]);
+        }
+    }
+
+    private static void forEachInArray(Object[] array, BiConsumer<Object, Object> consumer) {
+        for (int i = 0; i < array.length; i += 2) {
+            if (array[i] == null) {
+                ((Node) array[i + 1]).forEach(consumer);
+            } else {
+                consumer.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Node content is kept in an array of key/value pairs. In {@link BitmapNode} a pair with a null key holds a
+     * subnode as its value.
+     */
+    private static abstract class Node {
+
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, Object key);
+
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return this if the key is not found, null if the node would become empty
+         */
+        abstract Node remove(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> consumer) {
+            forEachInArray(array, consumer);
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private int indexOf(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Object[] slotOf(int bit) {
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int idx = indexOf(bit);
+            return new Object[]{array[idx], array[idx + 1]};
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int idx = indexOf(bit);
+            Object slotKey = array[idx];
+            if (slotKey == null) {
+                return ((Node) array[idx + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(slotKey) ? array[idx + 1] : NOT_FOUND;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitOf(hash, shift);
+            int idx = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, idx);
+                newArray[idx] = key;
+                newArray[idx + 1] = value;
+                System.arraycopy(array, idx, newArray, idx + 2, array.length - idx);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            Object slotKey = array[idx];
+            Object slotValue = array[idx + 1];
+            if (slotKey == null) {
+                Node subNode = (Node) slotValue;
+                Node newSubNode = subNode.put(shift + BITS, hash, key, value, added);
+                return newSubNode == subNode ? this : withSlot(idx, null, newSubNode);
+            }
+            if (key.equals(slotKey)) {
+                return slotValue == value ? this : withSlot(idx, slotKey, value);
+            }
+            added[0] = true;
+            return withSlot(idx, null, createNode(shift + BITS, slotKey, slotValue, hash, key, value));
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = indexOf(bit);
+            Object slotKey = array[idx];
+            if (slotKey == null) {
+                Node subNode = (Node) array[idx + 1];
+                Node newSubNode = subNode.remove(shift + BITS, hash, key);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                return newSubNode == null ? withoutSlot(bit, idx) : withSlot(idx, null, newSubNode);
+            }
+            return key.equals(slotKey) ? withoutSlot(bit, idx) : this;
+        }
+
+        private BitmapNode withSlot(int idx, Object key, Object value) {
+            Object[] newArray = array.clone();
+            newArray[idx] = key;
+            newArray[idx + 1] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private BitmapNode withoutSlot(int bit, int idx) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, idx);
+            System.arraycopy(array, idx + 2, newArray, idx, array.length - idx - 2);
+            return new BitmapNode(bitmap & ~bit, newArray);
+        }
+
+        private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * Holds entries with keys having the same hash value.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int idx = indexOf(key);
+            return idx < 0 ? NOT_FOUND : array[idx + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Nest this node in a bitmap node, and add the new entry next to it.
+                BitmapNode parent = new BitmapNode(bitOf(this.hash, shift), new Object[]{null, this});
+                return parent.put(shift, hash, key, value, added);
+            }
+            int idx = indexOf(key);
+            if (idx >= 0) {
+                if (array[idx + 1] == value) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[idx + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            added[0] = true;
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int idx = indexOf(key);
+            if (idx < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, idx);
+            System.arraycopy(array, idx + 2, newArray, idx, array.length - idx - 2);
+            return new CollisionNode(hash, newArray);
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        private final Object[][] arrays = new Object[MAX_DEPTH + 1][];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth;
+
+        private Entry<K, V> next;
+
+        private EntryIterator(Node root) {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position >= array.length) {
+                    arrays[depth] = null;
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                if (array[position] == null) {
+                    depth++;
+                    arrays[depth] = ((Node) array[position + 1]).array;
+                    positions[depth] = 0;
+                    continue;
+                }
+                next = new SimpleImmutableEntry<>((K) array[position], (V) array[position + 1]);
+                return;
+            }
+            next = null;
+        }
+    }
+}
@@ -137,6 +137,26 @@ public final class ReactorExt {
         return new ReactorHeadTransformer<>(headSupplier);
     }
 
+    /**
+     * A variant of {@link Flux#flatMap(Function, int)}, which processes items with different keys concurrently, but
+     * items with the same key strictly in the arrival order, with at most one publisher per key subscribed at a time.
+     * If the supersedes predicate returns true for the last queued (not yet subscribed) item for a key and a new item,
+     * the queued item is replaced with the new one. At most maxPending items are requested from the source ahead
+     * of their completion.
+     *
+     * @param supersedes returns true if the second argument makes processing of the first one (queued earlier) redundant
+     * @param name       name used as a metric tag
+     */
+    public static <T, K, R> Function<Flux<T>, Publisher<R>> flatMapSequentialByKey(Function<T, K> keyExtractor,
+                                                                                 Function<T, Publisher<R>> mapper,
+                                                                                 BiPredicate<T, T> supersedes,
+                                                                                 int concurrency,
+                                                                                 int maxPending,
+                                                                                 String name,
+                                                                                 Registry registry) {
+        return new ReactorFlatMapByKeyOperator<>(keyExtractor, mapper, supersedes, concurrency, maxPending, name, registry);
+    }
+
     /**
      * Creates multiple parallel subscriptions to the source observable. The first subscription happens immediately, while
      *  the remaining are delayed by the configured thresholds. The first one to complete successfully returns.
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.rx;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Gauge;
+import com.netflix.spectator.api.Registry;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * See {@link ReactorExt#flatMapSequentialByKey(Function, Function, BiPredicate, int, int, String, Registry)}.
+ */
+class ReactorFlatMapByKeyOperator<T, K, R> implements Function<Flux<T>, Publisher<R>> {
+
+    private static final String ROOT_NAME = "titus.common.flatMapByKey.";
+
+    private final Function<T, K> keyExtractor;
+    private final Function<T, Publisher<R>> mapper;
+    private final BiPredicate<T, T> supersedes;
+    private final int concurrency;
+    private final int maxPending;
+
+    private final Gauge queueSizeGauge;
+    private final Gauge activeKeysGauge;
+    private final Counter coalescedCounter;
+
+    ReactorFlatMapByKeyOperator(Function<T, K> keyExtractor,
+                                Function<T, Publisher<R>> mapper,
+                                BiPredicate<T, T> supersedes,
+                                int concurrency,
+                                int maxPending,
+                                String name,
+                                Registry registry) {
+        this.keyExtractor = keyExtractor;
+        this.mapper = mapper;
+        this.supersedes = supersedes;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxPending = Math.max(this.concurrency, maxPending);
+
+        this.queueSizeGauge = registry.gauge(ROOT_NAME + "queueSize", "name", name);
+        this.activeKeysGauge = registry.gauge(ROOT_NAME + "activeKeys", "name", name);
+        this.coalescedCounter = registry.counter(ROOT_NAME + "coalesced", "name", name);
+    }
+
+    @Override
+    public Publisher<R> apply(Flux<T> source) {
+        return Flux.create(sink -> {
+            KeyedExecutor executor = new KeyedExecutor(sink);
+            sink.onDispose(executor::shutdown);
+            source.subscribe(executor);
+        });
+    }
+
+    private static class KeyQueue<T> {
+
+        private final Deque<T> pending = new ArrayDeque<>();
+        private boolean inFlight;
+    }
+
+    /**
+     * All state is guarded by the executor monitor. Inner subscriptions are started from the drain loop outside of it,
+     * so a synchronously completing publisher does not recurse into the next one for the same key.
+     */
+    private class KeyedExecutor extends BaseSubscriber<T> {
+
+        private final FluxSink<R> sink;
+
+        private final Map<K, KeyQueue<T>> queues = new HashMap<>();
+        private final Deque<K> readyKeys = new ArrayDeque<>();
+        private final Disposable.Composite innerSubscriptions = Disposables.composite();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private int queued;
+        private int inFlight;
+        private long replenish;
+        private boolean upstreamDone;
+        private boolean terminated;
+
+        private KeyedExecutor(FluxSink<R> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(maxPending);
+        }
+
+        @Override
+        protected void hookOnNext(T value) {
+            K key = keyExtractor.apply(value);
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                KeyQueue<T> queue = queues.computeIfAbsent(key, k -> new KeyQueue<>());
+                T last = queue.pending.peekLast();
+                if (last != null && supersedes.test(last, value)) {
+                    queue.pending.pollLast();
+                    queue.pending.addLast(value);
+                    replenish++;
+                    coalescedCounter.increment();
+                } else {
+                    queue.pending.addLast(value);
+                    queued++;
+                    if (!queue.inFlight && queue.pending.size() == 1) {
+                        readyKeys.addLast(key);
+                    }
+                }
+            }
+            drain();
+        }
+
+        @Override
+        protected void hookOnError(Throwable error) {
+            onFailure(error);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            synchronized (this) {
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        private void onInnerComplete(K key) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                inFlight--;
+                replenish++;
+                KeyQueue<T> queue = queues.get(key);
+                queue.inFlight = false;
+                if (queue.pending.isEmpty()) {
+                    queues.remove(key);
+                } else {
+                    readyKeys.addLast(key);
+                }
+            }
+            drain();
+        }
+
+        private void onFailure(Throwable error) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+            }
+            shutdown();
+            sink.error(error);
+        }
+
+        private void shutdown() {
+            synchronized (this) {
+                terminated = true;
+            }
+            cancel();
+            innerSubscriptions.dispose();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (true) {
+                    K key;
+                    T next;
+                    long toRequest;
+                    boolean completed = false;
+                    synchronized (this) {
+                        if (terminated) {
+                            return;
+                        }
+                        toRequest = replenish;
+                        replenish = 0;
+                        if (inFlight < concurrency && !readyKeys.isEmpty()) {
+                            key = readyKeys.pollFirst();
+                            KeyQueue<T> queue = queues.get(key);
+                            next = queue.pending.pollFirst();
+                            queue.inFlight = true;
+                            queued--;
+                            inFlight++;
+                        } else {
+                            key = null;
+                            next = null;
+                            if (upstreamDone && inFlight == 0 && queued == 0) {
+                                terminated = true;
+                                completed = true;
+                            }
+                        }
+                        queueSizeGauge.set(queued);
+                        activeKeysGauge.set(queues.size());
+                    }
+                    if (toRequest > 0) {
+                        request(toRequest);
+                    }
+                    if (completed) {
+                        sink.complete();
+                        return;
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    subscribeInner(key, next);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void subscribeInner(K key, T value) {
+            Publisher<R> publisher;
+            try {
+                publisher = mapper.apply(value);
+            } catch (Throwable error) {
+                onFailure(error);
+                return;
+            }
+            BaseSubscriber<R> inner = new BaseSubscriber<R>() {
+                @Override
+                protected void hookOnNext(R result) {
+                    sink.next(result);
+                }
+
+                @Override
+                protected void hookOnError(Throwable error) {
+                    onFailure(error);
+                }
+
+                @Override
+                protected void hookOnComplete() {
+                    innerSubscriptions.remove(this);
+                    onInnerComplete(key);
+                }
+            };
+            innerSubscriptions.add(inner);
+            publisher.subscribe(inner);
+        }
+    }
+}
@@ -342,6 +342,21 @@ public class DefaultReconciliationEngineTest {
         assertThat(action.unsubscribed).isTrue();
     }
 
+    @Test
+    public void testShutdownReportsInterruptedChangeAction() {
+        SlowChangeAction action = new SlowChangeAction();
+        engine.changeReferenceModel(action).subscribe();
+        engine.triggerActions();
+
+        assertThat(engine.shutdown()).isTrue();
+        assertThat(action.unsubscribed).isTrue();
+    }
+
+    @Test
+    public void testShutdownOfIdleEngine() {
+        assertThat(engine.shutdown()).isFalse();
+    }
+
     @Test
     public void testIndexes() {
         addChild("child1");
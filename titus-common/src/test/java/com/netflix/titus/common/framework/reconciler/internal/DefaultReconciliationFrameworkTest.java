@@ -38,6 +38,7 @@ import com.netflix.titus.testkit.rx.ExtTestSubscriber;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import rx.Observable;
 import rx.observers.AssertableSubscriber;
 import rx.schedulers.Schedulers;
@@ -150,9 +151,17 @@ public class DefaultReconciliationFrameworkTest {
         verify(engine, times(1)).closeFinishedTransactions();
         verify(engine, times(1)).triggerActions();
 
-        // Model updates are performed only on the second iteration
+        // Idle engines are not evaluated outside of the full reconciliation cycle
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(engine, times(0)).applyModelUpdates();
+
+        // Model updates are performed in the next iteration after the engine signals readiness
+        ArgumentCaptor<Runnable> readyListenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(engine).setReadyListener(readyListenerCaptor.capture());
+        readyListenerCaptor.getValue().run();
         testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
         verify(engine, times(1)).applyModelUpdates();
+        verify(engine, times(2)).emitEvents();
 
         // Now remove the engine
         ExtTestSubscriber<Void> removeSubscriber = new ExtTestSubscriber<>();
@@ -168,6 +177,36 @@ public class DefaultReconciliationFrameworkTest {
         verify(engine, times(1)).triggerActions();
     }
 
+    @Test
+    public void testChildIndexIsUpdatedWithChangedChildrenOnly() {
+        EntityHolder initial = EntityHolder.newRoot("myRoot1", "myEntity1")
+                .addChild(EntityHolder.newRoot("child1", "c1"))
+                .addChild(EntityHolder.newRoot("child2", "c2"));
+        when(engine1.getReferenceView()).thenReturn(initial);
+        framework.newEngine(initial).subscribe();
+        testScheduler.triggerActions();
+        assertThat(framework.findEngineByChildId("child1")).isPresent();
+        assertThat(framework.findEngineByChildId("child2")).isPresent();
+
+        // Remove one child, add another one, and add a nested child to an existing one
+        EntityHolder updatedChild1 = initial.findChildById("child1").get().addChild(EntityHolder.newRoot("grandChild1", "g1"));
+        EntityHolder updated = initial.removeChild("child2").getLeft()
+                .addChild(EntityHolder.newRoot("child3", "c3"))
+                .addChild(updatedChild1);
+        when(engine1.getReferenceView()).thenReturn(updated);
+        when(engine1.applyModelUpdates()).thenReturn(true);
+
+        ArgumentCaptor<Runnable> readyListenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(engine1).setReadyListener(readyListenerCaptor.capture());
+        readyListenerCaptor.getValue().run();
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(framework.findEngineByChildId("child1")).isPresent();
+        assertThat(framework.findEngineByChildId("child2")).isNotPresent();
+        assertThat(framework.findEngineByChildId("child3")).isPresent();
+        assertThat(framework.findEngineByChildId("grandChild1")).isPresent();
+    }
+
     @Test
     public void testMultiEngineChangeAction() {
         EntityHolder root1 = EntityHolder.newRoot("myRoot1", "myEntity1");
@@ -289,6 +328,52 @@ public class DefaultReconciliationFrameworkTest {
         assertThat(framework.orderedView("descending").stream().map(EntityHolder::getEntity)).containsExactly("myEntity2", "myEntity1");
     }
 
+    @Test
+    public void testShardedFramework() {
+        DefaultReconciliationFramework<SimpleReconcilerEvent> shardedFramework = new DefaultReconciliationFramework<>(
+                Collections.emptyList(),
+                engineFactory,
+                IDLE_TIMEOUT_MS,
+                ACTIVE_TIMEOUT_MS,
+                2,
+                indexComparators,
+                new DefaultRegistry(),
+                Optional.of(testScheduler)
+        );
+        shardedFramework.start();
+        try {
+            // Root ids hashing to different shards.
+            shardedFramework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe();
+            shardedFramework.newEngine(EntityHolder.newRoot("myRoot2", "myEntity2")).subscribe();
+            testScheduler.triggerActions();
+
+            assertThat(shardedFramework.findEngineByRootId("myRoot1")).contains(engine1);
+            assertThat(shardedFramework.findEngineByRootId("myRoot2")).contains(engine2);
+            assertThat(shardedFramework.orderedView("ascending").stream().map(EntityHolder::getEntity)).containsExactly("myEntity1", "myEntity2");
+
+            // Multi-engine change action spanning two shards.
+            MultiEngineChangeAction multiEngineChangeAction = () -> Observable.just(ImmutableMap.of(
+                    "myRoot1", ModelActionHolder.allModels(new SimpleModelUpdateAction(EntityHolder.newRoot("myRoot1", "myEntity1#v2"), true)),
+                    "myRoot2", ModelActionHolder.allModels(new SimpleModelUpdateAction(EntityHolder.newRoot("myRoot2", "myEntity2#v2"), true))
+            ));
+            Map<String, List<ModelActionHolder>> holders = new HashMap<>();
+            ExtTestSubscriber<Void> multiChangeSubscriber = new ExtTestSubscriber<>();
+            shardedFramework.changeReferenceModel(
+                    multiEngineChangeAction,
+                    (id, modelUpdates) -> {
+                        ChangeAction changeAction = () -> modelUpdates.doOnNext(next -> holders.put(id, next));
+                        return changeAction;
+                    },
+                    "myRoot1", "myRoot2"
+            ).subscribe(multiChangeSubscriber);
+
+            assertThat(multiChangeSubscriber.isUnsubscribed()).isTrue();
+            assertThat(holders).containsOnlyKeys("myRoot1", "myRoot2");
+        } finally {
+            shardedFramework.stop(STOP_TIMEOUT_MS);
+        }
+    }
+
     @Test
     public void testEventsPublishing() {
         framework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe();
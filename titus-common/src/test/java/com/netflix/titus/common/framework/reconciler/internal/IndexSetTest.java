@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexSetTest {
+
+    private static final Comparator<EntityHolder> ASCENDING = Comparator.comparing(EntityHolder::getEntity);
+
+    private final IndexSet<EntityHolder> indexSet = IndexSet.newIndexSet(
+            ImmutableMap.<Object, Comparator<EntityHolder>>builder()
+                    .put("ascending", ASCENDING)
+                    .put("descending", ASCENDING.reversed())
+                    .build(),
+            ImmutableMap.<Object, Function<EntityHolder, Set<String>>>of(
+                    "firstLetter", h -> ((String) h.getEntity()).isEmpty()
+                            ? Collections.emptySet()
+                            : ImmutableSet.of(((String) h.getEntity()).substring(0, 1)),
+                    "letters", h -> ImmutableSet.copyOf(((String) h.getEntity()).split(""))
+            ),
+            EntityHolder::getId
+    );
+
+    @Test
+    public void testAddUpdateRemove() {
+        indexSet.add(Arrays.asList(EntityHolder.newRoot("id1", "b"), EntityHolder.newRoot("id2", "a")));
+        assertThat(entitiesOf("ascending")).containsExactly("a", "b");
+        assertThat(entitiesOf("descending")).containsExactly("b", "a");
+
+        indexSet.add(Collections.singletonList(EntityHolder.newRoot("id2", "c")));
+        assertThat(entitiesOf("ascending")).containsExactly("b", "c");
+
+        indexSet.remove(Collections.singletonList("id1"));
+        assertThat(entitiesOf("ascending")).containsExactly("c");
+        assertThat(entitiesOf("descending")).containsExactly("c");
+    }
+
+    @Test
+    public void testItemsWithEqualOrderingValuesAreKept() {
+        indexSet.add(Arrays.asList(EntityHolder.newRoot("id1", "a"), EntityHolder.newRoot("id2", "a")));
+        assertThat(indexSet.getOrdered("ascending")).extracting(EntityHolder::getId).containsExactly("id1", "id2");
+
+        indexSet.remove(Collections.singletonList("id1"));
+        assertThat(indexSet.getOrdered("ascending")).extracting(EntityHolder::getId).containsExactly("id2");
+    }
+
+    @Test
+    public void testOrderedViewIsImmutableSnapshot() {
+        indexSet.add(Collections.singletonList(EntityHolder.newRoot("id1", "a")));
+        List<EntityHolder> snapshot = indexSet.getOrdered("ascending");
+
+        indexSet.add(Collections.singletonList(EntityHolder.newRoot("id2", "b")));
+        assertThat(snapshot).hasSize(1);
+        assertThat(indexSet.getOrdered("ascending")).hasSize(2);
+    }
+
+    @Test
+    public void testRandomUpdatesAgainstFullSort() {
+        Random random = new Random(123);
+        Map<String, EntityHolder> expected = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            String id = "id" + random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                expected.remove(id);
+                indexSet.remove(Collections.singletonList(id));
+            } else {
+                EntityHolder holder = EntityHolder.newRoot(id, "value" + random.nextInt(100));
+                expected.put(id, holder);
+                indexSet.add(Collections.singletonList(holder));
+            }
+        }
+
+        List<EntityHolder> sorted = new ArrayList<>(expected.values());
+        sorted.sort(ASCENDING.thenComparing(EntityHolder::getId));
+
+        List<EntityHolder> ordered = indexSet.getOrdered("ascending");
+        assertThat(ordered).containsExactlyElementsOf(sorted);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertThat(ordered.get(i)).isSameAs(sorted.get(i));
+        }
+    }
+
+    @Test
+    public void testSecondaryIndex() {
+        indexSet.add(Arrays.asList(EntityHolder.newRoot("id1", "ab"), EntityHolder.newRoot("id2", "bc")));
+        assertThat(indexSet.getByKey("firstLetter", "a")).containsOnlyKeys("id1");
+        assertThat(indexSet.getByKey("letters", "b")).containsOnlyKeys("id1", "id2");
+
+        indexSet.add(Collections.singletonList(EntityHolder.newRoot("id1", "cd")));
+        assertThat(indexSet.getByKey("firstLetter", "a")).isEmpty();
+        assertThat(indexSet.getByKey("firstLetter", "c")).containsOnlyKeys("id1");
+        assertThat(indexSet.getByKey("letters", "b")).containsOnlyKeys("id2");
+        assertThat(indexSet.getByKey("letters", "c")).containsOnlyKeys("id1", "id2");
+        assertThat((String) indexSet.getByKey("letters", "c").get("id1").getEntity()).isEqualTo("cd");
+
+        indexSet.remove(Collections.singletonList("id2"));
+        assertThat(indexSet.getByKey("letters", "b")).isEmpty();
+        assertThat(indexSet.getByKey("letters", "c")).containsOnlyKeys("id1");
+    }
+
+    @Test
+    public void testSecondaryIndexViewIsImmutableSnapshot() {
+        indexSet.add(Collections.singletonList(EntityHolder.newRoot("id1", "a")));
+        Map<String, EntityHolder> snapshot = indexSet.getByKey("firstLetter", "a");
+
+        indexSet.add(Collections.singletonList(EntityHolder.newRoot("id2", "a")));
+        assertThat(snapshot).hasSize(1);
+        assertThat(indexSet.getByKey("firstLetter", "a")).hasSize(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSecondaryIndex() {
+        indexSet.getByKey("unknown", "a");
+    }
+
+    private List<String> entitiesOf(String indexId) {
+        List<String> result = new ArrayList<>();
+        indexSet.getOrdered(indexId).forEach(h -> result.add(h.getEntity()));
+        return result;
+    }
+}
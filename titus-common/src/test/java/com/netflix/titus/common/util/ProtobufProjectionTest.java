@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.common.util;
+
+import java.util.Collection;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import org.junit.Test;
+
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProtobufProjectionTest {
+
+    private static final Message INNER_VALUE = ProtoMessageBuilder.newInner("innerValue1", "innerValue2");
+    private static final Message OUTER_VALUE = ProtoMessageBuilder.newOuter(INNER_VALUE, 10, INNER_VALUE, INNER_VALUE);
+
+    @Test
+    public void testProjectionIsCompiledOncePerFieldSet() {
+        ProtobufProjection<Message> projection = ProtobufProjection.of(OUTER_VALUE.getDescriptorForType(), asSet("objectField.stringField1", "primitiveField"));
+        assertThat(ProtobufProjection.of(OUTER_VALUE.getDescriptorForType(), asSet("primitiveField", "objectField.stringField1"))).isSameAs(projection);
+
+        assertThat(projection.includes("objectField")).isTrue();
+        assertThat(projection.includes("primitiveField")).isTrue();
+        assertThat(projection.includes("objectArrayField")).isFalse();
+    }
+
+    @Test
+    public void testTopLevelNameSelectsWholeField() {
+        Message filtered = ProtobufProjection.of(OUTER_VALUE.getDescriptorForType(), asSet("objectArrayField", "objectArrayField.stringField1")).apply(OUTER_VALUE);
+
+        FieldDescriptor objectArrayField = ProtoMessageBuilder.getAndAssertField(OUTER_VALUE, "objectArrayField");
+        Collection<Message> collection = (Collection<Message>) filtered.getField(objectArrayField);
+        assertThat(collection).containsExactly(INNER_VALUE, INNER_VALUE);
+    }
+
+    @Test
+    public void testMapEntrySelection() {
+        Struct struct = Struct.newBuilder()
+                .putFields("key1", Value.newBuilder().setStringValue("value1").build())
+                .putFields("key2", Value.newBuilder().setStringValue("value2").build())
+                .build();
+
+        Struct filtered = ProtobufProjection.<Struct>of(Struct.getDescriptor(), asSet("fields.key1", "fields.unknownKey")).apply(struct);
+        assertThat(filtered.getFieldsMap()).containsOnlyKeys("key1");
+
+        Struct all = ProtobufProjection.<Struct>of(Struct.getDescriptor(), asSet("fields")).apply(struct);
+        assertThat(all).isEqualTo(struct);
+    }
+
+    @Test
+    public void testUnknownFieldNamesAreIgnored() {
+        Message filtered = ProtobufProjection.of(OUTER_VALUE.getDescriptorForType(), asSet("primitiveField", "noSuchField", "noSuchField.nested")).apply(OUTER_VALUE);
+
+        assertThat(filtered.getAllFields()).hasSize(1);
+        assertThat(filtered.getField(ProtoMessageBuilder.getAndAssertField(OUTER_VALUE, "primitiveField"))).isEqualTo(10);
+    }
+}
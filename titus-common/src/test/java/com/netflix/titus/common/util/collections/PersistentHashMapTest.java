@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void testPlusMinus() {
+        PersistentHashMap<String, String> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, String> map = empty.plus("a", "1").plus("b", "2");
+
+        assertThat(empty).isEmpty();
+        assertThat(map).hasSize(2).containsEntry("a", "1").containsEntry("b", "2");
+
+        PersistentHashMap<String, String> updated = map.plus("a", "3");
+        assertThat(updated).hasSize(2).containsEntry("a", "3");
+        assertThat(map).containsEntry("a", "1");
+
+        PersistentHashMap<String, String> removed = updated.minus("a");
+        assertThat(removed).hasSize(1).containsOnlyKeys("b");
+        assertThat(removed.minus("a")).isSameAs(removed);
+        assertThat(removed.minus("b")).isEmpty();
+    }
+
+    @Test
+    public void testSameValueReturnsSameInstance() {
+        String value = "1";
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().plus("a", value);
+        assertThat(map.plus("a", value)).isSameAs(map);
+    }
+
+    @Test
+    public void testNullValues() {
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().plus("a", null);
+        assertThat(map.containsKey("a")).isTrue();
+        assertThat(map.get("a")).isNull();
+        assertThat(map).hasSize(1);
+    }
+
+    @Test
+    public void testHashCollisions() {
+        PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.plus(new CollidingKey(i, i % 2), i);
+        }
+        assertThat(map).hasSize(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(map.get(new CollidingKey(i, i % 2))).isEqualTo(i);
+        }
+        for (int i = 0; i < 10; i += 2) {
+            map = map.minus(new CollidingKey(i, i % 2));
+        }
+        assertThat(map).hasSize(5);
+        assertThat(map.get(new CollidingKey(1, 1))).isEqualTo(1);
+        assertThat(map.get(new CollidingKey(2, 0))).isNull();
+    }
+
+    @Test
+    public void testRandomOperationsAgainstHashMap() {
+        Random random = new Random(123);
+        Map<String, Integer> expected = new HashMap<>();
+        PersistentHashMap<String, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 50_000; i++) {
+            String key = "key" + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertThat(map).isEqualTo(expected);
+        assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(map.keySet()).isEqualTo(expected.keySet());
+    }
+
+    @Test
+    public void testDiff() {
+        PersistentHashMap<String, Integer> before = PersistentHashMap.empty();
+        for (int i = 0; i < 1_000; i++) {
+            before = before.plus("key" + i, i);
+        }
+        PersistentHashMap<String, Integer> after = before.minus("key1").plus("key2", -2).plus("new", 1_000);
+
+        Map<String, Integer> removed = new HashMap<>();
+        Map<String, Integer> addedOrChanged = new HashMap<>();
+        before.diff(after, removed::put, addedOrChanged::put);
+
+        assertThat(removed).containsOnlyKeys("key1");
+        assertThat(addedOrChanged).containsOnlyKeys("key2", "new");
+        assertThat(addedOrChanged).containsEntry("key2", -2);
+    }
+
+    @Test
+    public void testDiffWithIndependentlyBuiltMaps() {
+        PersistentHashMap<CollidingKey, Integer> before = PersistentHashMap.<CollidingKey, Integer>empty()
+                .plus(new CollidingKey(1, 0), 1)
+                .plus(new CollidingKey(2, 0), 2);
+        PersistentHashMap<CollidingKey, Integer> after = PersistentHashMap.<CollidingKey, Integer>empty()
+                .plus(new CollidingKey(2, 0), 2)
+                .plus(new CollidingKey(3, 1), 3);
+
+        Map<CollidingKey, Integer> removed = new HashMap<>();
+        Map<CollidingKey, Integer> addedOrChanged = new HashMap<>();
+        before.diff(after, removed::put, addedOrChanged::put);
+
+        assertThat(removed).containsOnlyKeys(new CollidingKey(1, 0));
+        assertThat(addedOrChanged).containsOnlyKeys(new CollidingKey(3, 1));
+    }
+
+    private static class CollidingKey {
+
+        private final int id;
+        private final int hash;
+
+        private CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
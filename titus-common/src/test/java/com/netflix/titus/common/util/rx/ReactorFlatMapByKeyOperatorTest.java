@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.rx;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.junit.Test;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactorFlatMapByKeyOperatorTest {
+
+    private static final BiPredicate<String, String> NEVER_SUPERSEDED = (queued, next) -> false;
+
+    private final Registry registry = new DefaultRegistry();
+
+    private final Map<String, MonoProcessor<String>> running = new LinkedHashMap<>();
+    private final Set<String> cancelled = new HashSet<>();
+
+    @Test
+    public void testSameKeyItemsAreProcessedSequentially() {
+        DirectProcessor<String> source = DirectProcessor.create();
+        List<String> results = new ArrayList<>();
+        source.transform(ReactorExt.flatMapSequentialByKey(ReactorFlatMapByKeyOperatorTest::keyOf, this::controlled, NEVER_SUPERSEDED, 10, 100, "test", registry))
+                .subscribe(results::add);
+
+        source.onNext("a1");
+        source.onNext("a2");
+        source.onNext("b1");
+        assertThat(running).containsOnlyKeys("a1", "b1");
+
+        running.get("b1").onNext("b1");
+        running.get("a1").onNext("a1");
+        assertThat(running).containsOnlyKeys("a1", "b1", "a2");
+
+        running.get("a2").onNext("a2");
+        assertThat(results).containsExactly("b1", "a1", "a2");
+    }
+
+    @Test
+    public void testConcurrencyLimit() {
+        DirectProcessor<String> source = DirectProcessor.create();
+        source.transform(ReactorExt.flatMapSequentialByKey(ReactorFlatMapByKeyOperatorTest::keyOf, this::controlled, NEVER_SUPERSEDED, 2, 100, "test", registry))
+                .subscribe();
+
+        source.onNext("a1");
+        source.onNext("b1");
+        source.onNext("c1");
+        assertThat(running).containsOnlyKeys("a1", "b1");
+
+        running.get("b1").onComplete();
+        assertThat(running).containsOnlyKeys("a1", "b1", "c1");
+    }
+
+    @Test
+    public void testQueuedItemIsCoalesced() {
+        DirectProcessor<String> source = DirectProcessor.create();
+        List<String> results = new ArrayList<>();
+        source.transform(ReactorExt.flatMapSequentialByKey(ReactorFlatMapByKeyOperatorTest::keyOf, this::controlled, (queued, next) -> true, 10, 100, "test", registry))
+                .subscribe(results::add);
+
+        source.onNext("a1");
+        source.onNext("a2");
+        source.onNext("a3");
+        running.get("a1").onNext("a1");
+        running.get("a3").onNext("a3");
+
+        assertThat(running).containsOnlyKeys("a1", "a3");
+        assertThat(results).containsExactly("a1", "a3");
+        assertThat(registry.counter("titus.common.flatMapByKey.coalesced", "name", "test").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testManySynchronousItems() {
+        int count = 100_000;
+        StepVerifier.create(Flux.range(0, count)
+                .transform(ReactorExt.flatMapSequentialByKey(i -> i % 3, Mono::just, (queued, next) -> false, 1, 16, "test", registry))
+                .count()
+        ).expectNext((long) count).verifyComplete();
+    }
+
+    @Test
+    public void testInnerErrorTerminatesStream() {
+        DirectProcessor<String> source = DirectProcessor.create();
+        StepVerifier.create(source.transform(ReactorExt.flatMapSequentialByKey(ReactorFlatMapByKeyOperatorTest::keyOf, this::controlled, NEVER_SUPERSEDED, 10, 100, "test", registry)))
+                .then(() -> {
+                    source.onNext("a1");
+                    source.onNext("b1");
+                    running.get("a1").onError(new RuntimeException("simulated error"));
+                })
+                .verifyErrorMessage("simulated error");
+
+        assertThat(cancelled).containsExactly("b1");
+        assertThat(source.hasDownstreams()).isFalse();
+    }
+
+    private Mono<String> controlled(String value) {
+        MonoProcessor<String> processor = MonoProcessor.create();
+        running.put(value, processor);
+        return processor.doOnCancel(() -> cancelled.add(value));
+    }
+
+    private static String keyOf(String value) {
+        return value.substring(0, 1);
+    }
+}
@@ -101,7 +101,7 @@ public class AwsLoadBalancerConnector implements LoadBalancerConnector {
                     logger.error("Error registering targets on " + loadBalancerId, t);
                     connectorMetrics.failure(AwsLoadBalancerConnectorMetrics.AwsLoadBalancerMethods.RegisterTargets, t, startTime);
                 }
-        ))).observeOn(scheduler);
+        ))).onErrorResumeNext(e -> Completable.error(toConnectorError(loadBalancerId, e))).observeOn(scheduler);
     }
 
     @Override
@@ -131,7 +131,7 @@ public class AwsLoadBalancerConnector implements LoadBalancerConnector {
                     logger.error("Error deregistering targets on " + loadBalancerId, t);
                     connectorMetrics.failure(AwsLoadBalancerConnectorMetrics.AwsLoadBalancerMethods.DeregisterTargets, t, startTime);
                 }
-        ))).observeOn(scheduler);
+        ))).onErrorResumeNext(e -> Completable.error(toConnectorError(loadBalancerId, e))).observeOn(scheduler);
     }
 
     @Override
@@ -186,6 +186,16 @@ public class AwsLoadBalancerConnector implements LoadBalancerConnector {
                 });
     }
 
+    /**
+     * Rate limit errors are reported as {@link CloudConnectorException.ErrorCode#Throttled}, so callers can slow down.
+     */
+    private static Throwable toConnectorError(String loadBalancerId, Throwable error) {
+        if (AwsLoadBalancerRateLimitException.isRateLimitError(error)) {
+            return CloudConnectorException.throttled(error, "Rate limited by AWS when updating targets of %s", loadBalancerId);
+        }
+        return error;
+    }
+
     private AmazonElasticLoadBalancingAsync getClient(String loadBalancerId) {
         Arn arn = Arn.fromString(loadBalancerId);
         return clientProvider.getLoadBalancingClient(arn.getAccountId());
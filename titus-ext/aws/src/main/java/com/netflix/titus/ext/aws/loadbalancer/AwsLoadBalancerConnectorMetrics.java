@@ -63,7 +63,7 @@ public class AwsLoadBalancerConnectorMetrics {
     }
 
     public void failure(AwsLoadBalancerMethods method, Throwable error, long startTime) {
-        if (error.getMessage().contains("Rate exceeded")) {
+        if (AwsLoadBalancerRateLimitException.isRateLimitError(error)) {
             error = new AwsLoadBalancerRateLimitException(error);
         }
         getOrCreateMetrics(method).failure(error, startTime);
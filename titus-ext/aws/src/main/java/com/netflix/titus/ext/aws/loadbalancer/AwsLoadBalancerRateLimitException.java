@@ -26,4 +26,8 @@ public class AwsLoadBalancerRateLimitException extends RuntimeException {
     public AwsLoadBalancerRateLimitException(Throwable error) {
         super(error.getMessage());
     }
+
+    public static boolean isRateLimitError(Throwable error) {
+        return error.getMessage() != null && error.getMessage().contains("Rate exceeded");
+    }
 }
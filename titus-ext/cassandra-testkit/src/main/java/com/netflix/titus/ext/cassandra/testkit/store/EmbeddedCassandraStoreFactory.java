@@ -90,6 +90,11 @@ public class EmbeddedCassandraStoreFactory {
         public boolean isTracingEnabled() {
             return false;
         }
+
+        @Override
+        public String getJobRecordFormat() {
+            return "Json";
+        }
     };
 
     private final Session session;
@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
@@ -58,6 +59,8 @@ import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.framework.fit.FitFramework;
 import com.netflix.titus.common.framework.fit.FitInjection;
 import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.Evaluators;
+import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.guice.annotation.ProxyConfiguration;
 import com.netflix.titus.common.util.tuple.Either;
 import com.netflix.titus.common.util.tuple.Pair;
@@ -67,6 +70,7 @@ import rx.Completable;
 import rx.Emitter;
 import rx.Observable;
 import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
 
 import static com.netflix.titus.common.util.guice.ProxyType.Logging;
 import static com.netflix.titus.common.util.guice.ProxyType.Spectator;
@@ -131,7 +135,8 @@ public class CassandraJobStore implements JobStore {
 
     private final TitusRuntime titusRuntime;
     private final Session session;
-    private final ObjectMapper mapper;
+    private final JobRecordCodec codec;
+    private final Function<String, JobRecordCodec.Format> recordFormatResolver;
     private final BalancedBucketManager<String> activeJobIdsBucketManager;
     private final CassandraStoreConfiguration configuration;
     private final Optional<FitInjection> fitDriverInjection;
@@ -174,7 +179,8 @@ public class CassandraJobStore implements JobStore {
             this.fitBadDataInjection = Optional.empty();
         }
 
-        this.mapper = mapper;
+        this.codec = new JobRecordCodec(mapper, ObjectMappers.binaryStoreMapper());
+        this.recordFormatResolver = Evaluators.memoizeLast(CassandraJobStore::parseRecordFormat);
         this.activeJobIdsBucketManager = new BalancedBucketManager<>(initialBucketCount, maxBucketSize, METRIC_NAME_ROOT, titusRuntime.getRegistry());
 
         retrieveActiveJobIdBucketsStatement = session.prepare(RETRIEVE_ACTIVE_JOB_ID_BUCKETS_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
@@ -238,67 +244,77 @@ public class CassandraJobStore implements JobStore {
 
     @Override
     public Observable<Pair<List<Job<?>>, Integer>> retrieveJobs() {
-        Observable result = Observable.fromCallable(() -> {
-            List<String> jobIds = activeJobIdsBucketManager.getItems();
-            return jobIds.stream().map(retrieveActiveJobStatement::bind).map(this::execute).collect(Collectors.toList());
-        }).flatMap(observables -> Observable.merge(observables, getConcurrencyLimit()).flatMapIterable(resultSet -> {
-            List<Row> allRows = resultSet.all();
-            if (allRows.isEmpty()) {
-                logger.debug("Job id with no record");
-                return Collections.emptyList();
-            }
-            return allRows.stream()
-                    .map(row -> row.getString(0))
-                    .map(value -> {
-                        String effectiveValue;
-                        if (fitBadDataInjection.isPresent()) {
-                            effectiveValue = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedRawJobRecords.name(), value);
-                        } else {
-                            effectiveValue = value;
-                        }
+        return streamJobs().toList().map(everything -> {
+            List<Job<?>> goodJobs = everything.stream().filter(Either::hasValue).map(Either::getValue).collect(Collectors.toList());
+            int errors = everything.size() - goodJobs.size();
+            return Pair.of(goodJobs, errors);
+        });
+    }
 
-                        Job<?> job;
-                        try {
-                            job = ObjectMappers.readValue(mapper, effectiveValue, Job.class);
-                        } catch (Exception e) {
-                            logger.error("Cannot map serialized job data to Job class: {}", effectiveValue, e);
-                            return Either.ofError(e);
-                        }
+    /**
+     * Job records are fetched with up to {@link #getConcurrencyLimit()} concurrent queries, and deserialized on the
+     * computation scheduler, so the Cassandra driver I/O threads are not blocked by it.
+     */
+    @Override
+    public Observable<Either<Job<?>, Throwable>> streamJobs() {
+        return Observable.defer(() -> Observable.from(activeJobIdsBucketManager.getItems()))
+                .flatMap(jobId -> execute(retrieveActiveJobStatement.bind(jobId))
+                                .observeOn(Schedulers.computation())
+                                .flatMapIterable(resultSet -> {
+                                    List<Row> allRows = resultSet.all();
+                                    if (allRows.isEmpty()) {
+                                        logger.debug("Job id with no record");
+                                        return Collections.emptyList();
+                                    }
+                                    return allRows.stream()
+                                            .map(row -> decodeJob(row.getString(0)))
+                                            .collect(Collectors.toList());
+                                }),
+                        getConcurrencyLimit()
+                );
+    }
 
-                        if (job.getJobDescriptor().getDisruptionBudget() == null) {
-                            titusRuntime.getCodeInvariants().inconsistent("jobWithNoDisruptionBudget: jobId=%s", job.getId());
-                            job = JobFunctions.changeDisruptionBudget(job, DisruptionBudget.none());
-                        }
+    private Either<Job<?>, Throwable> decodeJob(String value) {
+        String effectiveValue;
+        if (fitBadDataInjection.isPresent()) {
+            effectiveValue = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedRawJobRecords.name(), value);
+        } else {
+            effectiveValue = value;
+        }
 
-                        // TODO Remove this code when there are no more jobs with missing migration data (caused by a bug in ServiceJobExt builder).
-                        if (job.getJobDescriptor().getExtensions() instanceof ServiceJobExt) {
-                            Job<ServiceJobExt> serviceJob = (Job<ServiceJobExt>) job;
-                            ServiceJobExt ext = serviceJob.getJobDescriptor().getExtensions();
-                            if (ext.getMigrationPolicy() == null) {
-                                titusRuntime.getCodePointTracker().markReachable("Corrupted task migration record in Cassandra: " + job.getId());
-                                ServiceJobExt fixedExt = ext.toBuilder().withMigrationPolicy(SystemDefaultMigrationPolicy.newBuilder().build()).build();
-                                logger.warn("Service job with no migration policy defined. Setting system default: {}", job.getId());
-                                job = serviceJob.toBuilder().withJobDescriptor(
-                                        serviceJob.getJobDescriptor().toBuilder().withExtensions(fixedExt).build()
-                                ).build();
-                            }
-                        }
+        Job<?> job;
+        try {
+            job = codec.decode(effectiveValue, Job.class);
+        } catch (Exception e) {
+            logger.error("Cannot map serialized job data to Job class: {}", effectiveValue, e);
+            return Either.ofError(e);
+        }
 
-                        if (!fitBadDataInjection.isPresent()) {
-                            return Either.ofValue(job);
-                        }
+        if (job.getJobDescriptor().getDisruptionBudget() == null) {
+            titusRuntime.getCodeInvariants().inconsistent("jobWithNoDisruptionBudget: jobId=%s", job.getId());
+            job = JobFunctions.changeDisruptionBudget(job, DisruptionBudget.none());
+        }
 
-                        Job<?> effectiveJob = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedJobRecords.name(), job);
-                        return Either.ofValue(effectiveJob);
-                    })
-                    .collect(Collectors.toList());
-        })).toList().map(everything -> {
-            List<Job> goodJobs = (List<Job>) everything.stream().filter(Either::hasValue).map(Either::getValue).collect(Collectors.toList());
-            int errors = everything.size() - goodJobs.size();
-            return Pair.of(goodJobs, errors);
-        });
+        // TODO Remove this code when there are no more jobs with missing migration data (caused by a bug in ServiceJobExt builder).
+        if (job.getJobDescriptor().getExtensions() instanceof ServiceJobExt) {
+            Job<ServiceJobExt> serviceJob = (Job<ServiceJobExt>) job;
+            ServiceJobExt ext = serviceJob.getJobDescriptor().getExtensions();
+            if (ext.getMigrationPolicy() == null) {
+                titusRuntime.getCodePointTracker().markReachable("Corrupted task migration record in Cassandra: " + job.getId());
+                ServiceJobExt fixedExt = ext.toBuilder().withMigrationPolicy(SystemDefaultMigrationPolicy.newBuilder().build()).build();
+                logger.warn("Service job with no migration policy defined. Setting system default: {}", job.getId());
+                job = serviceJob.toBuilder().withJobDescriptor(
+                        serviceJob.getJobDescriptor().toBuilder().withExtensions(fixedExt).build()
+                ).build();
+            }
+        }
 
-        return result;
+        if (!fitBadDataInjection.isPresent()) {
+            return Either.ofValue(job);
+        }
+
+        Job<?> effectiveJob = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedJobRecords.name(), job);
+        return Either.ofValue(effectiveJob);
     }
 
     @Override
@@ -312,7 +328,7 @@ public class CassandraJobStore implements JobStore {
                 throw JobStoreException.jobDoesNotExist(jobId);
             }
             String value = row.getString(0);
-            return (Job<?>) ObjectMappers.readValue(mapper, value, Job.class);
+            return (Job<?>) codec.decode(value, Job.class);
         }));
     }
 
@@ -346,7 +362,20 @@ public class CassandraJobStore implements JobStore {
     }
 
     private String writeJobToString(Job job) {
-        return ObjectMappers.writeValueAsString(mapper, job);
+        return writeRecord(job);
+    }
+
+    private String writeRecord(Object jobOrTask) {
+        return codec.encode(jobOrTask, recordFormatResolver.apply(configuration.getJobRecordFormat()));
+    }
+
+    private static JobRecordCodec.Format parseRecordFormat(String formatName) {
+        try {
+            return StringExt.parseEnumIgnoreCase(formatName, JobRecordCodec.Format.class);
+        } catch (Exception e) {
+            logger.warn("Invalid job record format {}; writing records as JSON", formatName);
+            return JobRecordCodec.Format.Json;
+        }
     }
 
     @Override
@@ -437,7 +466,7 @@ public class CassandraJobStore implements JobStore {
 
             List<Observable<ResultSet>> observables = taskIds.stream().map(retrieveActiveTaskStatement::bind).map(this::execute).collect(Collectors.toList());
 
-            return Observable.merge(observables, getConcurrencyLimit()).flatMapIterable(tasksResultSet -> {
+            return Observable.merge(observables, getConcurrencyLimit()).observeOn(Schedulers.computation()).flatMapIterable(tasksResultSet -> {
                 List<Either<Task, Throwable>> tasks = new ArrayList<>();
                 for (Row row : tasksResultSet.all()) {
                     String value = row.getString(0);
@@ -505,7 +534,7 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
+            String taskJsonString = writeRecord(task);
             Statement taskStatement = insertActiveTaskStatement.bind(taskId, taskJsonString);
             Statement taskIdStatement = insertActiveTaskIdStatement.bind(jobId, taskId);
 
@@ -527,7 +556,7 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
+            String taskJsonString = writeRecord(task);
 
             transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "updateTask", task);
 
@@ -545,7 +574,7 @@ public class CassandraJobStore implements JobStore {
             String jobId = newTask.getJobId();
             checkIfJobIsActive(jobId);
             String taskId = newTask.getId();
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, newTask);
+            String taskJsonString = writeRecord(newTask);
 
             BatchStatement batchStatement = getArchiveTaskBatchStatement(oldTask);
 
@@ -575,12 +604,12 @@ public class CassandraJobStore implements JobStore {
             checkIfJobIsActive(jobFrom.getId());
             checkIfJobIsActive(jobTo.getId());
 
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, taskAfter);
+            String taskJsonString = writeRecord(taskAfter);
             transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "moveTask", taskJsonString);
 
             BatchStatement batchStatement = new BatchStatement();
-            batchStatement.add(insertActiveJobStatement.bind(jobFrom.getId(), ObjectMappers.writeValueAsString(mapper, jobFrom)));
-            batchStatement.add(insertActiveJobStatement.bind(jobTo.getId(), ObjectMappers.writeValueAsString(mapper, jobTo)));
+            batchStatement.add(insertActiveJobStatement.bind(jobFrom.getId(), writeRecord(jobFrom)));
+            batchStatement.add(insertActiveJobStatement.bind(jobTo.getId(), writeRecord(jobTo)));
             batchStatement.add(insertActiveTaskStatement.bind(taskAfter.getId(), taskJsonString));
             batchStatement.add(deleteActiveTaskIdStatement.bind(jobFrom.getId(), taskAfter.getId()));
             batchStatement.add(insertActiveTaskIdStatement.bind(jobTo.getId(), taskAfter.getId()));
@@ -683,7 +712,7 @@ public class CassandraJobStore implements JobStore {
                         if (type.isAssignableFrom(Task.class)) {
                             return Observable.just((T) deserializeTask(value));
                         }
-                        return Observable.just(ObjectMappers.readValue(mapper, value, type));
+                        return Observable.just(codec.decode(value, type));
                     } catch (Exception e) {
                         return Observable.error(e);
                     }
@@ -691,7 +720,7 @@ public class CassandraJobStore implements JobStore {
     }
 
     private Task deserializeTask(String value) {
-        Task task = ObjectMappers.readValue(mapper, value, Task.class);
+        Task task = codec.decode(value, Task.class);
 
         // Task attributes field check
         if (task.getAttributes() == null) {
@@ -725,7 +754,7 @@ public class CassandraJobStore implements JobStore {
     private BatchStatement getArchiveTaskBatchStatement(Task task) {
         String jobId = task.getJobId();
         String taskId = task.getId();
-        String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
+        String taskJsonString = writeRecord(task);
 
         Statement deleteTaskStatement = deleteActiveTaskStatement.bind(taskId);
         Statement deleteTaskIdStatement = deleteActiveTaskIdStatement.bind(jobId, taskId);
@@ -80,4 +80,12 @@ public interface CassandraStoreConfiguration {
     @DefaultValue("false")
     boolean isTracingEnabled();
 
+    /**
+     * Format in which job and task records are written (one of {@link JobRecordCodec.Format} values). Records are
+     * always read back in whatever format they were written, so switching to a binary format is safe only after all
+     * masters that may read the data are upgraded to a version that understands it.
+     */
+    @DefaultValue("Json")
+    String getJobRecordFormat();
+
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.titus.api.json.ObjectMappers;
+import org.xerial.snappy.Snappy;
+import rx.exceptions.Exceptions;
+
+/**
+ * Encodes job and task records stored in the Cassandra 'value' columns. Besides the original JSON text format,
+ * records can be written in the binary Smile format, optionally Snappy compressed. As the column type is 'text',
+ * binary records are stored as a version marker followed by the Base64 encoded payload:
+ * <ul>
+ * <li>'#1' - Smile</li>
+ * <li>'#2' - Snappy compressed Smile</li>
+ * </ul>
+ * A JSON document never starts with '#', so records in all formats can be read back regardless of the format that
+ * is configured for writing.
+ */
+public class JobRecordCodec {
+
+    public enum Format {
+        Json,
+        Binary,
+        CompressedBinary
+    }
+
+    private static final char BINARY_MARKER = '#';
+    private static final char BINARY_VERSION = '1';
+    private static final char COMPRESSED_BINARY_VERSION = '2';
+    private static final int HEADER_LENGTH = 2;
+
+    private static final JobRecordCodec DEFAULT = new JobRecordCodec(ObjectMappers.storeMapper(), ObjectMappers.binaryStoreMapper());
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper binaryMapper;
+
+    public JobRecordCodec(ObjectMapper jsonMapper, ObjectMapper binaryMapper) {
+        this.jsonMapper = jsonMapper;
+        this.binaryMapper = binaryMapper;
+    }
+
+    public String encode(Object value, Format format) {
+        try {
+            switch (format) {
+                case Binary:
+                    return toRecord(BINARY_VERSION, binaryMapper.writeValueAsBytes(value));
+                case CompressedBinary:
+                    return toRecord(COMPRESSED_BINARY_VERSION, Snappy.compress(binaryMapper.writeValueAsBytes(value)));
+                case Json:
+                default:
+                    return jsonMapper.writeValueAsString(value);
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * Decodes a record written in any of the supported formats.
+     */
+    public <T> T decode(String record, Class<T> type) {
+        try {
+            switch (formatOf(record)) {
+                case Binary:
+                    return binaryMapper.readValue(payloadOf(record), type);
+                case CompressedBinary:
+                    return binaryMapper.readValue(Snappy.uncompress(payloadOf(record)), type);
+                case Json:
+                default:
+                    return jsonMapper.readValue(record, type);
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    public static JobRecordCodec getDefault() {
+        return DEFAULT;
+    }
+
+    public static Format formatOf(String record) {
+        if (record.length() < HEADER_LENGTH || record.charAt(0) != BINARY_MARKER) {
+            return Format.Json;
+        }
+        switch (record.charAt(1)) {
+            case BINARY_VERSION:
+                return Format.Binary;
+            case COMPRESSED_BINARY_VERSION:
+                return Format.CompressedBinary;
+            default:
+                throw new IllegalArgumentException("Unsupported job record version: " + record.charAt(1));
+        }
+    }
+
+    private static String toRecord(char version, byte[] payload) {
+        return new StringBuilder(HEADER_LENGTH + (payload.length + 2) / 3 * 4)
+                .append(BINARY_MARKER)
+                .append(version)
+                .append(Base64.getEncoder().encodeToString(payload))
+                .toString();
+    }
+
+    private static byte[] payloadOf(String record) {
+        return Base64.getDecoder().decode(record.substring(HEADER_LENGTH));
+    }
+}
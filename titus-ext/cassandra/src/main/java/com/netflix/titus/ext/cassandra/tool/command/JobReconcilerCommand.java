@@ -27,9 +27,9 @@ import java.util.stream.Collectors;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
-import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
 import com.netflix.titus.ext.cassandra.tool.Command;
 import com.netflix.titus.ext.cassandra.tool.CommandContext;
@@ -130,7 +130,7 @@ public class JobReconcilerCommand implements Command {
                         String jobId = (String) pair.getLeft();
                         String value = (String) pair.getRight();
                         try {
-                            return (Job<?>) ObjectMappers.storeMapper().readValue(value, Job.class);
+                            return (Job<?>) JobRecordCodec.getDefault().decode(value, Job.class);
                         } catch (Exception e) {
                             recordViolation("badJobRecord", String.format("Job %s cannot be mapped to Job object: %s", jobId, e.getMessage()), 1);
                             return null;
@@ -169,7 +169,7 @@ public class JobReconcilerCommand implements Command {
                         String taskId = (String) pair.getLeft();
                         String value = (String) pair.getRight();
                         try {
-                            return ObjectMappers.storeMapper().readValue(value, Task.class);
+                            return JobRecordCodec.getDefault().decode(value, Task.class);
                         } catch (Exception e) {
                             recordViolation("badTaskRecord", String.format("Task %s cannot be mapped to Task object: %s", taskId, e.getMessage()), 1);
                             return null;
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.tool.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec;
+import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
+import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
+import com.netflix.titus.ext.cassandra.tool.Command;
+import com.netflix.titus.ext.cassandra.tool.CommandContext;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Command to rewrite job and task records in the given {@link JobRecordCodec.Format}. Each record is replaced with
+ * a conditional update, so a record modified concurrently by a running master is left untouched, and can be
+ * converted by running the command again.
+ */
+public class JobRecordRewriteCommand implements Command {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobRecordRewriteCommand.class);
+
+    private static final List<String> ACTIVE_TABLES = asList(CassandraSchemas.ACTIVE_JOBS_TABLE, CassandraSchemas.ACTIVE_TASKS_TABLE);
+    private static final List<String> ARCHIVE_TABLES = asList(CassandraSchemas.ARCHIVED_JOBS_TABLE, CassandraSchemas.ARCHIVED_TASKS_TABLE);
+
+    private static final int MAX_IN_FLIGHT = 100;
+
+    @Override
+    public String getDescription() {
+        return "Rewrite job and task records in the given format";
+    }
+
+    @Override
+    public CommandType getCommandType() {
+        return CommandType.TargetKeySpace;
+    }
+
+    @Override
+    public Options getOptions() {
+        Options options = new Options();
+        options.addOption(Option.builder("f").longOpt("format").desc("Record format (one of "
+                + StringExt.concatenate(JobRecordCodec.Format.values(), ",") + ")").hasArg().required().build());
+        options.addOption(Option.builder("a").longOpt("archive").desc("Rewrite also archive tables").build());
+        return options;
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+        JobRecordCodec.Format format = StringExt.parseEnumIgnoreCase(context.getCommandLine().getOptionValue('f'), JobRecordCodec.Format.class);
+        boolean includeArchive = context.getCommandLine().hasOption('a');
+
+        List<String> tables = new ArrayList<>(ACTIVE_TABLES);
+        if (includeArchive) {
+            tables.addAll(ARCHIVE_TABLES);
+        }
+        tables.forEach(table -> rewriteTable(context.getTargetSession(), table, format));
+    }
+
+    private void rewriteTable(Session session, String table, JobRecordCodec.Format format) {
+        Pair<String, String> columnNames = CassandraUtils.resolveColumnNamesInTwoColumnTable(session, table);
+        PreparedStatement updateStatement = session.prepare(String.format("UPDATE %s SET %s = ? WHERE %s = ? IF %s = ?",
+                table, columnNames.getRight(), columnNames.getLeft(), columnNames.getRight()
+        ));
+        JobRecordCodec codec = JobRecordCodec.getDefault();
+
+        RewriteStats stats = new RewriteStats();
+        List<ListenableFuture<ResultSet>> inFlight = new ArrayList<>();
+        CassandraUtils.readTwoColumnTable(session, table).toBlocking().forEach(pair -> {
+            String value = (String) pair.getRight();
+            stats.total++;
+            if (JobRecordCodec.formatOf(value) == format) {
+                return;
+            }
+            String newValue = codec.encode(codec.decode(value, JsonNode.class), format);
+            inFlight.add(session.executeAsync(updateStatement.bind(newValue, pair.getLeft(), value)));
+            if (inFlight.size() >= MAX_IN_FLIGHT) {
+                stats.await(inFlight);
+            }
+        });
+        stats.await(inFlight);
+
+        logger.info("Rewritten {} out of {} records in table {} (format={}, skipped because of concurrent modification: {})",
+                stats.rewritten, stats.total, table, format, stats.conflicts
+        );
+    }
+
+    private static class RewriteStats {
+
+        private long total;
+        private long rewritten;
+        private long conflicts;
+
+        private void await(List<ListenableFuture<ResultSet>> inFlight) {
+            try {
+                for (ResultSet resultSet : Futures.allAsList(inFlight).get()) {
+                    if (resultSet.wasApplied()) {
+                        rewritten++;
+                    } else {
+                        conflicts++;
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Record rewrite failed", e);
+            }
+            inFlight.clear();
+        }
+    }
+}
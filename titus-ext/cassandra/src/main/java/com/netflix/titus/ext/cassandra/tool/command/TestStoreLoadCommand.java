@@ -93,6 +93,11 @@ public class TestStoreLoadCommand implements Command {
         public boolean isTracingEnabled() {
             return false;
         }
+
+        @Override
+        public String getJobRecordFormat() {
+            return "Json";
+        }
     };
 
     @Override
@@ -30,6 +30,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Preconditions;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
 import rx.Observable;
@@ -80,8 +81,8 @@ public class JobSnapshotDownloader {
         List<JsonNode> allItems = CassandraUtils.readTwoColumnTable(session, table)
                 .flatMap(p -> {
                     try {
-                        return Observable.just(MAPPER.readTree((String) p.getRight()));
-                    } catch (IOException e) {
+                        return Observable.just(JobRecordCodec.getDefault().decode((String) p.getRight(), JsonNode.class));
+                    } catch (Exception e) {
                         return Observable.error(e);
                     }
                 })
@@ -17,6 +17,7 @@
 package com.netflix.titus.ext.cassandra.store;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -40,6 +41,7 @@ import com.netflix.titus.api.jobmanager.store.JobStore;
 import com.netflix.titus.api.jobmanager.store.JobStoreException;
 import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Either;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.testkit.junit.category.IntegrationNotParallelizableTest;
 import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
@@ -49,6 +51,10 @@ import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
 import rx.Completable;
 import rx.Observable;
 
@@ -56,6 +62,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
 @Category(IntegrationNotParallelizableTest.class)
+@RunWith(Parameterized.class)
 public class CassandraJobStoreTest {
 
     private static final long STARTUP_TIMEOUT_MS = 30_000L;
@@ -76,7 +83,17 @@ public class CassandraJobStoreTest {
             STARTUP_TIMEOUT_MS
     );
 
-    private static final CassandraStoreConfiguration CONFIGURATION = new TestCassandraStoreConfiguration();
+    /**
+     * Records are read back in the format they were written, so all tests run with the default JSON format, and with
+     * the binary one.
+     */
+    @Parameters(name = "{0}")
+    public static Iterable<Object> data() {
+        return Arrays.asList(JobRecordCodec.Format.Json, JobRecordCodec.Format.CompressedBinary);
+    }
+
+    @Parameter
+    public JobRecordCodec.Format jobRecordFormat;
 
     @Test
     public void testRetrieveJobs() {
@@ -100,6 +117,23 @@ public class CassandraJobStoreTest {
         }
     }
 
+    @Test
+    public void testStreamJobs() {
+        Session session = cassandraCqlUnit.getSession();
+        JobStore bootstrappingStore = getJobStore(session);
+        Job<BatchJobExt> batchJob = createBatchJobObject();
+        Job<ServiceJobExt> serviceJob = createServiceJobObject();
+        bootstrappingStore.storeJob(batchJob).await();
+        bootstrappingStore.storeJob(serviceJob).await();
+        JobStore store = getJobStore(session);
+        store.init().await();
+
+        List<Either<Job<?>, Throwable>> jobsOrErrors = store.streamJobs().toList().toBlocking().first();
+        assertThat(jobsOrErrors).hasSize(2);
+        assertThat(jobsOrErrors).allMatch(Either::hasValue);
+        assertThat(jobsOrErrors.stream().map(Either::getValue).map(Job::getId)).containsOnly(batchJob.getId(), serviceJob.getId());
+    }
+
     @Test
     public void testRetrieveBatchJob() {
         doRetrieveJob(createBatchJobObject());
@@ -440,7 +474,7 @@ public class CassandraJobStoreTest {
         if (session == null) {
             session = cassandraCqlUnit.getSession();
         }
-        return new CassandraJobStore(CONFIGURATION, session, TitusRuntimes.internal(),
+        return new CassandraJobStore(new TestCassandraStoreConfiguration(jobRecordFormat), session, TitusRuntimes.internal(),
                 ObjectMappers.storeMapper(), INITIAL_BUCKET_COUNT, MAX_BUCKET_SIZE);
     }
 
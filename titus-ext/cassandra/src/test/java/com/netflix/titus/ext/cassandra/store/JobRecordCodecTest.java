@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JobRecordCodecTest {
+
+    private final JobRecordCodec codec = JobRecordCodec.getDefault();
+
+    @Test
+    public void testRoundTripInAllFormats() {
+        Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+        BatchJobTask task = JobGenerator.oneBatchTask();
+
+        for (JobRecordCodec.Format format : JobRecordCodec.Format.values()) {
+            String jobRecord = codec.encode(job, format);
+            String taskRecord = codec.encode(task, format);
+
+            assertThat(JobRecordCodec.formatOf(jobRecord)).isEqualTo(format);
+            assertThat(codec.decode(jobRecord, Job.class)).isEqualTo(job);
+            assertThat(codec.decode(taskRecord, Task.class)).isEqualTo(task);
+        }
+    }
+
+    @Test
+    public void testReadsRecordsWrittenAsPlainJson() {
+        Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+        String legacyRecord = ObjectMappers.writeValueAsString(ObjectMappers.storeMapper(), job);
+
+        assertThat(JobRecordCodec.formatOf(legacyRecord)).isEqualTo(JobRecordCodec.Format.Json);
+        assertThat(codec.decode(legacyRecord, Job.class)).isEqualTo(job);
+    }
+
+    @Test
+    public void testConversionBetweenFormatsViaJsonTree() {
+        Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+        String jsonRecord = codec.encode(job, JobRecordCodec.Format.Json);
+
+        JsonNode tree = codec.decode(jsonRecord, JsonNode.class);
+        String binaryRecord = codec.encode(tree, JobRecordCodec.Format.CompressedBinary);
+        assertThat(codec.decode(binaryRecord, Job.class)).isEqualTo(job);
+
+        assertThat(codec.encode(codec.decode(binaryRecord, JsonNode.class), JobRecordCodec.Format.Json)).isEqualTo(jsonRecord);
+    }
+
+    @Test
+    public void testCompressedBinaryRecordIsSmallerThanJson() {
+        Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+        String jsonRecord = codec.encode(job, JobRecordCodec.Format.Json);
+        String compressedRecord = codec.encode(job, JobRecordCodec.Format.CompressedBinary);
+
+        assertThat(compressedRecord.length()).isLessThan(jsonRecord.length());
+    }
+
+    @Test
+    public void testUnknownVersionIsRejected() {
+        assertThatThrownBy(() -> codec.decode("#9AAAA", Job.class)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -17,6 +17,17 @@
 package com.netflix.titus.ext.cassandra.store;
 
 public class TestCassandraStoreConfiguration implements CassandraStoreConfiguration {
+
+    private final JobRecordCodec.Format jobRecordFormat;
+
+    public TestCassandraStoreConfiguration() {
+        this(JobRecordCodec.Format.Json);
+    }
+
+    public TestCassandraStoreConfiguration(JobRecordCodec.Format jobRecordFormat) {
+        this.jobRecordFormat = jobRecordFormat;
+    }
+
     @Override
     public String getV2KeySpace() {
         return "dev";
@@ -61,4 +72,9 @@ public class TestCassandraStoreConfiguration implements CassandraStoreConfigurat
     public boolean isTracingEnabled() {
         return false;
     }
+
+    @Override
+    public String getJobRecordFormat() {
+        return jobRecordFormat.name();
+    }
 }
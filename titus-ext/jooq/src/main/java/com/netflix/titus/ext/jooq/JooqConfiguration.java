@@ -27,4 +27,35 @@ public interface JooqConfiguration {
 
     @DefaultValue("false")
     boolean isInMemoryDb();
+
+    /**
+     * Maximum amount of time an activity queue record waits for other records to be committed with it.
+     */
+    @DefaultValue("5")
+    long getActivityQueueCommitWindowMs();
+
+    /**
+     * Maximum number of activity queue records committed in a single transaction.
+     */
+    @DefaultValue("500")
+    int getActivityQueueMaxBatchSize();
+
+    /**
+     * Maximum number of concurrently executed JDBC calls. It should match the number of database connections, which
+     * is one for the connection providers created in this module.
+     */
+    @DefaultValue("1")
+    int getExecutionConcurrency();
+
+    /**
+     * Maximum number of JDBC calls waiting for execution. Calls above this limit are rejected.
+     */
+    @DefaultValue("1000")
+    int getExecutionQueueSize();
+
+    /**
+     * Execute JDBC calls in virtual threads, if supported by the JVM.
+     */
+    @DefaultValue("false")
+    boolean isExecutionVirtualThreadsEnabled();
 }
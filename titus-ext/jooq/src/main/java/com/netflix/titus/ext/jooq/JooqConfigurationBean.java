@@ -43,4 +43,29 @@ public class JooqConfigurationBean implements JooqConfiguration {
     public boolean isInMemoryDb() {
         return SpringConfigurationUtil.getBoolean(environment, PREFIX + "inMemoryDb", false);
     }
+
+    @Override
+    public long getActivityQueueCommitWindowMs() {
+        return SpringConfigurationUtil.getLong(environment, PREFIX + "activityQueueCommitWindowMs", 5);
+    }
+
+    @Override
+    public int getActivityQueueMaxBatchSize() {
+        return SpringConfigurationUtil.getInt(environment, PREFIX + "activityQueueMaxBatchSize", 500);
+    }
+
+    @Override
+    public int getExecutionConcurrency() {
+        return SpringConfigurationUtil.getInt(environment, PREFIX + "executionConcurrency", 1);
+    }
+
+    @Override
+    public int getExecutionQueueSize() {
+        return SpringConfigurationUtil.getInt(environment, PREFIX + "executionQueueSize", 1000);
+    }
+
+    @Override
+    public boolean isExecutionVirtualThreadsEnabled() {
+        return SpringConfigurationUtil.getBoolean(environment, PREFIX + "executionVirtualThreadsEnabled", false);
+    }
 }
@@ -19,9 +19,11 @@ package com.netflix.titus.ext.jooq;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import com.netflix.titus.common.runtime.TitusRuntime;
 import org.jooq.ConnectionProvider;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
+import org.jooq.impl.DefaultConfiguration;
 import org.jooq.impl.DefaultConnectionProvider;
 import org.jooq.impl.DefaultDSLContext;
 import org.springframework.context.annotation.Bean;
@@ -37,13 +39,22 @@ public class JooqConnectorComponent {
     }
 
     @Bean
-    public DSLContext getDSLContext(JooqConfiguration configuration) {
+    public JooqExecutionEngine getJooqExecutionEngine(JooqConfiguration configuration, TitusRuntime titusRuntime) {
+        return new JooqExecutionEngine(configuration, titusRuntime.getRegistry());
+    }
+
+    @Bean
+    public DSLContext getDSLContext(JooqConfiguration configuration, JooqExecutionEngine executionEngine) {
         ConnectionProvider connectionProvider;
         try {
             connectionProvider = new DefaultConnectionProvider(DriverManager.getConnection(configuration.getDatabaseUrl()));
         } catch (SQLException e) {
             throw new IllegalStateException("Cannot initialize connection to Postgres database", e);
         }
-        return new DefaultDSLContext(connectionProvider, SQLDialect.POSTGRES_10);
+        return new DefaultDSLContext(new DefaultConfiguration()
+                .set(connectionProvider)
+                .set(SQLDialect.POSTGRES_10)
+                .set(executionEngine)
+        );
     }
 }
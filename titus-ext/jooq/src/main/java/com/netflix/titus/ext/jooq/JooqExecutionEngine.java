@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.ext.jooq;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.util.ExecutorsExt;
+import org.jooq.ExecutorProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes blocking JDBC calls of the jOOQ stores on a dedicated executor, with the concurrency matching the number
+ * of database connections ({@link JooqConfiguration#getExecutionConcurrency()}). At most
+ * {@link JooqConfiguration#getExecutionQueueSize()} calls may wait for execution. When the queue is full, new calls
+ * are rejected with {@link RejectedExecutionException}, so callers get immediate backpressure instead of piling up
+ * work behind a saturated database.
+ * <p>
+ * If {@link JooqConfiguration#isExecutionVirtualThreadsEnabled()} is set, and the JVM supports virtual threads, each
+ * call runs in its own virtual thread, with the concurrency enforced by a semaphore. Otherwise, or if virtual threads
+ * are not available, a fixed size thread pool is used.
+ * <p>
+ * The engine is registered as the {@link ExecutorProvider} of the DSL contexts, and {@link JooqUtils} submits work
+ * to it on behalf of a named store, so queue wait and execution times can be reported per store.
+ */
+public class JooqExecutionEngine implements ExecutorProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(JooqExecutionEngine.class);
+
+    private static final String METRIC_ROOT = "titus.jooq.executionEngine.";
+
+    private static final String DEFAULT_STORE_NAME = "default";
+
+    private final Registry registry;
+    private final int concurrency;
+    private final int queueSize;
+
+    private final ExecutorService executorService;
+
+    /**
+     * Bounds the number of calls that are either waiting or running.
+     */
+    private final Semaphore admissionPermits;
+
+    /**
+     * Bounds the number of running calls when virtual threads are used, and is null otherwise.
+     */
+    private final Semaphore executionPermits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final ConcurrentMap<String, StoreMetrics> storeMetrics = new ConcurrentHashMap<>();
+
+    private final Id waitingId;
+    private final Id runningId;
+
+    public JooqExecutionEngine(JooqConfiguration configuration, Registry registry) {
+        this.registry = registry;
+        this.concurrency = Math.max(1, configuration.getExecutionConcurrency());
+        this.queueSize = Math.max(0, configuration.getExecutionQueueSize());
+        this.admissionPermits = new Semaphore(concurrency + queueSize);
+
+        ExecutorService virtualThreadExecutor = configuration.isExecutionVirtualThreadsEnabled() ? newVirtualThreadExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            this.executorService = virtualThreadExecutor;
+            this.executionPermits = new Semaphore(concurrency);
+        } else {
+            this.executorService = ExecutorsExt.instrumentedFixedSizeThreadPool(registry, "jooq-execution", concurrency);
+            this.executionPermits = null;
+        }
+        logger.info("Started jOOQ execution engine: concurrency={}, queueSize={}, virtualThreads={}",
+                concurrency, queueSize, executionPermits != null);
+
+        this.waitingId = registry.createId(METRIC_ROOT + "waiting");
+        this.runningId = registry.createId(METRIC_ROOT + "running");
+        PolledMeter.using(registry).withId(waitingId).monitorValue(waiting);
+        PolledMeter.using(registry).withId(runningId).monitorValue(running);
+    }
+
+    public void shutdown() {
+        PolledMeter.remove(registry, waitingId);
+        PolledMeter.remove(registry, runningId);
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Executor used by jOOQ for its own asynchronous operations. Calls submitted this way are reported under the
+     * 'default' store name.
+     */
+    @Override
+    public Executor provide() {
+        return command -> execute(DEFAULT_STORE_NAME, command);
+    }
+
+    /**
+     * Runs the supplier on the engine executor. If the engine is saturated, the returned future fails with
+     * {@link RejectedExecutionException}.
+     */
+    public <T> CompletableFuture<T> submit(String storeName, Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            execute(storeName, () -> {
+                try {
+                    future.complete(supplier.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @VisibleForTesting
+    int getWaiting() {
+        return waiting.get();
+    }
+
+    @VisibleForTesting
+    int getRunning() {
+        return running.get();
+    }
+
+    private void execute(String storeName, Runnable command) {
+        StoreMetrics metrics = storeMetrics.computeIfAbsent(storeName, StoreMetrics::new);
+        if (!admissionPermits.tryAcquire()) {
+            metrics.rejected.increment();
+            throw new RejectedExecutionException(String.format(
+                    "jOOQ execution engine saturated: store=%s, concurrency=%s, queueSize=%s", storeName, concurrency, queueSize
+            ));
+        }
+
+        long submitTimeNs = registry.clock().monotonicTime();
+        waiting.incrementAndGet();
+        try {
+            executorService.execute(() -> run(metrics, submitTimeNs, command));
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            admissionPermits.release();
+            metrics.rejected.increment();
+            throw e;
+        }
+    }
+
+    private void run(StoreMetrics metrics, long submitTimeNs, Runnable command) {
+        try {
+            if (executionPermits != null) {
+                executionPermits.acquireUninterruptibly();
+            }
+            try {
+                waiting.decrementAndGet();
+                running.incrementAndGet();
+                long startTimeNs = registry.clock().monotonicTime();
+                metrics.queueWait.record(startTimeNs - submitTimeNs, TimeUnit.NANOSECONDS);
+                try {
+                    command.run();
+                } finally {
+                    metrics.executionTime.record(registry.clock().monotonicTime() - startTimeNs, TimeUnit.NANOSECONDS);
+                    running.decrementAndGet();
+                }
+            } finally {
+                if (executionPermits != null) {
+                    executionPermits.release();
+                }
+            }
+        } finally {
+            admissionPermits.release();
+        }
+    }
+
+    /**
+     * Virtual threads are available since JDK 21. As this code is compiled for older JDKs, the factory method is
+     * resolved reflectively.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            logger.warn("Virtual threads not supported by this JVM ({}); using a fixed size thread pool", System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    private class StoreMetrics {
+
+        private final Timer queueWait;
+        private final Timer executionTime;
+        private final Counter rejected;
+
+        private StoreMetrics(String storeName) {
+            this.queueWait = PercentileTimer.get(registry, registry.createId(METRIC_ROOT + "queueWait", "store", storeName));
+            this.executionTime = PercentileTimer.get(registry, registry.createId(METRIC_ROOT + "executionTime", "store", storeName));
+            this.rejected = registry.counter(METRIC_ROOT + "rejected", "store", storeName);
+        }
+    }
+}
@@ -25,9 +25,11 @@ import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.netflix.archaius.ConfigProxyFactory;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import org.jooq.ConnectionProvider;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
+import org.jooq.impl.DefaultConfiguration;
 import org.jooq.impl.DefaultConnectionProvider;
 import org.jooq.impl.DefaultDSLContext;
 
@@ -43,13 +45,21 @@ public class JooqModule extends AbstractModule {
         return factory.newProxy(JooqConfiguration.class);
     }
 
+    @Provides
+    @Singleton
+    public JooqExecutionEngine getJooqExecutionEngine(JooqConfiguration configuration, TitusRuntime titusRuntime) {
+        return new JooqExecutionEngine(configuration, titusRuntime.getRegistry());
+    }
+
     static class DefaultDSLContextProvider implements Provider<DSLContext> {
 
         ConnectionProvider connectionProvider;
         SQLDialect dialect;
+        JooqExecutionEngine executionEngine;
 
         @Inject
-        DefaultDSLContextProvider(JooqConfiguration configuration) {
+        DefaultDSLContextProvider(JooqConfiguration configuration, JooqExecutionEngine executionEngine) {
+            this.executionEngine = executionEngine;
             try {
                 if (configuration.isInMemoryDb()) {
                     connectionProvider = new DefaultConnectionProvider(DriverManager.getConnection("jdbc:hsqldb:mem:junit" + System.currentTimeMillis(), "SA", ""));
@@ -68,7 +78,11 @@ public class JooqModule extends AbstractModule {
 
         @Override
         public DSLContext get() {
-            return new DefaultDSLContext(connectionProvider, dialect);
+            return new DefaultDSLContext(new DefaultConfiguration()
+                    .set(connectionProvider)
+                    .set(dialect)
+                    .set(executionEngine)
+            );
         }
     }
 }
@@ -21,17 +21,23 @@ import java.util.concurrent.CompletionStage;
 import java.util.function.Supplier;
 
 import org.jooq.DSLContext;
+import org.jooq.ExecutorProvider;
 import reactor.core.publisher.Mono;
 
 public class JooqUtils {
 
-    // Returns a CompletableStage that asynchronously runs the supplier on the DSL's executor
-    public static <T> CompletionStage<T> executeAsync(Supplier<T> supplier, DSLContext dslContext) {
-        return CompletableFuture.supplyAsync(supplier, dslContext.configuration().executorProvider().provide());
+    // Returns a CompletableStage that asynchronously runs the supplier on the DSL's executor. If the executor is
+    // a JooqExecutionEngine, the execution is reported under the given store name.
+    public static <T> CompletionStage<T> executeAsync(String storeName, Supplier<T> supplier, DSLContext dslContext) {
+        ExecutorProvider executorProvider = dslContext.configuration().executorProvider();
+        if (executorProvider instanceof JooqExecutionEngine) {
+            return ((JooqExecutionEngine) executorProvider).submit(storeName, supplier);
+        }
+        return CompletableFuture.supplyAsync(supplier, executorProvider.provide());
     }
 
     // Returns a Mono that asynchronously runs the supplier on the DSL's executor
-    public static <T> Mono<T> executeAsyncMono(Supplier<T> supplier, DSLContext dslContext) {
-        return Mono.fromCompletionStage(executeAsync(supplier, dslContext));
+    public static <T> Mono<T> executeAsyncMono(String storeName, Supplier<T> supplier, DSLContext dslContext) {
+        return Mono.fromCompletionStage(executeAsync(storeName, supplier, dslContext));
     }
 }
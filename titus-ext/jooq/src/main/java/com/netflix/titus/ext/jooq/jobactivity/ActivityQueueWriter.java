@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.ext.jooq.jobactivity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.spectator.api.histogram.PercentileDistributionSummary;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import com.netflix.titus.common.util.ExecutorsExt;
+import com.netflix.titus.common.util.spectator.DatabaseMetrics;
+import com.netflix.titus.ext.jooq.JooqConfiguration;
+import com.netflix.titus.ext.jooq.JooqUtils;
+import com.netflix.titus.ext.jooq.activity.schema.tables.records.JActivityQueueRecord;
+import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep3;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.netflix.titus.ext.jooq.activity.schema.tables.JActivityQueue.ACTIVITY_QUEUE;
+
+/**
+ * Group commit writer for the activity queue table. Records are accumulated for up to
+ * {@link JooqConfiguration#getActivityQueueCommitWindowMs()}, or until {@link JooqConfiguration#getActivityQueueMaxBatchSize()}
+ * records are pending, and written with a single multi-row insert in one transaction.
+ * <p>
+ * Queue indexes are assigned when a record is added to a batch, and batches are committed one at a time on a dedicated
+ * thread in the order they were formed, so records are committed in the queue index order. The dedicated thread
+ * waits for each commit, which itself is executed by the DSL context executor, as any other JDBC call of the store.
+ * The futures returned to callers are completed on a separate callback executor, so the continuations of callers
+ * never run on, and delay, the dedicated thread.
+ */
+class ActivityQueueWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityQueueWriter.class);
+
+    private static final String METRIC_ROOT = "titus.jooq.jobActivityPublisher.groupCommit.";
+
+    private final String storeName;
+    private final DSLContext dslContext;
+    private final JooqConfiguration configuration;
+    private final AtomicLong queueIndex;
+    private final DatabaseMetrics databaseMetrics;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService callbackExecutor;
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer commitLatencyTimer;
+
+    private final Object lock = new Object();
+    private PendingBatch pending;
+    private ScheduledFuture<?> windowFlush;
+    private final Deque<PendingBatch> sealed = new ArrayDeque<>();
+
+    ActivityQueueWriter(String storeName,
+                        DSLContext dslContext,
+                        JooqConfiguration configuration,
+                        AtomicLong queueIndex,
+                        DatabaseMetrics databaseMetrics,
+                        Registry registry) {
+        this.storeName = storeName;
+        this.dslContext = dslContext;
+        this.configuration = configuration;
+        this.queueIndex = queueIndex;
+        this.databaseMetrics = databaseMetrics;
+        this.executor = ExecutorsExt.namedSingleThreadScheduledExecutor("jooq-activity-queue-writer");
+        this.callbackExecutor = ExecutorsExt.instrumentedCachedThreadPool(registry, "jooq-activity-queue-writer-callback");
+        this.batchSizeSummary = PercentileDistributionSummary.get(registry, registry.createId(METRIC_ROOT + "batchSize"));
+        this.commitLatencyTimer = PercentileTimer.get(registry, registry.createId(METRIC_ROOT + "commitLatency"));
+    }
+
+    /**
+     * Adds a record to the current batch.
+     *
+     * @return a future completed when the batch with the record is committed
+     */
+    CompletableFuture<Void> write(short eventType, byte[] serializedEvent) {
+        synchronized (lock) {
+            if (pending == null) {
+                pending = new PendingBatch();
+                windowFlush = executor.schedule(this::flushWindow, configuration.getActivityQueueCommitWindowMs(), TimeUnit.MILLISECONDS);
+            }
+            PendingBatch batch = pending;
+            batch.add(queueIndex.getAndIncrement(), eventType, serializedEvent);
+            if (batch.size() >= configuration.getActivityQueueMaxBatchSize()) {
+                windowFlush.cancel(false);
+                sealPending();
+                executor.execute(this::commitSealed);
+            }
+            return batch.committed;
+        }
+    }
+
+    void shutdown() {
+        executor.shutdown();
+        callbackExecutor.shutdown();
+    }
+
+    private void flushWindow() {
+        synchronized (lock) {
+            if (pending != null) {
+                sealPending();
+            }
+        }
+        commitSealed();
+    }
+
+    private void sealPending() {
+        sealed.addLast(pending);
+        pending = null;
+        windowFlush = null;
+    }
+
+    /**
+     * Runs on the writer thread only, so batches are committed in the order they were sealed.
+     */
+    private void commitSealed() {
+        PendingBatch batch;
+        while ((batch = pollSealed()) != null) {
+            commit(batch);
+        }
+    }
+
+    private PendingBatch pollSealed() {
+        synchronized (lock) {
+            return sealed.pollFirst();
+        }
+    }
+
+    private void commit(PendingBatch batch) {
+        long startTimeMs = System.currentTimeMillis();
+        try {
+            JooqUtils.executeAsync(storeName, () -> insertInTransaction(batch), dslContext).toCompletableFuture().join();
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            logger.warn("Failed to commit a batch of {} activity queue records: {}", batch.size(), cause.getMessage());
+            complete(batch, cause);
+            return;
+        }
+
+        long latencyMs = System.currentTimeMillis() - startTimeMs;
+        batchSizeSummary.record(batch.size());
+        commitLatencyTimer.record(latencyMs, TimeUnit.MILLISECONDS);
+        databaseMetrics.registerInsertLatency(startTimeMs, batch.size(), ACTIVITY_QUEUE.getName(), Collections.emptyList());
+        complete(batch, null);
+    }
+
+    private void complete(PendingBatch batch, @Nullable Throwable error) {
+        Runnable completion = () -> {
+            if (error == null) {
+                batch.committed.complete(null);
+            } else {
+                batch.committed.completeExceptionally(error);
+            }
+        };
+        try {
+            callbackExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // The writer is shut down, but the batches sealed before still get their result.
+            completion.run();
+        }
+    }
+
+    private Void insertInTransaction(PendingBatch batch) {
+        dslContext.transaction(transactionConfiguration -> {
+            InsertValuesStep3<JActivityQueueRecord, Long, Short, byte[]> insert = DSL.using(transactionConfiguration)
+                    .insertInto(ACTIVITY_QUEUE,
+                            ACTIVITY_QUEUE.QUEUE_INDEX,
+                            ACTIVITY_QUEUE.EVENT_TYPE,
+                            ACTIVITY_QUEUE.SERIALIZED_EVENT);
+            for (int i = 0; i < batch.size(); i++) {
+                insert = insert.values(batch.queueIndexes.get(i), batch.eventTypes.get(i), batch.serializedEvents.get(i));
+            }
+            insert.execute();
+        });
+        return null;
+    }
+
+    private static class PendingBatch {
+
+        private final List<Long> queueIndexes = new ArrayList<>();
+        private final List<Short> eventTypes = new ArrayList<>();
+        private final List<byte[]> serializedEvents = new ArrayList<>();
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        private void add(long queueIndex, short eventType, byte[] serializedEvent) {
+            queueIndexes.add(queueIndex);
+            eventTypes.add(eventType);
+            serializedEvents.add(serializedEvent);
+        }
+
+        private int size() {
+            return queueIndexes.size();
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.netflix.titus.ext.jooq.jobactivity;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -30,6 +31,7 @@ import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.spectator.DatabaseMetrics;
+import com.netflix.titus.ext.jooq.JooqConfiguration;
 import com.netflix.titus.ext.jooq.JooqUtils;
 import com.netflix.titus.ext.jooq.activity.schema.JActivity;
 import com.netflix.titus.api.jobmanager.model.job.LogStorageInfo;
@@ -71,15 +73,25 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
      */
     private AtomicLong queueIndex;
 
+    /**
+     * Records are inserted in batches by the writer, which assigns their queue indexes.
+     */
+    private final ActivityQueueWriter writer;
+
     @Inject
     public JooqJobActivityPublisherStore(DSLContext dslContext,
+                                         JooqConfiguration configuration,
                                          TitusRuntime runtime,
                                          LogStorageInfo<Task> logStorageInfo) {
-        this(dslContext, runtime, logStorageInfo,true);
+        this(dslContext, configuration, runtime, logStorageInfo, true);
     }
 
     @VisibleForTesting
-    public JooqJobActivityPublisherStore(DSLContext dslContext, TitusRuntime runtime, LogStorageInfo<Task> logStorageInfo, boolean createIfNotExist) {
+    public JooqJobActivityPublisherStore(DSLContext dslContext,
+                                         JooqConfiguration configuration,
+                                         TitusRuntime runtime,
+                                         LogStorageInfo<Task> logStorageInfo,
+                                         boolean createIfNotExist) {
         this.logStorageInfo = logStorageInfo;
         this.dslContext = dslContext;
         this.databaseMetrics = new DatabaseMetrics(runtime.getRegistry(), "titus", JOOQ_METRICS_DATABASE_NAME);
@@ -89,6 +101,13 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
         }
         queueIndex = new AtomicLong(getInitialQueueIndex());
         logger.info("Loaded initial job activity publisher queue index {}", queueIndex);
+
+        this.writer = new ActivityQueueWriter(JOOQ_METRICS_DATABASE_NAME, dslContext, configuration, queueIndex, databaseMetrics, runtime.getRegistry());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
     }
 
     private void createSchemaIfNotExist() {
@@ -127,7 +146,7 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
 
     @VisibleForTesting
     public Mono<Void> clearStore() {
-        return JooqUtils.executeAsyncMono(() -> dslContext.dropTable(ACTIVITY_QUEUE).execute(), dslContext).then();
+        return JooqUtils.executeAsyncMono(JOOQ_METRICS_DATABASE_NAME, () -> dslContext.dropTable(ACTIVITY_QUEUE).execute(), dslContext).then();
     }
 
     @VisibleForTesting
@@ -148,29 +167,14 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
     }
 
     private Mono<Void> publishByteString(JobActivityPublisherRecord.RecordType recordType, String recordId, byte[] serializedRecord) {
-        long assignedQueueIndex = queueIndex.getAndIncrement();
-
-        return JooqUtils.executeAsyncMono(() -> {
-            long startTimeMs = System.currentTimeMillis();
-            int numInserts = dslContext
-                    .insertInto(ACTIVITY_QUEUE,
-                            ACTIVITY_QUEUE.QUEUE_INDEX,
-                            ACTIVITY_QUEUE.EVENT_TYPE,
-                            ACTIVITY_QUEUE.SERIALIZED_EVENT)
-                    .values(assignedQueueIndex,
-                            (short) recordType.ordinal(),
-                            serializedRecord)
-                    .execute();
-            databaseMetrics.registerInsertLatency(startTimeMs, 1, ACTIVITY_QUEUE.getName(), Collections.emptyList());
-            return numInserts;
-        }, dslContext)
+        return Mono.defer(() -> Mono.fromFuture(writer.write((short) recordType.ordinal(), serializedRecord)))
                 .onErrorMap(e -> JobActivityStoreException.jobActivityUpdateRecordException(recordId, e))
                 .then();
     }
 
     @VisibleForTesting
     public Flux<JobActivityPublisherRecord> getRecords() {
-        return JooqUtils.executeAsyncMono(() -> {
+        return JooqUtils.executeAsyncMono(JOOQ_METRICS_DATABASE_NAME, () -> {
             long startTimeMs = System.currentTimeMillis();
             List<JobActivityPublisherRecord> records = dslContext
                     .selectFrom(ACTIVITY_QUEUE)
@@ -184,6 +188,6 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
 
     @VisibleForTesting
     public Mono<Integer> getSize() {
-        return JooqUtils.executeAsyncMono(() -> dslContext.fetchCount(ACTIVITY_QUEUE), dslContext);
+        return JooqUtils.executeAsyncMono(JOOQ_METRICS_DATABASE_NAME, () -> dslContext.fetchCount(ACTIVITY_QUEUE), dslContext);
     }
 }
@@ -50,6 +50,8 @@ import static com.netflix.titus.ext.jooq.relocation.schema.tables.JRelocationSta
 @Singleton
 public class JooqTaskRelocationResultStore implements TaskRelocationResultStore {
 
+    private static final String STORE_NAME = "TaskRelocationResultStore";
+
     private static final int MAX_TEXT_LENGTH = 2048;
 
     private final DSLContext dslContext;
@@ -86,7 +88,7 @@ public class JooqTaskRelocationResultStore implements TaskRelocationResultStore
     @Override
     public Mono<Map<String, Optional<Throwable>>> createTaskRelocationStatuses(List<TaskRelocationStatus> taskRelocationStatuses) {
         return Mono.defer(() -> {
-            CompletionStage<int[]> asyncAction = JooqUtils.executeAsync(() -> {
+            CompletionStage<int[]> asyncAction = JooqUtils.executeAsync(STORE_NAME, () -> {
                         loadToCache(findNotCached(taskRelocationStatuses), dslContext.configuration());
 
                         List<StoreQuery<JRelocationStatusRecord>> queries = taskRelocationStatuses.stream()
@@ -126,7 +128,7 @@ public class JooqTaskRelocationResultStore implements TaskRelocationResultStore
                 return Mono.just(Collections.singletonList(status));
             }
 
-            CompletionStage<Void> asyncAction = JooqUtils.executeAsync(() -> {
+            CompletionStage<Void> asyncAction = JooqUtils.executeAsync(STORE_NAME, () -> {
                 loadToCache(Collections.singleton(taskId), dslContext.configuration());
                 return null;
             }, dslContext);
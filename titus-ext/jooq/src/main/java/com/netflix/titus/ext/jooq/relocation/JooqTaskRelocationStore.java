@@ -49,6 +49,8 @@ import static com.netflix.titus.ext.jooq.relocation.schema.tables.JRelocationPla
 @Singleton
 public class JooqTaskRelocationStore implements TaskRelocationStore {
 
+    private static final String STORE_NAME = "TaskRelocationStore";
+
     private final DSLContext dslContext;
 
     private final ConcurrentMap<String, TaskRelocationPlan> plansByTaskId = new ConcurrentHashMap<>();
@@ -100,7 +102,7 @@ public class JooqTaskRelocationStore implements TaskRelocationStore {
 
         return Mono.defer(() -> {
             List<StoreQuery<JRelocationPlanRecord>> queries = taskRelocationPlans.stream().map(this::newCreateOrUpdateQuery).collect(Collectors.toList());
-            CompletionStage<int[]> asyncAction = JooqUtils.executeAsync(() ->
+            CompletionStage<int[]> asyncAction = JooqUtils.executeAsync(STORE_NAME, () ->
                     dslContext.batch(queries).execute(), dslContext);
 
             MonoProcessor<Map<String, Optional<Throwable>>> callerProcessor = MonoProcessor.create();
@@ -140,7 +142,7 @@ public class JooqTaskRelocationStore implements TaskRelocationStore {
                     .map(this::newDelete)
                     .collect(Collectors.toList());
 
-            CompletionStage<int[]> asyncAction = JooqUtils.executeAsync(() ->
+            CompletionStage<int[]> asyncAction = JooqUtils.executeAsync(STORE_NAME, () ->
                     dslContext.batch(deletes).execute(), dslContext);
 
             MonoProcessor<Map<String, Optional<Throwable>>> callerProcessor = MonoProcessor.create();
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.ext.jooq;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JooqExecutionEngineTest {
+
+    private static final String STORE_NAME = "testStore";
+
+    private final JooqConfiguration configuration = mock(JooqConfiguration.class);
+
+    private final Registry registry = new DefaultRegistry();
+
+    private JooqExecutionEngine engine;
+
+    @Before
+    public void setUp() {
+        when(configuration.getExecutionConcurrency()).thenReturn(1);
+        when(configuration.getExecutionQueueSize()).thenReturn(1);
+        engine = new JooqExecutionEngine(configuration, registry);
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        assertThat(engine.submit(STORE_NAME, () -> "result").get(5, TimeUnit.SECONDS)).isEqualTo("result");
+
+        assertThat(registry.timer("titus.jooq.executionEngine.executionTime", "store", STORE_NAME).count()).isEqualTo(1);
+        assertThat(registry.timer("titus.jooq.executionEngine.queueWait", "store", STORE_NAME).count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSupplierErrorIsPropagated() {
+        CompletableFuture<Object> future = engine.submit(STORE_NAME, () -> {
+            throw new IllegalStateException("simulated error");
+        });
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testSaturatedEngineRejectsNewCalls() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = engine.submit(STORE_NAME, () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return "running";
+        });
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> waiting = engine.submit(STORE_NAME, () -> "waiting");
+        assertThat(engine.getRunning()).isEqualTo(1);
+        assertThat(engine.getWaiting()).isEqualTo(1);
+
+        CompletableFuture<String> rejected = engine.submit(STORE_NAME, () -> "rejected");
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> engine.provide().execute(() -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+        assertThat(registry.counter("titus.jooq.executionEngine.rejected", "store", STORE_NAME).count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo("waiting");
+        await().until(() -> engine.getRunning() == 0 && engine.getWaiting() == 0);
+
+        assertThat(engine.submit(STORE_NAME, () -> "accepted").get(5, TimeUnit.SECONDS)).isEqualTo("accepted");
+    }
+
+    @Test
+    public void testVirtualThreadsMode() throws Exception {
+        when(configuration.isExecutionVirtualThreadsEnabled()).thenReturn(true);
+        JooqExecutionEngine virtualEngine = new JooqExecutionEngine(configuration, new DefaultRegistry());
+        try {
+            assertThat(virtualEngine.submit(STORE_NAME, () -> "result").get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        } finally {
+            virtualEngine.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -16,16 +16,21 @@
 
 package com.netflix.titus.ext.jooq.activity;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import com.google.common.base.Stopwatch;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.netflix.spectator.api.DistributionSummary;
 import com.netflix.titus.api.jobactivity.store.JobActivityPublisherRecord;
 import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.common.data.generator.DataGenerator;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.ext.jooq.JooqConfiguration;
 import com.netflix.titus.ext.jooq.jobactivity.JooqJobActivityPublisherStore;
 import com.netflix.titus.ext.jooq.relocation.JooqResource;
 import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
@@ -43,20 +48,30 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class JooqJobActivityPublisherStoreTest {
     private final static Logger logger = LoggerFactory.getLogger(JooqJobActivityPublisherStoreTest.class);
 
+    private static final int MAX_BATCH_SIZE = 8;
+
     private DataGenerator<Job<BatchJobExt>> batchJobsGenerator = JobGenerator.batchJobs(JobDescriptorGenerator.oneTaskBatchJobDescriptor());
     private DataGenerator<BatchJobTask> batchTasksGenerator = JobGenerator.batchTasks(JobGenerator.batchJobs(JobDescriptorGenerator.oneTaskBatchJobDescriptor()).getValue());
 
     @Rule
     public final JooqResource jooqResource = new JooqResource();
 
+    private final JooqConfiguration configuration = mock(JooqConfiguration.class);
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
     private JooqJobActivityPublisherStore publisher;
 
     @Before
     public void  setUp() {
+        when(configuration.getActivityQueueCommitWindowMs()).thenReturn(5L);
+        when(configuration.getActivityQueueMaxBatchSize()).thenReturn(MAX_BATCH_SIZE);
         createJooqPublisherStore();
     }
 
@@ -64,6 +79,7 @@ public class JooqJobActivityPublisherStoreTest {
     public void tearDown() {
         StepVerifier.create(publisher.clearStore())
                 .verifyComplete();
+        publisher.shutdown();
     }
 
     @Test
@@ -133,8 +149,40 @@ public class JooqJobActivityPublisherStoreTest {
         assertThat(publisher.getQueueIndex()).isEqualTo(numRecords);
     }
 
+    @Test
+    public void testConcurrentPublishesAreGroupCommittedInQueueIndexOrder() throws Exception {
+        int numJobs = 50;
+        List<Job<BatchJobExt>> jobs = batchJobsGenerator.batch(numJobs).getValue();
+
+        StepVerifier.create(Flux.fromIterable(jobs).flatMap(job -> publisher.publishJob(job)).then())
+                .verifyComplete();
+
+        List<JobActivityPublisherRecord> records = publisher.getRecords().collectList().block();
+        List<String> jobIds = jobs.stream().map(Job::getId).collect(Collectors.toList());
+        assertThat(records).hasSize(numJobs);
+        for (int i = 0; i < numJobs; i++) {
+            assertThat(JobActivityPublisherRecordUtils.getJobFromRecord(records.get(i)).getId()).isEqualTo(jobIds.get(i));
+        }
+
+        DistributionSummary batchSize = titusRuntime.getRegistry().distributionSummary("titus.jooq.jobActivityPublisher.groupCommit.batchSize");
+        assertThat(batchSize.totalAmount()).isEqualTo(numJobs);
+        assertThat(batchSize.count()).isBetween((long) numJobs / MAX_BATCH_SIZE, (long) numJobs - 1);
+    }
+
+    @Test
+    public void testPublishCompletesOutsideOfWriterThread() {
+        Job<BatchJobExt> job = batchJobsGenerator.getValue();
+
+        StepVerifier.create(publisher.publishJob(job).then(Mono.fromCallable(() -> Thread.currentThread().getName())))
+                .assertNext(threadName -> assertThat(threadName).startsWith("jooq-activity-queue-writer-callback-"))
+                .verifyComplete();
+    }
+
     private void createJooqPublisherStore() {
-        publisher = new JooqJobActivityPublisherStore(jooqResource.getDslContext(), TitusRuntimes.internal(), EmptyLogStorageInfo.empty());
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+        publisher = new JooqJobActivityPublisherStore(jooqResource.getDslContext(), configuration, titusRuntime, EmptyLogStorageInfo.empty());
     }
 
     private Mono<Void> publishJobs(int count) {
@@ -60,7 +60,7 @@ public class AggregatingAutoScalingService implements AutoScalingService {
 
     @Override
     public Observable<GetPolicyResult> getJobScalingPolicies(JobId jobId, CallMetadata callMetadata) {
-        return aggregatingClient.callExpectingErrors(AutoScalingServiceGrpc::newStub, getJobScalingPoliciesInCell(jobId, callMetadata))
+        return aggregatingClient.callExpectingErrors("getJobScalingPolicies", AutoScalingServiceGrpc::newStub, getJobScalingPoliciesInCell(jobId, callMetadata))
                 .filter(response -> response.getResult().hasError() || response.getResult().getValue().getItemsCount() > 0)
                 .reduce(ResponseMerger.emptyResponseMarker(), ResponseMerger.singleValue())
                 .filter(ResponseMerger::isNotEmptyResponseMarker)
@@ -78,7 +78,7 @@ public class AggregatingAutoScalingService implements AutoScalingService {
     @Override
     public Observable<ScalingPolicyID> setAutoScalingPolicy(PutPolicyRequest request, CallMetadata callMetadata) {
         JobId jobId = JobId.newBuilder().setId(request.getJobId()).build();
-        return jobManagementServiceHelper.findJobInAllCells(jobId.getId(), callMetadata)
+        return jobManagementServiceHelper.findJobInOwningCell(jobId.getId(), callMetadata)
                 .flatMap(response -> singleCellCall(response.getCell(),
                         (client, responseObserver) -> client.setAutoScalingPolicy(request, responseObserver),
                         callMetadata)
@@ -98,7 +98,7 @@ public class AggregatingAutoScalingService implements AutoScalingService {
      */
     private Observable<CellResponse<AutoScalingServiceStub, GetPolicyResult>> getScalingPolicyInAllCells(ScalingPolicyID request,
                                                                                                          CallMetadata callMetadata) {
-        return aggregatingClient.callExpectingErrors(AutoScalingServiceGrpc::newStub, getScalingPolicyInCell(request, callMetadata))
+        return aggregatingClient.callExpectingErrors("getScalingPolicy", AutoScalingServiceGrpc::newStub, getScalingPolicyInCell(request, callMetadata))
                 .filter(response -> response.getResult().hasError() || response.getResult().getValue().getItemsCount() > 0)
                 // Observable#reduce does not support empty Observables, so we inject a marker and take it out after
                 // merging results. The marker will be passed through only when the Observable is empty
@@ -116,7 +116,7 @@ public class AggregatingAutoScalingService implements AutoScalingService {
 
     @Override
     public Observable<GetPolicyResult> getAllScalingPolicies(CallMetadata callMetadata) {
-        return aggregatingClient.call(AutoScalingServiceGrpc::newStub, getAllScalingPoliciesInCell(callMetadata))
+        return aggregatingClient.call("getAllScalingPolicies", AutoScalingServiceGrpc::newStub, getAllScalingPoliciesInCell(callMetadata))
                 .map(CellResponse::getResult)
                 .reduce((acc, next) -> GetPolicyResult.newBuilder()
                         .addAllItems(acc.getItemsList())
@@ -16,33 +16,87 @@
 
 package com.netflix.titus.federation.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.google.common.collect.ImmutableMap;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.Evaluators;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.rx.ReactorExt;
+import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Either;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.federation.startup.GrpcConfiguration;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
 import io.grpc.ManagedChannel;
+import io.grpc.Status;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.StreamObserver;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import rx.Observable;
 
+import static com.netflix.titus.federation.service.CellConnectorUtil.stubs;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createSimpleClientResponseObserver;
-import static com.netflix.titus.federation.service.CellConnectorUtil.stubs;
 
+/**
+ * Fans out calls to all cells. Calls identified by a method name have their per-cell latencies tracked, and
+ * published as {@value CellLatencyTracker#METRIC_ROOT}latency histograms. The recent latency percentiles are used to:
+ * <ul>
+ * <li>hedge calls configured in {@link TitusFederationConfiguration#getCellCallHedgedMethods()}. A hedged call is
+ * repeated on the same cell channel, which load balances it to another gateway instance of the cell, if no response
+ * arrives within the hedge delay. The first successful response wins.</li>
+ * <li>time out a call to a cell much sooner than the gRPC request deadline, when the cell is far slower than usual.</li>
+ * </ul>
+ * Only read-only calls should be given a method name, as hedged calls may be executed more than once.
+ */
 @Singleton
 class AggregatingCellClient {
+
+    private static final String METRIC_ROOT = CellLatencyTracker.METRIC_ROOT;
+
     private final CellConnector connector;
+    private final TitusFederationConfiguration configuration;
+    private final GrpcConfiguration grpcConfiguration;
+    private final Registry registry;
+    private final Clock clock;
+    private final CellLatencyTracker latencyTracker;
+    private final Function<String, Set<String>> hedgedMethodsParser = Evaluators.memoizeLast(StringExt::splitByCommaIntoSet);
 
     @Inject
-    public AggregatingCellClient(CellConnector connector) {
+    public AggregatingCellClient(CellConnector connector,
+                                 TitusFederationConfiguration configuration,
+                                 GrpcConfiguration grpcConfiguration,
+                                 TitusRuntime titusRuntime) {
         this.connector = connector;
+        this.configuration = configuration;
+        this.grpcConfiguration = grpcConfiguration;
+        this.registry = titusRuntime.getRegistry();
+        this.clock = titusRuntime.getClock();
+        this.latencyTracker = new CellLatencyTracker(
+                configuration.getCellCallLatencyWindowMs(),
+                configuration.getCellCallLatencyMinSamples(),
+                registry,
+                clock
+        );
     }
 
     /**
@@ -52,14 +106,21 @@ class AggregatingCellClient {
     <STUB extends AbstractStub<STUB>, RespT> Observable<CellResponse<STUB, RespT>> call(
             Function<ManagedChannel, STUB> stubFactory,
             BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        return call(null, stubFactory, fnCall);
+    }
+
+    /**
+     * See {@link #call(Function, BiConsumer)}. The method name identifies the call for latency tracking and hedging.
+     */
+    <STUB extends AbstractStub<STUB>, RespT> Observable<CellResponse<STUB, RespT>> call(
+            @Nullable String method,
+            Function<ManagedChannel, STUB> stubFactory,
+            BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
         Map<Cell, STUB> clients = stubs(connector, stubFactory);
         List<Observable<CellResponse<STUB, RespT>>> results = clients.entrySet().stream().map(entry -> {
             Cell cell = entry.getKey();
             STUB client = entry.getValue();
-            Observable<RespT> request = createRequestObservable(emitter -> {
-                StreamObserver<RespT> streamObserver = createSimpleClientResponseObserver(emitter);
-                fnCall.accept(client, streamObserver);
-            });
+            Observable<RespT> request = callCell(cell, method, client, fnCall);
             return request.map(result -> new CellResponse<>(cell, client, result));
         }).collect(Collectors.toList());
 
@@ -74,11 +135,23 @@ class AggregatingCellClient {
     Observable<CellResponse<STUB, Either<RespT, Throwable>>> callExpectingErrors(
             Function<ManagedChannel, STUB> stubFactory,
             BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        return callExpectingErrors(null, stubFactory, fnCall);
+    }
+
+    /**
+     * See {@link #callExpectingErrors(Function, BiConsumer)}. The method name identifies the call for latency tracking
+     * and hedging.
+     */
+    <STUB extends AbstractStub<STUB>, RespT>
+    Observable<CellResponse<STUB, Either<RespT, Throwable>>> callExpectingErrors(
+            @Nullable String method,
+            Function<ManagedChannel, STUB> stubFactory,
+            BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
         Map<Cell, STUB> clients = stubs(connector, stubFactory);
         List<Observable<CellResponse<STUB, Either<RespT, Throwable>>>> results = clients.entrySet().stream().map(entry -> {
             Cell cell = entry.getKey();
             STUB client = entry.getValue();
-            Observable<RespT> request = callSingleCell(client, fnCall);
+            Observable<RespT> request = callCell(cell, method, client, fnCall);
             return request.map(result ->
                     new CellResponse<>(cell, client, Either.<RespT, Throwable>ofValue(result))
             ).onErrorResumeNext(error -> Observable.just(
@@ -89,6 +162,92 @@ class AggregatingCellClient {
         return Observable.merge(results);
     }
 
+    private <STUB extends AbstractStub<STUB>, RespT>
+    Observable<RespT> callCell(Cell cell, @Nullable String method, STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        if (method == null) {
+            return callSingleCell(client, fnCall);
+        }
+
+        Observable<RespT> request = hedgedMethodsParser.apply(configuration.getCellCallHedgedMethods()).contains(method)
+                ? hedgedCall(cell, method, client, fnCall)
+                : Observable.defer(() -> trackedCall(cell, method, client, fnCall));
+
+        Optional<Duration> timeout = resolveTimeout(cell, method);
+        if (!timeout.isPresent()) {
+            return request;
+        }
+        long timeoutMs = timeout.get().toMillis();
+        return request.timeout(timeoutMs, TimeUnit.MILLISECONDS).onErrorResumeNext(error -> {
+            if (error instanceof TimeoutException) {
+                registry.counter(METRIC_ROOT + "timeouts", "cell", cell.getName(), "method", method).increment();
+                return Observable.error(Status.DEADLINE_EXCEEDED
+                        .withDescription(String.format("Cell %s did not respond to %s within the adaptive timeout of %sms", cell.getName(), method, timeoutMs))
+                        .asRuntimeException()
+                );
+            }
+            return Observable.error(error);
+        });
+    }
+
+    private <STUB extends AbstractStub<STUB>, RespT>
+    Observable<RespT> hedgedCall(Cell cell, String method, STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        long hedgeDelayMs = latencyTracker.getPercentile(cell, method, configuration.getCellCallHedgePercentile())
+                .map(Duration::toMillis)
+                .orElse(configuration.getCellCallHedgeMaxDelayMs());
+        hedgeDelayMs = Math.max(configuration.getCellCallHedgeMinDelayMs(), Math.min(configuration.getCellCallHedgeMaxDelayMs(), hedgeDelayMs));
+
+        List<Duration> thresholds = new ArrayList<>();
+        for (int i = 1; i <= configuration.getCellCallMaxHedges(); i++) {
+            thresholds.add(Duration.ofMillis(i * hedgeDelayMs));
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<Pair<Integer, RespT>> attempt = Mono.defer(() -> {
+            int attemptIndex = attempts.getAndIncrement();
+            if (attemptIndex > 0) {
+                registry.counter(METRIC_ROOT + "hedges", "cell", cell.getName(), "method", method).increment();
+            }
+            return ReactorExt.toMono(trackedCall(cell, method, client, fnCall).toSingle()).map(result -> Pair.of(attemptIndex, result));
+        });
+
+        Mono<RespT> hedged = attempt
+                .compose(ReactorExt.hedged(
+                        thresholds,
+                        AggregatingCellClient::isRetryable,
+                        ImmutableMap.of("cell", cell.getName(), "method", method),
+                        registry,
+                        Schedulers.parallel()
+                ))
+                .map(result -> {
+                    if (result.getLeft() > 0) {
+                        registry.counter(METRIC_ROOT + "hedgeWins", "cell", cell.getName(), "method", method).increment();
+                    }
+                    return result.getRight();
+                });
+        return ReactorExt.toObservable(hedged);
+    }
+
+    /**
+     * Calls that are unsubscribed before they terminate (hedge losers, or calls cut off by the adaptive timeout) are
+     * recorded as censored samples, as otherwise the slowest calls would be left out from the latency percentiles.
+     */
+    private <STUB extends AbstractStub<STUB>, RespT>
+    Observable<RespT> trackedCall(Cell cell, String method, STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        long startTime = clock.wallTime();
+        AtomicBoolean recorded = new AtomicBoolean();
+        return callSingleCell(client, fnCall)
+                .doOnTerminate(() -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        latencyTracker.record(cell, method, clock.wallTime() - startTime);
+                    }
+                })
+                .doOnUnsubscribe(() -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        latencyTracker.recordCensored(cell, method, clock.wallTime() - startTime);
+                    }
+                });
+    }
+
     private <STUB extends AbstractStub<STUB>, RespT>
     Observable<RespT> callSingleCell(STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
         return createRequestObservable(emitter -> {
@@ -96,4 +255,24 @@ class AggregatingCellClient {
             fnCall.accept(client, streamObserver);
         });
     }
+
+    /**
+     * The adaptive timeout is only applied when it is shorter than the gRPC request deadline.
+     */
+    private Optional<Duration> resolveTimeout(Cell cell, String method) {
+        if (!configuration.isCellCallAdaptiveTimeoutEnabled()) {
+            return Optional.empty();
+        }
+        return latencyTracker.getPercentile(cell, method, configuration.getCellCallTimeoutPercentile())
+                .map(percentile -> Duration.ofMillis(Math.max(
+                        configuration.getCellCallMinTimeoutMs(),
+                        (long) (percentile.toMillis() * configuration.getCellCallTimeoutMultiplier())
+                )))
+                .filter(timeout -> timeout.toMillis() < grpcConfiguration.getRequestTimeoutMs());
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        Status.Code code = Status.fromThrowable(error).getCode();
+        return code == Status.Code.UNAVAILABLE || code == Status.Code.DEADLINE_EXCEEDED || code == Status.Code.RESOURCE_EXHAUSTED;
+    }
 }
@@ -15,10 +15,15 @@
  */
 package com.netflix.titus.federation.service;
 
+import java.util.Optional;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
@@ -26,11 +31,15 @@ import com.netflix.titus.grpc.protogen.Job;
 import com.netflix.titus.grpc.protogen.JobId;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskId;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.StreamObserver;
 import reactor.core.publisher.Mono;
 import rx.Observable;
 
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createSimpleClientResponseObserver;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createWrappedStub;
 
 
@@ -38,12 +47,18 @@ import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createWrap
 public class AggregatingJobManagementServiceHelper {
 
     private final AggregatingCellClient aggregatingCellClient;
+    private final CellConnector connector;
+    private final CellLocationCache cellLocationCache;
     private final GrpcConfiguration grpcConfiguration;
 
     @Inject
     public AggregatingJobManagementServiceHelper(AggregatingCellClient aggregatingCellClient,
+                                                 CellConnector connector,
+                                                 CellLocationCache cellLocationCache,
                                                  GrpcConfiguration grpcConfiguration) {
         this.aggregatingCellClient = aggregatingCellClient;
+        this.connector = connector;
+        this.cellLocationCache = cellLocationCache;
         this.grpcConfiguration = grpcConfiguration;
 
     }
@@ -53,23 +68,126 @@ public class AggregatingJobManagementServiceHelper {
     }
 
     public Observable<CellResponse<JobManagementServiceStub, Job>> findJobInAllCells(String jobId, CallMetadata callMetadata) {
-        return aggregatingCellClient.callExpectingErrors(JobManagementServiceGrpc::newStub, findJobInCell(jobId, callMetadata))
+        return aggregatingCellClient.callExpectingErrors("findJob", JobManagementServiceGrpc::newStub, findJobInCell(jobId, callMetadata))
                 .reduce(ResponseMerger.singleValue())
                 .flatMap(response -> response.getResult()
                         .map(v -> Observable.just(CellResponse.ofValue(response)))
                         .onErrorGet(Observable::error)
-                );
+                )
+                .doOnNext(response -> cellLocationCache.putJobCell(jobId, response.getCell()));
     }
 
     public Mono<CellResponse<JobManagementServiceStub, Job>> findJobInAllCellsReact(String jobId, CallMetadata callMetadata) {
         return ReactorExt.toMono(findJobInAllCells(jobId, callMetadata).toSingle());
     }
 
+    /**
+     * Finds a job in the cell in which it was last seen. If the location is not known, or the job is not found there,
+     * all cells are queried.
+     */
+    public Observable<CellResponse<JobManagementServiceStub, Job>> findJobInOwningCell(String jobId, CallMetadata callMetadata) {
+        return callCachedCell(
+                () -> cellLocationCache.findJobCell(jobId),
+                cell -> callCell(cell, findJobInCell(jobId, callMetadata)),
+                cell -> cellLocationCache.jobMisrouted(jobId, cell),
+                findJobInAllCells(jobId, callMetadata)
+        );
+    }
+
+    public Mono<CellResponse<JobManagementServiceStub, Job>> findJobInOwningCellReact(String jobId, CallMetadata callMetadata) {
+        return ReactorExt.toMono(findJobInOwningCell(jobId, callMetadata).toSingle());
+    }
+
+    /**
+     * Sends a request directly to the cell in which the job was last seen. If the location is not known, or the cell
+     * responds with NOT_FOUND error, the job is first looked up in all cells.
+     */
+    public <T> Observable<T> callJobOwningCell(String jobId, Function<Cell, Observable<T>> cellCall, CallMetadata callMetadata) {
+        return callCachedCell(
+                () -> cellLocationCache.findJobCell(jobId),
+                cellCall,
+                cell -> cellLocationCache.jobMisrouted(jobId, cell),
+                findJobInAllCells(jobId, callMetadata).flatMap(response -> cellCall.apply(response.getCell()))
+        );
+    }
+
+    public <T> Mono<T> callJobOwningCellReact(String jobId, Function<Cell, Observable<T>> cellCall, CallMetadata callMetadata) {
+        return ReactorExt.toMono(callJobOwningCell(jobId, cellCall, callMetadata).toSingle());
+    }
+
     public ClientCall<Job> findJobInCell(String jobId, CallMetadata callMetadata) {
         JobId id = JobId.newBuilder().setId(jobId).build();
         return (client, streamObserver) -> wrap(client, callMetadata).findJob(id, streamObserver);
     }
 
+    public Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInAllCells(String taskId, CallMetadata callMetadata) {
+        return aggregatingCellClient.callExpectingErrors("findTask", JobManagementServiceGrpc::newStub, findTaskInCell(taskId, callMetadata))
+                .reduce(ResponseMerger.singleValue())
+                .flatMap(response -> response.getResult()
+                        .map(v -> Observable.just(CellResponse.ofValue(response)))
+                        .onErrorGet(Observable::error)
+                )
+                .doOnNext(response -> cellLocationCache.putTaskCell(response.getResult(), response.getCell()));
+    }
+
+    /**
+     * Task counterpart of {@link #findJobInOwningCell(String, CallMetadata)}.
+     */
+    public Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInOwningCell(String taskId, CallMetadata callMetadata) {
+        return callCachedCell(
+                () -> cellLocationCache.findTaskCell(taskId),
+                cell -> callCell(cell, findTaskInCell(taskId, callMetadata)),
+                cell -> cellLocationCache.taskMisrouted(taskId, cell),
+                findTaskInAllCells(taskId, callMetadata)
+        );
+    }
+
+    /**
+     * Task counterpart of {@link #callJobOwningCell(String, Function, CallMetadata)}.
+     */
+    public <T> Observable<T> callTaskOwningCell(String taskId, Function<Cell, Observable<T>> cellCall, CallMetadata callMetadata) {
+        return callCachedCell(
+                () -> cellLocationCache.findTaskCell(taskId),
+                cellCall,
+                cell -> cellLocationCache.taskMisrouted(taskId, cell),
+                findTaskInAllCells(taskId, callMetadata).flatMap(response -> cellCall.apply(response.getCell()))
+        );
+    }
+
+    public ClientCall<Task> findTaskInCell(String taskId, CallMetadata callMetadata) {
+        TaskId id = TaskId.newBuilder().setId(taskId).build();
+        return (client, streamObserver) -> wrap(client, callMetadata).findTask(id, streamObserver);
+    }
+
+    private <T> Observable<T> callCachedCell(Supplier<Optional<Cell>> cachedCellSupplier,
+                                             Function<Cell, Observable<T>> cellCall,
+                                             Consumer<Cell> onMisroute,
+                                             Observable<T> fallback) {
+        return Observable.defer(() -> {
+            Optional<Cell> cachedCell = cachedCellSupplier.get().filter(cell -> connector.getChannelForCell(cell).isPresent());
+            if (!cachedCell.isPresent()) {
+                return fallback;
+            }
+            Cell cell = cachedCell.get();
+            return cellCall.apply(cell).onErrorResumeNext(error -> {
+                if (!CellLocationCache.isMisrouted(error)) {
+                    return Observable.error(error);
+                }
+                onMisroute.accept(cell);
+                return fallback;
+            });
+        });
+    }
+
+    private <T> Observable<CellResponse<JobManagementServiceStub, T>> callCell(Cell cell, ClientCall<T> clientCall) {
+        return CellConnectorUtil.toStub(cell, connector, JobManagementServiceGrpc::newStub)
+                .map(client -> createRequestObservable(emitter -> {
+                    StreamObserver<T> streamObserver = createSimpleClientResponseObserver(emitter);
+                    clientCall.accept(client, streamObserver);
+                }).map(result -> new CellResponse<>(cell, client, result)))
+                .orElseGet(() -> Observable.error(new IllegalStateException("Unknown cell " + cell)));
+    }
+
     public interface ClientCall<T> extends BiConsumer<JobManagementServiceStub, StreamObserver<T>> {
         // generics sanity
     }
@@ -24,6 +24,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -33,11 +34,10 @@ import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
 import com.netflix.titus.api.service.TitusServiceException;
 import com.netflix.titus.common.util.CollectionsExt;
-import com.netflix.titus.common.util.ProtobufExt;
+import com.netflix.titus.common.util.ProtobufProjection;
 import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.concurrency.CallbackCountDownLatch;
 import com.netflix.titus.common.util.rx.EmitterWithMultipleSubscriptions;
-import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.federation.service.router.CellRouter;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
@@ -64,7 +64,6 @@ import com.netflix.titus.grpc.protogen.Pagination;
 import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.grpc.protogen.TaskAttributesDeleteRequest;
 import com.netflix.titus.grpc.protogen.TaskAttributesUpdate;
-import com.netflix.titus.grpc.protogen.TaskId;
 import com.netflix.titus.grpc.protogen.TaskKillRequest;
 import com.netflix.titus.grpc.protogen.TaskMoveRequest;
 import com.netflix.titus.grpc.protogen.TaskQuery;
@@ -83,8 +82,7 @@ import rx.Observable;
 import static com.netflix.titus.api.jobmanager.JobAttributes.JOB_ATTRIBUTES_STACK;
 import static com.netflix.titus.api.jobmanager.TaskAttributes.TASK_ATTRIBUTES_STACK;
 import static com.netflix.titus.federation.service.CellConnectorUtil.callToCell;
-import static com.netflix.titus.federation.service.PageAggregationUtil.combinePagination;
-import static com.netflix.titus.federation.service.PageAggregationUtil.takeCombinedPage;
+import static com.netflix.titus.federation.service.PageAggregationUtil.takeMergedPage;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createWrappedStub;
 import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.emptyGrpcPagination;
@@ -102,6 +100,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     private final CellConnector connector;
     private final AggregatingCellClient aggregatingClient;
     private AggregatingJobManagementServiceHelper jobManagementServiceHelper;
+    private final CellLocationCache cellLocationCache;
     private final CellRouter router;
 
     @Inject
@@ -110,7 +109,8 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
                                         CellConnector connector,
                                         CellRouter router,
                                         AggregatingCellClient aggregatingClient,
-                                        AggregatingJobManagementServiceHelper jobManagementServiceHelper) {
+                                        AggregatingJobManagementServiceHelper jobManagementServiceHelper,
+                                        CellLocationCache cellLocationCache) {
 
         this.grpcConfiguration = grpcConfiguration;
         this.federationConfiguration = federationConfiguration;
@@ -118,6 +118,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         this.router = router;
         this.aggregatingClient = aggregatingClient;
         this.jobManagementServiceHelper = jobManagementServiceHelper;
+        this.cellLocationCache = cellLocationCache;
     }
 
     @Override
@@ -139,7 +140,10 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         return createRequestObservable(emitter -> {
             StreamObserver<JobId> streamObserver = GrpcUtil.createClientResponseObserver(
                     emitter,
-                    jobId -> emitter.onNext(jobId.getId()),
+                    jobId -> {
+                        cellLocationCache.putJobCell(jobId.getId(), cell);
+                        emitter.onNext(jobId.getId());
+                    },
                     emitter::onError,
                     emitter::onCompleted
             );
@@ -149,77 +153,77 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
 
     @Override
     public Completable updateJobCapacity(JobCapacityUpdate request, CallMetadata callMetadata) {
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(request.getJobId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateJobCapacity(request, streamObserver),
-                        callMetadata)
-                );
+        Observable<Empty> result = jobManagementServiceHelper.callJobOwningCell(
+                request.getJobId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.updateJobCapacity(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Completable updateJobCapacityWithOptionalAttributes(JobCapacityUpdateWithOptionalAttributes request, CallMetadata callMetadata) {
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(request.getJobId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateJobCapacityWithOptionalAttributes(request, streamObserver),
-                        callMetadata)
-                );
+        Observable<Empty> result = jobManagementServiceHelper.callJobOwningCell(
+                request.getJobId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.updateJobCapacityWithOptionalAttributes(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Completable updateJobProcesses(JobProcessesUpdate request, CallMetadata callMetadata) {
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(request.getJobId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateJobProcesses(request, streamObserver),
-                        callMetadata)
-                );
+        Observable<Empty> result = jobManagementServiceHelper.callJobOwningCell(
+                request.getJobId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.updateJobProcesses(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Completable updateJobStatus(JobStatusUpdate request, CallMetadata callMetadata) {
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(request.getId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateJobStatus(request, streamObserver),
-                        callMetadata)
-                );
+        Observable<Empty> result = jobManagementServiceHelper.callJobOwningCell(
+                request.getId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.updateJobStatus(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Mono<Void> updateJobDisruptionBudget(JobDisruptionBudgetUpdate request, CallMetadata callMetadata) {
-        Mono<Empty> result = jobManagementServiceHelper.findJobInAllCellsReact(request.getJobId(), callMetadata)
-                .flatMap(response -> singleCellCallReact(response.getCell(),
-                        (client, streamObserver) -> client.updateJobDisruptionBudget(request, streamObserver),
-                        callMetadata)
-                );
+        Mono<Empty> result = jobManagementServiceHelper.callJobOwningCellReact(
+                request.getJobId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.updateJobDisruptionBudget(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.ignoreElement().cast(Void.class);
     }
 
     @Override
     public Mono<Void> updateJobAttributes(JobAttributesUpdate request, CallMetadata callMetadata) {
-        Mono<Empty> result = jobManagementServiceHelper.findJobInAllCellsReact(request.getJobId(), callMetadata)
-                .flatMap(response -> singleCellCallReact(response.getCell(),
-                        (client, streamObserver) -> client.updateJobAttributes(request, streamObserver),
-                        callMetadata)
-                );
+        Mono<Empty> result = jobManagementServiceHelper.callJobOwningCellReact(
+                request.getJobId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.updateJobAttributes(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.ignoreElement().cast(Void.class);
     }
 
     @Override
     public Mono<Void> deleteJobAttributes(JobAttributesDeleteRequest request, CallMetadata callMetadata) {
-        Mono<Empty> result = jobManagementServiceHelper.findJobInAllCellsReact(request.getJobId(), callMetadata)
-                .flatMap(response -> singleCellCallReact(response.getCell(),
-                        (client, streamObserver) -> client.deleteJobAttributes(request, streamObserver),
-                        callMetadata)
-                );
+        Mono<Empty> result = jobManagementServiceHelper.callJobOwningCellReact(
+                request.getJobId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.deleteJobAttributes(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.ignoreElement().cast(Void.class);
     }
 
     @Override
     public Observable<Job> findJob(String jobId, CallMetadata callMetadata) {
-        return jobManagementServiceHelper.findJobInAllCells(jobId, callMetadata)
+        return jobManagementServiceHelper.findJobInOwningCell(jobId, callMetadata)
                 .map(CellResponse::getResult)
                 .map(this::addStackName);
     }
@@ -250,25 +254,27 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     }
 
     private Observable<JobQueryResult> findJobsWithCursorPagination(JobQuery request, Set<String> fields, CallMetadata callMetadata) {
-        return aggregatingClient.call(JobManagementServiceGrpc::newStub, findJobsInCell(request, callMetadata))
+        return aggregatingClient.call("findJobs", JobManagementServiceGrpc::newStub, findJobsInCell(request, callMetadata))
                 .map(CellResponse::getResult)
-                .map(this::addStackName)
-                .reduce(this::combineJobResults)
-                .map(combinedResults -> {
-                    Pair<List<Job>, Pagination> combinedPage = takeCombinedPage(
+                .toList()
+                .map(cellResults -> {
+                    Pair<List<Job>, Pagination> combinedPage = takeMergedPage(
                             request.getPage(),
-                            combinedResults.getItemsList(),
-                            combinedResults.getPagination(),
+                            cellResults,
+                            JobQueryResult::getItemsList,
+                            JobQueryResult::getPagination,
                             JobManagerCursors.jobCursorOrderComparator(),
                             JobManagerCursors::newCursorFrom
                     );
 
-                    if (!CollectionsExt.isNullOrEmpty(fields)) {
-                        combinedPage = combinedPage.mapLeft(jobs -> jobs.stream()
-                                .map(job -> ProtobufExt.copy(job, fields))
-                                .collect(Collectors.toList())
-                        );
-                    }
+                    Function<Job, Job> projection = CollectionsExt.isNullOrEmpty(fields)
+                            ? Function.identity()
+                            : ProtobufProjection.of(Job.getDescriptor(), fields)::apply;
+                    combinedPage = combinedPage.mapLeft(jobs -> jobs.stream()
+                            .map(this::addStackName)
+                            .map(projection)
+                            .collect(Collectors.toList())
+                    );
 
                     return JobQueryResult.newBuilder()
                             .addAllItems(combinedPage.getLeft())
@@ -281,23 +287,14 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         return (client, streamObserver) -> wrap(client, callMetadata).findJobs(request, streamObserver);
     }
 
-    private JobQueryResult combineJobResults(JobQueryResult one, JobQueryResult other) {
-        Pagination pagination = combinePagination(one.getPagination(), other.getPagination());
-        return JobQueryResult.newBuilder()
-                .setPagination(pagination)
-                .addAllItems(one.getItemsList())
-                .addAllItems(other.getItemsList())
-                .build();
-    }
-
     @Override
     public Observable<JobChangeNotification> observeJob(String jobId, CallMetadata callMetadata) {
         JobId request = JobId.newBuilder().setId(jobId).build();
-        return jobManagementServiceHelper.findJobInAllCells(jobId, callMetadata)
-                .flatMap(response -> singleCellCallWithNoDeadline(response.getCell(),
-                        (client, streamObserver) -> client.observeJob(request, streamObserver),
-                        callMetadata)
-                );
+        return jobManagementServiceHelper.callJobOwningCell(
+                jobId,
+                cell -> singleCellCallWithNoDeadline(cell, (client, streamObserver) -> client.observeJob(request, streamObserver), callMetadata),
+                callMetadata
+        );
     }
 
     @Override
@@ -309,7 +306,9 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
                     () -> emitter.onNext(buildJobSnapshotEndMarker())
             );
             clients.forEach((cell, client) -> {
-                StreamObserver<JobChangeNotification> streamObserver = new FilterOutFirstMarker(emitter, markersEmitted);
+                StreamObserver<JobChangeNotification> streamObserver = new FilterOutFirstMarker(emitter, markersEmitted,
+                        notification -> cellLocationCache.record(notification, cell)
+                );
                 wrapWithNoDeadline(client, callMetadata).observeJobs(query, streamObserver);
             });
         });
@@ -319,31 +318,17 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     @Override
     public Completable killJob(String jobId, CallMetadata callMetadata) {
         JobId id = JobId.newBuilder().setId(jobId).build();
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(jobId, callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.killJob(id, streamObserver),
-                        callMetadata)
-                );
+        Observable<Empty> result = jobManagementServiceHelper.callJobOwningCell(
+                jobId,
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.killJob(id, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Observable<Task> findTask(String taskId, CallMetadata callMetadata) {
-        return findTaskInAllCells(taskId, callMetadata).map(CellResponse::getResult).map(this::addStackName);
-    }
-
-    private Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInAllCells(String taskId, CallMetadata callMetadata) {
-        return aggregatingClient.callExpectingErrors(JobManagementServiceGrpc::newStub, findTaskInCell(taskId, callMetadata))
-                .reduce(ResponseMerger.singleValue())
-                .flatMap(response -> response.getResult()
-                        .map(v -> Observable.just(CellResponse.ofValue(response)))
-                        .onErrorGet(Observable::error)
-                );
-    }
-
-    private ClientCall<Task> findTaskInCell(String taskId, CallMetadata callMetadata) {
-        TaskId id = TaskId.newBuilder().setId(taskId).build();
-        return (client, streamObserver) -> wrap(client, callMetadata).findTask(id, streamObserver);
+        return jobManagementServiceHelper.findTaskInOwningCell(taskId, callMetadata).map(CellResponse::getResult).map(this::addStackName);
     }
 
     @Override
@@ -372,25 +357,27 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     }
 
     private Observable<TaskQueryResult> findTasksWithCursorPagination(TaskQuery request, Set<String> fields, CallMetadata callMetadata) {
-        return aggregatingClient.call(JobManagementServiceGrpc::newStub, findTasksInCell(request, callMetadata))
+        return aggregatingClient.call("findTasks", JobManagementServiceGrpc::newStub, findTasksInCell(request, callMetadata))
                 .map(CellResponse::getResult)
-                .map(this::addStackName)
-                .reduce(this::combineTaskResults)
-                .map(combinedResults -> {
-                    Pair<List<Task>, Pagination> combinedPage = takeCombinedPage(
+                .toList()
+                .map(cellResults -> {
+                    Pair<List<Task>, Pagination> combinedPage = takeMergedPage(
                             request.getPage(),
-                            combinedResults.getItemsList(),
-                            combinedResults.getPagination(),
+                            cellResults,
+                            TaskQueryResult::getItemsList,
+                            TaskQueryResult::getPagination,
                             JobManagerCursors.taskCursorOrderComparator(),
                             JobManagerCursors::newCursorFrom
                     );
 
-                    if (!CollectionsExt.isNullOrEmpty(fields)) {
-                        combinedPage = combinedPage.mapLeft(tasks -> tasks.stream()
-                                .map(task -> ProtobufExt.copy(task, fields))
-                                .collect(Collectors.toList())
-                        );
-                    }
+                    Function<Task, Task> projection = CollectionsExt.isNullOrEmpty(fields)
+                            ? Function.identity()
+                            : ProtobufProjection.of(Task.getDescriptor(), fields)::apply;
+                    combinedPage = combinedPage.mapLeft(tasks -> tasks.stream()
+                            .map(this::addStackName)
+                            .map(projection)
+                            .collect(Collectors.toList())
+                    );
 
                     return TaskQueryResult.newBuilder()
                             .addAllItems(combinedPage.getLeft())
@@ -403,62 +390,46 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         return (client, streamObserver) -> wrap(client, callMetadata).findTasks(request, streamObserver);
     }
 
-    private TaskQueryResult combineTaskResults(TaskQueryResult one, TaskQueryResult other) {
-        Pagination pagination = combinePagination(one.getPagination(), other.getPagination());
-        return TaskQueryResult.newBuilder()
-                .setPagination(pagination)
-                .addAllItems(one.getItemsList())
-                .addAllItems(other.getItemsList())
-                .build();
-    }
-
     @Override
     public Completable killTask(TaskKillRequest request, CallMetadata callMetadata) {
-        Observable<Empty> result = findTaskInAllCells(request.getTaskId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.killTask(request, streamObserver),
-                        callMetadata)
-                );
+        Observable<Empty> result = jobManagementServiceHelper.callTaskOwningCell(
+                request.getTaskId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.killTask(request, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Completable updateTaskAttributes(TaskAttributesUpdate attributesUpdate, CallMetadata callMetadata) {
-        Observable<Empty> result = findTaskInAllCells(attributesUpdate.getTaskId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateTaskAttributes(attributesUpdate, streamObserver),
-                        callMetadata));
+        Observable<Empty> result = jobManagementServiceHelper.callTaskOwningCell(
+                attributesUpdate.getTaskId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.updateTaskAttributes(attributesUpdate, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Completable deleteTaskAttributes(TaskAttributesDeleteRequest deleteRequest, CallMetadata callMetadata) {
-        Observable<Empty> result = findTaskInAllCells(deleteRequest.getTaskId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.deleteTaskAttributes(deleteRequest, streamObserver),
-                        callMetadata));
+        Observable<Empty> result = jobManagementServiceHelper.callTaskOwningCell(
+                deleteRequest.getTaskId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.deleteTaskAttributes(deleteRequest, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
     @Override
     public Completable moveTask(TaskMoveRequest taskMoveRequest, CallMetadata callMetadata) {
-        Observable<Empty> result = findTaskInAllCells(taskMoveRequest.getTaskId(), callMetadata)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.moveTask(taskMoveRequest, streamObserver),
-                        callMetadata));
+        Observable<Empty> result = jobManagementServiceHelper.callTaskOwningCell(
+                taskMoveRequest.getTaskId(),
+                cell -> singleCellCall(cell, (client, streamObserver) -> client.moveTask(taskMoveRequest, streamObserver), callMetadata),
+                callMetadata
+        );
         return result.toCompletable();
     }
 
-    private JobQueryResult addStackName(JobQueryResult result) {
-        List<Job> withStackName = result.getItemsList().stream().map(this::addStackName).collect(Collectors.toList());
-        return result.toBuilder().clearItems().addAllItems(withStackName).build();
-    }
-
-    private TaskQueryResult addStackName(TaskQueryResult result) {
-        List<Task> withStackName = result.getItemsList().stream().map(this::addStackName).collect(Collectors.toList());
-        return result.toBuilder().clearItems().addAllItems(withStackName).build();
-    }
-
     private JobDescriptor addStackName(JobDescriptor jobDescriptor) {
         return jobDescriptor.toBuilder()
                 .putAttributes(JOB_ATTRIBUTES_STACK, federationConfiguration.getStack())
@@ -509,10 +480,6 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
                 (client, streamObserver) -> clientCall.accept(wrap(client, callMetadata), streamObserver));
     }
 
-    private <T> Mono<T> singleCellCallReact(Cell cell, ClientCall<T> clientCall, CallMetadata callMetadata) {
-        return ReactorExt.toMono(singleCellCall(cell, clientCall, callMetadata).toSingle());
-    }
-
     private <T> Observable<T> singleCellCallWithNoDeadline(Cell cell, ClientCall<T> clientCall, CallMetadata callMetadata) {
         return callToCell(cell, connector, JobManagementServiceGrpc::newStub,
                 (client, streamObserver) -> clientCall.accept(wrapWithNoDeadline(client, callMetadata), streamObserver));
@@ -93,7 +93,7 @@ public class AggregatingLoadbalancerService implements LoadBalancerService {
         ClientCall<GetJobLoadBalancersResult> getLoadBalancersForJob =
                 (client, responseObserver) -> wrap(client, callMetadata).getJobLoadBalancers(jobId, responseObserver);
 
-        return aggregatingClient.callExpectingErrors(LoadBalancerServiceGrpc::newStub, getLoadBalancersForJob)
+        return aggregatingClient.callExpectingErrors("getJobLoadBalancers", LoadBalancerServiceGrpc::newStub, getLoadBalancersForJob)
                 .filter(response -> response.getResult().hasError() || response.getResult().getValue().getLoadBalancersCount() > 0)
                 .reduce(ResponseMerger.emptyResponseMarker(), ResponseMerger.singleValue())
                 .filter(ResponseMerger::isNotEmptyResponseMarker)
@@ -104,7 +104,7 @@ public class AggregatingLoadbalancerService implements LoadBalancerService {
     @Override
     public Completable addLoadBalancer(AddLoadBalancerRequest request, CallMetadata callMetadata) {
         JobId jobId = JobId.newBuilder().setId(request.getJobId()).build();
-        final Observable<Empty> responseObservable = jobManagementServiceHelper.findJobInAllCells(jobId.getId(), callMetadata)
+        final Observable<Empty> responseObservable = jobManagementServiceHelper.findJobInOwningCell(jobId.getId(), callMetadata)
                 .flatMap(response -> singleCellCall(response.getCell(),
                         (client, responseObserver) -> client.addLoadBalancer(request, responseObserver),
                         callMetadata));
@@ -114,7 +114,7 @@ public class AggregatingLoadbalancerService implements LoadBalancerService {
     @Override
     public Completable removeLoadBalancer(RemoveLoadBalancerRequest removeLoadBalancerRequest, CallMetadata callMetadata) {
         JobId jobId = JobId.newBuilder().setId(removeLoadBalancerRequest.getJobId()).build();
-        final Observable<Empty> responseObservable = jobManagementServiceHelper.findJobInAllCells(jobId.getId(), callMetadata)
+        final Observable<Empty> responseObservable = jobManagementServiceHelper.findJobInOwningCell(jobId.getId(), callMetadata)
                 .flatMap(response -> singleCellCall(response.getCell(),
                         (client, responseObserver) -> client.removeLoadBalancer(removeLoadBalancerRequest, responseObserver),
                         callMetadata));
@@ -139,7 +139,7 @@ public class AggregatingLoadbalancerService implements LoadBalancerService {
     }
 
     private Observable<GetAllLoadBalancersResult> findLoadBalancersWithCursorPagination(GetAllLoadBalancersRequest request, CallMetadata callMetadata) {
-        return aggregatingClient.call(LoadBalancerServiceGrpc::newStub, getAllLoadBalancersInCell(request, callMetadata))
+        return aggregatingClient.call("getAllLoadBalancers", LoadBalancerServiceGrpc::newStub, getAllLoadBalancersInCell(request, callMetadata))
                 .map(CellResponse::getResult)
                 .reduce(this::combineGetAllJobLoadBalancersResult)
                 .map(combinedResults -> {
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.federation.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.histogram.PercentileBuckets;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * Tracks latencies of calls to each {@link Cell}, per method. Latencies are published as percentile timers
+ * (histograms), and also kept in a rolling window from which recent percentiles are computed. The rolling window
+ * consists of two halves, so a percentile is always computed from between one and two window lengths of samples.
+ */
+class CellLatencyTracker {
+
+    static final String METRIC_ROOT = "titus.federation.cellCall.";
+
+    private final long windowMs;
+    private final int minSamples;
+    private final Registry registry;
+    private final Clock clock;
+
+    private final ConcurrentMap<Pair<Cell, String>, MethodLatency> latencies = new ConcurrentHashMap<>();
+
+    CellLatencyTracker(long windowMs, int minSamples, Registry registry, Clock clock) {
+        this.windowMs = windowMs;
+        this.minSamples = minSamples;
+        this.registry = registry;
+        this.clock = clock;
+    }
+
+    void record(Cell cell, String method, long latencyMs) {
+        getMethodLatency(cell, method).record(Math.max(0, latencyMs));
+    }
+
+    /**
+     * Records the elapsed time of a call that was abandoned before it completed. The actual latency is not known,
+     * so the elapsed time is taken as its lower bound. Censored samples are included in the recent percentiles,
+     * but not in the published latency histogram, and are counted in the {@value #METRIC_ROOT}censored counter.
+     */
+    void recordCensored(Cell cell, String method, long elapsedMs) {
+        getMethodLatency(cell, method).recordCensored(Math.max(0, elapsedMs));
+    }
+
+    /**
+     * Returns the given percentile of the recent call latencies, or {@link Optional#empty()} if there are not enough
+     * samples to compute it.
+     */
+    Optional<Duration> getPercentile(Cell cell, String method, double percentile) {
+        MethodLatency methodLatency = latencies.get(Pair.of(cell, method));
+        if (methodLatency == null) {
+            return Optional.empty();
+        }
+        return methodLatency.getPercentile(percentile);
+    }
+
+    private MethodLatency getMethodLatency(Cell cell, String method) {
+        return latencies.computeIfAbsent(Pair.of(cell, method), key -> new MethodLatency(cell, method));
+    }
+
+    private class MethodLatency {
+
+        private final PercentileTimer timer;
+        private final Counter censoredCounter;
+
+        private volatile AtomicLongArray current = new AtomicLongArray(PercentileBuckets.length());
+        private volatile AtomicLongArray previous = new AtomicLongArray(PercentileBuckets.length());
+        private volatile long currentStartTime = clock.wallTime();
+
+        private MethodLatency(Cell cell, String method) {
+            this.timer = PercentileTimer.get(registry, registry.createId(METRIC_ROOT + "latency", "cell", cell.getName(), "method", method));
+            this.censoredCounter = registry.counter(METRIC_ROOT + "censored", "cell", cell.getName(), "method", method);
+        }
+
+        private void record(long latencyMs) {
+            timer.record(latencyMs, TimeUnit.MILLISECONDS);
+            addSample(latencyMs);
+        }
+
+        private void recordCensored(long elapsedMs) {
+            censoredCounter.increment();
+            addSample(elapsedMs);
+        }
+
+        private void addSample(long latencyMs) {
+            rotateIfNeeded();
+            current.incrementAndGet(PercentileBuckets.indexOf(latencyMs));
+        }
+
+        private Optional<Duration> getPercentile(double percentile) {
+            rotateIfNeeded();
+
+            AtomicLongArray currentSnapshot = current;
+            AtomicLongArray previousSnapshot = previous;
+            long[] counts = new long[PercentileBuckets.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = currentSnapshot.get(i) + previousSnapshot.get(i);
+                total += counts[i];
+            }
+            if (total < minSamples) {
+                return Optional.empty();
+            }
+            return Optional.of(Duration.ofMillis((long) Math.ceil(PercentileBuckets.percentile(counts, percentile))));
+        }
+
+        private void rotateIfNeeded() {
+            long now = clock.wallTime();
+            if (now - currentStartTime < windowMs / 2) {
+                return;
+            }
+            synchronized (this) {
+                if (now - currentStartTime < windowMs / 2) {
+                    return;
+                }
+                // After a longer period without calls, both halves are outdated.
+                previous = now - currentStartTime < windowMs ? current : new AtomicLongArray(PercentileBuckets.length());
+                current = new AtomicLongArray(PercentileBuckets.length());
+                currentStartTime = now;
+            }
+        }
+    }
+}
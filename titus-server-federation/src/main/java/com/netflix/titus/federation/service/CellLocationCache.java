@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.federation.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.cache.Cache;
+import com.netflix.titus.common.util.cache.Caches;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.Task;
+import io.grpc.Status;
+
+/**
+ * Remembers which {@link Cell} owns a job or a task, so point operations can be sent directly to the owning cell,
+ * instead of being fanned out to all cells. Locations are learned from job create responses, job event streams and
+ * successful fan-out lookups. A cached location is a hint only. If the cell responds with
+ * {@link Status.Code#NOT_FOUND}, the location is invalidated, and the caller falls back to the fan-out lookup.
+ */
+@Singleton
+class CellLocationCache {
+
+    private static final String METRIC_ROOT = "titus.federation.cellLocationCache.";
+
+    private final TitusFederationConfiguration configuration;
+
+    private final Cache<String, Cell> jobCells;
+    private final Cache<String, Cell> taskCells;
+
+    private final Counter jobHits;
+    private final Counter jobMisses;
+    private final Counter jobMisroutes;
+    private final Counter taskHits;
+    private final Counter taskMisses;
+    private final Counter taskMisroutes;
+
+    @Inject
+    public CellLocationCache(TitusFederationConfiguration configuration, TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+
+        Registry registry = titusRuntime.getRegistry();
+        Duration ttl = Duration.ofMillis(configuration.getCellLocationCacheTtlMs());
+        this.jobCells = Caches.instrumentedCacheWithMaxSize(configuration.getCellLocationCacheSize(), ttl, METRIC_ROOT + "jobs", registry);
+        this.taskCells = Caches.instrumentedCacheWithMaxSize(configuration.getCellLocationCacheSize(), ttl, METRIC_ROOT + "tasks", registry);
+
+        this.jobHits = registry.counter(METRIC_ROOT + "lookups", "entity", "job", "result", "hit");
+        this.jobMisses = registry.counter(METRIC_ROOT + "lookups", "entity", "job", "result", "miss");
+        this.jobMisroutes = registry.counter(METRIC_ROOT + "lookups", "entity", "job", "result", "misroute");
+        this.taskHits = registry.counter(METRIC_ROOT + "lookups", "entity", "task", "result", "hit");
+        this.taskMisses = registry.counter(METRIC_ROOT + "lookups", "entity", "task", "result", "miss");
+        this.taskMisroutes = registry.counter(METRIC_ROOT + "lookups", "entity", "task", "result", "misroute");
+    }
+
+    Optional<Cell> findJobCell(String jobId) {
+        return find(jobCells, jobId, jobHits, jobMisses);
+    }
+
+    Optional<Cell> findTaskCell(String taskId) {
+        return find(taskCells, taskId, taskHits, taskMisses);
+    }
+
+    void putJobCell(String jobId, Cell cell) {
+        put(jobCells, jobId, cell);
+    }
+
+    void putTaskCell(Task task, Cell cell) {
+        put(taskCells, task.getId(), cell);
+        put(jobCells, task.getJobId(), cell);
+    }
+
+    /**
+     * Records the location of a job or task from an event stream of the given cell.
+     */
+    void record(JobChangeNotification notification, Cell cell) {
+        switch (notification.getNotificationCase()) {
+            case JOBUPDATE:
+                putJobCell(notification.getJobUpdate().getJob().getId(), cell);
+                break;
+            case TASKUPDATE:
+                putTaskCell(notification.getTaskUpdate().getTask(), cell);
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Invalidates a cached job location, which was not confirmed by the cell.
+     */
+    void jobMisrouted(String jobId, Cell cell) {
+        jobMisroutes.increment();
+        invalidate(jobCells, jobId, cell);
+    }
+
+    /**
+     * Invalidates a cached task location, which was not confirmed by the cell.
+     */
+    void taskMisrouted(String taskId, Cell cell) {
+        taskMisroutes.increment();
+        invalidate(taskCells, taskId, cell);
+    }
+
+    static boolean isMisrouted(Throwable error) {
+        return Status.fromThrowable(error).getCode() == Status.Code.NOT_FOUND;
+    }
+
+    private Optional<Cell> find(Cache<String, Cell> cache, String id, Counter hits, Counter misses) {
+        if (!configuration.isCellLocationCacheEnabled()) {
+            return Optional.empty();
+        }
+        Cell cell = cache.getIfPresent(id);
+        if (cell == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cell);
+    }
+
+    private void put(Cache<String, Cell> cache, String id, Cell cell) {
+        if (!configuration.isCellLocationCacheEnabled() || id.isEmpty()) {
+            return;
+        }
+        // Event streams report the same location many times, so avoid needless writes.
+        if (!cell.equals(cache.getIfPresent(id))) {
+            cache.put(id, cell);
+        }
+    }
+
+    private void invalidate(Cache<String, Cell> cache, String id, Cell cell) {
+        if (cell.equals(cache.getIfPresent(id))) {
+            cache.invalidate(id);
+        }
+    }
+}
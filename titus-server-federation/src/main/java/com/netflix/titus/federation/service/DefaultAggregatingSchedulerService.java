@@ -55,7 +55,7 @@ public class DefaultAggregatingSchedulerService implements AggregatingSchedulerS
     }
 
     private Mono<CellResponse<SchedulerServiceGrpc.SchedulerServiceStub, SchedulingResultEvent>> findSchedulingResultInAllCells(String taskId) {
-        Observable<CellResponse<SchedulerServiceGrpc.SchedulerServiceStub, SchedulingResultEvent>> action = aggregatingClient.callExpectingErrors(SchedulerServiceGrpc::newStub, findSchedulingResultInCell(taskId))
+        Observable<CellResponse<SchedulerServiceGrpc.SchedulerServiceStub, SchedulingResultEvent>> action = aggregatingClient.callExpectingErrors("findLastSchedulingResult", SchedulerServiceGrpc::newStub, findSchedulingResultInCell(taskId))
                 .reduce(ResponseMerger.singleValue())
                 .flatMap(response -> response.getResult()
                         .map(v -> Observable.just(CellResponse.ofValue(response)))
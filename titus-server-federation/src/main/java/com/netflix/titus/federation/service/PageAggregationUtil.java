@@ -16,8 +16,11 @@
 
 package com.netflix.titus.federation.service;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -39,22 +42,109 @@ final class PageAggregationUtil {
                 .collect(Collectors.toList());
 
         int lastItemOffset = Math.min(sorted.size(), requested.getPageSize());
-        List<T> pageItems = sorted.subList(0, lastItemOffset);
-        String cursor = sorted.isEmpty() ? "" : cursorFactory.apply(pageItems.get(pageItems.size() - 1));
+        return buildPage(requested, sorted.subList(0, lastItemOffset), sorted.size(), combinedPagination, cursorFactory);
+    }
+
+    /**
+     * Variant of {@link #takeCombinedPage(Page, List, Pagination, Comparator, Function)} for cell results that are
+     * already ordered by the cursor comparator. Instead of concatenating and re-sorting all items returned by the cells,
+     * the per-cell lists are k-way merged, which avoids the re-sort. Each cell returns its page in a single response, so
+     * all cell pages are still received before the merge starts.
+     * <p>
+     * The cursor of the last item on the page is a total order key, so each cell queried with it resumes exactly after
+     * the last item it contributed to the page, and no separate per-cell position must be carried in the cursor.
+     */
+    static <R, T> Pair<List<T>, Pagination> takeMergedPage(Page requested,
+                                                           List<R> cellResults,
+                                                           Function<R, List<T>> itemsExtractor,
+                                                           Function<R, Pagination> paginationExtractor,
+                                                           Comparator<T> cursorComparator,
+                                                           Function<T, String> cursorFactory) {
+        Pagination combinedPagination = null;
+        List<List<T>> cellItems = new ArrayList<>(cellResults.size());
+        int totalReturned = 0;
+        for (R cellResult : cellResults) {
+            Pagination pagination = paginationExtractor.apply(cellResult);
+            combinedPagination = combinedPagination == null ? pagination : combinePagination(combinedPagination, pagination);
+
+            List<T> items = itemsExtractor.apply(cellResult);
+            cellItems.add(items);
+            totalReturned += items.size();
+        }
+        if (combinedPagination == null) {
+            combinedPagination = Pagination.getDefaultInstance();
+        }
+
+        int lastItemOffset = Math.min(totalReturned, requested.getPageSize());
+        List<T> pageItems = mergeSorted(cellItems, cursorComparator, lastItemOffset);
+        return buildPage(requested, pageItems, totalReturned, combinedPagination, cursorFactory);
+    }
+
+    private static <T> Pair<List<T>, Pagination> buildPage(Page requested,
+                                                           List<T> pageItems,
+                                                           int totalReturned,
+                                                           Pagination combinedPagination,
+                                                           Function<T, String> cursorFactory) {
+        int lastItemOffset = pageItems.size();
+        String cursor = pageItems.isEmpty() ? "" : cursorFactory.apply(pageItems.get(pageItems.size() - 1));
 
         // first item position relative to totalItems from all Cells
-        int firstItemPosition = Math.max(0, combinedPagination.getCursorPosition() - (sorted.size() - 1));
+        int firstItemPosition = Math.max(0, combinedPagination.getCursorPosition() - (totalReturned - 1));
         int pageNumber = firstItemPosition / requested.getPageSize();
         Pagination finalPagination = Pagination.newBuilder(combinedPagination)
                 .setCurrentPage(Page.newBuilder(requested).setPageNumber(pageNumber))
                 .setCursor(cursor)
                 .setCursorPosition(firstItemPosition + lastItemOffset - 1)
-                .setHasMore(combinedPagination.getHasMore() || lastItemOffset < sorted.size())
+                .setHasMore(combinedPagination.getHasMore() || lastItemOffset < totalReturned)
                 .build();
 
         return Pair.of(pageItems, finalPagination);
     }
 
+    /**
+     * Merges lists ordered by the given comparator, taking at most 'limit' items. A list that turns out not to be
+     * ordered (for example a cell running with a different cursor order) is sorted first, so the result is always
+     * correct, if less efficient.
+     */
+    static <T> List<T> mergeSorted(List<List<T>> sortedLists, Comparator<T> comparator, int limit) {
+        PriorityQueue<MergeSource<T>> heads = new PriorityQueue<>(
+                Math.max(1, sortedLists.size()),
+                (first, second) -> comparator.compare(first.head, second.head)
+        );
+        for (List<T> items : sortedLists) {
+            List<T> ordered = isOrdered(items, comparator) ? items : sortedCopy(items, comparator);
+            Iterator<T> it = ordered.iterator();
+            if (it.hasNext()) {
+                heads.add(new MergeSource<>(it));
+            }
+        }
+
+        List<T> result = new ArrayList<>(limit);
+        while (result.size() < limit && !heads.isEmpty()) {
+            MergeSource<T> source = heads.poll();
+            result.add(source.head);
+            if (source.advance()) {
+                heads.add(source);
+            }
+        }
+        return result;
+    }
+
+    private static <T> boolean isOrdered(List<T> items, Comparator<T> comparator) {
+        for (int i = 1; i < items.size(); i++) {
+            if (comparator.compare(items.get(i - 1), items.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> List<T> sortedCopy(List<T> items, Comparator<T> comparator) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
     static Pagination combinePagination(Pagination one, Pagination other) {
         int cursorPosition = one.getCursorPosition() + other.getCursorPosition();
         if (one.getTotalItems() > 0 && other.getTotalItems() > 0) {
@@ -73,4 +163,23 @@ final class PageAggregationUtil {
                 .setCursorPosition(cursorPosition)
                 .build();
     }
+
+    private static class MergeSource<T> {
+
+        private final Iterator<T> iterator;
+        private T head;
+
+        private MergeSource(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next();
+            return true;
+        }
+    }
 }
@@ -33,4 +33,63 @@ public interface TitusFederationConfiguration {
 
     @DefaultValue("cell1=(gpu.*)")
     String getInstanceTypeRoutingRules();
+
+    /**
+     * Set to true, to send job and task point operations directly to the cell in which the job or task was last seen.
+     */
+    @DefaultValue("true")
+    boolean isCellLocationCacheEnabled();
+
+    @DefaultValue("100000")
+    long getCellLocationCacheSize();
+
+    @DefaultValue("3600000")
+    long getCellLocationCacheTtlMs();
+
+    /**
+     * Comma separated list of read-only cell calls, which are hedged. A hedged call is repeated on the same cell
+     * channel, which round-robins over the cell's gateway instances, if no response arrives within the hedge delay.
+     */
+    @DefaultValue("findJobs,findTasks,findJob,findTask")
+    String getCellCallHedgedMethods();
+
+    /**
+     * Percentile of the recent per-cell call latency used as the hedge delay.
+     */
+    @DefaultValue("95")
+    double getCellCallHedgePercentile();
+
+    @DefaultValue("20")
+    long getCellCallHedgeMinDelayMs();
+
+    /**
+     * Hedge delay used until enough latency samples are collected, and the upper bound for the computed delay.
+     */
+    @DefaultValue("1000")
+    long getCellCallHedgeMaxDelayMs();
+
+    @DefaultValue("1")
+    int getCellCallMaxHedges();
+
+    /**
+     * Set to true, to time out cell calls after a multiple of the recent per-cell latency percentile, instead of
+     * waiting for the full gRPC request deadline.
+     */
+    @DefaultValue("true")
+    boolean isCellCallAdaptiveTimeoutEnabled();
+
+    @DefaultValue("99")
+    double getCellCallTimeoutPercentile();
+
+    @DefaultValue("5")
+    double getCellCallTimeoutMultiplier();
+
+    @DefaultValue("2000")
+    long getCellCallMinTimeoutMs();
+
+    @DefaultValue("60000")
+    long getCellCallLatencyWindowMs();
+
+    @DefaultValue("100")
+    int getCellCallLatencyMinSamples();
 }
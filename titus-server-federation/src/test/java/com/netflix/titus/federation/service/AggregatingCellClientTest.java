@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.federation.startup.GrpcConfiguration;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
+import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc;
+import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcServerRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import rx.observers.AssertableSubscriber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AggregatingCellClientTest {
+
+    private static final String HEDGED_METHOD = "findJobs";
+    private static final String NOT_HEDGED_METHOD = "findJobsNotHedged";
+
+    private static final long HEDGE_DELAY_MS = 100;
+    private static final long MIN_TIMEOUT_MS = 100;
+    private static final int MIN_SAMPLES = 10;
+    private static final long GRPC_REQUEST_TIMEOUT_MS = 10_000;
+
+    /**
+     * Much longer than the hedge delay and the adaptive timeout, but short enough to not slow down the test.
+     */
+    private static final long SLOW_CALL_MS = 2_000;
+
+    private static final Cell CELL = new Cell("one", "1");
+
+    @Rule
+    public final GrpcServerRule cellServer = new GrpcServerRule().directExecutor();
+
+    private final CellWithDelayedJobsService cell = new CellWithDelayedJobsService();
+
+    private final TitusFederationConfiguration configuration = mock(TitusFederationConfiguration.class);
+    private final GrpcConfiguration grpcConfiguration = mock(GrpcConfiguration.class);
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+    private final Registry registry = titusRuntime.getRegistry();
+
+    private AggregatingCellClient client;
+
+    @Before
+    public void setUp() {
+        cellServer.getServiceRegistry().addService(cell);
+
+        when(configuration.getCellCallHedgedMethods()).thenReturn(HEDGED_METHOD);
+        when(configuration.getCellCallHedgePercentile()).thenReturn(95.0);
+        when(configuration.getCellCallHedgeMinDelayMs()).thenReturn(HEDGE_DELAY_MS);
+        when(configuration.getCellCallHedgeMaxDelayMs()).thenReturn(HEDGE_DELAY_MS);
+        when(configuration.getCellCallMaxHedges()).thenReturn(1);
+        when(configuration.isCellCallAdaptiveTimeoutEnabled()).thenReturn(false);
+        when(configuration.getCellCallTimeoutPercentile()).thenReturn(99.0);
+        when(configuration.getCellCallTimeoutMultiplier()).thenReturn(2.0);
+        when(configuration.getCellCallMinTimeoutMs()).thenReturn(MIN_TIMEOUT_MS);
+        when(configuration.getCellCallLatencyWindowMs()).thenReturn(60_000L);
+        when(configuration.getCellCallLatencyMinSamples()).thenReturn(MIN_SAMPLES);
+        when(grpcConfiguration.getRequestTimeoutMs()).thenReturn(GRPC_REQUEST_TIMEOUT_MS);
+
+        CellConnector connector = mock(CellConnector.class);
+        when(connector.getChannels()).thenReturn(Collections.singletonMap(CELL, cellServer.getChannel()));
+
+        client = new AggregatingCellClient(connector, configuration, grpcConfiguration, titusRuntime);
+    }
+
+    @After
+    public void tearDown() {
+        cell.shutdown();
+    }
+
+    @Test
+    public void testHedgeWinsWhenCellIsSlow() {
+        cell.delayNextCalls(SLOW_CALL_MS, 0);
+
+        AssertableSubscriber<String> subscriber = findJobs(HEDGED_METHOD);
+        subscriber.awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoErrors().assertValue(CellWithDelayedJobsService.jobIdOfCall(1));
+        assertThat(cell.getCalls()).isEqualTo(2);
+        assertThat(counter("hedges", HEDGED_METHOD)).isEqualTo(1);
+        assertThat(counter("hedgeWins", HEDGED_METHOD)).isEqualTo(1);
+    }
+
+    @Test
+    public void testOriginalCallWinsWhenHedgeIsSlower() {
+        cell.delayNextCalls(2 * HEDGE_DELAY_MS, SLOW_CALL_MS);
+
+        AssertableSubscriber<String> subscriber = findJobs(HEDGED_METHOD);
+        subscriber.awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoErrors().assertValue(CellWithDelayedJobsService.jobIdOfCall(0));
+        assertThat(cell.getCalls()).isEqualTo(2);
+        assertThat(counter("hedges", HEDGED_METHOD)).isEqualTo(1);
+        assertThat(counter("hedgeWins", HEDGED_METHOD)).isEqualTo(0);
+    }
+
+    @Test
+    public void testNoHedgeWhenCellRespondsWithinHedgeDelay() throws Exception {
+        AssertableSubscriber<String> subscriber = findJobs(HEDGED_METHOD);
+        subscriber.awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS);
+        subscriber.assertNoErrors().assertValue(CellWithDelayedJobsService.jobIdOfCall(0));
+
+        Thread.sleep(2 * HEDGE_DELAY_MS);
+        assertThat(cell.getCalls()).isEqualTo(1);
+        assertThat(counter("hedges", HEDGED_METHOD)).isEqualTo(0);
+    }
+
+    @Test
+    public void testMethodNotConfiguredForHedgingIsNotHedged() {
+        cell.delayNextCalls(3 * HEDGE_DELAY_MS);
+
+        AssertableSubscriber<String> subscriber = findJobs(NOT_HEDGED_METHOD);
+        subscriber.awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoErrors().assertValue(CellWithDelayedJobsService.jobIdOfCall(0));
+        assertThat(cell.getCalls()).isEqualTo(1);
+        assertThat(counter("hedges", NOT_HEDGED_METHOD)).isEqualTo(0);
+    }
+
+    @Test
+    public void testAdaptiveTimeout() {
+        when(configuration.isCellCallAdaptiveTimeoutEnabled()).thenReturn(true);
+
+        // Until enough latency samples are collected, only the gRPC request deadline applies.
+        cell.delayNextCalls(3 * MIN_TIMEOUT_MS);
+        findJobs(NOT_HEDGED_METHOD).awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS).assertNoErrors().assertValueCount(1);
+
+        warmUp(NOT_HEDGED_METHOD);
+
+        cell.delayNextCalls(SLOW_CALL_MS);
+        AssertableSubscriber<String> subscriber = findJobs(NOT_HEDGED_METHOD);
+        subscriber.awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoValues().assertError(StatusRuntimeException.class);
+        assertThat(Status.fromThrowable(subscriber.getOnErrorEvents().get(0)).getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED);
+        assertThat(counter("timeouts", NOT_HEDGED_METHOD)).isEqualTo(1);
+    }
+
+    @Test
+    public void testAdaptiveTimeoutIsNotAppliedAboveRequestDeadline() {
+        when(configuration.isCellCallAdaptiveTimeoutEnabled()).thenReturn(true);
+        when(grpcConfiguration.getRequestTimeoutMs()).thenReturn(MIN_TIMEOUT_MS);
+
+        warmUp(NOT_HEDGED_METHOD);
+
+        cell.delayNextCalls(3 * MIN_TIMEOUT_MS);
+        AssertableSubscriber<String> subscriber = findJobs(NOT_HEDGED_METHOD);
+        subscriber.awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoErrors().assertValueCount(1);
+        assertThat(counter("timeouts", NOT_HEDGED_METHOD)).isEqualTo(0);
+    }
+
+    private AssertableSubscriber<String> findJobs(String method) {
+        return client.call(
+                method,
+                JobManagementServiceGrpc::newStub,
+                (JobManagementServiceStub stub, StreamObserver<JobQueryResult> observer) ->
+                        stub.findJobs(JobQuery.getDefaultInstance(), observer)
+        ).map(response -> response.getResult().getItems(0).getId()).test();
+    }
+
+    /**
+     * Collects enough fast latency samples for the adaptive timeout to be computed.
+     */
+    private void warmUp(String method) {
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            findJobs(method).awaitTerminalEvent(SLOW_CALL_MS / 2, TimeUnit.MILLISECONDS).assertNoErrors();
+        }
+    }
+
+    private long counter(String name, String method) {
+        return registry.counter(CellLatencyTracker.METRIC_ROOT + name, "cell", CELL.getName(), "method", method).count();
+    }
+}
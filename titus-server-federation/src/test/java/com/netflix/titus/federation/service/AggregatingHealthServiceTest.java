@@ -27,9 +27,11 @@ import java.util.stream.Collectors;
 
 import com.google.protobuf.util.Durations;
 import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.time.Clocks;
 import com.netflix.titus.common.util.time.TestClock;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
 import com.netflix.titus.grpc.protogen.HealthCheckRequest;
 import com.netflix.titus.grpc.protogen.HealthCheckResponse;
 import com.netflix.titus.grpc.protogen.HealthCheckResponse.Details;
@@ -80,7 +82,7 @@ public class AggregatingHealthServiceTest {
         GrpcConfiguration grpcConfiguration = mock(GrpcConfiguration.class);
         when(grpcConfiguration.getRequestTimeoutMs()).thenReturn(1000L);
         AnonymousCallMetadataResolver anonymousCallMetadataResolver = new AnonymousCallMetadataResolver();
-        AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
+        AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector, mock(TitusFederationConfiguration.class), grpcConfiguration, TitusRuntimes.internal());
         service = new AggregatingHealthService(aggregatingCellClient, anonymousCallMetadataResolver, grpcConfiguration);
     }
 
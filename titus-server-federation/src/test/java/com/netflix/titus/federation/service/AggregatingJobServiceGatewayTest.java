@@ -35,6 +35,8 @@ import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
 import com.netflix.titus.api.model.Page;
 import com.netflix.titus.api.service.TitusServiceException;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.time.Clocks;
 import com.netflix.titus.common.util.time.TestClock;
@@ -110,6 +112,7 @@ public class AggregatingJobServiceGatewayTest {
     private Map<Cell, GrpcServerRule> cellToServiceMap;
     private TestClock clock;
     private ServiceDataGenerator dataGenerator;
+    private TitusRuntime titusRuntime;
 
     @Before
     public void setUp() {
@@ -122,6 +125,9 @@ public class AggregatingJobServiceGatewayTest {
         when(titusFederationConfiguration.getStack()).thenReturn(stackName);
         when(titusFederationConfiguration.getCells()).thenReturn("one=1;two=2");
         when(titusFederationConfiguration.getRoutingRules()).thenReturn("one=(app1.*|app2.*);two=(app3.*)");
+        when(titusFederationConfiguration.isCellLocationCacheEnabled()).thenReturn(true);
+        when(titusFederationConfiguration.getCellLocationCacheSize()).thenReturn(1000L);
+        when(titusFederationConfiguration.getCellLocationCacheTtlMs()).thenReturn(60_000L);
 
         CellInfoResolver cellInfoResolver = new DefaultCellInfoResolver(titusFederationConfiguration);
         ApplicationCellRouter cellRouter = new ApplicationCellRouter(cellInfoResolver, titusFederationConfiguration);
@@ -140,14 +146,17 @@ public class AggregatingJobServiceGatewayTest {
                         .map(GrpcServerRule::getChannel)
         );
 
-        final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
+        titusRuntime = TitusRuntimes.internal();
+        final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector, titusFederationConfiguration, grpcConfiguration, titusRuntime);
+        final CellLocationCache cellLocationCache = new CellLocationCache(titusFederationConfiguration, titusRuntime);
         service = new AggregatingJobServiceGateway(
                 grpcConfiguration,
                 titusFederationConfiguration,
                 connector,
                 cellRouter,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcConfiguration)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, connector, cellLocationCache, grpcConfiguration),
+                cellLocationCache
         );
 
         clock = Clocks.test();
@@ -403,6 +412,61 @@ public class AggregatingJobServiceGatewayTest {
         assertThat(Status.fromThrowable(testSubscriber.getOnErrorEvents().get(0))).isEqualTo(UNAVAILABLE);
     }
 
+    @Test
+    public void findJobIsRoutedToCachedCell() {
+        List<Job> cellOneSnapshot = new ArrayList<>(dataGenerator.newServiceJobs(10, GrpcJobManagementModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(cellOneSnapshot, cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellTwoUpdates.serialize()));
+
+        Job expected = withStackName(cellOneSnapshot.get(0));
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+        assertThat(cellLocationLookups("job", "miss")).isEqualTo(1);
+
+        // Cell two would fail the fan-out lookup, so the job must be fetched from cell one only.
+        cellTwo.getServiceRegistry().addService(new CellWithFailingJobManagementService(UNAVAILABLE));
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+        assertThat(cellLocationLookups("job", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    public void findJobFallsBackToAllCellsWhenCachedCellIsStale() {
+        List<Job> snapshot = new ArrayList<>(dataGenerator.newServiceJobs(10, GrpcJobManagementModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(snapshot, cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellTwoUpdates.serialize()));
+
+        Job expected = withStackName(snapshot.get(0));
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+
+        // Move all jobs to cell two
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(snapshot, cellTwoUpdates.serialize()));
+
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+        assertThat(cellLocationLookups("job", "misroute")).isEqualTo(1);
+
+        // The new location is cached
+        cellOne.getServiceRegistry().addService(new CellWithFailingJobManagementService(UNAVAILABLE));
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+    }
+
+    @Test
+    public void cellLocationIsLearnedFromObserveJobs() {
+        List<Job> cellTwoSnapshot = new ArrayList<>(dataGenerator.newServiceJobs(1, GrpcJobManagementModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(cellTwoSnapshot, cellTwoUpdates.serialize()));
+
+        // Job snapshot and the merged marker
+        AssertableSubscriber<JobChangeNotification> observeSubscriber = service.observeJobs(ObserveJobsQuery.getDefaultInstance(), UNDEFINED_CALL_METADATA).test();
+        observeSubscriber.awaitValueCount(2, 1, TimeUnit.SECONDS);
+        observeSubscriber.unsubscribe();
+
+        Job job = cellTwoSnapshot.get(0);
+
+        cellOne.getServiceRegistry().addService(new CellWithFailingJobManagementService(UNAVAILABLE));
+        assertThat(service.findJob(job.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(withStackName(job));
+        assertThat(cellLocationLookups("job", "hit")).isEqualTo(1);
+    }
+
     @Test
     public void killJob() {
         Random random = new Random();
@@ -861,6 +925,10 @@ public class AggregatingJobServiceGatewayTest {
         return JobChangeNotification.newBuilder().setTaskUpdate(TaskUpdate.newBuilder().setTask(task)).build();
     }
 
+    private long cellLocationLookups(String entity, String result) {
+        return titusRuntime.getRegistry().counter("titus.federation.cellLocationCache.lookups", "entity", entity, "result", result).count();
+    }
+
     private Job withStackName(Job job) {
         JobDescriptor jobDescriptor = job.getJobDescriptor().toBuilder()
                 .putAttributes("titus.stack", stackName)
@@ -28,6 +28,7 @@ import java.util.stream.Collectors;
 import com.google.common.collect.ImmutableMap;
 import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.model.Page;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.time.Clocks;
 import com.netflix.titus.common.util.time.TestClock;
 import com.netflix.titus.federation.service.router.ApplicationCellRouter;
@@ -96,7 +97,8 @@ public class AggregatingJobServiceGatewayWithSingleCellTest {
                         .map(GrpcServerRule::getChannel)
         );
 
-        final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
+        final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector, titusFederationConfiguration, grpcClientConfiguration, TitusRuntimes.internal());
+        final CellLocationCache cellLocationCache = new CellLocationCache(titusFederationConfiguration, TitusRuntimes.internal());
         final AnonymousCallMetadataResolver anonymousCallMetadataResolver = new AnonymousCallMetadataResolver();
         service = new AggregatingJobServiceGateway(
                 grpcClientConfiguration,
@@ -104,7 +106,8 @@ public class AggregatingJobServiceGatewayWithSingleCellTest {
                 connector,
                 cellRouter,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, connector, cellLocationCache, grpcClientConfiguration),
+                cellLocationCache
         );
 
         clock = Clocks.test();
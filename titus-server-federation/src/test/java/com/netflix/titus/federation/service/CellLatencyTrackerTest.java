@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.federation.service;
+
+import java.time.Duration;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CellLatencyTrackerTest {
+
+    private static final long WINDOW_MS = 60_000;
+
+    private static final Cell CELL = new Cell("cell1", "localhost:7001");
+
+    private final TestClock clock = Clocks.test();
+
+    private final Registry registry = new DefaultRegistry();
+
+    private final CellLatencyTracker tracker = new CellLatencyTracker(WINDOW_MS, 10, registry, clock);
+
+    @Test
+    public void testPercentileRequiresMinimumSamples() {
+        recordMany(9, 100);
+        assertThat(tracker.getPercentile(CELL, "findJobs", 99)).isEmpty();
+
+        recordMany(1, 100);
+        assertThat(tracker.getPercentile(CELL, "findJobs", 99)).isPresent();
+        assertThat(tracker.getPercentile(CELL, "findTasks", 99)).isEmpty();
+    }
+
+    @Test
+    public void testPercentile() {
+        recordMany(90, 10);
+        recordMany(10, 1_000);
+
+        long p50 = tracker.getPercentile(CELL, "findJobs", 50).map(Duration::toMillis).orElse(-1L);
+        long p99 = tracker.getPercentile(CELL, "findJobs", 99).map(Duration::toMillis).orElse(-1L);
+        assertThat(p50).isBetween(5L, 15L);
+        assertThat(p99).isBetween(500L, 1_500L);
+    }
+
+    @Test
+    public void testOldSamplesExpire() {
+        recordMany(100, 1_000);
+        clock.advanceTime(Duration.ofMillis(WINDOW_MS / 2));
+        recordMany(100, 10);
+        assertThat(tracker.getPercentile(CELL, "findJobs", 99).get().toMillis()).isGreaterThanOrEqualTo(500);
+
+        clock.advanceTime(Duration.ofMillis(WINDOW_MS / 2));
+        recordMany(100, 10);
+        assertThat(tracker.getPercentile(CELL, "findJobs", 99).get().toMillis()).isLessThan(100);
+
+        clock.advanceTime(Duration.ofMillis(2 * WINDOW_MS));
+        assertThat(tracker.getPercentile(CELL, "findJobs", 99)).isEmpty();
+    }
+
+    @Test
+    public void testCensoredSamplesAreIncludedInPercentiles() {
+        recordMany(90, 10);
+        for (int i = 0; i < 10; i++) {
+            tracker.recordCensored(CELL, "findJobs", 1_000);
+        }
+
+        long p99 = tracker.getPercentile(CELL, "findJobs", 99).map(Duration::toMillis).orElse(-1L);
+        assertThat(p99).isBetween(500L, 1_500L);
+        assertThat(registry.counter(CellLatencyTracker.METRIC_ROOT + "censored", "cell", CELL.getName(), "method", "findJobs").count()).isEqualTo(10);
+    }
+
+    private void recordMany(int count, long latencyMs) {
+        for (int i = 0; i < count; i++) {
+            tracker.record(CELL, "findJobs", latencyMs);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.titus.common.util.Evaluators;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Answers each findJobs call after the next configured delay. The result holds a single job, with an id that
+ * identifies the call (see {@link #jobIdOfCall(int)}), so a test can tell which of the repeated calls won.
+ */
+class CellWithDelayedJobsService extends JobManagementServiceGrpc.JobManagementServiceImplBase {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Queue<Long> delaysMs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    void delayNextCalls(long... delaysMs) {
+        for (long delayMs : delaysMs) {
+            this.delaysMs.add(delayMs);
+        }
+    }
+
+    int getCalls() {
+        return calls.get();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void findJobs(JobQuery request, StreamObserver<JobQueryResult> responseObserver) {
+        int callIndex = calls.getAndIncrement();
+        long delayMs = Evaluators.getOrDefault(delaysMs.poll(), 0L);
+        JobQueryResult result = JobQueryResult.newBuilder()
+                .addItems(Job.newBuilder().setId(jobIdOfCall(callIndex)))
+                .build();
+        executor.schedule(() -> {
+            responseObserver.onNext(result);
+            responseObserver.onCompleted();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    static String jobIdOfCall(int callIndex) {
+        return "call#" + callIndex;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.federation.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.Pagination;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PageAggregationUtilTest {
+
+    private static final Comparator<Integer> ORDER = Comparator.naturalOrder();
+
+    @Test
+    public void mergeSortedStopsAtLimit() {
+        List<Integer> merged = PageAggregationUtil.mergeSorted(
+                Arrays.asList(Arrays.asList(1, 4, 7), Arrays.asList(2, 5, 8), Collections.emptyList(), Arrays.asList(3, 6)),
+                ORDER,
+                5
+        );
+        assertThat(merged).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void mergeSortedHandlesUnorderedInput() {
+        List<Integer> merged = PageAggregationUtil.mergeSorted(
+                Arrays.asList(Arrays.asList(5, 1, 3), Arrays.asList(2, 4)),
+                ORDER,
+                10
+        );
+        assertThat(merged).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void mergedPageIsSameAsCombinedPage() {
+        Random random = new Random(123);
+        Page page = Page.newBuilder().setPageSize(10).build();
+        for (int round = 0; round < 100; round++) {
+            List<Pair<List<Integer>, Pagination>> cellResults = new ArrayList<>();
+            List<Integer> allItems = new ArrayList<>();
+            Pagination combinedPagination = null;
+            for (int cell = 0; cell < 3; cell++) {
+                List<Integer> items = new ArrayList<>();
+                int count = random.nextInt(page.getPageSize() + 1);
+                for (int i = 0; i < count; i++) {
+                    items.add(random.nextInt(1_000));
+                }
+                items.sort(ORDER);
+                Pagination pagination = Pagination.newBuilder()
+                        .setHasMore(count == page.getPageSize() && random.nextBoolean())
+                        .setTotalItems(count * 2)
+                        .setCursorPosition(Math.max(0, count - 1))
+                        .build();
+
+                cellResults.add(Pair.of(items, pagination));
+                allItems.addAll(items);
+                combinedPagination = combinedPagination == null ? pagination : PageAggregationUtil.combinePagination(combinedPagination, pagination);
+            }
+
+            Pair<List<Integer>, Pagination> expected = PageAggregationUtil.takeCombinedPage(page, allItems, combinedPagination, ORDER, String::valueOf);
+            Pair<List<Integer>, Pagination> actual = PageAggregationUtil.takeMergedPage(page, cellResults, Pair::getLeft, Pair::getRight, ORDER, String::valueOf);
+            assertThat(actual.getLeft()).containsExactlyElementsOf(expected.getLeft());
+            assertThat(actual.getRight()).isEqualTo(expected.getRight());
+        }
+    }
+
+    @Test
+    public void mergedPageWithNoCells() {
+        Page page = Page.newBuilder().setPageSize(10).build();
+        Pair<List<Integer>, Pagination> result = PageAggregationUtil.takeMergedPage(
+                page, Collections.<Pair<List<Integer>, Pagination>>emptyList(), Pair::getLeft, Pair::getRight, ORDER, String::valueOf
+        );
+        assertThat(result.getLeft()).isEmpty();
+        assertThat(result.getRight().getCursor()).isEmpty();
+        assertThat(result.getRight().getHasMore()).isFalse();
+    }
+}
@@ -16,11 +16,16 @@
 
 package com.netflix.titus.gateway.service.v3.internal;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.netflix.spectator.api.DefaultRegistry;
 import com.netflix.titus.api.jobmanager.JobAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Image;
 import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
 import com.netflix.titus.common.model.sanitizer.ValidationError;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
 import com.netflix.titus.runtime.connector.registry.RegistryClient;
 import com.netflix.titus.runtime.connector.registry.TitusRegistryException;
 import com.netflix.titus.runtime.endpoint.admission.JobImageSanitizer;
@@ -115,6 +120,47 @@ public class JobImageSanitizerTest {
                 .verifyComplete();
     }
 
+    @Test
+    public void testTagResolutionIsCached() {
+        when(configuration.isLookupCacheEnabled()).thenReturn(true);
+        when(configuration.getLookupCacheTtlMs()).thenReturn(60_000L);
+        when(configuration.getLookupCacheMaxSize()).thenReturn(100);
+        AtomicInteger registryCalls = new AtomicInteger();
+        when(registryClient.getImageDigest(repo, tag)).thenReturn(Mono.fromCallable(() -> {
+            registryCalls.incrementAndGet();
+            return digest;
+        }));
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(sanitizer.sanitizeAndApply(jobDescriptorWithTag))
+                    .assertNext(jobDescriptor -> assertThat(jobDescriptor.getContainer().getImage().getDigest()).isEqualTo(digest))
+                    .verifyComplete();
+        }
+        assertThat(registryCalls).hasValue(1);
+    }
+
+    @Test
+    public void testMovedTagResolvedAfterTtl() {
+        when(configuration.isLookupCacheEnabled()).thenReturn(true);
+        when(configuration.getLookupCacheTtlMs()).thenReturn(10_000L);
+        when(configuration.getLookupCacheStaleTtlMs()).thenReturn(50_000L);
+        when(configuration.getLookupCacheMaxSize()).thenReturn(100);
+        TestClock clock = Clocks.test();
+        JobImageSanitizer sanitizer = new JobImageSanitizer(configuration, registryClient, new DefaultRegistry(), clock);
+
+        StepVerifier.create(sanitizer.sanitizeAndApply(jobDescriptorWithTag))
+                .assertNext(jobDescriptor -> assertThat(jobDescriptor.getContainer().getImage().getDigest()).isEqualTo(digest))
+                .verifyComplete();
+
+        // The expired digest of a tag is not returned while it is reloaded
+        String newDigest = "sha256:0000000000000000000000000000000000000000000000000000000000000000";
+        when(registryClient.getImageDigest(repo, tag)).thenReturn(Mono.just(newDigest));
+        clock.advanceTime(10_001, TimeUnit.MILLISECONDS);
+        StepVerifier.create(sanitizer.sanitizeAndApply(jobDescriptorWithTag))
+                .assertNext(jobDescriptor -> assertThat(jobDescriptor.getContainer().getImage().getDigest()).isEqualTo(newDigest))
+                .verifyComplete();
+    }
+
     @Test
     public void testJobWithDigestExists() {
         Image image = jobDescriptorWithDigest.getContainer().getImage();
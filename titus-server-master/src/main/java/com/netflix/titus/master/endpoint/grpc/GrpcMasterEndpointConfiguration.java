@@ -48,4 +48,25 @@ public interface GrpcMasterEndpointConfiguration {
      */
     @DefaultValue("256")
     int getServerStreamsThreadPoolSize();
+
+    /**
+     * Max number of job change notifications buffered for a single observeJobs subscriber. A subscriber not keeping
+     * up with the event stream is disconnected once its buffer is full.
+     */
+    @DefaultValue("1024")
+    int getObserveJobsSubscriberBufferSize();
+
+    /**
+     * Max number of observeJobs snapshot notifications encoded ahead of the subscriber. The snapshot is sent in
+     * chunks of this size, as the subscriber's gRPC stream becomes ready to accept more data.
+     */
+    @DefaultValue("128")
+    int getObserveJobsSnapshotChunkSize();
+
+    /**
+     * Number of recent job change notifications kept in memory, so a reconnecting observeJobs subscriber can get
+     * the events it missed instead of a full snapshot. Set to 0 to disable.
+     */
+    @DefaultValue("20000")
+    int getObserveJobsJournalSize();
 }
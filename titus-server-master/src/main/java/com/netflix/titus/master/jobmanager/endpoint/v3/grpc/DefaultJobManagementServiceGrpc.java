@@ -57,7 +57,7 @@ import com.netflix.titus.common.model.sanitizer.ValidationError;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.ExecutorsExt;
-import com.netflix.titus.common.util.ProtobufExt;
+import com.netflix.titus.common.util.ProtobufProjection;
 import com.netflix.titus.common.util.archaius2.ObjectConfigurationResolver;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
@@ -101,6 +101,7 @@ import com.netflix.titus.runtime.endpoint.authorization.AuthorizationStatus;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataUtils;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.JobStreamRevisions;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
 import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
@@ -118,6 +119,7 @@ import rx.schedulers.Schedulers;
 
 import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_STRICT_SANITIZER;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.safeOnError;
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.subscribeWithFlowControl;
 import static com.netflix.titus.runtime.endpoint.metadata.CallMetadataUtils.execute;
 import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.toGrpcPagination;
 import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.toJobQueryCriteria;
@@ -148,6 +150,7 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
     private final TitusRuntime titusRuntime;
     private final SchedulingService<? extends TaskRequest> schedulingService;
     private final Scheduler observeJobsScheduler;
+    private final JobChangeNotificationFanOut jobChangeNotificationFanOut;
 
     @Inject
     public DefaultJobManagementServiceGrpc(GrpcMasterEndpointConfiguration configuration,
@@ -176,6 +179,15 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         this.schedulingService = schedulingService;
         this.observeJobsScheduler = Schedulers.from(ExecutorsExt.instrumentedFixedSizeThreadPool(
                 titusRuntime.getRegistry(), "observeJobs", configuration.getServerStreamsThreadPoolSize()));
+        this.jobChangeNotificationFanOut = new JobChangeNotificationFanOut(
+                jobOperations,
+                event -> addTaskContextToJobChangeNotification(GrpcJobManagementModelConverters.toGrpcJobChangeNotification(event, logStorageInfo)),
+                configuration.getObserveJobsSubscriberBufferSize(),
+                configuration.getObserveJobsSnapshotChunkSize(),
+                configuration.getObserveJobsJournalSize(),
+                observeJobsScheduler,
+                titusRuntime.getRegistry()
+        );
     }
 
     @Override
@@ -250,16 +262,18 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
                     JobManagerCursors::coreJobIndexOf,
                     JobManagerCursors::newCoreCursorFrom
             );
-            List<Job> grpcJobs = queryResult.getLeft().stream().map(GrpcJobManagementModelConverters::toGrpcJob).collect(Collectors.toList());
-
-            JobQueryResult grpcQueryResult;
+            List<Job> grpcJobs;
             if (jobQuery.getFieldsList().isEmpty()) {
-                grpcQueryResult = toJobQueryResult(grpcJobs, queryResult.getRight());
+                grpcJobs = queryResult.getLeft().stream().map(GrpcJobManagementModelConverters::toGrpcJob).collect(Collectors.toList());
             } else {
                 Set<String> fields = new HashSet<>(jobQuery.getFieldsList());
                 fields.addAll(JOB_MINIMUM_FIELD_SET);
-                grpcQueryResult = toJobQueryResult(grpcJobs.stream().map(j -> ProtobufExt.copy(j, fields)).collect(Collectors.toList()), queryResult.getRight());
+                ProtobufProjection<Job> projection = ProtobufProjection.of(Job.getDescriptor(), fields);
+                grpcJobs = queryResult.getLeft().stream()
+                        .map(j -> projection.apply(GrpcJobManagementModelConverters.toGrpcJob(j, projection)))
+                        .collect(Collectors.toList());
             }
+            JobQueryResult grpcQueryResult = toJobQueryResult(grpcJobs, queryResult.getRight());
 
             responseObserver.onNext(grpcQueryResult);
             responseObserver.onCompleted();
@@ -308,19 +322,24 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
                     JobManagerCursors::newCoreCursorFrom
             );
 
-            List<Task> grpcTasks = queryResult.getLeft().stream()
-                    .map(t -> GrpcJobManagementModelConverters.toGrpcTask(t, logStorageInfo))
-                    .map(this::addTaskContextToTask)
-                    .collect(Collectors.toList());
-
-            TaskQueryResult grpcQueryResult;
+            List<Task> grpcTasks;
             if (taskQuery.getFieldsList().isEmpty()) {
-                grpcQueryResult = toTaskQueryResult(grpcTasks, queryResult.getRight());
+                grpcTasks = queryResult.getLeft().stream()
+                        .map(t -> GrpcJobManagementModelConverters.toGrpcTask(t, logStorageInfo))
+                        .map(this::addTaskContextToTask)
+                        .collect(Collectors.toList());
             } else {
                 Set<String> fields = new HashSet<>(taskQuery.getFieldsList());
                 fields.addAll(TASK_MINIMUM_FIELD_SET);
-                grpcQueryResult = toTaskQueryResult(grpcTasks.stream().map(t -> ProtobufExt.copy(t, fields)).collect(Collectors.toList()), queryResult.getRight());
+                ProtobufProjection<Task> projection = ProtobufProjection.of(Task.getDescriptor(), fields);
+                boolean includesTaskContext = projection.includes("taskContext");
+                grpcTasks = queryResult.getLeft().stream()
+                        .map(t -> GrpcJobManagementModelConverters.toGrpcTask(t, logStorageInfo, projection))
+                        .map(t -> includesTaskContext ? addTaskContextToTask(t) : t)
+                        .map(projection::apply)
+                        .collect(Collectors.toList());
             }
+            TaskQueryResult grpcQueryResult = toTaskQueryResult(grpcTasks, queryResult.getRight());
 
             responseObserver.onNext(grpcQueryResult);
             responseObserver.onCompleted();
@@ -600,31 +619,29 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         V3JobQueryCriteriaEvaluator jobsPredicate = new V3JobQueryCriteriaEvaluator(criteria, titusRuntime);
         V3TaskQueryCriteriaEvaluator tasksPredicate = new V3TaskQueryCriteriaEvaluator(criteria, titusRuntime);
 
-        Observable<JobChangeNotification> eventStream = jobOperations.observeJobs(jobsPredicate, tasksPredicate)
-                // avoid clogging the computation scheduler
-                .observeOn(observeJobsScheduler)
-                .subscribeOn(observeJobsScheduler, false)
-                .map(event -> GrpcJobManagementModelConverters.toGrpcJobChangeNotification(event, logStorageInfo))
-                .compose(ObservableExt.head(() -> {
-                    List<JobChangeNotification> snapshot = createJobsSnapshot(jobsPredicate, tasksPredicate);
-                    snapshot.add(SNAPSHOT_END_MARKER);
-                    return snapshot;
-                }))
-                .map(this::addTaskContextToJobChangeNotification)
-                .doOnError(e -> logger.error("Unexpected error in jobs event stream", e));
+        String subscriberId = callMetadataResolver.resolve().map(CallMetadata::getCallerId).orElse(CallMetadataUtils.UNKNOWN_CALLER_ID);
 
-        Subscription subscription = eventStream.subscribe(
-                responseObserver::onNext,
-                e -> responseObserver.onError(
-                        new StatusRuntimeException(Status.INTERNAL
-                                .withDescription("All jobs monitoring stream terminated with an error")
-                                .withCause(e))
-                ),
-                responseObserver::onCompleted
-        );
+        Observable<JobChangeNotification> snapshot = JobStreamRevisions.isSnapshotSkipped(query)
+                ? Observable.empty()
+                : createJobsSnapshot(jobsPredicate, tasksPredicate);
+        Observable<JobChangeNotification> eventStream = jobChangeNotificationFanOut
+                .observeJobs(subscriberId, jobsPredicate, tasksPredicate, JobStreamRevisions.getResumeToken(query),
+                        JobStreamRevisions.isStreamEndRequested(query), snapshot)
+                .doOnError(e -> {
+                    if (e instanceof StatusRuntimeException) {
+                        logger.info("Jobs event stream terminated: {}", e.getMessage());
+                    } else {
+                        logger.error("Unexpected error in jobs event stream", e);
+                    }
+                });
 
-        ServerCallStreamObserver<JobChangeNotification> serverObserver = (ServerCallStreamObserver<JobChangeNotification>) responseObserver;
-        serverObserver.setOnCancelHandler(subscription::unsubscribe);
+        // The stream of a subscriber which did not request the stream end marker fails with UNAVAILABLE on step-down.
+        subscribeWithFlowControl(eventStream, responseObserver, e -> e instanceof StatusRuntimeException
+                ? e
+                : new StatusRuntimeException(Status.INTERNAL
+                        .withDescription("All jobs monitoring stream terminated with an error")
+                        .withCause(e))
+        );
     }
 
     @Override
@@ -761,20 +778,25 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         return tierResourceLimits.stream().noneMatch(limit -> ResourceDimensions.isBigger(limit, requestedResources));
     }
 
-    private List<JobChangeNotification> createJobsSnapshot(
+    /**
+     * Returns the snapshot of jobs and tasks matching the given predicates. The job and task lists are captured
+     * when subscribed to, but the notifications are created only as they are requested, so the whole snapshot is
+     * never held in memory.
+     */
+    private Observable<JobChangeNotification> createJobsSnapshot(
             Predicate<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, List<com.netflix.titus.api.jobmanager.model.job.Task>>> jobsPredicate,
             Predicate<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task>> tasksPredicate) {
-        List<JobChangeNotification> snapshot = new ArrayList<>();
-
-        List<com.netflix.titus.api.jobmanager.model.job.Job<?>> coreJobs =
-                jobOperations.findJobs(jobsPredicate, 0, Integer.MAX_VALUE / 2);
-        coreJobs.forEach(coreJob -> snapshot.add(toJobChangeNotification(coreJob)));
-
-        List<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task>> coreTasks =
-                jobOperations.findTasks(tasksPredicate, 0, Integer.MAX_VALUE / 2);
-        coreTasks.forEach(task -> snapshot.add(toJobChangeNotification(task.getRight())));
-
-        return snapshot;
+        return Observable.defer(() -> {
+            List<com.netflix.titus.api.jobmanager.model.job.Job<?>> coreJobs =
+                    jobOperations.findJobs(jobsPredicate, 0, Integer.MAX_VALUE / 2);
+            List<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task>> coreTasks =
+                    jobOperations.findTasks(tasksPredicate, 0, Integer.MAX_VALUE / 2);
+
+            return Observable.concat(
+                    Observable.from(coreJobs).map(this::toJobChangeNotification),
+                    Observable.from(coreTasks).map(task -> toJobChangeNotification(task.getRight()))
+            ).map(this::addTaskContextToJobChangeNotification);
+        });
     }
 
     private List<JobChangeNotification> createJobSnapshot(String jobId) {
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongFunction;
+
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * Bounded, in-memory journal of the recent job change notifications. Each appended item gets the next revision
+ * number. A new epoch is started on each {@link #reset()}, which happens when the journal can no longer be trusted
+ * to be complete (for example after the event stream is re-subscribed to). Revisions are not reset together with
+ * the epoch, so they are monotonic for the lifetime of the journal. Only the last 'capacity' items are kept, so
+ * a reader which is too far behind must load a full snapshot.
+ */
+class JobChangeJournal<T> {
+
+    private final int capacity;
+    private final Object[] items;
+
+    private String epoch;
+    private long lastRevision;
+    private int size;
+
+    JobChangeJournal(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.items = new Object[this.capacity];
+        reset();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    synchronized void reset() {
+        this.epoch = UUID.randomUUID().toString();
+        this.size = 0;
+        Arrays.fill(items, null);
+    }
+
+    /**
+     * Appends a new item created for the next revision, and returns it.
+     */
+    synchronized T append(LongFunction<T> itemFactory) {
+        lastRevision++;
+        T item = itemFactory.apply(lastRevision);
+        if (capacity > 0) {
+            items[(int) (lastRevision % capacity)] = item;
+            size = Math.min(size + 1, capacity);
+        }
+        return item;
+    }
+
+    /**
+     * Returns the current (epoch, last revision) pair.
+     */
+    synchronized Pair<String, Long> getPosition() {
+        return Pair.of(epoch, lastRevision);
+    }
+
+    /**
+     * Returns all items appended after the given revision, or {@link Optional#empty()} if the epoch has changed,
+     * or some items following the given revision are no longer in the journal.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized Optional<List<T>> readAfter(String fromEpoch, long fromRevision) {
+        if (!epoch.equals(fromEpoch) || fromRevision > lastRevision || fromRevision < lastRevision - size) {
+            return Optional.empty();
+        }
+        List<T> result = new ArrayList<>((int) (lastRevision - fromRevision));
+        for (long revision = fromRevision + 1; revision <= lastRevision; revision++) {
+            result.add((T) items[(int) (revision % capacity)]);
+        }
+        return Optional.of(result);
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.JobManagerException;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.runtime.endpoint.v3.grpc.JobStreamRevisions;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+import rx.exceptions.MissingBackpressureException;
+import rx.subjects.PublishSubject;
+import rx.subjects.UnicastSubject;
+
+import static com.netflix.titus.common.util.FunctionExt.alwaysTrue;
+
+/**
+ * Shares a single job manager event stream between all observeJobs subscribers. Each event is converted to
+ * {@link JobChangeNotification} once, and the same immutable message instance is sent to all subscribers, which
+ * only evaluate their query predicates. Each subscriber has its own bounded buffer, so a slow subscriber does not
+ * hold back the others. A subscriber which overflows its buffer is terminated with an error.
+ * <p>
+ * Each event gets a revision, and is recorded in a bounded {@link JobChangeJournal}. A subscriber which provides
+ * the resume token of the last event it has seen, gets the events it missed from the journal instead of a full
+ * snapshot. To keep the journal complete, the shared stream is kept subscribed to once the first subscriber arrives.
+ * If the journal is disabled, the shared stream is released after the last subscriber is gone.
+ * <p>
+ * When the job manager steps down cleanly, the shared stream completes. A subscriber which requested it gets the stream
+ * end marker as the last item, and its stream completes. Other subscriber streams fail with {@link Status#UNAVAILABLE},
+ * so the clients reconnect as before. If the job manager stops with a change action interrupted, all subscriber streams
+ * fail.
+ */
+class JobChangeNotificationFanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobChangeNotificationFanOut.class);
+
+    static final String METRIC_ROOT = MetricConstants.METRIC_ROOT + "jobManager.observeJobs.";
+
+    /**
+     * Revision of the head (snapshot or journal replay) items, which are never filtered out.
+     */
+    private static final long HEAD_REVISION = -1;
+
+    private final V3JobOperations jobOperations;
+    private final Function<JobManagerEvent<?>, JobChangeNotification> encoder;
+    private final int subscriberBufferSize;
+    private final int snapshotChunkSize;
+    private final Scheduler scheduler;
+    private final Registry registry;
+
+    private final JobChangeJournal<EncodedEvent> journal;
+    private final Observable<EncodedEvent> sharedEvents;
+    private final AtomicBoolean journalFeedActive = new AtomicBoolean();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Id encodedEventsId;
+    private final Id subscriberLagId;
+    private final Id subscriberBufferSizeId;
+    private final Id subscriberPeakBufferSizeId;
+    private final Id subscriptionsId;
+    private final Id headDurationId;
+    private final Id headBytesId;
+
+    JobChangeNotificationFanOut(V3JobOperations jobOperations,
+                                Function<JobManagerEvent<?>, JobChangeNotification> encoder,
+                                int subscriberBufferSize,
+                                int snapshotChunkSize,
+                                int journalSize,
+                                Scheduler scheduler,
+                                Registry registry) {
+        this.jobOperations = jobOperations;
+        this.encoder = encoder;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.snapshotChunkSize = snapshotChunkSize;
+        this.scheduler = scheduler;
+        this.registry = registry;
+        this.journal = new JobChangeJournal<>(journalSize);
+
+        this.encodedEventsId = registry.createId(METRIC_ROOT + "encodedEvents");
+        this.subscriberLagId = registry.createId(METRIC_ROOT + "subscriberLag");
+        this.subscriberBufferSizeId = registry.createId(METRIC_ROOT + "subscriberBufferSize");
+        this.subscriberPeakBufferSizeId = registry.createId(METRIC_ROOT + "subscriberPeakBufferSize");
+        this.subscriptionsId = registry.createId(METRIC_ROOT + "subscriptions");
+        this.headDurationId = registry.createId(METRIC_ROOT + "snapshotDuration");
+        this.headBytesId = registry.createId(METRIC_ROOT + "snapshotBytes");
+        PolledMeter.using(registry).withName(METRIC_ROOT + "subscribers").monitorValue(subscriberCount);
+
+        this.sharedEvents = Observable.defer(() -> jobOperations.observeJobs(alwaysTrue(), alwaysTrue()))
+                // avoid clogging the computation scheduler
+                .observeOn(scheduler)
+                .subscribeOn(scheduler, false)
+                // Events from a new subscription do not continue the previous ones, so the journal starts a new epoch.
+                .doOnSubscribe(journal::reset)
+                .map(this::encode)
+                .share();
+    }
+
+    /**
+     * Returns the stream of events matching the given predicates, as seen by the subscriber with the given id. The
+     * subscriber id is used to tag its metrics. The stream starts with the events missed since the resume token
+     * position if they are still in the journal, or a full snapshot otherwise, followed by the snapshot end marker.
+     * The snapshot observable should capture the state when subscribed to, and encode the items lazily, as they are
+     * requested. Live events received in the meantime are buffered (up to the subscriber buffer size). If the stream
+     * end marker is requested, it is emitted after the last event, when the job manager steps down cleanly. Otherwise
+     * the stream fails with {@link Status#UNAVAILABLE} error.
+     */
+    Observable<JobChangeNotification> observeJobs(String subscriberId,
+                                                  Predicate<Pair<Job<?>, List<Task>>> jobsPredicate,
+                                                  Predicate<Pair<Job<?>, Task>> tasksPredicate,
+                                                  Optional<String> resumeToken,
+                                                  boolean streamEndRequested,
+                                                  Observable<JobChangeNotification> snapshot) {
+        return Observable.defer(() -> {
+            startJournalFeed();
+
+            // PolledMeter holds a weak reference only, so the gauges are removed once the subscription is gone.
+            AtomicLong buffered = PolledMeter.using(registry)
+                    .withId(subscriberBufferSizeId.withTag("subscriber", subscriberId))
+                    .monitorValue(new AtomicLong());
+            AtomicLong peakBuffered = PolledMeter.using(registry)
+                    .withId(subscriberPeakBufferSizeId.withTag("subscriber", subscriberId))
+                    .monitorValue(new AtomicLong());
+            Id lagId = subscriberLagId.withTag("subscriber", subscriberId);
+
+            // Set when the head is built. Live events up to this revision are already included in the head.
+            AtomicLong headRevision = new AtomicLong();
+
+            // Subscribe to the live events before the head is built, so no event is lost. They are buffered until
+            // the head is fully consumed. A buffer overflow is reported immediately, without waiting for the head.
+            UnicastSubject<EncodedEvent> liveEvents = UnicastSubject.create();
+            PublishSubject<Pair<Long, JobChangeNotification>> overflow = PublishSubject.create();
+            Subscription liveSubscription = sharedEvents
+                    .filter(event -> event.matches(jobsPredicate, tasksPredicate))
+                    .doOnNext(event -> {
+                        long size = buffered.incrementAndGet();
+                        if (size > peakBuffered.get()) {
+                            peakBuffered.set(size);
+                        }
+                        if (size > subscriberBufferSize) {
+                            logger.warn("Overflowed the buffer of observeJobs subscriber {} (size={})", subscriberId, subscriberBufferSize);
+                            MissingBackpressureException error = new MissingBackpressureException("observeJobs subscriber buffer overflow");
+                            overflow.onError(error);
+                            throw Exceptions.propagate(error);
+                        }
+                    })
+                    .subscribe(liveEvents);
+
+            Observable<Pair<Long, JobChangeNotification>> head = Observable
+                    .defer(() -> newHead(subscriberId, jobsPredicate, tasksPredicate, resumeToken, snapshot, headRevision))
+                    .map(notification -> Pair.of(HEAD_REVISION, notification));
+            Observable<Pair<Long, JobChangeNotification>> live = liveEvents.map(event -> {
+                buffered.decrementAndGet();
+                registry.timer(lagId).record(registry.clock().monotonicTime() - event.getEncodeTime(), TimeUnit.NANOSECONDS);
+                return Pair.of(event.getRevision(), event.getNotification());
+            });
+            if (streamEndRequested) {
+                live = live.concatWith(Observable.fromCallable(() -> {
+                    Pair<String, Long> position = journal.getPosition();
+                    return Pair.of(HEAD_REVISION, JobStreamRevisions.newStreamEnd(position.getLeft(), position.getRight()));
+                }));
+            } else {
+                // Clients which do not know the stream end marker reconnect on errors only.
+                live = live.concatWith(Observable.error(new StatusRuntimeException(
+                        Status.UNAVAILABLE.withDescription("Job manager stepped down; reconnect to the new leader")
+                )));
+            }
+            // The overflow stream never emits items, so it must complete with the live events.
+            live = live.doOnCompleted(overflow::onCompleted);
+
+            return Observable.merge(Observable.concat(head, live), overflow)
+                    .filter(pair -> pair.getLeft() == HEAD_REVISION || pair.getLeft() > headRevision.get())
+                    .map(Pair::getRight)
+                    // Items are produced in chunks as requested by the subscriber, and never all at once.
+                    .observeOn(scheduler, snapshotChunkSize)
+                    .doOnSubscribe(subscriberCount::incrementAndGet)
+                    .doOnUnsubscribe(() -> {
+                        subscriberCount.decrementAndGet();
+                        liveSubscription.unsubscribe();
+                        buffered.set(0);
+                    });
+        });
+    }
+
+    private Observable<JobChangeNotification> newHead(String subscriberId,
+                                                      Predicate<Pair<Job<?>, List<Task>>> jobsPredicate,
+                                                      Predicate<Pair<Job<?>, Task>> tasksPredicate,
+                                                      Optional<String> resumeToken,
+                                                      Observable<JobChangeNotification> snapshot,
+                                                      AtomicLong headRevision) {
+        Optional<Pair<String, Long>> resumeFrom = resumeToken.flatMap(JobStreamRevisions::parseResumeToken);
+        if (resumeFrom.isPresent()) {
+            String epoch = resumeFrom.get().getLeft();
+            long revision = resumeFrom.get().getRight();
+            Optional<List<EncodedEvent>> missed = journal.readAfter(epoch, revision);
+            if (missed.isPresent()) {
+                List<JobChangeNotification> head = new ArrayList<>();
+                missed.get().forEach(event -> {
+                    if (event.matches(jobsPredicate, tasksPredicate)) {
+                        head.add(event.getNotification());
+                    }
+                });
+                long lastRevision = revision + missed.get().size();
+                headRevision.set(lastRevision);
+                head.add(JobStreamRevisions.newSnapshotEnd(epoch, lastRevision, true));
+
+                logger.info("Resumed observeJobs subscriber {} from revision {}: {} missed events", subscriberId, revision, head.size() - 1);
+                return instrumentHead(Observable.from(head), "resumed");
+            }
+            logger.info("Cannot resume observeJobs subscriber {} from {}; sending full snapshot", subscriberId, resumeToken.get());
+        }
+
+        // The position is taken before the snapshot, so all events up to it are already included in the snapshot.
+        Pair<String, Long> position = journal.getPosition();
+        headRevision.set(position.getRight());
+        return instrumentHead(
+                snapshot.concatWith(Observable.fromCallable(() -> JobStreamRevisions.newSnapshotEnd(position.getLeft(), position.getRight(), false))),
+                "snapshot"
+        );
+    }
+
+    private Observable<JobChangeNotification> instrumentHead(Observable<JobChangeNotification> head, String mode) {
+        registry.counter(subscriptionsId.withTag("mode", mode)).increment();
+
+        long startTime = registry.clock().monotonicTime();
+        AtomicLong bytes = new AtomicLong();
+        return head
+                .doOnNext(notification -> bytes.addAndGet(notification.getSerializedSize()))
+                .doOnCompleted(() -> {
+                    registry.timer(headDurationId.withTag("mode", mode)).record(registry.clock().monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+                    registry.distributionSummary(headBytesId.withTag("mode", mode)).record(bytes.get());
+                });
+    }
+
+    /**
+     * Keeps the shared stream subscribed to, so events are recorded in the journal when there are no subscribers.
+     */
+    private void startJournalFeed() {
+        if (journal.getCapacity() == 0 || !journalFeedActive.compareAndSet(false, true)) {
+            return;
+        }
+        sharedEvents.subscribe(
+                event -> {
+                },
+                e -> {
+                    logger.warn("Job change journal feed terminated with an error", e);
+                    journalFeedActive.set(false);
+                },
+                () -> journalFeedActive.set(false)
+        );
+    }
+
+    private EncodedEvent encode(JobManagerEvent<?> event) {
+        registry.counter(encodedEventsId).increment();
+        List<Task> tasks = event instanceof TaskUpdateEvent ? Collections.emptyList() : new LazyTaskList(((Job<?>) event.getCurrent()).getId());
+        JobChangeNotification notification = encoder.apply(event);
+        long encodeTime = registry.clock().monotonicTime();
+        return journal.append(revision -> new EncodedEvent(event, tasks, JobStreamRevisions.withRevision(notification, revision), revision, encodeTime));
+    }
+
+    private List<Task> findTasks(String jobId) {
+        try {
+            return jobOperations.getTasks(jobId);
+        } catch (JobManagerException e) {
+            // The job is already removed
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Tasks of a job, read from the job manager on first access. Only the job query predicates with task criteria
+     * access the task list, so for other subscribers the tasks are never read.
+     */
+    private class LazyTaskList extends AbstractList<Task> {
+
+        private final String jobId;
+        private volatile List<Task> tasks;
+
+        private LazyTaskList(String jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public Task get(int index) {
+            return getTasks().get(index);
+        }
+
+        @Override
+        public int size() {
+            return getTasks().size();
+        }
+
+        private List<Task> getTasks() {
+            if (tasks == null) {
+                tasks = findTasks(jobId);
+            }
+            return tasks;
+        }
+    }
+
+    private static class EncodedEvent {
+
+        private final JobManagerEvent<?> event;
+        private final List<Task> tasks;
+        private final JobChangeNotification notification;
+        private final long revision;
+        private final long encodeTime;
+
+        private EncodedEvent(JobManagerEvent<?> event, List<Task> tasks, JobChangeNotification notification, long revision, long encodeTime) {
+            this.event = event;
+            this.tasks = tasks;
+            this.notification = notification;
+            this.revision = revision;
+            this.encodeTime = encodeTime;
+        }
+
+        private JobChangeNotification getNotification() {
+            return notification;
+        }
+
+        private long getRevision() {
+            return revision;
+        }
+
+        private long getEncodeTime() {
+            return encodeTime;
+        }
+
+        private boolean matches(Predicate<Pair<Job<?>, List<Task>>> jobsPredicate, Predicate<Pair<Job<?>, Task>> tasksPredicate) {
+            if (event instanceof TaskUpdateEvent) {
+                TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
+                return tasksPredicate.test(Pair.of(taskUpdateEvent.getCurrentJob(), taskUpdateEvent.getCurrentTask()));
+            }
+            return jobsPredicate.test(Pair.of((Job<?>) event.getCurrent(), tasks));
+        }
+    }
+}
@@ -95,6 +95,7 @@ import rx.Completable;
 import rx.Observable;
 import rx.Subscription;
 import rx.functions.Func1;
+import rx.subjects.BehaviorSubject;
 
 import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_STRICT_SANITIZER;
 import static com.netflix.titus.common.util.FunctionExt.alwaysTrue;
@@ -122,9 +123,16 @@ public class DefaultV3JobOperations implements V3JobOperations {
     private final EntitySanitizer entitySanitizer;
 
     private ReconciliationFramework<JobManagerReconcilerEvent> reconciliationFramework;
+    private JobQueryPlanner queryPlanner;
     private Subscription transactionLoggerSubscription;
     private Subscription reconcilerEventSubscription;
 
+    /**
+     * Completes when the job manager steps down after stopping all reconciliation engines cleanly, or fails if a
+     * change action was interrupted, so its outcome could have been persisted without an event.
+     */
+    private final BehaviorSubject<Void> stepDownSubject = BehaviorSubject.create();
+
     /**
      * WARNING: we depend here on {@link ManagementSubsystemInitializer} to enforce proper initialization order.
      */
@@ -154,6 +162,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
     @Activator
     public void enterActiveMode() {
         this.reconciliationFramework = jobReconciliationFrameworkFactory.newInstance();
+        this.queryPlanner = new JobQueryPlanner(reconciliationFramework, titusRuntime.getRegistry());
         this.transactionLoggerSubscription = JobTransactionLogger.logEvents(reconciliationFramework);
 
         // Remove finished jobs from the reconciliation framework.
@@ -201,11 +210,25 @@ public class DefaultV3JobOperations implements V3JobOperations {
         }
     }
 
+    /**
+     * Stops the reconciliation framework, and terminates the {@link #observeJobs(Predicate, Predicate)} streams. The
+     * streams complete if no change action was interrupted, so all changes written to the store were emitted as
+     * events, and fail otherwise. Calling this method more than once has no effect.
+     */
     @PreDestroy
-    public void shutdown() {
+    public synchronized void shutdown() {
+        if (stepDownSubject.hasCompleted() || stepDownSubject.hasThrowable()) {
+            return;
+        }
         ObservableExt.safeUnsubscribe(transactionLoggerSubscription, reconcilerEventSubscription);
-        if (reconciliationFramework != null) {
-            reconciliationFramework.stop(RECONCILER_SHUTDOWN_TIMEOUT_MS);
+        if (reconciliationFramework == null) {
+            stepDownSubject.onCompleted();
+        } else if (reconciliationFramework.stop(RECONCILER_SHUTDOWN_TIMEOUT_MS)) {
+            logger.info("Job manager stepped down cleanly");
+            stepDownSubject.onCompleted();
+        } else {
+            logger.warn("Job manager stopped with change actions interrupted or not finished in {}ms", RECONCILER_SHUTDOWN_TIMEOUT_MS);
+            stepDownSubject.onError(new IllegalStateException("Job manager stopped with change actions interrupted"));
         }
     }
 
@@ -284,19 +307,23 @@ public class DefaultV3JobOperations implements V3JobOperations {
 
     @Override
     public List<Job<?>> findJobs(Predicate<Pair<Job<?>, List<Task>>> queryPredicate, int offset, int limit) {
-        List<EntityHolder> jobHolders = reconciliationFramework.orderedView(IndexKind.StatusCreationTime);
-        return jobHolders.stream().map(this::toJobTasksPair)
+        long startTime = titusRuntime.getRegistry().clock().monotonicTime();
+        JobQueryPlanner.Plan plan = queryPlanner.plan(queryPredicate);
+        List<Job<?>> result = plan.getJobHolders().stream().map(this::toJobTasksPair)
                 .filter(queryPredicate)
                 .skip(offset)
                 .limit(limit)
                 .map(Pair::getLeft)
                 .collect(Collectors.toList());
+        queryPlanner.recordLatency("findJobs", plan, startTime);
+        return result;
     }
 
     @Override
     public List<Pair<Job<?>, Task>> findTasks(Predicate<Pair<Job<?>, Task>> queryPredicate, int offset, int limit) {
-        List<EntityHolder> jobHolders = reconciliationFramework.orderedView(IndexKind.StatusCreationTime);
-        return jobHolders.stream()
+        long startTime = titusRuntime.getRegistry().clock().monotonicTime();
+        JobQueryPlanner.Plan plan = queryPlanner.plan(queryPredicate);
+        List<Pair<Job<?>, Task>> result = plan.getJobHolders().stream()
                 .filter(jobHolder -> !jobHolder.getChildren().isEmpty())
                 .flatMap(jobHolder -> jobHolder.getChildren().stream().map(
                         taskHolder -> Pair.<Job<?>, Task>of(jobHolder.getEntity(), taskHolder.getEntity())
@@ -305,6 +332,8 @@ public class DefaultV3JobOperations implements V3JobOperations {
                 .skip(offset)
                 .limit(limit)
                 .collect(Collectors.toList());
+        queryPlanner.recordLatency("findTasks", plan, startTime);
+        return result;
     }
 
     @Override
@@ -534,6 +563,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
     public Observable<JobManagerEvent<?>> observeJobs(Predicate<Pair<Job<?>, List<Task>>> jobsPredicate,
                                                       Predicate<Pair<Job<?>, Task>> tasksPredicate) {
         Observable<JobManagerReconcilerEvent> events = reconciliationFramework.events()
+                .takeUntil(stepDownSubject)
                 .onBackpressureBuffer(
                         OBSERVE_JOBS_BACKPRESSURE_BUFFER_SIZE,
                         () -> logger.warn("Overflowed the buffer size: " + OBSERVE_JOBS_BACKPRESSURE_BUFFER_SIZE),
@@ -34,6 +34,13 @@ public interface JobManagerConfiguration {
     @DefaultValue("1")
     long getReconcilerActiveTimeoutMs();
 
+    /**
+     * Number of reconciliation framework shards. Jobs are partitioned by their id between the shards, and each shard
+     * runs its own reconciliation loop. The value is read once during the framework initialization.
+     */
+    @DefaultValue("1")
+    int getReconcilerShardCount();
+
     /**
      * How many active tasks in the transient state (in other words not Started and not Finished) are allowed in a job.
      * If the number of active tasks in the transient state goes above this limit, no new tasks are created.
@@ -105,4 +112,40 @@ public interface JobManagerConfiguration {
      */
     @DefaultValue("200")
     int getKubeEventConcurrencyLimit();
+
+    /**
+     * Maximum number of Kube events accepted ahead of their processing. Events for a task with an event still in
+     * processing are queued, so this limit should be much higher than {@link #getKubeEventConcurrencyLimit()}.
+     */
+    @DefaultValue("10000")
+    int getKubeEventQueueLimit();
+
+    /**
+     * If enabled, a master that is not the leader keeps a copy of the active jobs and tasks, which is refreshed from
+     * the store for each job changed by the leader. If the leader stepped down cleanly, after the election only the job
+     * records, and tasks of jobs with changes not refreshed yet are read from the store. Otherwise all jobs and tasks
+     * are loaded from the store.
+     */
+    @DefaultValue("false")
+    boolean isWarmStandbyEnabled();
+
+    /**
+     * Interval at which a standby master re-reads from the store jobs changed by the leader.
+     */
+    @DefaultValue("1000")
+    long getWarmStandbyRefreshIntervalMs();
+
+    /**
+     * Maximum number of changed jobs that a standby master re-reads with their tasks from the store in one refresh
+     * interval. Jobs above this limit are re-read in the following intervals.
+     */
+    @DefaultValue("500")
+    int getWarmStandbyMaxJobRefreshesPerInterval();
+
+    /**
+     * The replicated state is used only if the election happens within this time after the leader stepped down.
+     * Otherwise, it is dropped, and all jobs and tasks are loaded from the store.
+     */
+    @DefaultValue("30000")
+    long getWarmStandbyMaxStepDownAgeMs();
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.titus.master.endpoint.grpc.TitusMasterGrpcServer;
+
+/**
+ * Stops the job manager before the GRPC server is shut down, so the observeJobs subscribers (for example a warm
+ * standby master) receive all job events followed by the stream end marker. Pre-destroy methods are called in the
+ * reverse order of the object creation, and this object is created after the GRPC server it depends on.
+ */
+@Singleton
+public class JobManagerStepDownHandler {
+
+    private final DefaultV3JobOperations jobOperations;
+
+    @Inject
+    public JobManagerStepDownHandler(DefaultV3JobOperations jobOperations, TitusMasterGrpcServer grpcServer) {
+        this.jobOperations = jobOperations;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobOperations.shutdown();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.service.IndexedJobQuery;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.jobmanager.service.DefaultV3JobOperations.IndexKind;
+
+/**
+ * Resolves the candidate jobs for {@link DefaultV3JobOperations#findJobs} and {@link DefaultV3JobOperations#findTasks}
+ * queries. If the query predicate implements {@link IndexedJobQuery}, the index with the smallest number of matching
+ * jobs is used. Otherwise, or if no index narrows the result, all jobs are scanned. The candidate jobs are always
+ * returned in the {@link IndexKind#StatusCreationTime} order, so the query result (and its pagination) does not depend
+ * on the chosen plan. The caller must still evaluate the full query predicate on each candidate.
+ */
+class JobQueryPlanner {
+
+    static final String METRIC_QUERY_LATENCY = MetricConstants.METRIC_ROOT + "jobManager.query.latency";
+
+    static final String SCAN_PLAN = "scan";
+    private static final String UNKNOWN_SHAPE = "unknown";
+
+    private static final Comparator<EntityHolder> STATUS_CREATION_TIME_ORDER =
+            ((Comparator<EntityHolder>) JobReconciliationFrameworkFactory::compareByStatusCreationTime).thenComparing(EntityHolder::getId);
+
+    private final ReconciliationFramework<?> reconciliationFramework;
+    private final Registry registry;
+    private final Id queryLatencyId;
+
+    JobQueryPlanner(ReconciliationFramework<?> reconciliationFramework, Registry registry) {
+        this.reconciliationFramework = reconciliationFramework;
+        this.registry = registry;
+        this.queryLatencyId = registry.createId(METRIC_QUERY_LATENCY);
+    }
+
+    Plan plan(Object queryPredicate) {
+        List<EntityHolder> allJobs = reconciliationFramework.orderedView(IndexKind.StatusCreationTime);
+        if (!(queryPredicate instanceof IndexedJobQuery)) {
+            return new Plan(UNKNOWN_SHAPE, SCAN_PLAN, allJobs);
+        }
+        IndexedJobQuery indexedQuery = (IndexedJobQuery) queryPredicate;
+
+        IndexedJobQuery.Index bestIndex = null;
+        int bestEstimate = allJobs.size();
+        for (Map.Entry<IndexedJobQuery.Index, Set<String>> entry : indexedQuery.getIndexedCriteria().entrySet()) {
+            int estimate = estimate(entry.getKey(), entry.getValue());
+            if (estimate < bestEstimate) {
+                bestIndex = entry.getKey();
+                bestEstimate = estimate;
+            }
+        }
+        if (bestIndex == null) {
+            return new Plan(indexedQuery.getCriteriaShape(), SCAN_PLAN, allJobs);
+        }
+
+        List<EntityHolder> candidates = new ArrayList<>(resolve(bestIndex, indexedQuery.getIndexedCriteria().get(bestIndex)).values());
+        candidates.sort(STATUS_CREATION_TIME_ORDER);
+        return new Plan(indexedQuery.getCriteriaShape(), bestIndex.name(), candidates);
+    }
+
+    void recordLatency(String method, Plan plan, long startTimeNanos) {
+        registry.timer(queryLatencyId
+                .withTag("method", method)
+                .withTag("shape", plan.getCriteriaShape())
+                .withTag("plan", plan.getName())
+        ).record(registry.clock().monotonicTime() - startTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Upper bound of the number of jobs matching any of the given index keys.
+     */
+    private int estimate(IndexedJobQuery.Index index, Set<String> keys) {
+        switch (index) {
+            case JobId:
+            case TaskId:
+                return keys.size();
+            default:
+                int total = 0;
+                for (String key : keys) {
+                    total += reconciliationFramework.indexedView(index, key).size();
+                }
+                return total;
+        }
+    }
+
+    private Map<String, EntityHolder> resolve(IndexedJobQuery.Index index, Set<String> keys) {
+        Map<String, EntityHolder> result = new HashMap<>();
+        for (String key : keys) {
+            switch (index) {
+                case JobId:
+                    reconciliationFramework.findEngineByRootId(key).ifPresent(engine -> {
+                        EntityHolder jobHolder = engine.getReferenceView();
+                        result.put(jobHolder.getId(), jobHolder);
+                    });
+                    break;
+                case TaskId:
+                    reconciliationFramework.findEngineByChildId(key).ifPresent(engineAndTask -> {
+                        EntityHolder jobHolder = engineAndTask.getLeft().getReferenceView();
+                        result.put(jobHolder.getId(), jobHolder);
+                    });
+                    break;
+                default:
+                    result.putAll(reconciliationFramework.indexedView(index, key));
+            }
+        }
+        return result;
+    }
+
+    static class Plan {
+
+        private final String criteriaShape;
+        private final String name;
+        private final List<EntityHolder> jobHolders;
+
+        private Plan(String criteriaShape, String name, List<EntityHolder> jobHolders) {
+            this.criteriaShape = criteriaShape;
+            this.name = name;
+            this.jobHolders = jobHolders;
+        }
+
+        String getCriteriaShape() {
+            return criteriaShape;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        List<EntityHolder> getJobHolders() {
+            return jobHolders;
+        }
+    }
+}
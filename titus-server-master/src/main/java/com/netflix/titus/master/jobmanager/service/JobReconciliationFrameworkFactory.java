@@ -25,11 +25,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import com.google.common.collect.ImmutableMap;
 import com.netflix.fenzo.TaskRequest;
 import com.netflix.spectator.api.BasicTag;
 import com.netflix.spectator.api.Gauge;
@@ -46,6 +51,7 @@ import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TwoLevelResource;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.service.IndexedJobQuery;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.jobmanager.store.JobStore;
 import com.netflix.titus.api.model.Tier;
@@ -68,10 +74,13 @@ import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.jobmanager.service.DefaultV3JobOperations.IndexKind;
 import com.netflix.titus.master.jobmanager.service.common.SecurityGroupUtils;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.jobmanager.service.common.action.JobEntityHolders;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
 import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
 import com.netflix.titus.master.jobmanager.service.event.JobEventFactory;
 import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+import com.netflix.titus.master.jobmanager.service.standby.StandbyJobSnapshot;
+import com.netflix.titus.master.jobmanager.service.standby.StandbyJobStateReplicator;
 import com.netflix.titus.master.scheduler.SchedulingService;
 import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
 import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
@@ -111,6 +120,13 @@ public class JobReconciliationFrameworkFactory {
             IndexKind.StatusCreationTime, JobReconciliationFrameworkFactory::compareByStatusCreationTime
     );
 
+    private static final Map<Object, Function<EntityHolder, Set<String>>> INDEX_KEY_EXTRACTORS = ImmutableMap.of(
+            IndexedJobQuery.Index.ApplicationName, jobHolder -> keyOf(jobDescriptorOf(jobHolder).getApplicationName()),
+            IndexedJobQuery.Index.CapacityGroup, jobHolder -> keyOf(jobDescriptorOf(jobHolder).getCapacityGroup()),
+            IndexedJobQuery.Index.ImageName, jobHolder -> keyOf(jobDescriptorOf(jobHolder).getContainer().getImage().getName()),
+            IndexedJobQuery.Index.TaskState, JobEntityHolders::taskStatesOf
+    );
+
     private final DifferenceResolver<JobManagerReconcilerEvent> dispatchingResolver;
     private final JobManagerConfiguration jobManagerConfiguration;
     private final JobStore store;
@@ -126,10 +142,18 @@ public class JobReconciliationFrameworkFactory {
     private final Registry registry;
     private final Clock clock;
     private final Optional<Scheduler> optionalScheduler;
+    private final Optional<StandbyJobStateReplicator> standbyReplicator;
 
     private final Gauge loadedJobs;
     private final Gauge loadedTasks;
     private final Gauge storeLoadTimeMs;
+    private final Gauge storeInitTimeMs;
+    private final Gauge jobsLoadTimeMs;
+    private final Gauge firstEngineTimeMs;
+    private final Gauge engineCreateTimeMs;
+    private final Gauge bootstrapTimeMs;
+    private final Gauge standbyRestoredJobs;
+    private final Gauge standbyVerifiedJobs;
 
     @Inject
     public JobReconciliationFrameworkFactory(JobManagerConfiguration jobManagerConfiguration,
@@ -144,11 +168,12 @@ public class JobReconciliationFrameworkFactory {
                                              ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
                                              @Named(JOB_PERMISSIVE_SANITIZER) EntitySanitizer permissiveEntitySanitizer,
                                              @Named(JOB_STRICT_SANITIZER) EntitySanitizer strictEntitySanitizer,
+                                             StandbyJobStateReplicator standbyReplicator,
                                              TitusRuntime titusRuntime) {
         this(jobManagerConfiguration, featureConfiguration, batchDifferenceResolver, serviceDifferenceResolver, store,
                 schedulingService, capacityGroupService, systemSoftConstraint, systemHardConstraint,
                 constraintEvaluatorTransformer, permissiveEntitySanitizer, strictEntitySanitizer, titusRuntime,
-                Optional.empty());
+                Optional.empty(), Optional.of(standbyReplicator));
     }
 
     public JobReconciliationFrameworkFactory(JobManagerConfiguration jobManagerConfiguration,
@@ -165,6 +190,27 @@ public class JobReconciliationFrameworkFactory {
                                              EntitySanitizer strictEntitySanitizer,
                                              TitusRuntime titusRuntime,
                                              Optional<Scheduler> optionalScheduler) {
+        this(jobManagerConfiguration, featureConfiguration, batchDifferenceResolver, serviceDifferenceResolver, store,
+                schedulingService, capacityGroupService, systemSoftConstraint, systemHardConstraint,
+                constraintEvaluatorTransformer, permissiveEntitySanitizer, strictEntitySanitizer, titusRuntime,
+                optionalScheduler, Optional.empty());
+    }
+
+    private JobReconciliationFrameworkFactory(JobManagerConfiguration jobManagerConfiguration,
+                                              FeatureActivationConfiguration featureConfiguration,
+                                              DifferenceResolver<JobManagerReconcilerEvent> batchDifferenceResolver,
+                                              DifferenceResolver<JobManagerReconcilerEvent> serviceDifferenceResolver,
+                                              JobStore store,
+                                              SchedulingService<? extends TaskRequest> schedulingService,
+                                              ApplicationSlaManagementService capacityGroupService,
+                                              SystemSoftConstraint systemSoftConstraint,
+                                              SystemHardConstraint systemHardConstraint,
+                                              ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
+                                              EntitySanitizer permissiveEntitySanitizer,
+                                              EntitySanitizer strictEntitySanitizer,
+                                              TitusRuntime titusRuntime,
+                                              Optional<Scheduler> optionalScheduler,
+                                              Optional<StandbyJobStateReplicator> standbyReplicator) {
         this.jobManagerConfiguration = jobManagerConfiguration;
         this.featureConfiguration = featureConfiguration;
         this.store = store;
@@ -176,6 +222,7 @@ public class JobReconciliationFrameworkFactory {
         this.permissiveEntitySanitizer = permissiveEntitySanitizer;
         this.strictEntitySanitizer = strictEntitySanitizer;
         this.optionalScheduler = optionalScheduler;
+        this.standbyReplicator = standbyReplicator;
         this.errorCollector = new InitializationErrorCollector(jobManagerConfiguration, titusRuntime);
         this.titusRuntime = titusRuntime;
         this.registry = titusRuntime.getRegistry();
@@ -184,6 +231,13 @@ public class JobReconciliationFrameworkFactory {
         this.loadedJobs = registry.gauge(ROOT_METRIC_NAME + "loadedJobs");
         this.loadedTasks = registry.gauge(ROOT_METRIC_NAME + "loadedTasks");
         this.storeLoadTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeLoadTimeMs");
+        this.storeInitTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeInitTimeMs");
+        this.jobsLoadTimeMs = registry.gauge(ROOT_METRIC_NAME + "jobsLoadTimeMs");
+        this.firstEngineTimeMs = registry.gauge(ROOT_METRIC_NAME + "firstEngineTimeMs");
+        this.engineCreateTimeMs = registry.gauge(ROOT_METRIC_NAME + "engineCreateTimeMs");
+        this.bootstrapTimeMs = registry.gauge(ROOT_METRIC_NAME + "bootstrapTimeMs");
+        this.standbyRestoredJobs = registry.gauge(ROOT_METRIC_NAME + "standbyRestoredJobs");
+        this.standbyVerifiedJobs = registry.gauge(ROOT_METRIC_NAME + "standbyVerifiedJobs");
 
         this.dispatchingResolver = DifferenceResolvers.dispatcher(rootModel -> {
             Job<?> job = rootModel.getEntity();
@@ -199,51 +253,71 @@ public class JobReconciliationFrameworkFactory {
     }
 
     ReconciliationFramework<JobManagerReconcilerEvent> newInstance() {
-        List<Pair<Job, List<Task>>> jobsAndTasks = checkGlobalConsistency(loadJobsAndTasksFromStore(errorCollector));
+        long startTime = clock.wallTime();
 
-        // initialize fenzo with running tasks
+        // Engines are created as soon as a job and all its tasks are loaded, while other jobs are still being fetched.
         List<InternalReconciliationEngine<JobManagerReconcilerEvent>> engines = new ArrayList<>();
-        for (Pair<Job, List<Task>> pair : jobsAndTasks) {
-            Job job = pair.getLeft();
-            List<Task> tasks = pair.getRight();
-            InternalReconciliationEngine<JobManagerReconcilerEvent> engine = newRestoredEngine(job, tasks);
-            engines.add(engine);
-            for (Task task : tasks) {
-                Optional<Task> validatedTask = validateTask(task);
-                if (validatedTask.isPresent()) {
-                    if (!JobFunctions.isOwnedByKubeScheduler(task)) {
-                        TaskFenzoCheck check = addTaskToFenzo(engine, job, task);
-                        if (check == TaskFenzoCheck.FenzoAddError) {
-                            errorCollector.taskAddToFenzoError(task.getId());
-                        } else if (check == TaskFenzoCheck.Inconsistent) {
-                            errorCollector.inconsistentTask(task.getId());
-                        }
-                    }
-                } else {
-                    errorCollector.invalidTaskRecord(task.getId());
-                }
+        Map<String, Map<String, Set<String>>> eniAssignmentMap = new HashMap<>();
+        AtomicLong engineCreateTime = new AtomicLong();
+        loadJobsAndTasksFromStore(errorCollector, (job, tasks) -> {
+            long engineStartTime = clock.wallTime();
+            engines.add(newRestoredEngineWithFenzoTasks(job, checkEniAssignments(tasks, eniAssignmentMap)));
+            if (engines.size() == 1) {
+                firstEngineTimeMs.set(clock.wallTime() - startTime);
             }
-        }
+            engineCreateTime.addAndGet(clock.wallTime() - engineStartTime);
+        });
+        engineCreateTimeMs.set(engineCreateTime.get());
+
+        // Report overlaps
+        eniAssignmentMap.forEach((eniSignature, assignments) -> {
+            if (assignments.size() > 1) {
+                errorCollector.eniOverlaps(eniSignature, assignments);
+            }
+        });
 
         errorCollector.failIfTooManyBadRecords();
+        bootstrapTimeMs.set(clock.wallTime() - startTime);
 
         return new DefaultReconciliationFramework<>(
                 engines,
                 bootstrapModel -> newEngine(bootstrapModel, true),
                 jobManagerConfiguration.getReconcilerIdleTimeoutMs(),
                 jobManagerConfiguration.getReconcilerActiveTimeoutMs(),
+                jobManagerConfiguration.getReconcilerShardCount(),
                 INDEX_COMPARATORS,
+                INDEX_KEY_EXTRACTORS,
                 registry,
                 optionalScheduler
         );
     }
 
+    private InternalReconciliationEngine<JobManagerReconcilerEvent> newRestoredEngineWithFenzoTasks(Job job, List<Task> tasks) {
+        InternalReconciliationEngine<JobManagerReconcilerEvent> engine = newRestoredEngine(job, tasks);
+        for (Task task : tasks) {
+            Optional<Task> validatedTask = validateTask(task);
+            if (validatedTask.isPresent()) {
+                if (!JobFunctions.isOwnedByKubeScheduler(task)) {
+                    TaskFenzoCheck check = addTaskToFenzo(engine, job, task);
+                    if (check == TaskFenzoCheck.FenzoAddError) {
+                        errorCollector.taskAddToFenzoError(task.getId());
+                    } else if (check == TaskFenzoCheck.Inconsistent) {
+                        errorCollector.inconsistentTask(task.getId());
+                    }
+                }
+            } else {
+                errorCollector.invalidTaskRecord(task.getId());
+            }
+        }
+        return engine;
+    }
+
     private InternalReconciliationEngine<JobManagerReconcilerEvent> newRestoredEngine(Job job, List<Task> tasks) {
         EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
         for (Task task : tasks) {
             EntityHolder taskHolder = EntityHolder.newRoot(task.getId(), task);
             EntityHolder decorated = TaskTimeoutChangeActions.setTimeoutOnRestoreFromStore(jobManagerConfiguration, taskHolder, clock);
-            jobHolder = jobHolder.addChild(decorated);
+            jobHolder = JobEntityHolders.addTaskHolder(jobHolder, decorated);
         }
         return newEngine(jobHolder, false);
     }
@@ -357,61 +431,82 @@ public class JobReconciliationFrameworkFactory {
         return true;
     }
 
-    private List<Pair<Job, List<Task>>> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector) {
+    /**
+     * Streams jobs and their tasks from the store, and passes each job to the consumer as soon as all its tasks are
+     * loaded. The consumer is called sequentially from the calling thread. If this master was a warm standby, job
+     * records are still read from the store, but tasks are taken from the standby snapshot for jobs that were not
+     * changed recently.
+     */
+    private void loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector, BiConsumer<Job, List<Task>> jobConsumer) {
         long startTime = clock.wallTime();
+        AtomicLong jobsLoadEndTime = new AtomicLong(startTime);
+        AtomicInteger jobCount = new AtomicInteger();
+        AtomicInteger taskCount = new AtomicInteger();
+        AtomicInteger restoredFromStandbyCount = new AtomicInteger();
+        Optional<StandbyJobSnapshot> standbySnapshot = standbyReplicator.flatMap(StandbyJobStateReplicator::takeSnapshot);
 
-        // load all job/task pairs
-        List<Pair<Job, Pair<List<Task>, Integer>>> jobTasksPairs;
         try {
-            jobTasksPairs = store.init().andThen(store.retrieveJobs().flatMap(retrievedJobsAndErrors -> {
-                errorCollector.corruptedJobRecords(retrievedJobsAndErrors.getRight());
-
-                List<Job<?>> retrievedJobs = retrievedJobsAndErrors.getLeft();
-                List<Observable<Pair<Job, Pair<List<Task>, Integer>>>> retrieveTasksObservables = new ArrayList<>();
-                for (Job job : retrievedJobs) {
-                    // TODO Finished jobs that were not archived immediately should be archived by background archive process
-                    if (job.getStatus().getState() == JobState.Finished) {
-                        logger.info("Not loading finished job: {}", job.getId());
-                        continue;
-                    }
+            store.init().await();
+            storeInitTimeMs.set(clock.wallTime() - startTime);
+
+            store.streamJobs()
+                    .doOnCompleted(() -> jobsLoadEndTime.set(clock.wallTime()))
+                    .flatMap(jobOrError -> {
+                        if (jobOrError.hasError()) {
+                            errorCollector.corruptedJobRecords(1);
+                            return Observable.empty();
+                        }
+                        Job<?> job = jobOrError.getValue();
 
-                    Optional<Job> validatedJob = validateJob(job);
-                    if (validatedJob.isPresent()) {
-                        Observable<Pair<Job, Pair<List<Task>, Integer>>> retrieveTasksObservable = store.retrieveTasksForJob(job.getId())
-                                .map(taskList -> new Pair<>(validatedJob.get(), taskList));
-                        retrieveTasksObservables.add(retrieveTasksObservable);
-                    } else {
-                        errorCollector.invalidJob(job.getId());
-                    }
-                }
-                return Observable.merge(retrieveTasksObservables, MAX_RETRIEVE_TASK_CONCURRENCY);
-            })).toList().toBlocking().singleOrDefault(Collections.emptyList());
-
-            int corruptedTaskRecords = jobTasksPairs.stream().mapToInt(p -> p.getRight().getRight()).sum();
-            errorCollector.corruptedTaskRecords(corruptedTaskRecords);
-
-            int taskCount = jobTasksPairs.stream().map(p -> p.getRight().getLeft().size()).reduce(0, (a, v) -> a + v);
-            loadedJobs.set(jobTasksPairs.size());
-            loadedTasks.set(taskCount);
-
-            for (Pair<Job, Pair<List<Task>, Integer>> jobTaskPair : jobTasksPairs) {
-                Job job = jobTaskPair.getLeft();
-                List<Task> tasks = jobTaskPair.getRight().getLeft();
-                List<String> taskStrings = tasks.stream()
-                        .map(t -> String.format("<%s,%s:%s>", t.getId(), JobFunctions.isOwnedByKubeScheduler(t) ? "ks" : "fenzo", t.getStatus().getState()))
-                        .collect(Collectors.toList());
-                logger.info("Loaded job: {} with tasks: {}", job.getId(), taskStrings);
-            }
+                        // TODO Finished jobs that were not archived immediately should be archived by background archive process
+                        if (job.getStatus().getState() == JobState.Finished) {
+                            logger.info("Not loading finished job: {}", job.getId());
+                            return Observable.empty();
+                        }
 
-            logger.info("{} jobs and {} tasks loaded from store in {}ms", jobTasksPairs.size(), taskCount, clock.wallTime() - startTime);
+                        Optional<Job> validatedJob = validateJob(job);
+                        if (!validatedJob.isPresent()) {
+                            errorCollector.invalidJob(job.getId());
+                            return Observable.empty();
+                        }
+                        Optional<Pair<List<Task>, Integer>> standbyTasks = standbySnapshot.flatMap(snapshot -> snapshot.findTasks(job));
+                        if (standbyTasks.isPresent()) {
+                            restoredFromStandbyCount.incrementAndGet();
+                            return Observable.just(Pair.of(validatedJob.get(), standbyTasks.get()));
+                        }
+                        return store.retrieveTasksForJob(job.getId()).map(taskList -> Pair.of(validatedJob.get(), taskList));
+                    }, MAX_RETRIEVE_TASK_CONCURRENCY)
+                    .toBlocking()
+                    .forEach(jobTasksPair -> {
+                        Job job = jobTasksPair.getLeft();
+                        List<Task> tasks = jobTasksPair.getRight().getLeft();
+                        errorCollector.corruptedTaskRecords(jobTasksPair.getRight().getRight());
+
+                        List<String> taskStrings = tasks.stream()
+                                .map(t -> String.format("<%s,%s:%s>", t.getId(), JobFunctions.isOwnedByKubeScheduler(t) ? "ks" : "fenzo", t.getStatus().getState()))
+                                .collect(Collectors.toList());
+                        logger.info("Loaded job: {} with tasks: {}", job.getId(), taskStrings);
+
+                        jobCount.incrementAndGet();
+                        taskCount.addAndGet(tasks.size());
+                        jobConsumer.accept(job, tasks);
+                    });
+
+            loadedJobs.set(jobCount.get());
+            loadedTasks.set(taskCount.get());
+            jobsLoadTimeMs.set(jobsLoadEndTime.get() - startTime);
+            standbyRestoredJobs.set(restoredFromStandbyCount.get());
+            standbyVerifiedJobs.set(jobCount.get() - restoredFromStandbyCount.get());
+            standbySnapshot.ifPresent(snapshot -> logger.info("Restored tasks of {} out of {} jobs from the standby snapshot",
+                    restoredFromStandbyCount.get(), jobCount.get()));
+
+            logger.info("{} jobs and {} tasks loaded from store in {}ms", jobCount.get(), taskCount.get(), clock.wallTime() - startTime);
         } catch (Exception e) {
             logger.error("Failed to load jobs from the store during initialization:", e);
             throw new IllegalStateException("Failed to load jobs from the store during initialization", e);
         } finally {
             storeLoadTimeMs.set(clock.wallTime() - startTime);
         }
-
-        return jobTasksPairs.stream().map(p -> Pair.of(p.getLeft(), p.getRight().getLeft())).collect(Collectors.toList());
     }
 
     private Optional<Job> validateJob(Job job) {
@@ -456,28 +551,12 @@ public class JobReconciliationFrameworkFactory {
         return Optional.of(task);
     }
 
-    private List<Pair<Job, List<Task>>> checkGlobalConsistency(List<Pair<Job, List<Task>>> jobsAndTasks) {
-        Map<String, Map<String, Set<String>>> eniAssignmentMap = new HashMap<>();
-
-        List<Pair<Job, List<Task>>> filtered = jobsAndTasks.stream()
-                .map(jobAndTasks -> {
-                            List<Task> filteredTasks = jobAndTasks.getRight().stream()
-                                    .map(task -> checkTaskEniAssignment(task, eniAssignmentMap))
-                                    .filter(Optional::isPresent)
-                                    .map(Optional::get)
-                                    .collect(Collectors.toList());
-                            return Pair.of(jobAndTasks.getLeft(), filteredTasks);
-                        }
-                ).collect(Collectors.toList());
-
-        // Report overlaps
-        eniAssignmentMap.forEach((eniSignature, assignments) -> {
-            if (assignments.size() > 1) {
-                errorCollector.eniOverlaps(eniSignature, assignments);
-            }
-        });
-
-        return filtered;
+    private List<Task> checkEniAssignments(List<Task> tasks, Map<String, Map<String, Set<String>>> eniAssignmentMap) {
+        return tasks.stream()
+                .map(task -> checkTaskEniAssignment(task, eniAssignmentMap))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
     }
 
     private Optional<Task> checkTaskEniAssignment(Task task, Map<String, Map<String, Set<String>>> eniAssignmentMap) {
@@ -517,7 +596,15 @@ public class JobReconciliationFrameworkFactory {
         return eniSGs.size() == 1 ? Optional.of(task) : Optional.empty();
     }
 
-    private static int compareByStatusCreationTime(EntityHolder holder1, EntityHolder holder2) {
+    private static JobDescriptor<?> jobDescriptorOf(EntityHolder jobHolder) {
+        return ((Job<?>) jobHolder.getEntity()).getJobDescriptor();
+    }
+
+    private static Set<String> keyOf(String value) {
+        return value == null ? Collections.emptySet() : Collections.singleton(value);
+    }
+
+    static int compareByStatusCreationTime(EntityHolder holder1, EntityHolder holder2) {
         if (holder1.getEntity() instanceof Job) {
             Job job1 = holder1.getEntity();
             Job job2 = holder2.getEntity();
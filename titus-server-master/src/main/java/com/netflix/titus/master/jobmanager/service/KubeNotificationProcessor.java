@@ -36,6 +36,7 @@ import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.guice.annotation.Activator;
 import com.netflix.titus.common.util.rx.ReactorExt;
@@ -53,7 +54,9 @@ import com.netflix.titus.master.mesos.kubeapiserver.direct.model.PodPhase;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.model.PodUpdatedEvent;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.model.PodWrapper;
 import io.kubernetes.client.openapi.models.V1ContainerState;
+import io.kubernetes.client.openapi.models.V1ContainerStatus;
 import io.kubernetes.client.openapi.models.V1Node;
+import io.kubernetes.client.openapi.models.V1Pod;
 import io.kubernetes.client.openapi.models.V1PodStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,6 +85,7 @@ public class KubeNotificationProcessor {
     private final KubeJobManagementReconciler kubeJobManagementReconciler;
     private final V3JobOperations v3JobOperations;
     private final ContainerResultCodeResolver containerResultCodeResolver;
+    private final TitusRuntime titusRuntime;
 
     private Disposable subscription;
 
@@ -90,38 +94,28 @@ public class KubeNotificationProcessor {
                                      DirectKubeApiServerIntegrator kubeApiServerIntegrator,
                                      KubeJobManagementReconciler kubeJobManagementReconciler,
                                      V3JobOperations v3JobOperations,
-                                     ContainerResultCodeResolver containerResultCodeResolver) {
+                                     ContainerResultCodeResolver containerResultCodeResolver,
+                                     TitusRuntime titusRuntime) {
         this.configuration = configuration;
         this.kubeApiServerIntegrator = kubeApiServerIntegrator;
         this.kubeJobManagementReconciler = kubeJobManagementReconciler;
         this.v3JobOperations = v3JobOperations;
         this.containerResultCodeResolver = containerResultCodeResolver;
+        this.titusRuntime = titusRuntime;
     }
 
     @Activator
     public void enterActiveMode() {
         this.subscription = kubeApiServerIntegrator.events().mergeWith(kubeJobManagementReconciler.getPodEventSource())
-                .flatMap(event -> {
-                    Pair<Job<?>, Task> jobAndTask = v3JobOperations.findTaskById(event.getTaskId()).orElse(null);
-                    if (jobAndTask == null) {
-                        logger.warn("Got Kube notification about unknown task: {}", event.getTaskId());
-                        return Mono.empty();
-                    }
-
-                    Task task = jobAndTask.getRight();
-                    if (!JobFunctions.isOwnedByKubeScheduler(task)) {
-                        logger.debug("Ignoring notification for task managed via Mesos adapter: taskId={}", task.getId());
-                        return Mono.empty();
-                    }
-
-                    if (event instanceof PodNotFoundEvent) {
-                        return handlePodNotFoundEvent((PodNotFoundEvent) event);
-                    }
-                    // We depend in this flatmap on the fact that the task update event is added by the source thread to
-                    // the job reconciler queue. This guarantees the right order of the execution.
-                    // TODO Implement flatMapWithSequentialSubscription operator
-                    return handlePodUpdatedEvent(event, jobAndTask.getLeft(), task);
-                }, Math.max(1, configuration.getKubeEventConcurrencyLimit()))
+                .transform(ReactorExt.flatMapSequentialByKey(
+                        PodEvent::getTaskId,
+                        this::handlePodEvent,
+                        KubeNotificationProcessor::isSupersededPodUpdate,
+                        configuration.getKubeEventConcurrencyLimit(),
+                        configuration.getKubeEventQueueLimit(),
+                        "kubeNotificationProcessor",
+                        titusRuntime.getRegistry()
+                ))
                 .ignoreElements()
                 .doOnError(error -> logger.warn("Kube integration event stream terminated with an error (retrying soon)", error))
                 .retryBackoff(Long.MAX_VALUE, Duration.ofSeconds(1))
@@ -138,6 +132,60 @@ public class KubeNotificationProcessor {
         ReactorExt.safeDispose(subscription);
     }
 
+    private Mono<Void> handlePodEvent(PodEvent event) {
+        Pair<Job<?>, Task> jobAndTask = v3JobOperations.findTaskById(event.getTaskId()).orElse(null);
+        if (jobAndTask == null) {
+            logger.warn("Got Kube notification about unknown task: {}", event.getTaskId());
+            return Mono.empty();
+        }
+
+        Task task = jobAndTask.getRight();
+        if (!JobFunctions.isOwnedByKubeScheduler(task)) {
+            logger.debug("Ignoring notification for task managed via Mesos adapter: taskId={}", task.getId());
+            return Mono.empty();
+        }
+
+        if (event instanceof PodNotFoundEvent) {
+            return handlePodNotFoundEvent((PodNotFoundEvent) event);
+        }
+        return handlePodUpdatedEvent(event, jobAndTask.getLeft(), task);
+    }
+
+    /**
+     * A queued pod update is superseded by a newer one if both report the same pod phase and container state. Only
+     * the newer one needs to be processed, as it results in the same task state transition with the latest pod data.
+     */
+    @VisibleForTesting
+    static boolean isSupersededPodUpdate(PodEvent queued, PodEvent next) {
+        if (!(queued instanceof PodUpdatedEvent) || !(next instanceof PodUpdatedEvent)) {
+            return false;
+        }
+        return toPodStateKey(queued.getPod()).equals(toPodStateKey(next.getPod()));
+    }
+
+    private static String toPodStateKey(V1Pod pod) {
+        V1PodStatus status = pod == null ? null : pod.getStatus();
+        if (status == null) {
+            return "";
+        }
+        List<V1ContainerStatus> containerStatuses = status.getContainerStatuses();
+        if (CollectionsExt.isNullOrEmpty(containerStatuses) || containerStatuses.get(0).getState() == null) {
+            return status.getPhase() + "/none";
+        }
+        V1ContainerState containerState = containerStatuses.get(0).getState();
+        String containerStateName;
+        if (containerState.getWaiting() != null) {
+            containerStateName = "waiting";
+        } else if (containerState.getRunning() != null) {
+            containerStateName = "running";
+        } else if (containerState.getTerminated() != null) {
+            containerStateName = "terminated";
+        } else {
+            containerStateName = "unknown";
+        }
+        return status.getPhase() + '/' + containerStateName;
+    }
+
     private Mono<Void> handlePodUpdatedEvent(PodEvent event, Job job, Task task) {
         // This is basic sanity check. If it fails, we have a major problem with pod state.
         if (event.getPod() == null || event.getPod().getStatus() == null || event.getPod().getStatus().getPhase() == null) {
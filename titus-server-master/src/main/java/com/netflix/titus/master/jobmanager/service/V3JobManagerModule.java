@@ -40,6 +40,9 @@ import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEve
 import com.netflix.titus.master.jobmanager.service.limiter.DefaultJobSubmitLimiter;
 import com.netflix.titus.master.jobmanager.service.limiter.JobSubmitLimiter;
 import com.netflix.titus.master.jobmanager.service.service.ServiceDifferenceResolver;
+import com.netflix.titus.master.jobmanager.service.standby.JobChangeFeed;
+import com.netflix.titus.master.jobmanager.service.standby.LeaderJobChangeFeed;
+import com.netflix.titus.master.jobmanager.service.standby.StandbyJobStateReplicator;
 import com.netflix.titus.master.mesos.DefaultV3TaskInfoRequestFactory;
 import com.netflix.titus.master.mesos.TaskInfoRequestFactory;
 import org.slf4j.Logger;
@@ -68,6 +71,10 @@ public class V3JobManagerModule extends AbstractModule {
         bind(KubeNotificationProcessorInitializer.class).asEagerSingleton();
 
         bind(JobAndTaskMetrics.class).asEagerSingleton();
+
+        bind(JobChangeFeed.class).to(LeaderJobChangeFeed.class);
+        bind(StandbyJobStateReplicator.class).asEagerSingleton();
+        bind(JobManagerStepDownHandler.class).asEagerSingleton();
     }
 
     @Provides
@@ -16,11 +16,16 @@
 
 package com.netflix.titus.master.jobmanager.service.common.action;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
 import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.runtime.TitusRuntime;
@@ -34,6 +39,15 @@ import rx.Observable;
  */
 public final class JobEntityHolders {
 
+    /**
+     * Job holder attribute with the number of tasks in each {@link TaskState}. It is maintained by
+     * {@link #addTaskHolder(EntityHolder, EntityHolder)} and {@link #removeTaskHolder(EntityHolder, String)}, so
+     * the task state index does not have to rescan all tasks of a job on each update.
+     */
+    private static final String TASK_STATE_COUNTS_ATTRIBUTE = "jobManager.taskStateCounts";
+
+    private static final TaskState[] TASK_STATES = TaskState.values();
+
     public static Optional<EntityHolder> expectTaskHolder(ReconciliationEngine<JobManagerReconcilerEvent> engine, String taskId, TitusRuntime titusRuntime) {
         Optional<EntityHolder> taskHolder = engine.getReferenceView().findById(taskId);
         if (taskHolder.isPresent()) {
@@ -55,6 +69,102 @@ public final class JobEntityHolders {
         EntityHolder newTaskHolder = rootHolder.findById(newTask.getId())
                 .map(taskHolder -> taskHolder.setEntity(newTask))
                 .orElseGet(() -> EntityHolder.newRoot(newTask.getId(), newTask)).addTag(JobManagerConstants.JOB_MANAGER_ATTRIBUTE_CALLMETADATA, callMetadata);
-        return Pair.of(rootHolder.addChild(newTaskHolder), newTaskHolder);
+        return Pair.of(addTaskHolder(rootHolder, newTaskHolder), newTaskHolder);
+    }
+
+    /**
+     * Adds or replaces a task holder in a job holder, updating the job's task state counts.
+     */
+    public static EntityHolder addTaskHolder(EntityHolder jobHolder, EntityHolder taskHolder) {
+        EntityHolder previous = jobHolder.findChildById(taskHolder.getId()).orElse(null);
+        EntityHolder newJobHolder = jobHolder.addChild(taskHolder);
+        boolean sameState = previous != null && TaskStateCounts.stateOf(previous) == TaskStateCounts.stateOf(taskHolder);
+        if (sameState && jobHolder.getAttributes().containsKey(TASK_STATE_COUNTS_ATTRIBUTE)) {
+            return newJobHolder;
+        }
+        TaskStateCounts counts = taskStateCountsOf(jobHolder).minus(previous).plus(taskHolder);
+        return newJobHolder.addTag(TASK_STATE_COUNTS_ATTRIBUTE, counts);
+    }
+
+    /**
+     * Removes a task holder from a job holder, updating the job's task state counts.
+     */
+    public static Pair<EntityHolder, Optional<EntityHolder>> removeTaskHolder(EntityHolder jobHolder, String taskId) {
+        Pair<EntityHolder, Optional<EntityHolder>> result = jobHolder.removeChild(taskId);
+        if (!result.getRight().isPresent()) {
+            return result;
+        }
+        TaskStateCounts counts = taskStateCountsOf(jobHolder).minus(result.getRight().get());
+        return Pair.of(result.getLeft().addTag(TASK_STATE_COUNTS_ATTRIBUTE, counts), result.getRight());
+    }
+
+    /**
+     * Returns names of the task states present in a job. Computed from the task state counts, and from
+     * the job's children only if the job holder was not built with {@link #addTaskHolder(EntityHolder, EntityHolder)}.
+     */
+    public static Set<String> taskStatesOf(EntityHolder jobHolder) {
+        return taskStateCountsOf(jobHolder).getStateNames();
+    }
+
+    private static TaskStateCounts taskStateCountsOf(EntityHolder jobHolder) {
+        Object counts = jobHolder.getAttributes().get(TASK_STATE_COUNTS_ATTRIBUTE);
+        if (counts != null) {
+            return (TaskStateCounts) counts;
+        }
+        TaskStateCounts result = TaskStateCounts.EMPTY;
+        for (EntityHolder taskHolder : jobHolder.getChildren()) {
+            result = result.plus(taskHolder);
+        }
+        return result;
+    }
+
+    /**
+     * Immutable task state counters. A new instance is created on each change, as it is stored in
+     * an immutable {@link EntityHolder}.
+     */
+    private static final class TaskStateCounts {
+
+        private static final TaskStateCounts EMPTY = new TaskStateCounts(new int[TASK_STATES.length]);
+
+        private final int[] counts;
+        private final Set<String> stateNames;
+
+        private TaskStateCounts(int[] counts) {
+            this.counts = counts;
+            Set<String> names = new HashSet<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    names.add(TASK_STATES[i].name());
+                }
+            }
+            this.stateNames = Collections.unmodifiableSet(names);
+        }
+
+        private Set<String> getStateNames() {
+            return stateNames;
+        }
+
+        private TaskStateCounts plus(EntityHolder taskHolder) {
+            return taskHolder == null ? this : adjust(stateOf(taskHolder), 1);
+        }
+
+        private TaskStateCounts minus(EntityHolder taskHolder) {
+            return taskHolder == null ? this : adjust(stateOf(taskHolder), -1);
+        }
+
+        private TaskStateCounts adjust(TaskState state, int delta) {
+            int[] newCounts = Arrays.copyOf(counts, counts.length);
+            newCounts[state.ordinal()] = Math.max(0, newCounts[state.ordinal()] + delta);
+            return new TaskStateCounts(newCounts);
+        }
+
+        private static TaskState stateOf(EntityHolder taskHolder) {
+            return ((Task) taskHolder.getEntity()).getStatus().getState();
+        }
+
+        @Override
+        public String toString() {
+            return "TaskStateCounts{" + Arrays.toString(counts) + '}';
+        }
     }
 }
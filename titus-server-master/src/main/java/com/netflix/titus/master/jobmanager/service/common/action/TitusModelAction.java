@@ -157,13 +157,13 @@ public abstract class TitusModelAction implements ModelAction {
         }
 
         public TitusModelAction addTaskHolder(EntityHolder taskHolder) {
-            return taskUpdate(jobHolder -> Pair.of(jobHolder.addChild(taskHolder), taskHolder));
+            return taskUpdate(jobHolder -> Pair.of(JobEntityHolders.addTaskHolder(jobHolder, taskHolder), taskHolder));
         }
 
         public TitusModelAction removeTask(Task task) {
             this.id = task.getId();
             return jobMaybeUpdate(jobHolder -> {
-                Pair<EntityHolder, Optional<EntityHolder>> result = jobHolder.removeChild(id);
+                Pair<EntityHolder, Optional<EntityHolder>> result = JobEntityHolders.removeTaskHolder(jobHolder, id);
                 return result.getRight().map(removed -> result.getLeft());
             });
         }
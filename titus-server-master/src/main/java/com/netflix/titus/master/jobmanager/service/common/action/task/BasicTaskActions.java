@@ -123,7 +123,7 @@ public class BasicTaskActions {
                                 TitusModelAction modelUpdateAction = TitusModelAction.newModelUpdate(self)
                                         .taskUpdate(storeRoot -> {
                                                     EntityHolder storedHolder = EntityHolder.newRoot(referenceTask.getId(), referenceTask);
-                                                    return Pair.of(storeRoot.addChild(storedHolder), storedHolder);
+                                                    return Pair.of(JobEntityHolders.addTaskHolder(storeRoot, storedHolder), storedHolder);
                                                 }
                                         );
                                 return ModelActionHolder.store(modelUpdateAction);
@@ -212,7 +212,7 @@ public class BasicTaskActions {
                             .summary("Creating new task entity holder")
                             .taskMaybeUpdate(jobHolder -> {
                                 EntityHolder newTask = EntityHolder.newRoot(task.getId(), task);
-                                EntityHolder newRoot = jobHolder.addChild(newTask);
+                                EntityHolder newRoot = JobEntityHolders.addTaskHolder(jobHolder, newTask);
                                 return Optional.of(Pair.of(newRoot, newTask));
                             });
                     return ModelActionHolder.running(modelUpdateAction);
@@ -30,6 +30,7 @@ import com.netflix.titus.common.util.DateTimeExt;
 import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.common.action.JobEntityHolders;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusModelAction;
 
@@ -75,7 +76,7 @@ public class TaskTimeoutChangeActions {
                                         if (taskState == TaskState.KillInitiated) {
                                             newTaskHolder = newTaskHolder.addTag(KILL_INITIATED_ATTEMPT_TAG, 0);
                                         }
-                                        return Pair.of(jobHolder.addChild(newTaskHolder), newTaskHolder);
+                                        return Pair.of(JobEntityHolders.addTaskHolder(jobHolder, newTaskHolder), newTaskHolder);
                                     }));
                     return ModelActionHolder.running(modelAction);
                 });
@@ -112,7 +113,7 @@ public class TaskTimeoutChangeActions {
                                         EntityHolder newTaskHolder = taskHolder
                                                 .addTag(KILL_INITIATED_TIMEOUT_TAG, clock.wallTime() + deadlineMs)
                                                 .addTag(KILL_INITIATED_ATTEMPT_TAG, attempt + 1);
-                                        return Pair.of(jobHolder.addChild(newTaskHolder), newTaskHolder);
+                                        return Pair.of(JobEntityHolders.addTaskHolder(jobHolder, newTaskHolder), newTaskHolder);
                                     }));
                     return ModelActionHolder.running(modelAction);
                 });
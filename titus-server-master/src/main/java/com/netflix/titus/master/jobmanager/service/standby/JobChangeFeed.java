@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.standby;
+
+import rx.Observable;
+
+/**
+ * Source of job change notifications from the leader, used by {@link StandbyJobStateReplicator} to decide which jobs
+ * must be re-read from the store.
+ */
+public interface JobChangeFeed {
+
+    /**
+     * Emitted once, before any job id, when the leader starts tracking changes for this subscriber. Any change
+     * written to the store after this marker is received is followed by a notification.
+     */
+    String LEADER_SYNCED_MARKER = "";
+
+    /**
+     * Emitted instead of {@link #LEADER_SYNCED_MARKER}, when the feed continues a previous stream from the same leader,
+     * and all changes since the last job id emitted by the previous stream were emitted before this marker.
+     */
+    String LEADER_RESUMED_MARKER = "+";
+
+    /**
+     * Emitted as the last item, when the leader steps down cleanly. All changes written to the store by the leader
+     * were notified before this marker.
+     */
+    String LEADER_STEPPED_DOWN_MARKER = "#";
+
+    /**
+     * Emits {@link #LEADER_SYNCED_MARKER} (or {@link #LEADER_RESUMED_MARKER} preceded by the missed changes) followed
+     * by ids of jobs, for which the job record or any of its tasks were changed by the leader. The stream ends with {@link #LEADER_STEPPED_DOWN_MARKER} when the leader steps down
+     * cleanly. If the stream completes or fails without it, some changes could have been missed. If there is no
+     * leader, the stream completes without emitting anything.
+     */
+    Observable<String> observeChangedJobIds();
+}
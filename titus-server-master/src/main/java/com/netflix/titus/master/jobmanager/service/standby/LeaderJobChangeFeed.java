@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.standby;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.titus.api.supervisor.model.MasterInstance;
+import com.netflix.titus.api.supervisor.model.MasterState;
+import com.netflix.titus.api.supervisor.model.ServerPort;
+import com.netflix.titus.api.supervisor.service.MasterMonitor;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc;
+import com.netflix.titus.grpc.protogen.ObserveJobsQuery;
+import com.netflix.titus.master.endpoint.grpc.GrpcMasterEndpointConfiguration;
+import com.netflix.titus.runtime.endpoint.v3.grpc.JobStreamRevisions;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createSimpleClientResponseObserver;
+
+/**
+ * {@link JobChangeFeed} implementation that subscribes to the job event stream of the current leader over GRPC.
+ * The leader is asked to skip the initial snapshot, as the data are read from the store by the subscriber. The position
+ * of the last received event is kept, so the next subscription to the same leader resumes from it, and receives only
+ * the missed events. One channel is kept open to the current leader, and reused by all subscriptions. The feed
+ * supports one subscriber at a time.
+ */
+@Singleton
+public class LeaderJobChangeFeed implements JobChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderJobChangeFeed.class);
+
+    private static final String GRPC_PROTOCOL = "grpc";
+
+    private final MasterMonitor masterMonitor;
+    private final GrpcMasterEndpointConfiguration grpcConfiguration;
+
+    private final Object channelLock = new Object();
+    private String channelTarget;
+    private ManagedChannel channel;
+
+    /**
+     * Stream epoch and revision of the last notification received from the leader.
+     */
+    private volatile Pair<String, Long> lastPosition;
+
+    @Inject
+    public LeaderJobChangeFeed(MasterMonitor masterMonitor, GrpcMasterEndpointConfiguration grpcConfiguration) {
+        this.masterMonitor = masterMonitor;
+        this.grpcConfiguration = grpcConfiguration;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (channelLock) {
+            if (channel != null) {
+                channel.shutdownNow();
+                channel = null;
+            }
+        }
+    }
+
+    @Override
+    public Observable<String> observeChangedJobIds() {
+        return masterMonitor.observeMasters().take(1).flatMap(masters -> {
+            Optional<MasterInstance> leaderOpt = findLeader(masters);
+            if (!leaderOpt.isPresent()) {
+                logger.debug("Leader not found");
+                return Observable.<String>empty();
+            }
+            MasterInstance leader = leaderOpt.get();
+            int port = findGrpcPort(leader);
+
+            ObserveJobsQuery query = JobStreamRevisions.withSnapshotSkipped(
+                    JobStreamRevisions.withStreamEndRequested(ObserveJobsQuery.newBuilder().build())
+            );
+            Pair<String, Long> position = lastPosition;
+            if (position != null) {
+                query = JobStreamRevisions.withResumeToken(query, JobStreamRevisions.toResumeToken(position.getLeft(), position.getRight()));
+            }
+            logger.info("Subscribing to the job event stream of the leader: instanceId={}, address={}:{}, resumeFrom={}",
+                    leader.getInstanceId(), leader.getIpAddress(), port, position);
+
+            ManagedChannel leaderChannel = getChannel(leader.getIpAddress(), port);
+            ObserveJobsQuery finalQuery = query;
+            Observable<JobChangeNotification> notifications = createRequestObservable(emitter ->
+                    JobManagementServiceGrpc.newStub(leaderChannel).observeJobs(finalQuery, createSimpleClientResponseObserver(emitter))
+            );
+            return notifications.flatMap(notification -> toJobIds(notification).doOnCompleted(() -> recordPosition(notification)));
+        });
+    }
+
+    private ManagedChannel getChannel(String address, int port) {
+        String target = address + ':' + port;
+        synchronized (channelLock) {
+            if (channel == null || channel.isShutdown() || !target.equals(channelTarget)) {
+                if (channel != null) {
+                    channel.shutdownNow();
+                }
+                channel = ManagedChannelBuilder.forAddress(address, port)
+                        .usePlaintext(true)
+                        .build();
+                channelTarget = target;
+            }
+            return channel;
+        }
+    }
+
+    private Optional<MasterInstance> findLeader(List<MasterInstance> masters) {
+        String ownId = masterMonitor.getCurrentMasterInstance().getInstanceId();
+        return masters.stream()
+                .filter(instance -> !instance.getInstanceId().equals(ownId))
+                .filter(instance -> instance.getStatus().getState() == MasterState.LeaderActivated)
+                .findFirst();
+    }
+
+    private int findGrpcPort(MasterInstance leader) {
+        return leader.getServerPorts().stream()
+                .filter(serverPort -> GRPC_PROTOCOL.equals(serverPort.getProtocol()))
+                .map(ServerPort::getPortNumber)
+                .findFirst()
+                .orElse(grpcConfiguration.getPort());
+    }
+
+    /**
+     * Only the snapshot end marker carries the stream epoch, and it is always received before the live events.
+     */
+    private void recordPosition(JobChangeNotification notification) {
+        OptionalLong revision = JobStreamRevisions.getRevision(notification);
+        if (!revision.isPresent()) {
+            return;
+        }
+        Optional<String> epoch = JobStreamRevisions.getEpoch(notification);
+        Pair<String, Long> position = lastPosition;
+        if (epoch.isPresent()) {
+            lastPosition = Pair.of(epoch.get(), revision.getAsLong());
+        } else if (position != null) {
+            lastPosition = Pair.of(position.getLeft(), revision.getAsLong());
+        }
+    }
+
+    private Observable<String> toJobIds(JobChangeNotification notification) {
+        switch (notification.getNotificationCase()) {
+            case SNAPSHOTEND:
+                if (JobStreamRevisions.isStreamEnd(notification)) {
+                    return Observable.just(LEADER_STEPPED_DOWN_MARKER);
+                }
+                return Observable.just(JobStreamRevisions.isResumed(notification) ? LEADER_RESUMED_MARKER : LEADER_SYNCED_MARKER);
+            case JOBUPDATE:
+                return Observable.just(notification.getJobUpdate().getJob().getId());
+            case TASKUPDATE:
+                return Observable.just(notification.getTaskUpdate().getTask().getJobId());
+            default:
+                return Observable.empty();
+        }
+    }
+}
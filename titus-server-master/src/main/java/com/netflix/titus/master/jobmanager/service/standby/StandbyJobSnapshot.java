@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.standby;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * Jobs and tasks replicated by a standby master, taken at the moment it becomes the leader. A snapshot is created only
+ * if the previous leader stepped down cleanly, so all its changes were notified to the standby master.
+ */
+public class StandbyJobSnapshot {
+
+    private final Map<String, Job<?>> jobs;
+    private final Map<String, Pair<List<Task>, Integer>> tasks;
+    private final Set<String> jobsToVerify;
+
+    StandbyJobSnapshot(Map<String, Job<?>> jobs,
+                       Map<String, Pair<List<Task>, Integer>> tasks,
+                       Set<String> jobsToVerify) {
+        this.jobs = jobs;
+        this.tasks = tasks;
+        this.jobsToVerify = jobsToVerify;
+    }
+
+    public int getJobCount() {
+        return jobs.size();
+    }
+
+    public int getJobsToVerifyCount() {
+        return jobsToVerify.size();
+    }
+
+    /**
+     * Returns the replicated tasks (and the number of corrupted task records) of a job read from the store, if the
+     * replicated job record is the same, and all notified changes of the job were re-read from the store. Otherwise
+     * the tasks must be read from the store.
+     */
+    public Optional<Pair<List<Task>, Integer>> findTasks(Job<?> storeJob) {
+        if (jobsToVerify.contains(storeJob.getId()) || !storeJob.equals(jobs.get(storeJob.getId()))) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(tasks.get(storeJob.getId()));
+    }
+
+    @Override
+    public String toString() {
+        return "StandbyJobSnapshot{" +
+                "jobs=" + jobs.size() +
+                ", jobsToVerify=" + jobsToVerify.size() +
+                '}';
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.standby;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.ExecutorsExt;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.tuple.Either;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+/**
+ * Keeps a copy of the active jobs and tasks on a master that is not the leader, so the leader election does not
+ * require reading all tasks from the store. The job change stream of the leader is used only to find out which
+ * jobs changed, and the changed jobs with their tasks are re-read from the store. The replicated state is handed over
+ * to the job manager bootstrap process with {@link #takeSnapshot()}, which also stops the replication.
+ * <p>
+ * The replicated state is handed over only if the leader stepped down cleanly, that is its change stream ended with
+ * {@link JobChangeFeed#LEADER_STEPPED_DOWN_MARKER}. If the change stream is terminated without it, a change could
+ * have been written to the store without a notification, so the replicated state is not ready until the stream is
+ * resumed from the same leader, or the state is reloaded from the store after connecting to the next leader.
+ * <p>
+ * All replica updates are done on a single internal thread.
+ */
+@Singleton
+public class StandbyJobStateReplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StandbyJobStateReplicator.class);
+
+    private static final String ROOT_METRIC_NAME = MetricConstants.METRIC_ROOT + "jobManager.standby.";
+
+    private static final int MAX_RETRIEVE_TASK_CONCURRENCY = 100;
+
+    private final JobManagerConfiguration configuration;
+    private final JobStore store;
+    private final JobChangeFeed changeFeed;
+    private final Clock clock;
+    private final Registry registry;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Updated from the change feed thread.
+     */
+    private final Set<String> changedJobIds = ConcurrentHashMap.newKeySet();
+
+    private Map<String, Job<?>> jobs = new HashMap<>();
+    private Map<String, Pair<List<Task>, Integer>> tasks = new HashMap<>();
+    private final Map<String, String> taskOwners = new HashMap<>();
+
+    private Subscription feedSubscription;
+    private long feedGeneration;
+    private boolean feedSynced;
+    private boolean feedSteppedDown;
+    private boolean loaded;
+    private boolean ready;
+    private long steppedDownAt = -1;
+    private boolean stopped;
+
+    private final AtomicInteger replicatedJobs = new AtomicInteger();
+    private final AtomicInteger replicatedTasks = new AtomicInteger();
+    private final AtomicInteger readyGauge = new AtomicInteger();
+    private final AtomicInteger leaderSteppedDownGauge = new AtomicInteger();
+
+    @Inject
+    public StandbyJobStateReplicator(JobManagerConfiguration configuration,
+                                     JobStore store,
+                                     JobChangeFeed changeFeed,
+                                     TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.store = store;
+        this.changeFeed = changeFeed;
+        this.clock = titusRuntime.getClock();
+        this.registry = titusRuntime.getRegistry();
+
+        if (!configuration.isWarmStandbyEnabled()) {
+            logger.info("Warm standby disabled");
+            this.executor = null;
+            return;
+        }
+
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "replicatedJobs").monitorValue(replicatedJobs);
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "replicatedTasks").monitorValue(replicatedTasks);
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "ready").monitorValue(readyGauge);
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "leaderSteppedDown").monitorValue(leaderSteppedDownGauge);
+
+        long intervalMs = configuration.getWarmStandbyRefreshIntervalMs();
+        this.executor = ExecutorsExt.namedSingleThreadScheduledExecutor("standby-job-replicator");
+        executor.scheduleWithFixedDelay(this::refresh, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            runOnExecutor(this::stop);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Stops the replication, and returns the replicated state, if it is complete, and the leader stepped down cleanly
+     * not earlier than {@link JobManagerConfiguration#getWarmStandbyMaxStepDownAgeMs()} ago. Jobs with changes
+     * not re-read from the store yet are marked for verification.
+     */
+    public Optional<StandbyJobSnapshot> takeSnapshot() {
+        if (executor == null) {
+            return Optional.empty();
+        }
+        try {
+            return executor.submit(this::stopAndTakeSnapshot).get();
+        } catch (Exception e) {
+            logger.warn("Cannot take a snapshot of the standby job state", e);
+            return Optional.empty();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Optional<StandbyJobSnapshot> stopAndTakeSnapshot() {
+        stop();
+
+        if (!ready) {
+            logger.info("Standby job state not ready; all jobs and tasks must be loaded from the store");
+            return Optional.empty();
+        }
+        if (steppedDownAt < 0) {
+            logger.info("Leader did not step down cleanly; all jobs and tasks must be loaded from the store");
+            return Optional.empty();
+        }
+        long stepDownAge = clock.wallTime() - steppedDownAt;
+        if (stepDownAge > configuration.getWarmStandbyMaxStepDownAgeMs()) {
+            logger.info("Leader stepped down {}ms ago; all jobs and tasks must be loaded from the store", stepDownAge);
+            return Optional.empty();
+        }
+
+        StandbyJobSnapshot snapshot = new StandbyJobSnapshot(jobs, tasks, new HashSet<>(changedJobIds));
+        clearReplica();
+
+        logger.info("Taken snapshot of the standby job state: {}", snapshot);
+        return Optional.of(snapshot);
+    }
+
+    private void stop() {
+        stopped = true;
+        feedGeneration++;
+        ObservableExt.safeUnsubscribe(feedSubscription);
+    }
+
+    private void refresh() {
+        if (stopped) {
+            return;
+        }
+        try {
+            if (feedSubscription == null) {
+                subscribeToFeed();
+            }
+            if (!ready) {
+                return;
+            }
+            if (steppedDownAt >= 0 && clock.wallTime() - steppedDownAt > configuration.getWarmStandbyMaxStepDownAgeMs()) {
+                logger.info("Leader stepped down {}ms ago, and no new leader found; dropping the standby job state", clock.wallTime() - steppedDownAt);
+                clearReplica();
+                return;
+            }
+            refreshChangedJobs();
+        } catch (Exception e) {
+            logger.warn("Standby job state refresh failure", e);
+        }
+    }
+
+    private void subscribeToFeed() {
+        long generation = ++feedGeneration;
+        feedSynced = false;
+        feedSteppedDown = false;
+        feedSubscription = changeFeed.observeChangedJobIds().subscribe(
+                jobId -> {
+                    if (JobChangeFeed.LEADER_SYNCED_MARKER.equals(jobId)) {
+                        runOnExecutor(() -> onLeaderSynced(generation, false));
+                    } else if (JobChangeFeed.LEADER_RESUMED_MARKER.equals(jobId)) {
+                        runOnExecutor(() -> onLeaderSynced(generation, true));
+                    } else if (JobChangeFeed.LEADER_STEPPED_DOWN_MARKER.equals(jobId)) {
+                        runOnExecutor(() -> onLeaderSteppedDown(generation));
+                    } else {
+                        changedJobIds.add(jobId);
+                    }
+                },
+                e -> {
+                    logger.info("Job change stream from the leader terminated with an error: {}", e.getMessage());
+                    runOnExecutor(() -> onFeedTerminated(generation, true));
+                },
+                () -> runOnExecutor(() -> onFeedTerminated(generation, false))
+        );
+    }
+
+    /**
+     * A stream which completes without emitting anything means there is no leader, so nothing is changed in the store.
+     * Otherwise, unless the leader stepped down cleanly, some job changes could have been missed. The replica is kept,
+     * as the next stream may resume from the last received change, but it is not ready until then.
+     */
+    private void onFeedTerminated(long generation, boolean failed) {
+        if (generation != feedGeneration) {
+            return;
+        }
+        feedSubscription = null;
+        if (feedSteppedDown || (!failed && !feedSynced)) {
+            return;
+        }
+        if (ready) {
+            logger.info("Job change stream from the leader terminated before the leader stepped down; standby job state not ready until resumed or reloaded");
+        }
+        ready = false;
+        readyGauge.set(0);
+    }
+
+    /**
+     * Job changes that happened before the leader started tracking changes for this subscriber could be missed, so all
+     * jobs and tasks are reloaded, unless the stream resumed the previous one, and the replica was kept.
+     */
+    private void onLeaderSynced(long generation, boolean resumed) {
+        if (generation != feedGeneration || stopped) {
+            return;
+        }
+        feedSynced = true;
+        if (resumed && loaded) {
+            logger.info("Job change stream from the leader resumed; keeping the standby job state (jobs with pending changes: {})", changedJobIds.size());
+            ready = true;
+            readyGauge.set(1);
+            return;
+        }
+        try {
+            loadAll();
+            ready = true;
+            readyGauge.set(1);
+        } catch (Exception e) {
+            logger.warn("Cannot load the standby job state from the store", e);
+            clearReplica();
+            ObservableExt.safeUnsubscribe(feedSubscription);
+            onFeedTerminated(generation, true);
+        }
+    }
+
+    private void onLeaderSteppedDown(long generation) {
+        if (generation != feedGeneration || stopped) {
+            return;
+        }
+        feedSteppedDown = true;
+        if (ready) {
+            logger.info("Leader stepped down cleanly; standby job state can be handed over (jobs with pending changes: {})", changedJobIds.size());
+            steppedDownAt = clock.wallTime();
+            leaderSteppedDownGauge.set(1);
+        }
+    }
+
+    private void loadAll() {
+        long startTime = clock.wallTime();
+        // Clears also the changed job ids. The store is read after that, so the changes notified so far are included.
+        clearReplica();
+
+        // Job id index of the store must be refreshed, to include jobs created since the last load.
+        store.init().await();
+        store.streamJobs()
+                .filter(Either::hasValue)
+                .map(Either::getValue)
+                .filter(job -> job.getStatus().getState() != JobState.Finished)
+                .flatMap(job -> store.retrieveTasksForJob(job.getId()).map(jobTasks -> Pair.of(job, jobTasks)), MAX_RETRIEVE_TASK_CONCURRENCY)
+                .toBlocking()
+                .forEach(jobAndTasks -> putJob(jobAndTasks.getLeft(), jobAndTasks.getRight()));
+        updateCounters();
+        loaded = true;
+
+        logger.info("Loaded standby job state from the store: jobs={}, tasks={}, elapsedMs={}",
+                replicatedJobs.get(), replicatedTasks.get(), clock.wallTime() - startTime);
+    }
+
+    /**
+     * Each changed job is re-read from the store with all its tasks, as the change stream does not say which tasks
+     * changed. A job with many tasks that changes often is therefore re-read in every interval. To bound the store
+     * load, at most {@link JobManagerConfiguration#getWarmStandbyMaxJobRefreshesPerInterval()} jobs are re-read in one
+     * interval. The remaining ones are kept for the next interval, and are verified after the election if it happens
+     * before.
+     */
+    private void refreshChangedJobs() {
+        int limit = configuration.getWarmStandbyMaxJobRefreshesPerInterval();
+        int count = 0;
+        for (Iterator<String> it = changedJobIds.iterator(); it.hasNext() && count < limit; count++) {
+            String jobId = it.next();
+            it.remove();
+            try {
+                Job<?> job = store.retrieveJob(jobId).toBlocking().firstOrDefault(null);
+                if (job == null || job.getStatus().getState() == JobState.Finished) {
+                    removeJob(jobId);
+                } else {
+                    putJob(job, store.retrieveTasksForJob(jobId).toBlocking().first());
+                }
+            } catch (Exception e) {
+                // Job not found, or a store error. Either way the job will be loaded from the store, if needed.
+                logger.debug("Cannot refresh standby state of job {}: {}", jobId, e.getMessage());
+                removeJob(jobId);
+            }
+        }
+        if (!changedJobIds.isEmpty()) {
+            logger.debug("Refresh limit of {} jobs reached; {} changed jobs left for the next interval", limit, changedJobIds.size());
+        }
+        updateCounters();
+    }
+
+    private void putJob(Job<?> job, Pair<List<Task>, Integer> jobTasks) {
+        removeJob(job.getId());
+        jobs.put(job.getId(), job);
+        tasks.put(job.getId(), jobTasks);
+        for (Task task : jobTasks.getLeft()) {
+            String previousOwner = taskOwners.put(task.getId(), job.getId());
+            // The task was moved from another job, which must be refreshed as well.
+            if (previousOwner != null && !previousOwner.equals(job.getId())) {
+                changedJobIds.add(previousOwner);
+            }
+        }
+    }
+
+    private void removeJob(String jobId) {
+        jobs.remove(jobId);
+        Pair<List<Task>, Integer> removed = tasks.remove(jobId);
+        if (removed != null) {
+            removed.getLeft().forEach(task -> taskOwners.remove(task.getId(), jobId));
+        }
+    }
+
+    private void clearReplica() {
+        this.jobs = new HashMap<>();
+        this.tasks = new HashMap<>();
+        taskOwners.clear();
+        changedJobIds.clear();
+        loaded = false;
+        ready = false;
+        steppedDownAt = -1;
+        readyGauge.set(0);
+        leaderSteppedDownGauge.set(0);
+        updateCounters();
+    }
+
+    private void updateCounters() {
+        replicatedJobs.set(jobs.size());
+        replicatedTasks.set(taskOwners.size());
+    }
+
+    private void runOnExecutor(Runnable action) {
+        try {
+            executor.execute(action);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Standby job replicator stopped; ignoring action");
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.master.loadbalancer.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.loadbalancer.model.LoadBalancerTarget;
+import com.netflix.titus.common.util.rx.batch.Batch;
+import com.netflix.titus.common.util.rx.batch.Batchable;
+
+import static com.netflix.titus.master.MetricConstants.METRIC_LOADBALANCER;
+
+/**
+ * Target updates waiting to be applied, grouped by load balancer. Only the latest desired state of each target is kept,
+ * so a load balancer that cannot keep up (because it is throttled, or a previous batch is still in-flight) accumulates
+ * at most one update per target, and nothing is dropped while the total number of targets fits into
+ * {@link LoadBalancerConfiguration#getBacklogMaxSize()}.
+ * <p>
+ * At most one batch per load balancer is in-flight, and new batches are taken at the rate controlled by a
+ * {@link LoadBalancerRateController}. State of idle load balancers is removed once their rate has fully recovered.
+ */
+class LoadBalancerBacklog {
+
+    private static final String METRIC_BACKLOG = METRIC_LOADBALANCER + "backlog.";
+
+    private final LoadBalancerConfiguration configuration;
+    private final Registry registry;
+
+    private final Map<String, LoadBalancerState> states = new HashMap<>();
+    private int size;
+
+    private final Id sizeId;
+    private final Id loadBalancersId;
+    private final Counter coalescedCounter;
+    private final Counter overflowCounter;
+    private final Counter throttledCounter;
+
+    LoadBalancerBacklog(LoadBalancerConfiguration configuration, Registry registry) {
+        this.configuration = configuration;
+        this.registry = registry;
+
+        this.sizeId = registry.createId(METRIC_BACKLOG + "size");
+        this.loadBalancersId = registry.createId(METRIC_BACKLOG + "loadBalancers");
+        PolledMeter.using(registry).withId(sizeId).monitorValue(this, LoadBalancerBacklog::getSize);
+        PolledMeter.using(registry).withId(loadBalancersId).monitorValue(this, LoadBalancerBacklog::getLoadBalancerCount);
+        this.coalescedCounter = registry.counter(METRIC_BACKLOG + "coalesced");
+        this.overflowCounter = registry.counter(METRIC_BACKLOG + "overflow");
+        this.throttledCounter = registry.counter(METRIC_BACKLOG + "throttled");
+    }
+
+    synchronized int getSize() {
+        return size;
+    }
+
+    synchronized int getLoadBalancerCount() {
+        return states.size();
+    }
+
+    synchronized double getRatePerSec(String loadBalancerId) {
+        LoadBalancerState state = states.get(loadBalancerId);
+        return state == null ? configuration.getLoadBalancerMaxRatePerSec() : state.rateController.getRatePerSec();
+    }
+
+    /**
+     * Adds the batch items to the load balancer backlog, replacing older updates for the same targets.
+     *
+     * @return items that did not fit into the backlog
+     */
+    synchronized List<TargetStateBatchable> add(Batch<TargetStateBatchable, String> batch) {
+        LoadBalancerState state = getOrCreateState(batch.getIndex());
+        List<TargetStateBatchable> rejected = new ArrayList<>();
+        for (TargetStateBatchable item : batch.getItems()) {
+            TargetStateBatchable existing = state.pending.get(item.getIdentifier());
+            if (existing != null) {
+                coalescedCounter.increment();
+                if (isHigherPriorityOrNewer(existing, item)) {
+                    state.pending.put(item.getIdentifier(), item);
+                }
+            } else if (size < configuration.getBacklogMaxSize()) {
+                state.pending.put(item.getIdentifier(), item);
+                size++;
+            } else {
+                rejected.add(item);
+            }
+        }
+        overflowCounter.increment(rejected.size());
+        releaseIfIdle(state);
+        return rejected;
+    }
+
+    /**
+     * Takes all pending updates of a load balancer, if it has no batch in-flight, and its rate limit allows for
+     * another call. The caller must report the outcome with {@link #completed(Batch)}, {@link #throttled(Batch)}
+     * or {@link #release(Batch)}.
+     */
+    synchronized Optional<Batch<TargetStateBatchable, String>> takeIfReady(String loadBalancerId, long nowMs) {
+        LoadBalancerState state = states.get(loadBalancerId);
+        if (state == null) {
+            return Optional.empty();
+        }
+        state.drainScheduled = false;
+        if (state.inFlight || state.pending.isEmpty() || !state.rateController.tryAcquire(nowMs)) {
+            return Optional.empty();
+        }
+        Batch<TargetStateBatchable, String> batch = Batch.of(loadBalancerId, new ArrayList<>(state.pending.values()));
+        state.pending.clear();
+        size -= batch.size();
+        state.inFlight = true;
+        return Optional.of(batch);
+    }
+
+    /**
+     * @return delay after which {@link #takeIfReady(String, long)} should be called again for a load balancer that
+     * is rate limited, or -1 if no new drain needs to be scheduled (there is nothing pending, a batch is in-flight
+     * and will trigger a new drain when completed, or a drain is already scheduled)
+     */
+    synchronized long scheduleDrain(String loadBalancerId, long nowMs) {
+        LoadBalancerState state = states.get(loadBalancerId);
+        if (state == null || state.inFlight || state.pending.isEmpty() || state.drainScheduled) {
+            return -1;
+        }
+        state.drainScheduled = true;
+        return state.rateController.getDelayMs(nowMs);
+    }
+
+    synchronized void completed(Batch<TargetStateBatchable, String> batch) {
+        LoadBalancerState state = states.get(batch.getIndex());
+        if (state != null && state.inFlight) {
+            state.inFlight = false;
+            state.rateController.onSuccess();
+            releaseIfIdle(state);
+        }
+    }
+
+    /**
+     * Ends the in-flight batch without changing the load balancer rate. This is a no-op if the batch outcome was
+     * already reported.
+     */
+    synchronized void release(Batch<TargetStateBatchable, String> batch) {
+        LoadBalancerState state = states.get(batch.getIndex());
+        if (state != null && state.inFlight) {
+            state.inFlight = false;
+            releaseIfIdle(state);
+        }
+    }
+
+    /**
+     * Puts back the batch items, unless they were replaced by newer updates in the meantime, and slows down calls for
+     * the load balancer.
+     *
+     * @return items that did not fit into the backlog
+     */
+    synchronized List<TargetStateBatchable> throttled(Batch<TargetStateBatchable, String> batch) {
+        throttledCounter.increment();
+        LoadBalancerState state = getOrCreateState(batch.getIndex());
+        state.inFlight = false;
+        state.rateController.onThrottled();
+
+        List<TargetStateBatchable> rejected = new ArrayList<>();
+        for (TargetStateBatchable item : batch.getItems()) {
+            if (state.pending.containsKey(item.getIdentifier())) {
+                continue;
+            }
+            if (size < configuration.getBacklogMaxSize()) {
+                state.pending.put(item.getIdentifier(), item);
+                size++;
+            } else {
+                rejected.add(item);
+            }
+        }
+        overflowCounter.increment(rejected.size());
+        return rejected;
+    }
+
+    synchronized void shutdown() {
+        PolledMeter.remove(registry, sizeId);
+        PolledMeter.remove(registry, loadBalancersId);
+        states.values().forEach(state -> PolledMeter.remove(registry, state.rateId));
+        states.clear();
+        size = 0;
+    }
+
+    private LoadBalancerState getOrCreateState(String loadBalancerId) {
+        return states.computeIfAbsent(loadBalancerId, id -> {
+            LoadBalancerState state = new LoadBalancerState(
+                    id,
+                    new LoadBalancerRateController(configuration),
+                    registry.createId(METRIC_BACKLOG + "rate", "loadBalancerId", id)
+            );
+            PolledMeter.using(registry).withId(state.rateId).monitorValue(state.rateController, LoadBalancerRateController::getRatePerSec);
+            return state;
+        });
+    }
+
+    private void releaseIfIdle(LoadBalancerState state) {
+        if (!state.inFlight && !state.drainScheduled && state.pending.isEmpty() && state.rateController.isAtMaxRate()) {
+            states.remove(state.loadBalancerId);
+            PolledMeter.remove(registry, state.rateId);
+        }
+    }
+
+    /**
+     * Same rules as in {@link com.netflix.titus.common.util.rx.batch.RateLimitedBatcher}: a higher priority update
+     * always wins, and for the same priority the more recent one, if it leads to a different state.
+     */
+    private static boolean isHigherPriorityOrNewer(TargetStateBatchable existing, TargetStateBatchable replacement) {
+        int priorityComparison = Batchable.byPriority().compare(replacement, existing);
+        if (priorityComparison != 0) {
+            return priorityComparison > 0;
+        }
+        return !replacement.getTimestamp().isBefore(existing.getTimestamp()) && !replacement.isEquivalent(existing);
+    }
+
+    private static class LoadBalancerState {
+
+        private final String loadBalancerId;
+        private final LoadBalancerRateController rateController;
+        private final Id rateId;
+        private final Map<LoadBalancerTarget, TargetStateBatchable> pending = new LinkedHashMap<>();
+        private boolean inFlight;
+        private boolean drainScheduled;
+
+        private LoadBalancerState(String loadBalancerId, LoadBalancerRateController rateController, Id rateId) {
+            this.loadBalancerId = loadBalancerId;
+            this.rateController = rateController;
+            this.rateId = rateId;
+        }
+    }
+}
@@ -72,6 +72,39 @@ public interface LoadBalancerConfiguration {
     @DefaultValue("5000")
     long getBucketSizeMs();
 
+    /**
+     * Max number of target updates waiting in the per load balancer backlogs. Updates for the same target are coalesced,
+     * so the backlog size is limited by the number of targets with a pending change. Targets that do not fit are left to
+     * the reconciliation loop.
+     */
+    @DefaultValue("100000")
+    int getBacklogMaxSize();
+
+    /**
+     * Max rate (batches per second) of connector calls for a single load balancer. The rate is reduced when the
+     * connector is throttled, and increased back after each successful call.
+     */
+    @DefaultValue("5")
+    double getLoadBalancerMaxRatePerSec();
+
+    /**
+     * The rate of connector calls for a single load balancer is never reduced below this value.
+     */
+    @DefaultValue("0.1")
+    double getLoadBalancerMinRatePerSec();
+
+    /**
+     * Rate increase after each successful connector call for a load balancer.
+     */
+    @DefaultValue("0.5")
+    double getLoadBalancerRateIncrease();
+
+    /**
+     * A factor by which the load balancer rate is multiplied when the connector is throttled.
+     */
+    @DefaultValue("0.5")
+    double getLoadBalancerRateDecreaseFactor();
+
     /**
      * Since state for load balancer targets has not always been stored, backfill needs to run at least once on every
      * deployment that managed one or more load balancers. Backfill should be disabled after being executed once (e.g.:
@@ -22,10 +22,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.netflix.titus.api.connector.cloud.CloudConnectorException;
 import com.netflix.titus.api.connector.cloud.LoadBalancerConnector;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -64,6 +66,7 @@ class LoadBalancerEngine {
 
     private final Subject<JobLoadBalancer, JobLoadBalancer> pendingAssociations = PublishSubject.<JobLoadBalancer>create().toSerialized();
     private final Subject<JobLoadBalancer, JobLoadBalancer> pendingDissociations = PublishSubject.<JobLoadBalancer>create().toSerialized();
+    private final Subject<String, String> drainRequests = PublishSubject.<String>create().toSerialized();
 
     private final TitusRuntime titusRuntime;
     private final CodeInvariants invariants;
@@ -73,6 +76,7 @@ class LoadBalancerEngine {
     private final LoadBalancerConnector connector;
     private final LoadBalancerStore store;
     private final LoadBalancerReconciler reconciler;
+    private final LoadBalancerBacklog backlog;
     private final Scheduler scheduler;
 
     LoadBalancerEngine(TitusRuntime titusRuntime,
@@ -91,6 +95,7 @@ class LoadBalancerEngine {
         this.store = loadBalancerStore;
         this.connectorTokenBucket = connectorTokenBucket;
         this.reconciler = reconciler;
+        this.backlog = new LoadBalancerBacklog(configuration, titusRuntime.getRegistry());
         this.scheduler = scheduler;
     }
 
@@ -123,15 +128,18 @@ class LoadBalancerEngine {
                 moveFromEvents(tasksMoved)
         ).compose(disableReconciliationTemporarily());
 
-        return updates
+        // batches are not dropped under backpressure, but coalesced in the backlog until their load balancer is ready
+        Observable<String> batched = updates
                 .compose(ObservableExt.batchWithRateLimit(buildBatcher(), METRIC_BATCHES, titusRuntime.getRegistry()))
                 .filter(batch -> !batch.getItems().isEmpty())
-                .onBackpressureDrop(batch -> logger.warn("Backpressure! Dropping batch for {} size {}", batch.getIndex(), batch.size()))
-                .doOnNext(batch -> logger.debug("Processing batch for {} size {}", batch.getIndex(), batch.size()))
-                .flatMap(batch -> applyUpdates(batch).onErrorResumeNext(e -> {
-                    logger.error("Could not apply batch for load balancer " + batch.getIndex(), e);
-                    return Observable.empty();
-                }))
+                .doOnNext(batch -> {
+                    logger.debug("Adding batch for {} size {} to the backlog", batch.getIndex(), batch.size());
+                    returnToReconciler(batch.getIndex(), backlog.add(batch));
+                })
+                .map(Batch::getIndex);
+
+        return Observable.merge(batched, drainRequests)
+                .flatMap(this::drain)
                 .doOnNext(batch -> logger.info("Processed {} load balancer updates for {}", batch.size(), batch.getIndex()))
                 .doOnError(e -> logger.error("Error batching load balancer calls", e))
                 .retry();
@@ -150,6 +158,68 @@ class LoadBalancerEngine {
     public void shutdown() {
         this.pendingAssociations.onCompleted();
         this.pendingDissociations.onCompleted();
+        this.drainRequests.onCompleted();
+        this.backlog.shutdown();
+    }
+
+    /**
+     * Applies pending updates of a load balancer if it has no batch in-flight, and its rate limit allows it. A rate
+     * limited load balancer is drained again after a delay, and each finished batch triggers another drain to pick up
+     * updates that arrived while it was in-flight.
+     */
+    private Observable<Batch<TargetStateBatchable, String>> drain(String loadBalancerId) {
+        Optional<Batch<TargetStateBatchable, String>> next = backlog.takeIfReady(loadBalancerId, scheduler.now());
+        if (!next.isPresent()) {
+            long delayMs = backlog.scheduleDrain(loadBalancerId, scheduler.now());
+            if (delayMs >= 0) {
+                Observable.timer(delayMs, TimeUnit.MILLISECONDS, scheduler).subscribe(tick -> drainRequests.onNext(loadBalancerId));
+            }
+            return Observable.empty();
+        }
+
+        Batch<TargetStateBatchable, String> batch = next.get();
+        logger.debug("Processing batch for {} size {}", loadBalancerId, batch.size());
+        return applyUpdates(batch)
+                .doOnNext(backlog::completed)
+                .onErrorResumeNext(e -> {
+                    if (isThrottled(e)) {
+                        returnToReconciler(loadBalancerId, backlog.throttled(batch));
+                        logger.warn("Load balancer {} throttled, retrying {} updates at a lower rate: {} batches/sec",
+                                loadBalancerId, batch.size(), backlog.getRatePerSec(loadBalancerId));
+                    } else {
+                        logger.error("Could not apply batch for load balancer " + loadBalancerId, e);
+                    }
+                    return Observable.empty();
+                })
+                .doOnUnsubscribe(() -> backlog.release(batch))
+                .doAfterTerminate(() -> {
+                    backlog.release(batch);
+                    drainRequests.onNext(loadBalancerId);
+                });
+    }
+
+    /**
+     * Targets that do not fit into the backlog are left to the reconciliation loop, so their cooldown is cleared.
+     */
+    private void returnToReconciler(String loadBalancerId, List<TargetStateBatchable> rejected) {
+        if (!rejected.isEmpty()) {
+            logger.warn("Backlog full, leaving {} updates for load balancer {} to the reconciliation loop", rejected.size(), loadBalancerId);
+            rejected.forEach(update -> reconciler.activateCooldownFor(update.getIdentifier(), 0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static boolean isThrottled(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (CloudConnectorException.isThis(cause, CloudConnectorException.ErrorCode.Throttled)) {
+                return true;
+            }
+            for (Throwable suppressed : cause.getSuppressed()) {
+                if (isThrottled(suppressed)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private Observable<Batch<TargetStateBatchable, String>> applyUpdates(Batch<TargetStateBatchable, String> batch) {
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.master.loadbalancer.service;
+
+/**
+ * Additive increase/multiplicative decrease (AIMD) rate control of connector calls made for a single load balancer.
+ * The rate starts at {@link LoadBalancerConfiguration#getLoadBalancerMaxRatePerSec()}, is cut by
+ * {@link LoadBalancerConfiguration#getLoadBalancerRateDecreaseFactor()} each time the connector is throttled, and
+ * grows back by {@link LoadBalancerConfiguration#getLoadBalancerRateIncrease()} after each successful call.
+ * <p>
+ * This class is not thread safe. It is owned by {@link LoadBalancerBacklog}, which serializes access to it.
+ */
+class LoadBalancerRateController {
+
+    private final LoadBalancerConfiguration configuration;
+
+    private volatile double ratePerSec;
+    private long lastPermitTimeMs = Long.MIN_VALUE;
+
+    LoadBalancerRateController(LoadBalancerConfiguration configuration) {
+        this.configuration = configuration;
+        this.ratePerSec = configuration.getLoadBalancerMaxRatePerSec();
+    }
+
+    double getRatePerSec() {
+        return ratePerSec;
+    }
+
+    boolean isAtMaxRate() {
+        return ratePerSec >= configuration.getLoadBalancerMaxRatePerSec();
+    }
+
+    /**
+     * @return how long to wait before the next call is allowed, or 0 if it can be made now
+     */
+    long getDelayMs(long nowMs) {
+        if (lastPermitTimeMs == Long.MIN_VALUE) {
+            return 0;
+        }
+        return Math.max(0, lastPermitTimeMs + getIntervalMs() - nowMs);
+    }
+
+    boolean tryAcquire(long nowMs) {
+        if (getDelayMs(nowMs) > 0) {
+            return false;
+        }
+        lastPermitTimeMs = nowMs;
+        return true;
+    }
+
+    void onSuccess() {
+        ratePerSec = Math.min(configuration.getLoadBalancerMaxRatePerSec(), ratePerSec + configuration.getLoadBalancerRateIncrease());
+    }
+
+    void onThrottled() {
+        ratePerSec = Math.max(configuration.getLoadBalancerMinRatePerSec(), ratePerSec * configuration.getLoadBalancerRateDecreaseFactor());
+    }
+
+    private long getIntervalMs() {
+        return (long) (1_000 / ratePerSec);
+    }
+}
@@ -227,23 +227,18 @@ public class KubeUtil {
             Map<String, String> passthroughAttributes,
             boolean includeJobDescriptor
     ) {
-        String encodedContainerInfo = Base64.getEncoder().encodeToString(containerInfoData);
+        return createPodAnnotations(createJobPodAnnotations(job, includeJobDescriptor), task, containerInfoData, passthroughAttributes);
+    }
 
-        Map<String, String> annotations = new HashMap<>(passthroughAttributes);
-        annotations.putAll(PerformanceToolUtil.toAnnotations(job));
-        annotations.put("containerInfo", encodedContainerInfo);
+    /**
+     * Creates the pod annotations that depend on the job only, and are the same for all its tasks.
+     */
+    public static Map<String, String> createJobPodAnnotations(Job<?> job, boolean includeJobDescriptor) {
+        Map<String, String> annotations = new HashMap<>(PerformanceToolUtil.toAnnotations(job));
         Evaluators.acceptNotNull(
                 job.getJobDescriptor().getAttributes().get(JobAttributes.JOB_ATTRIBUTES_RUNTIME_PREDICTION_SEC),
                 runtimeInSec -> annotations.put(KubeConstants.JOB_RUNTIME_PREDICTION, runtimeInSec + "s")
         );
-        Evaluators.acceptNotNull(
-                task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_OPPORTUNISTIC_CPU_COUNT),
-                count -> annotations.put(KubeConstants.OPPORTUNISTIC_CPU_COUNT, count)
-        );
-        Evaluators.acceptNotNull(
-                task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_OPPORTUNISTIC_CPU_ALLOCATION),
-                id -> annotations.put(KubeConstants.OPPORTUNISTIC_ID, id)
-        );
 
         if (includeJobDescriptor) {
             JobDescriptor grpcJobDescriptor = GrpcJobManagementModelConverters.toGrpcJobDescriptor(job.getJobDescriptor());
@@ -260,6 +255,32 @@ public class KubeUtil {
         return annotations;
     }
 
+    /**
+     * Creates the pod annotations for a task, given the job level annotations built by {@link #createJobPodAnnotations(Job, boolean)}.
+     */
+    public static Map<String, String> createPodAnnotations(
+            Map<String, String> jobAnnotations,
+            Task task,
+            byte[] containerInfoData,
+            Map<String, String> passthroughAttributes
+    ) {
+        String encodedContainerInfo = Base64.getEncoder().encodeToString(containerInfoData);
+
+        Map<String, String> annotations = new HashMap<>(passthroughAttributes);
+        annotations.putAll(jobAnnotations);
+        annotations.put("containerInfo", encodedContainerInfo);
+        Evaluators.acceptNotNull(
+                task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_OPPORTUNISTIC_CPU_COUNT),
+                count -> annotations.put(KubeConstants.OPPORTUNISTIC_CPU_COUNT, count)
+        );
+        Evaluators.acceptNotNull(
+                task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_OPPORTUNISTIC_CPU_ALLOCATION),
+                id -> annotations.put(KubeConstants.OPPORTUNISTIC_ID, id)
+        );
+
+        return annotations;
+    }
+
     public static Map<String, String> createPodAnnotationsFromJobParameters(Job<?> job) {
         Map<String, String> annotations = new HashMap<>();
         Map<String, String> containerAttributes = job.getJobDescriptor().getContainer().getAttributes();
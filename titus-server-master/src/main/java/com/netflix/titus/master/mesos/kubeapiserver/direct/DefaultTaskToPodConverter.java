@@ -16,6 +16,8 @@
 
 package com.netflix.titus.master.mesos.kubeapiserver.direct;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +30,8 @@ import javax.inject.Singleton;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.primitives.Ints;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.jobmanager.JobAttributes;
 import com.netflix.titus.api.jobmanager.JobConstraints;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
@@ -46,9 +50,12 @@ import com.netflix.titus.api.jobmanager.model.job.SecurityProfile;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.vpc.SignedIpAddressAllocation;
 import com.netflix.titus.api.model.EfsMount;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.Evaluators;
 import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.cache.Cache;
+import com.netflix.titus.common.util.cache.Caches;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.mesos.kubeapiserver.KubeUtil;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.env.ContainerEnvFactory;
@@ -64,6 +71,7 @@ import io.kubernetes.client.openapi.models.V1ObjectMeta;
 import io.kubernetes.client.openapi.models.V1Pod;
 import io.kubernetes.client.openapi.models.V1PodSpec;
 import io.kubernetes.client.openapi.models.V1ResourceRequirements;
+import io.kubernetes.client.openapi.models.V1Toleration;
 import io.kubernetes.client.openapi.models.V1TopologySpreadConstraint;
 import io.titanframework.messages.TitanProtos;
 
@@ -110,6 +118,8 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
      */
     private static final int SOFT_MAX_SKEW = 100_000;
 
+    private static final String POD_TEMPLATE_METRIC_ROOT = "titusMaster.directKube.podTemplateCache";
+
     private final DirectKubeConfiguration configuration;
     private final PodAffinityFactory podAffinityFactory;
     private final TaintTolerationFactory taintTolerationFactory;
@@ -117,12 +127,17 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
     private final LogStorageInfo<Task> logStorageInfo;
     private final String iamArnPrefix;
 
+    private final Cache<String, PodTemplate> podTemplates;
+    private final Counter podTemplateHits;
+    private final Counter podTemplateMisses;
+
     @Inject
     public DefaultTaskToPodConverter(DirectKubeConfiguration configuration,
                                      PodAffinityFactory podAffinityFactory,
                                      TaintTolerationFactory taintTolerationFactory,
                                      ContainerEnvFactory ContainerEnvFactory,
-                                     LogStorageInfo<Task> logStorageInfo) {
+                                     LogStorageInfo<Task> logStorageInfo,
+                                     TitusRuntime titusRuntime) {
         this.configuration = configuration;
         this.podAffinityFactory = podAffinityFactory;
         this.taintTolerationFactory = taintTolerationFactory;
@@ -132,17 +147,27 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
         // Get the AWS account ID to use for building IAM ARNs.
         String accountId = Evaluators.getOrDefault(System.getenv("EC2_OWNER_ID"), "default");
         this.iamArnPrefix = ARN_PREFIX + accountId + ARN_SUFFIX;
+
+        Registry registry = titusRuntime.getRegistry();
+        this.podTemplates = Caches.instrumentedCacheWithMaxSize(
+                configuration.getPodTemplateCacheSize(),
+                Duration.ofMillis(configuration.getPodTemplateCacheTtlMs()),
+                POD_TEMPLATE_METRIC_ROOT,
+                registry
+        );
+        this.podTemplateHits = registry.counter(POD_TEMPLATE_METRIC_ROOT + ".lookups", "result", "hit");
+        this.podTemplateMisses = registry.counter(POD_TEMPLATE_METRIC_ROOT + ".lookups", "result", "miss");
     }
 
     @Override
     public V1Pod apply(Job<?> job, Task task) {
         String taskId = task.getId();
-        TitanProtos.ContainerInfo containerInfo = buildContainerInfo(job, task);
-        Map<String, String> annotations = KubeUtil.createPodAnnotations(job, task, containerInfo.toByteArray(),
-                containerInfo.getPassthroughAttributesMap(), configuration.isJobDescriptorAnnotationEnabled());
+        PodTemplate template = getPodTemplate(job, task);
 
-        Pair<V1Affinity, Map<String, String>> affinityWithMetadata = podAffinityFactory.buildV1Affinity(job, task);
-        annotations.putAll(affinityWithMetadata.getRight());
+        TitanProtos.ContainerInfo containerInfo = buildTaskContainerInfo(template.containerInfo, job, task);
+        Map<String, String> annotations = KubeUtil.createPodAnnotations(template.annotations, task, containerInfo.toByteArray(),
+                containerInfo.getPassthroughAttributesMap());
+        annotations.putAll(template.affinityAnnotations);
 
         Map<String, String> labels = new HashMap<>();
         labels.put(KubeConstants.POD_LABEL_JOB_ID, job.getId());
@@ -160,7 +185,7 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
                 .name(taskId)
                 .image("imageIsInContainerInfo")
                 .env(ContainerEnvs.toV1EnvVar(containerEnvFactory.buildContainerEnv(job, task)))
-                .resources(buildV1ResourceRequirements(job.getJobDescriptor().getContainer().getContainerResources()));
+                .resources(template.resources);
 
         V1PodSpec spec = new V1PodSpec()
                 .schedulerName(configuration.getKubeSchedulerName())
@@ -168,13 +193,40 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
                 .terminationGracePeriodSeconds(POD_TERMINATION_GRACE_PERIOD_SECONDS)
                 .restartPolicy(NEVER_RESTART_POLICY)
                 .dnsPolicy(DEFAULT_DNS_POLICY)
-                .affinity(affinityWithMetadata.getLeft())
-                .tolerations(taintTolerationFactory.buildV1Toleration(job, task))
-                .topologySpreadConstraints(buildTopologySpreadConstraints(job));
+                .affinity(template.affinity)
+                .tolerations(new ArrayList<>(template.tolerations))
+                .topologySpreadConstraints(new ArrayList<>(template.topologySpreadConstraints));
 
         return new V1Pod().metadata(metadata).spec(spec);
     }
 
+    /**
+     * Pod templates are cached per job, and rebuilt when the job descriptor changes, or when the cache entry expires,
+     * so changes to the configuration or the capacity groups are eventually applied to new pods as well.
+     */
+    private PodTemplate getPodTemplate(Job<?> job, Task task) {
+        PodTemplate template = podTemplates.getIfPresent(job.getId());
+        if (template != null && template.isBuiltFrom(job.getJobDescriptor())) {
+            podTemplateHits.increment();
+            return template;
+        }
+        podTemplateMisses.increment();
+
+        Pair<V1Affinity, Map<String, String>> affinityWithMetadata = podAffinityFactory.buildV1Affinity(job, task);
+        template = new PodTemplate(
+                job.getJobDescriptor(),
+                buildJobContainerInfo(job),
+                KubeUtil.createJobPodAnnotations(job, configuration.isJobDescriptorAnnotationEnabled()),
+                affinityWithMetadata.getLeft(),
+                affinityWithMetadata.getRight(),
+                taintTolerationFactory.buildV1Toleration(job, task),
+                buildV1ResourceRequirements(job.getJobDescriptor().getContainer().getContainerResources()),
+                buildTopologySpreadConstraints(job)
+        );
+        podTemplates.put(job.getId(), template);
+        return template;
+    }
+
     @VisibleForTesting
     V1ResourceRequirements buildV1ResourceRequirements(ContainerResources containerResources) {
         Map<String, Quantity> requests = new HashMap<>();
@@ -211,7 +263,10 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
         return new V1ResourceRequirements().requests(requests).limits(limits);
     }
 
-    private TitanProtos.ContainerInfo buildContainerInfo(Job<?> job, Task task) {
+    /**
+     * Builds the part of {@link TitanProtos.ContainerInfo} that is the same for all tasks of a job.
+     */
+    private TitanProtos.ContainerInfo buildJobContainerInfo(Job<?> job) {
         JobDescriptor<?> jobDescriptor = job.getJobDescriptor();
         Map<String, String> jobAttributes = jobDescriptor.getAttributes();
         TitanProtos.ContainerInfo.Builder containerInfoBuilder = TitanProtos.ContainerInfo.newBuilder();
@@ -265,7 +320,6 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
                 containerInfoBuilder.putPassthroughAttributes(k, v);
             }
         });
-        appendS3WriterRole(containerInfoBuilder, job, task);
 
         containerInfoBuilder.putPassthroughAttributes(OWNER_EMAIL_ATTRIBUTE, jobDescriptor.getOwner().getTeamEmail());
         containerInfoBuilder.putPassthroughAttributes(JOB_TYPE_ATTRIBUTE, getJobType(jobDescriptor).name());
@@ -285,17 +339,6 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
             }
         });
 
-        containerInfoBuilder.putTitusProvidedEnv("TITUS_JOB_ID", task.getJobId());
-        containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_ID", task.getId());
-        containerInfoBuilder.putTitusProvidedEnv("NETFLIX_EXECUTOR", "titus");
-        containerInfoBuilder.putTitusProvidedEnv("NETFLIX_INSTANCE_ID", task.getId());
-        containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_INSTANCE_ID", task.getId());
-        containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_ORIGINAL_ID", task.getOriginalId());
-        if (task instanceof BatchJobTask) {
-            BatchJobTask batchJobTask = (BatchJobTask) task;
-            containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_INDEX", "" + batchJobTask.getIndex());
-        }
-
         // Always set this to true until it is removed from the executor
         containerInfoBuilder.setIgnoreLaunchGuard(true);
 
@@ -325,8 +368,30 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
         // Configure shared memory size
         containerInfoBuilder.setShmSizeMB(containerResources.getShmMB());
 
+        return containerInfoBuilder.build();
+    }
+
+    /**
+     * Adds task specific values to the job level {@link TitanProtos.ContainerInfo} built by {@link #buildJobContainerInfo(Job)}.
+     */
+    private TitanProtos.ContainerInfo buildTaskContainerInfo(TitanProtos.ContainerInfo jobContainerInfo, Job<?> job, Task task) {
+        TitanProtos.ContainerInfo.Builder containerInfoBuilder = jobContainerInfo.toBuilder();
+
+        appendS3WriterRole(containerInfoBuilder, job, task);
+
+        containerInfoBuilder.putTitusProvidedEnv("TITUS_JOB_ID", task.getJobId());
+        containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_ID", task.getId());
+        containerInfoBuilder.putTitusProvidedEnv("NETFLIX_EXECUTOR", "titus");
+        containerInfoBuilder.putTitusProvidedEnv("NETFLIX_INSTANCE_ID", task.getId());
+        containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_INSTANCE_ID", task.getId());
+        containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_ORIGINAL_ID", task.getOriginalId());
+        if (task instanceof BatchJobTask) {
+            BatchJobTask batchJobTask = (BatchJobTask) task;
+            containerInfoBuilder.putTitusProvidedEnv("TITUS_TASK_INDEX", "" + batchJobTask.getIndex());
+        }
+
         // Configure IP address allocation
-        setSignedAddressAllocation(containerInfoBuilder, task, containerResources);
+        setSignedAddressAllocation(containerInfoBuilder, task, job.getJobDescriptor().getContainer().getContainerResources());
 
         // Configure job accepted timestamp
         setJobAcceptedTimestamp(containerInfoBuilder, job);
@@ -440,4 +505,38 @@ public class DefaultTaskToPodConverter implements TaskToPodConverter {
 
         return Collections.singletonList(constraint);
     }
+
+    private static class PodTemplate {
+
+        private final JobDescriptor<?> jobDescriptor;
+        private final TitanProtos.ContainerInfo containerInfo;
+        private final Map<String, String> annotations;
+        private final V1Affinity affinity;
+        private final Map<String, String> affinityAnnotations;
+        private final List<V1Toleration> tolerations;
+        private final V1ResourceRequirements resources;
+        private final List<V1TopologySpreadConstraint> topologySpreadConstraints;
+
+        private PodTemplate(JobDescriptor<?> jobDescriptor,
+                            TitanProtos.ContainerInfo containerInfo,
+                            Map<String, String> annotations,
+                            V1Affinity affinity,
+                            Map<String, String> affinityAnnotations,
+                            List<V1Toleration> tolerations,
+                            V1ResourceRequirements resources,
+                            List<V1TopologySpreadConstraint> topologySpreadConstraints) {
+            this.jobDescriptor = jobDescriptor;
+            this.containerInfo = containerInfo;
+            this.annotations = annotations;
+            this.affinity = affinity;
+            this.affinityAnnotations = affinityAnnotations;
+            this.tolerations = tolerations;
+            this.resources = resources;
+            this.topologySpreadConstraints = topologySpreadConstraints;
+        }
+
+        private boolean isBuiltFrom(JobDescriptor<?> otherJobDescriptor) {
+            return jobDescriptor == otherJobDescriptor || jobDescriptor.equals(otherJobDescriptor);
+        }
+    }
 }
@@ -173,4 +173,17 @@ public interface DirectKubeConfiguration extends KubeConnectorConfiguration {
      */
     @DefaultValue("false")
     boolean isBytePodResourceEnabled();
+
+    /**
+     * Maximum number of jobs for which pod templates (pod parts that do not depend on a task) are cached.
+     */
+    @DefaultValue("10000")
+    int getPodTemplateCacheSize();
+
+    /**
+     * Amount of time after which a cached pod template is rebuilt, even if its job descriptor has not changed. It bounds
+     * the time needed to apply configuration or capacity group changes to new pods.
+     */
+    @DefaultValue("60000")
+    long getPodTemplateCacheTtlMs();
 }
@@ -31,7 +31,8 @@ public interface PodAffinityFactory {
 
     /**
      * Returns Kubernetes {@link V1Affinity} rules for a task, and a map of key/value pairs that are added to
-     * pod annotations.
+     * pod annotations. The result must depend on the job only, as it is shared by all tasks of the job
+     * (see {@link DefaultTaskToPodConverter}).
      */
     Pair<V1Affinity, Map<String, String>> buildV1Affinity(Job<?> job, Task task);
 }
@@ -27,5 +27,8 @@ import io.kubernetes.client.openapi.models.V1Toleration;
  */
 public interface TaintTolerationFactory {
 
+    /**
+     * The result must depend on the job only, as it is shared by all tasks of the job.
+     */
     List<V1Toleration> buildV1Toleration(Job job, Task task);
 }
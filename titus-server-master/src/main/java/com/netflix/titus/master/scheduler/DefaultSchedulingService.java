@@ -165,6 +165,7 @@ public class DefaultSchedulingService implements SchedulingService<V3QueueableTa
     private final TitusRuntime titusRuntime;
     private final AgentResourceCache agentResourceCache;
     private final AgentResourceCacheUpdater agentResourceCacheUpdater;
+    private final TaskCache taskCache;
     private final TierSlaUpdater tierSlaUpdater;
     private final Registry registry;
     private final AgentManagementService agentManagementService;
@@ -236,6 +237,7 @@ public class DefaultSchedulingService implements SchedulingService<V3QueueableTa
         this.registry = registry;
         this.titusRuntime = titusRuntime;
         this.agentResourceCache = agentResourceCache;
+        this.taskCache = taskCache;
         this.systemHardConstraint = systemHardConstraint;
         this.capacityGroupService = capacityGroupService;
         this.schedulingMachinesFilter = schedulingMachinesFilter;
@@ -603,6 +605,7 @@ public class DefaultSchedulingService implements SchedulingService<V3QueueableTa
      * To fix this problem we have to redesign our APIs.
      */
     public void startScheduling() {
+        taskCache.start();
         if (schedulerConfiguration.isSchedulerEnabled()) {
             logger.info("Starting the scheduling service");
             schedulingService.start();
@@ -165,6 +165,12 @@ public interface SchedulerConfiguration {
     @DefaultValue("600000")
     long getLeaseDumpIntervalMs();
 
+    /**
+     * Interval at which the incrementally maintained task cache is compared with a full rebuild from the job manager state.
+     */
+    @DefaultValue("300000")
+    long getTaskCacheConsistencyCheckIntervalMs();
+
     /**
      * @return timeout for waiting for a state dump from the scheduler. A good value is at least
      * 3 * {@link SchedulerConfiguration#getSchedulerMaxIdleIntervalMs()}.
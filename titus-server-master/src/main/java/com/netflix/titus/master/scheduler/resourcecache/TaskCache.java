@@ -16,49 +16,148 @@
 
 package com.netflix.titus.master.scheduler.resourcecache;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.vpc.SignedIpAddressAllocation;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.code.CodeInvariants;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import static com.netflix.titus.master.MetricConstants.METRIC_SCHEDULING_SERVICE;
 
 /**
  * Helper class that aggregates task data by multiple criteria used by Fenzo constraint/fitness evaluators.
+ * <p>
+ * Once {@link #start()} is called, the aggregates are maintained incrementally from the job manager event stream, and
+ * {@link #prepare()} only takes their current view. Finished tasks are counted until they are removed from their job.
+ * As the job manager emits no event for that, {@link #prepare()} checks if the finished tasks still exist. To guard
+ * against missed or reordered events, the aggregates are periodically compared with a full rebuild from the job manager
+ * state, and replaced with it if they diverged. The rebuild runs without holding the state lock, and the events applied
+ * in the meantime are replayed on top of it before the comparison. If the cache is not started, the aggregates are
+ * rebuilt from scratch on each {@link #prepare()} call.
  */
 @Singleton
 public class TaskCache {
 
+    private static final Logger logger = LoggerFactory.getLogger(TaskCache.class);
+
+    private static final String METRIC_TASK_CACHE = METRIC_SCHEDULING_SERVICE + "taskCache.";
+
+    private final SchedulerConfiguration configuration;
     private final TitusRuntime titusRuntime;
     private final V3JobOperations v3JobOperations;
+    private final Clock clock;
     private final AtomicReference<TaskCacheValue> currentCacheValue;
 
+    private final Object stateLock = new Object();
+    private volatile TaskCacheState state = new TaskCacheState();
+    private volatile boolean incremental;
+    private List<Consumer<TaskCacheState>> updatesDuringRebuild;
+    private long lastConsistencyCheckTimestamp;
+    private Subscription jobEventSubscription;
+
+    private final Registry registry;
+    private final Timer prepareTimer;
+    private final Timer rebuildTimer;
+    private final Id divergencesId;
+    private final Id tasksId;
+
     @Inject
-    public TaskCache(TitusRuntime titusRuntime, V3JobOperations v3JobOperations) {
+    public TaskCache(SchedulerConfiguration configuration, TitusRuntime titusRuntime, V3JobOperations v3JobOperations) {
+        this.configuration = configuration;
         this.titusRuntime = titusRuntime;
         this.v3JobOperations = v3JobOperations;
+        this.clock = titusRuntime.getClock();
         this.currentCacheValue = new AtomicReference<>();
+
+        this.registry = titusRuntime.getRegistry();
+        this.prepareTimer = registry.timer(METRIC_TASK_CACHE + "prepareTime");
+        this.rebuildTimer = registry.timer(METRIC_TASK_CACHE + "rebuildTime");
+        this.divergencesId = registry.createId(METRIC_TASK_CACHE + "divergences");
+        this.tasksId = registry.createId(METRIC_TASK_CACHE + "tasks");
+        PolledMeter.using(registry).withId(tasksId).monitorValue(this, self -> self.state.getTaskCount());
+    }
+
+    /**
+     * FIXME Due to circular dependencies, we cannot depend on the activation framework to do the initialization in the right order.
+     */
+    public void start() {
+        synchronized (stateLock) {
+            // Events arriving before the initial state is built wait on the lock, and are applied on top of it.
+            this.jobEventSubscription = titusRuntime.persistentStream(v3JobOperations.observeJobs()).subscribe(
+                    this::handleJobEvent,
+                    e -> logger.error("Job event stream terminated with an error", e),
+                    () -> logger.info("Job event stream onCompleted")
+            );
+            this.state = rebuild();
+            this.lastConsistencyCheckTimestamp = clock.wallTime();
+            this.incremental = true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PolledMeter.remove(registry, tasksId);
+        ObservableExt.safeUnsubscribe(jobEventSubscription);
     }
 
     public void prepare() {
-        currentCacheValue.set(new TaskCacheValue());
+        long startTime = clock.wallTime();
+        TaskCacheValue value;
+        if (incremental) {
+            List<String> removedTaskIds = findRemovedFinishedTasks();
+            if (!removedTaskIds.isEmpty()) {
+                applyUpdate(current -> removedTaskIds.forEach(current::removeTask));
+            }
+            if (startTime - lastConsistencyCheckTimestamp >= configuration.getTaskCacheConsistencyCheckIntervalMs()) {
+                checkConsistency();
+                lastConsistencyCheckTimestamp = startTime;
+            }
+            synchronized (stateLock) {
+                value = new TaskCacheValue(state);
+            }
+        } else {
+            value = new TaskCacheValue(rebuild());
+        }
+        currentCacheValue.set(value);
+        prepareTimer.record(clock.wallTime() - startTime, TimeUnit.MILLISECONDS);
     }
 
     public Map<String, Integer> getTasksByZoneIdCounters(String jobId) {
@@ -67,7 +166,7 @@ public class TaskCache {
 
     // Returns a task ID if there is a task assigned to the provided IP allocation
     public Optional<String> getTaskByIpAllocationId(String ipAllocationId) {
-        return Optional.ofNullable(currentCacheValue.get().assignedIpAllocations.get(ipAllocationId));
+        return currentCacheValue.get().getTaskByIpAllocationId(ipAllocationId);
     }
 
     // Updates the cache to reflect assignment of an IP allocation to a task
@@ -84,91 +183,233 @@ public class TaskCache {
     }
 
     public int getOpportunisticCpusAllocated(String agentId) {
-        return currentCacheValue.get().assignedOpportunisticCpus.getOrDefault(agentId, Collections.emptyList()).stream()
-                .mapToInt(OpportunisticCpuAllocation::getCpuCount)
-                .sum();
+        return currentCacheValue.get().getOpportunisticCpusAllocated(agentId);
+    }
+
+    private void handleJobEvent(JobManagerEvent<?> event) {
+        try {
+            if (event instanceof TaskUpdateEvent) {
+                TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
+                TaskCacheState.TaskEntry entry = toTaskEntry(taskUpdateEvent.getCurrentJob(), taskUpdateEvent.getCurrentTask());
+                applyUpdate(current -> current.addOrUpdateTask(entry));
+            } else if (event instanceof JobUpdateEvent) {
+                Job<?> job = ((JobUpdateEvent) event).getCurrent();
+                if (job.getStatus().getState() == JobState.Finished) {
+                    applyUpdate(current -> current.removeJob(job.getId()));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Cannot apply job event to the task cache: {}", event, e);
+        }
+    }
+
+    private void applyUpdate(Consumer<TaskCacheState> update) {
+        synchronized (stateLock) {
+            update.accept(state);
+            if (updatesDuringRebuild != null) {
+                updatesDuringRebuild.add(update);
+            }
+        }
+    }
+
+    private TaskCacheState rebuild() {
+        long startTime = clock.wallTime();
+        TaskCacheState newState = new TaskCacheState();
+        List<Pair<Job, List<Task>>> jobsAndTasks = v3JobOperations.getJobsAndTasks();
+        for (Pair<Job, List<Task>> jobAndTasks : jobsAndTasks) {
+            for (Task task : jobAndTasks.getRight()) {
+                newState.addOrUpdateTask(toTaskEntry(jobAndTasks.getLeft(), task));
+            }
+        }
+        rebuildTimer.record(clock.wallTime() - startTime, TimeUnit.MILLISECONDS);
+        return newState;
+    }
+
+    /**
+     * Returns ids of the finished tasks, which are no longer present in the job manager.
+     */
+    private List<String> findRemovedFinishedTasks() {
+        List<String> finishedTaskIds;
+        synchronized (stateLock) {
+            finishedTaskIds = state.getFinishedTaskIds();
+        }
+        List<String> removedTaskIds = new ArrayList<>();
+        for (String taskId : finishedTaskIds) {
+            if (!v3JobOperations.findTaskById(taskId).isPresent()) {
+                removedTaskIds.add(taskId);
+            }
+        }
+        return removedTaskIds;
     }
 
-    private class TaskCacheValue {
+    private void checkConsistency() {
+        synchronized (stateLock) {
+            updatesDuringRebuild = new ArrayList<>();
+        }
+        TaskCacheState rebuilt;
+        try {
+            rebuilt = rebuild();
+        } catch (Exception e) {
+            synchronized (stateLock) {
+                updatesDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (stateLock) {
+            // The updates set the current state of a task or job, so replaying an update for a change already included
+            // in the rebuild has no effect. Changes still in flight in the event stream are applied on top afterwards.
+            updatesDuringRebuild.forEach(update -> update.accept(rebuilt));
+            updatesDuringRebuild = null;
+            compareAndReplace(rebuilt);
+        }
+    }
 
-        private final Map<String, Map<String, Integer>> zoneBalanceCountersByJobId;
+    private void compareAndReplace(TaskCacheState rebuilt) {
+        int zoneCounters = countDivergences(state.getZoneBalanceCountersByJobId(), rebuilt.getZoneBalanceCountersByJobId());
+        int assignedIps = countDivergences(state.getAssignedIpAllocations(), rebuilt.getAssignedIpAllocations());
+        int ipZones = countDivergences(state.getIpAllocationIdToZoneId(), rebuilt.getIpAllocationIdToZoneId());
+        int opportunisticCpus = countDivergences(state.getOpportunisticCpusByAgentId(), rebuilt.getOpportunisticCpusByAgentId());
+
+        registry.counter(divergencesId.withTag("aggregate", "zoneBalanceCounters")).increment(zoneCounters);
+        registry.counter(divergencesId.withTag("aggregate", "assignedIpAllocations")).increment(assignedIps);
+        registry.counter(divergencesId.withTag("aggregate", "ipAllocationZones")).increment(ipZones);
+        registry.counter(divergencesId.withTag("aggregate", "opportunisticCpuAllocations")).increment(opportunisticCpus);
+
+        if (zoneCounters + assignedIps + ipZones + opportunisticCpus > 0) {
+            logger.warn("Task cache diverged from the job manager state (replacing it with a full rebuild): zoneBalanceCounters={}, assignedIpAllocations={}, ipAllocationZones={}, opportunisticCpuAllocations={}",
+                    zoneCounters, assignedIps, ipZones, opportunisticCpus);
+            this.state = rebuilt;
+        }
+    }
 
-        // This map contains currently assigned IP allocations, Map<IP Allocation ID, Task ID>
+    /**
+     * Returns the number of keys with different values in the two maps.
+     */
+    private static <K, V> int countDivergences(Map<K, V> current, Map<K, V> expected) {
+        if (current.equals(expected)) {
+            return 0;
+        }
+        Set<K> keys = new HashSet<>(current.keySet());
+        keys.addAll(expected.keySet());
+        int count = 0;
+        for (K key : keys) {
+            if (!Objects.equals(current.get(key), expected.get(key))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private TaskCacheState.TaskEntry toTaskEntry(Job<?> job, Task task) {
+        TaskState taskState = task.getStatus().getState();
+        boolean running = TaskState.isRunning(taskState);
+
+        // Get an IP allocation ID that has been assigned to this task. If present, check if the task is running and
+        // if so, mark the IP allocation as in use. In addition, resolve the IP allocation ID's zone ID.
+        String ipAllocationId = getIpAllocationId(task).orElse(null);
+        String ipAllocationZoneId = ipAllocationId == null
+                ? null
+                : getIpAllocationZone(ipAllocationId, job.getJobDescriptor()).orElse(null);
+
+        OpportunisticCpuAllocation opportunisticCpuAllocation = running
+                ? getOpportunisticCpuAllocation(task).orElse(null)
+                : null;
+
+        return new TaskCacheState.TaskEntry(
+                task.getId(),
+                task.getJobId(),
+                getZoneId(task),
+                ipAllocationId,
+                ipAllocationZoneId,
+                running,
+                opportunisticCpuAllocation,
+                taskState == TaskState.Finished
+        );
+    }
+
+    private Optional<String> getIpAllocationZone(String ipAllocationId, JobDescriptor<?> jobDescriptor) {
+        for (SignedIpAddressAllocation signedIpAddressAllocation : jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations()) {
+            if (signedIpAddressAllocation.getIpAddressAllocation().getAllocationId().equals(ipAllocationId)) {
+                return Optional.of(signedIpAddressAllocation.getIpAddressAllocation().getIpAddressLocation().getAvailabilityZone());
+            }
+        }
+        codeInvariants().inconsistent("Unable to find zone for IP allocation ID {} in job allocations {}",
+                ipAllocationId, jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations());
+        return Optional.empty();
+    }
+
+    private Optional<OpportunisticCpuAllocation> getOpportunisticCpuAllocation(Task task) {
+        Optional<String> allocationIdOpt = getOpportunisticCpuAllocationId(task);
+        Optional<OpportunisticCpuAllocation> allocationOpt = allocationIdOpt
+                .map(allocationId -> OpportunisticCpuAllocation.newBuilder().withAllocationId(allocationId))
+                .flatMap(builder -> JobFunctions.getOpportunisticCpuCount(task).map(builder::withCpuCount))
+                .flatMap(builder -> getAgentId(task).map(builder::withAgentId))
+                .map(builder -> builder.withTaskId(task.getId()).build());
+
+        if (allocationIdOpt.isPresent() && !allocationOpt.isPresent()) {
+            codeInvariants().inconsistent("Task %s is allocated opportunistic CPU, but is missing extra required information",
+                    task.getId());
+        }
+        return allocationOpt;
+    }
+
+    /**
+     * View of the task aggregates for a single scheduling iteration. Assignments made during the iteration are kept
+     * in local maps on top of the aggregates, and are dropped when the next iteration starts.
+     */
+    private static class TaskCacheValue {
+
+        private final Map<String, ? extends Map<String, Integer>> zoneBalanceCountersByJobId;
+
+        // IP allocations assigned to running tasks, Map<IP Allocation ID, Task ID>
+        private final Map<String, String> runningIpAllocations;
+
+        // This map contains IP allocations assigned during the current scheduling iteration, Map<IP Allocation ID, Task ID>
         private final ConcurrentMap<String, String> assignedIpAllocations;
 
         // Maps an IP allocation ID to the zone it exists in, Map<IP Allocation ID, Zone ID>
         private final Map<String, String> ipAllocationIdToZoneId;
 
-        // agentId -> all tasks that were allocated with
+        // agentId -> (taskId -> allocation) of running tasks
+        private final Map<String, ? extends Map<String, OpportunisticCpuAllocation>> runningOpportunisticCpus;
+
+        // agentId -> all tasks that were allocated with during the current scheduling iteration
         private final ConcurrentMap<String, List<OpportunisticCpuAllocation>> assignedOpportunisticCpus;
 
-        private TaskCacheValue() {
-            List<Pair<Job, List<Task>>> jobsAndTasks = v3JobOperations.getJobsAndTasks();
+        private TaskCacheValue(TaskCacheState state) {
+            this.zoneBalanceCountersByJobId = state.getZoneBalanceCountersByJobId();
+            this.runningIpAllocations = state.getAssignedIpAllocations();
             this.assignedIpAllocations = new ConcurrentHashMap<>();
-            this.zoneBalanceCountersByJobId = new HashMap<>();
-            this.ipAllocationIdToZoneId = new HashMap<>();
+            this.ipAllocationIdToZoneId = state.getIpAllocationIdToZoneId();
+            this.runningOpportunisticCpus = state.getOpportunisticCpusByAgentId();
             this.assignedOpportunisticCpus = new ConcurrentHashMap<>();
-            buildTaskCacheInfo(jobsAndTasks);
         }
 
         private Map<String, Integer> getTasksByZoneIdCounters(String jobId) {
-            return zoneBalanceCountersByJobId.getOrDefault(jobId, Collections.emptyMap());
-        }
-
-        private void buildTaskCacheInfo(List<Pair<Job, List<Task>>> jobsAndTasks) {
-            for (Pair<Job, List<Task>> jobAndTask : jobsAndTasks) {
-                Map<String, Integer> jobZoneBalancing = new HashMap<>();
-                for (Task task : jobAndTask.getRight()) {
-                    String zoneId = getZoneId(task);
-                    if (zoneId != null) {
-                        jobZoneBalancing.put(zoneId, jobZoneBalancing.getOrDefault(zoneId, 0) + 1);
-                    }
-
-                    // Get an IP allocation ID that has been assigned to this task. If present,
-                    // check if the task is running and if so, mark the IP allocation as in use.
-                    // In addition, resolve the IP allocation ID's zone ID and cache that as well.
-                    getIpAllocationId(task).ifPresent(ipAllocationId -> {
-                        if (TaskState.isRunning(task.getStatus().getState())) {
-                            assignedIpAllocations.put(ipAllocationId, task.getId());
-                        }
-                        getIpAllocationZone(ipAllocationId, jobAndTask.getLeft().getJobDescriptor()).ifPresent(zoneIdForIpAllocation ->
-                                ipAllocationIdToZoneId.put(ipAllocationId, zoneIdForIpAllocation));
-                    });
-
-                    getOpportunisticCpuAllocation(task).ifPresent(allocation -> {
-                        if (TaskState.isRunning(task.getStatus().getState())) {
-                            CollectionsExt.multiMapAddValue(assignedOpportunisticCpus, allocation.getAgentId(), allocation);
-                        }
-                    });
-                }
-                zoneBalanceCountersByJobId.put(jobAndTask.getLeft().getId(), jobZoneBalancing);
-            }
+            Map<String, Integer> counters = zoneBalanceCountersByJobId.get(jobId);
+            return counters == null ? Collections.emptyMap() : counters;
         }
 
-        private Optional<String> getIpAllocationZone(String ipAllocationId, JobDescriptor<?> jobDescriptor) {
-            for (SignedIpAddressAllocation signedIpAddressAllocation : jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations()) {
-                if (signedIpAddressAllocation.getIpAddressAllocation().getAllocationId().equals(ipAllocationId)) {
-                    return Optional.of(signedIpAddressAllocation.getIpAddressAllocation().getIpAddressLocation().getAvailabilityZone());
-                }
+        private Optional<String> getTaskByIpAllocationId(String ipAllocationId) {
+            String taskId = assignedIpAllocations.get(ipAllocationId);
+            return Optional.ofNullable(taskId != null ? taskId : runningIpAllocations.get(ipAllocationId));
+        }
+
+        private int getOpportunisticCpusAllocated(String agentId) {
+            Map<String, OpportunisticCpuAllocation> running = runningOpportunisticCpus.get(agentId);
+            if (running == null) {
+                running = Collections.emptyMap();
+            }
+            int total = 0;
+            for (OpportunisticCpuAllocation allocation : running.values()) {
+                total += allocation.getCpuCount();
             }
-            codeInvariants().inconsistent("Unable to find zone for IP allocation ID {} in job allocations {}",
-                    ipAllocationId, jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations());
-            return Optional.empty();
-        }
-
-        private Optional<OpportunisticCpuAllocation> getOpportunisticCpuAllocation(Task task) {
-            Optional<String> allocationIdOpt = getOpportunisticCpuAllocationId(task);
-            Optional<OpportunisticCpuAllocation> allocationOpt = allocationIdOpt
-                    .map(allocationId -> OpportunisticCpuAllocation.newBuilder().withAllocationId(allocationId))
-                    .flatMap(builder -> JobFunctions.getOpportunisticCpuCount(task).map(builder::withCpuCount))
-                    .flatMap(builder -> getAgentId(task).map(builder::withAgentId))
-                    .map(builder -> builder.withTaskId(task.getId()).build());
-
-            if (allocationIdOpt.isPresent() && !allocationOpt.isPresent()) {
-                codeInvariants().inconsistent("Task %s is allocated opportunistic CPU, but is missing extra required information",
-                        task.getId());
+            for (OpportunisticCpuAllocation allocation : assignedOpportunisticCpus.getOrDefault(agentId, Collections.emptyList())) {
+                if (!running.containsKey(allocation.getTaskId())) {
+                    total += allocation.getCpuCount();
+                }
             }
-            return allocationOpt;
+            return total;
         }
     }
 
@@ -191,5 +432,4 @@ public class TaskCache {
     private static Optional<String> getIpAllocationId(Task task) {
         return Optional.ofNullable(task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_IP_ALLOCATION_ID));
     }
-
-}
\ No newline at end of file
+}
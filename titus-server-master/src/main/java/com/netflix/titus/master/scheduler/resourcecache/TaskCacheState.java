@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.resourcecache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.netflix.titus.common.util.collections.PersistentHashMap;
+
+/**
+ * Task data aggregates used by {@link TaskCache}, updated one task at a time. The aggregates are kept in persistent
+ * maps, so {@link TaskCache} can take a consistent view of them at the beginning of a scheduling iteration without
+ * copying. Finished tasks are kept until they are removed from their job, as they still count in the zone balance.
+ * This class is not thread safe.
+ */
+final class TaskCacheState {
+
+    private final Map<String, TaskEntry> entriesByTaskId = new HashMap<>();
+    private final Map<String, Set<String>> taskIdsByJobId = new HashMap<>();
+    private final Map<String, Integer> ipAllocationReferenceCounts = new HashMap<>();
+    private final Set<String> finishedTaskIds = new HashSet<>();
+
+    private PersistentHashMap<String, PersistentHashMap<String, Integer>> zoneBalanceCountersByJobId = PersistentHashMap.empty();
+    private PersistentHashMap<String, String> assignedIpAllocations = PersistentHashMap.empty();
+    private PersistentHashMap<String, String> ipAllocationIdToZoneId = PersistentHashMap.empty();
+    private PersistentHashMap<String, PersistentHashMap<String, OpportunisticCpuAllocation>> opportunisticCpusByAgentId = PersistentHashMap.empty();
+
+    int getTaskCount() {
+        return entriesByTaskId.size();
+    }
+
+    List<String> getFinishedTaskIds() {
+        return new ArrayList<>(finishedTaskIds);
+    }
+
+    PersistentHashMap<String, PersistentHashMap<String, Integer>> getZoneBalanceCountersByJobId() {
+        return zoneBalanceCountersByJobId;
+    }
+
+    PersistentHashMap<String, String> getAssignedIpAllocations() {
+        return assignedIpAllocations;
+    }
+
+    PersistentHashMap<String, String> getIpAllocationIdToZoneId() {
+        return ipAllocationIdToZoneId;
+    }
+
+    PersistentHashMap<String, PersistentHashMap<String, OpportunisticCpuAllocation>> getOpportunisticCpusByAgentId() {
+        return opportunisticCpusByAgentId;
+    }
+
+    void addOrUpdateTask(TaskEntry entry) {
+        TaskEntry previous = entriesByTaskId.put(entry.taskId, entry);
+        if (previous != null) {
+            if (previous.equals(entry)) {
+                return;
+            }
+            removeFromAggregates(previous);
+            if (!previous.jobId.equals(entry.jobId)) {
+                removeFromJobIndex(previous);
+            }
+        }
+        taskIdsByJobId.computeIfAbsent(entry.jobId, id -> new HashSet<>()).add(entry.taskId);
+        addToAggregates(entry);
+    }
+
+    void removeTask(String taskId) {
+        TaskEntry previous = entriesByTaskId.remove(taskId);
+        if (previous != null) {
+            removeFromAggregates(previous);
+            removeFromJobIndex(previous);
+        }
+    }
+
+    void removeJob(String jobId) {
+        Set<String> taskIds = taskIdsByJobId.remove(jobId);
+        if (taskIds != null) {
+            taskIds.forEach(taskId -> removeFromAggregates(entriesByTaskId.remove(taskId)));
+        }
+        zoneBalanceCountersByJobId = zoneBalanceCountersByJobId.minus(jobId);
+    }
+
+    private void removeFromJobIndex(TaskEntry entry) {
+        Set<String> jobTaskIds = taskIdsByJobId.get(entry.jobId);
+        if (jobTaskIds != null) {
+            jobTaskIds.remove(entry.taskId);
+            if (jobTaskIds.isEmpty()) {
+                taskIdsByJobId.remove(entry.jobId);
+            }
+        }
+    }
+
+    private void addToAggregates(TaskEntry entry) {
+        if (entry.finished) {
+            finishedTaskIds.add(entry.taskId);
+        }
+        if (entry.zoneId != null) {
+            updateZoneCounter(entry.jobId, entry.zoneId, 1);
+        }
+        if (entry.ipAllocationId != null) {
+            if (entry.ipAllocationAssigned) {
+                assignedIpAllocations = assignedIpAllocations.plus(entry.ipAllocationId, entry.taskId);
+            }
+            if (entry.ipAllocationZoneId != null) {
+                ipAllocationReferenceCounts.merge(entry.ipAllocationId, 1, Integer::sum);
+                ipAllocationIdToZoneId = ipAllocationIdToZoneId.plus(entry.ipAllocationId, entry.ipAllocationZoneId);
+            }
+        }
+        OpportunisticCpuAllocation allocation = entry.opportunisticCpuAllocation;
+        if (allocation != null) {
+            PersistentHashMap<String, OpportunisticCpuAllocation> agentAllocations = opportunisticCpusByAgentId.get(allocation.getAgentId());
+            if (agentAllocations == null) {
+                agentAllocations = PersistentHashMap.empty();
+            }
+            opportunisticCpusByAgentId = opportunisticCpusByAgentId.plus(
+                    allocation.getAgentId(), agentAllocations.plus(allocation.getTaskId(), allocation)
+            );
+        }
+    }
+
+    private void removeFromAggregates(TaskEntry entry) {
+        if (entry.finished) {
+            finishedTaskIds.remove(entry.taskId);
+        }
+        if (entry.zoneId != null) {
+            updateZoneCounter(entry.jobId, entry.zoneId, -1);
+        }
+        if (entry.ipAllocationId != null) {
+            if (entry.ipAllocationAssigned && entry.taskId.equals(assignedIpAllocations.get(entry.ipAllocationId))) {
+                assignedIpAllocations = assignedIpAllocations.minus(entry.ipAllocationId);
+            }
+            if (entry.ipAllocationZoneId != null) {
+                Integer count = ipAllocationReferenceCounts.merge(entry.ipAllocationId, -1, Integer::sum);
+                if (count <= 0) {
+                    ipAllocationReferenceCounts.remove(entry.ipAllocationId);
+                    ipAllocationIdToZoneId = ipAllocationIdToZoneId.minus(entry.ipAllocationId);
+                }
+            }
+        }
+        OpportunisticCpuAllocation allocation = entry.opportunisticCpuAllocation;
+        if (allocation != null) {
+            PersistentHashMap<String, OpportunisticCpuAllocation> agentAllocations = opportunisticCpusByAgentId.get(allocation.getAgentId());
+            if (agentAllocations != null) {
+                agentAllocations = agentAllocations.minus(allocation.getTaskId());
+                opportunisticCpusByAgentId = agentAllocations.isEmpty()
+                        ? opportunisticCpusByAgentId.minus(allocation.getAgentId())
+                        : opportunisticCpusByAgentId.plus(allocation.getAgentId(), agentAllocations);
+            }
+        }
+    }
+
+    private void updateZoneCounter(String jobId, String zoneId, int delta) {
+        PersistentHashMap<String, Integer> jobCounters = zoneBalanceCountersByJobId.get(jobId);
+        if (jobCounters == null) {
+            jobCounters = PersistentHashMap.empty();
+        }
+        int newValue = jobCounters.getOrDefault(zoneId, 0) + delta;
+        jobCounters = newValue > 0 ? jobCounters.plus(zoneId, newValue) : jobCounters.minus(zoneId);
+        zoneBalanceCountersByJobId = jobCounters.isEmpty()
+                ? zoneBalanceCountersByJobId.minus(jobId)
+                : zoneBalanceCountersByJobId.plus(jobId, jobCounters);
+    }
+
+    /**
+     * Task attributes that contribute to the {@link TaskCacheState} aggregates.
+     */
+    static final class TaskEntry {
+
+        private final String taskId;
+        private final String jobId;
+        private final String zoneId;
+        private final String ipAllocationId;
+        private final String ipAllocationZoneId;
+        private final boolean ipAllocationAssigned;
+        private final OpportunisticCpuAllocation opportunisticCpuAllocation;
+        private final boolean finished;
+
+        TaskEntry(String taskId,
+                  String jobId,
+                  String zoneId,
+                  String ipAllocationId,
+                  String ipAllocationZoneId,
+                  boolean ipAllocationAssigned,
+                  OpportunisticCpuAllocation opportunisticCpuAllocation,
+                  boolean finished) {
+            this.taskId = taskId;
+            this.jobId = jobId;
+            this.zoneId = zoneId;
+            this.ipAllocationId = ipAllocationId;
+            this.ipAllocationZoneId = ipAllocationZoneId;
+            this.ipAllocationAssigned = ipAllocationAssigned;
+            this.opportunisticCpuAllocation = opportunisticCpuAllocation;
+            this.finished = finished;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TaskEntry that = (TaskEntry) o;
+            return ipAllocationAssigned == that.ipAllocationAssigned &&
+                    finished == that.finished &&
+                    Objects.equals(taskId, that.taskId) &&
+                    Objects.equals(jobId, that.jobId) &&
+                    Objects.equals(zoneId, that.zoneId) &&
+                    Objects.equals(ipAllocationId, that.ipAllocationId) &&
+                    Objects.equals(ipAllocationZoneId, that.ipAllocationZoneId) &&
+                    Objects.equals(opportunisticCpuAllocation, that.opportunisticCpuAllocation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(taskId, jobId, zoneId, ipAllocationId, ipAllocationZoneId, ipAllocationAssigned, opportunisticCpuAllocation, finished);
+        }
+    }
+}
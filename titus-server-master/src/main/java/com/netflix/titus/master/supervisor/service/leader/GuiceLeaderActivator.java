@@ -100,6 +100,11 @@ public class GuiceLeaderActivator implements LeaderActivator, ContainerEventList
                 .withName(MetricConstants.METRIC_LEADER + "activationTime")
                 .monitorValue(this, GuiceLeaderActivator::getActivationTime);
 
+        // Time from the leader election until the node is fully activated, and starts serving requests.
+        PolledMeter.using(registry)
+                .withName(MetricConstants.METRIC_LEADER + "failoverTime")
+                .monitorValue(this, self -> self.isActivated() ? self.activationEndTimestamp - self.electionTimestamp : -1L);
+
         PolledMeter.using(registry)
                 .withName(MetricConstants.METRIC_LEADER + "inActiveStateTime")
                 .monitorValue(this, self -> self.isActivated() ? clock.wallTime() - self.activationEndTimestamp : 0L);
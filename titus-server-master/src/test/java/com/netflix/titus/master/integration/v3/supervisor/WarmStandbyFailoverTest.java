@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.integration.v3.supervisor;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.callmetadata.CallMetadata;
+import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.master.integration.BaseIntegrationTest;
+import com.netflix.titus.testkit.embedded.cell.master.EmbeddedTitusMaster;
+import com.netflix.titus.testkit.embedded.cloud.SimulatedCloud;
+import com.netflix.titus.testkit.junit.category.IntegrationTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.netflix.titus.testkit.embedded.cell.master.EmbeddedTitusMasters.basicMaster;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The standby master is connected to the leader with the production {@code LeaderJobChangeFeed}, which subscribes
+ * to the GRPC job event stream of the leader.
+ */
+@Category(IntegrationTest.class)
+public class WarmStandbyFailoverTest extends BaseIntegrationTest {
+
+    private static final int JOB_COUNT = 10;
+
+    private static final String UPDATED_ATTRIBUTE = "warmStandbyTest.updated";
+
+    private static final CallMetadata CALL_METADATA = CallMetadata.newBuilder().withCallerId("Test").withCallReason("Test").build();
+
+    private EmbeddedTitusMaster leader;
+    private EmbeddedTitusMaster standby;
+    private Registry standbyRegistry;
+
+    @Before
+    public void setUp() {
+        leader = basicMaster(new SimulatedCloud()).toBuilder()
+                .withEnableREST(false)
+                .build()
+                .boot();
+        standby = EmbeddedTitusMaster.aTitusMaster()
+                .withEnableREST(false)
+                .withWarmStandbyOf(leader)
+                .withProperty("titusMaster.jobManager.warmStandbyRefreshIntervalMs", "10")
+                .build()
+                .boot();
+        standbyRegistry = standby.getInstance(Registry.class);
+    }
+
+    @After
+    public void tearDown() {
+        if (leader != null) {
+            leader.shutdown();
+        }
+        if (standby != null) {
+            standby.shutdown();
+        }
+    }
+
+    @Test(timeout = LONG_TEST_TIMEOUT_MS)
+    public void testStandbyTakesOverWithReplicatedJobs() {
+        List<String> jobIds = createJobs(JOB_COUNT);
+        awaitStandbyGauge("titusMaster.jobManager.standby.replicatedJobs", JOB_COUNT);
+
+        failover();
+
+        V3JobOperations standbyJobOperations = standby.getInstance(V3JobOperations.class);
+        List<String> restoredJobIds = standbyJobOperations.getJobs().stream().map(Job::getId).collect(Collectors.toList());
+        assertThat(restoredJobIds).hasSize(JOB_COUNT).containsOnlyElementsOf(jobIds);
+        jobIds.forEach(jobId -> assertThat(standbyJobOperations.getTasks(jobId)).hasSize(1));
+
+        double restoredJobs = standbyGauge("titusMaster.jobManager.bootstrap.standbyRestoredJobs");
+        double verifiedJobs = standbyGauge("titusMaster.jobManager.bootstrap.standbyVerifiedJobs");
+        assertThat(restoredJobs + verifiedJobs).isEqualTo(JOB_COUNT);
+        assertThat(restoredJobs).isGreaterThan(0);
+
+        assertThat(standbyGauge("titusMaster.leader.failoverTime")).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test(timeout = LONG_TEST_TIMEOUT_MS)
+    public void testTaskUpdatedBeforeLeaderShutdownIsVisibleAfterFailover() {
+        String jobId = createJobs(1).get(0);
+        awaitStandbyGauge("titusMaster.jobManager.standby.replicatedTasks", 1);
+
+        // A task only change, written just before the leader steps down.
+        V3JobOperations leaderJobOperations = leader.getInstance(V3JobOperations.class);
+        Task task = leaderJobOperations.getTasks(jobId).get(0);
+        leaderJobOperations.updateTask(
+                task.getId(),
+                current -> Optional.of(current.toBuilder()
+                        .withAttributes(CollectionsExt.copyAndAdd(current.getAttributes(), UPDATED_ATTRIBUTE, "true"))
+                        .build()
+                ),
+                V3JobOperations.Trigger.API,
+                "Test update",
+                CALL_METADATA
+        ).await(TEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        failover();
+
+        List<Task> restoredTasks = standby.getInstance(V3JobOperations.class).getTasks(jobId);
+        assertThat(restoredTasks).hasSize(1);
+        assertThat(restoredTasks.get(0).getId()).isEqualTo(task.getId());
+        assertThat(restoredTasks.get(0).getAttributes()).containsEntry(UPDATED_ATTRIBUTE, "true");
+        assertThat(standbyGauge("titusMaster.leader.failoverTime")).isGreaterThanOrEqualTo(0);
+    }
+
+    private List<String> createJobs(int count) {
+        V3JobOperations leaderJobOperations = leader.getInstance(V3JobOperations.class);
+        for (int i = 0; i < count; i++) {
+            leaderJobOperations.createJob(oneTaskBatchJobDescriptor(), CALL_METADATA).toBlocking().first();
+        }
+        List<String> jobIds = leaderJobOperations.getJobs().stream().map(Job::getId).collect(Collectors.toList());
+        assertThat(jobIds).hasSize(count);
+        return jobIds;
+    }
+
+    /**
+     * Shuts down the leader, which ends its job event stream with the stream end marker, and activates the standby
+     * once the marker is received.
+     */
+    private void failover() {
+        leader.shutdown();
+        leader = null;
+        awaitStandbyGauge("titusMaster.jobManager.standby.leaderSteppedDown", 1);
+        standby.becomeLeader();
+    }
+
+    private void awaitStandbyGauge(String name, double expected) {
+        await().timeout(TEST_TIMEOUT_MS, TimeUnit.MILLISECONDS).until(() -> standbyGauge(name) == expected);
+    }
+
+    private double standbyGauge(String name) {
+        PolledMeter.update(standbyRegistry);
+        return standbyRegistry.gauge(name).value();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.Collections;
+
+import com.netflix.titus.common.util.tuple.Pair;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobChangeJournalTest {
+
+    private final JobChangeJournal<String> journal = new JobChangeJournal<>(3);
+
+    @Test
+    public void testReadAfter() {
+        String epoch = journal.getPosition().getLeft();
+        assertThat(journal.append(revision -> "a" + revision)).isEqualTo("a1");
+        journal.append(revision -> "b" + revision);
+
+        assertThat(journal.getPosition()).isEqualTo(Pair.of(epoch, 2L));
+        assertThat(journal.readAfter(epoch, 0)).contains(asList("a1", "b2"));
+        assertThat(journal.readAfter(epoch, 1)).contains(asList("b2"));
+        assertThat(journal.readAfter(epoch, 2)).contains(Collections.emptyList());
+        assertThat(journal.readAfter(epoch, 3)).isEmpty();
+    }
+
+    @Test
+    public void testTruncatedJournal() {
+        String epoch = journal.getPosition().getLeft();
+        for (int i = 0; i < 5; i++) {
+            journal.append(revision -> "item" + revision);
+        }
+        assertThat(journal.readAfter(epoch, 1)).isEmpty();
+        assertThat(journal.readAfter(epoch, 2)).contains(asList("item3", "item4", "item5"));
+    }
+
+    @Test
+    public void testResetStartsNewEpoch() {
+        String epoch = journal.getPosition().getLeft();
+        journal.append(revision -> "a" + revision);
+
+        journal.reset();
+        Pair<String, Long> position = journal.getPosition();
+        assertThat(position.getLeft()).isNotEqualTo(epoch);
+        assertThat(position.getRight()).isEqualTo(1L);
+        assertThat(journal.readAfter(epoch, 1)).isEmpty();
+
+        // Revisions are not reused after reset
+        assertThat(journal.append(revision -> "b" + revision)).isEqualTo("b2");
+        assertThat(journal.readAfter(position.getLeft(), 1)).contains(asList("b2"));
+        assertThat(journal.readAfter(position.getLeft(), 0)).isEmpty();
+    }
+
+    @Test
+    public void testDisabledJournal() {
+        JobChangeJournal<String> disabled = new JobChangeJournal<>(0);
+        String epoch = disabled.getPosition().getLeft();
+        disabled.append(revision -> "a" + revision);
+
+        assertThat(disabled.readAfter(epoch, 0)).isEmpty();
+        assertThat(disabled.readAfter(epoch, 1)).contains(Collections.emptyList());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.callmetadata.CallMetadata;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.runtime.endpoint.v3.grpc.JobStreamRevisions;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.exceptions.MissingBackpressureException;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+
+import static com.netflix.titus.common.util.FunctionExt.alwaysTrue;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JobChangeNotificationFanOutTest {
+
+    private static final int SUBSCRIBER_BUFFER_SIZE = 2;
+
+    private static final CallMetadata CALL_METADATA = CallMetadata.newBuilder().withCallerId("test").build();
+
+    private final V3JobOperations jobOperations = mock(V3JobOperations.class);
+
+    private final PublishSubject<JobManagerEvent<?>> jobEvents = PublishSubject.create();
+
+    private final PublishSubject<JobChangeNotification> snapshot = PublishSubject.create();
+
+    private final JobChangeNotificationFanOut fanOut = new JobChangeNotificationFanOut(
+            jobOperations,
+            JobChangeNotificationFanOutTest::encode,
+            SUBSCRIBER_BUFFER_SIZE,
+            10,
+            0,
+            Schedulers.immediate(),
+            new DefaultRegistry()
+    );
+
+    @Before
+    public void setUp() {
+        when(jobOperations.observeJobs(any(), any())).thenAnswer(invocation -> jobEvents);
+    }
+
+    @Test
+    public void testLiveEventsFollowSnapshot() {
+        AssertableSubscriber<JobChangeNotification> subscriber = observeJobs(false).test();
+
+        // Live events received while the snapshot is sent are buffered
+        jobEvents.onNext(JobUpdateEvent.newJob(newJob("liveJob"), CALL_METADATA));
+        subscriber.assertNoValues();
+
+        snapshot.onNext(notificationOf("snapshotJob"));
+        snapshot.onCompleted();
+
+        List<JobChangeNotification> items = subscriber.getOnNextEvents();
+        assertThat(items).hasSize(3);
+        assertThat(jobIdOf(items.get(0))).isEqualTo("snapshotJob");
+        assertThat(items.get(1).getNotificationCase()).isEqualTo(JobChangeNotification.NotificationCase.SNAPSHOTEND);
+        assertThat(jobIdOf(items.get(2))).isEqualTo("liveJob");
+        assertThat(JobStreamRevisions.getRevision(items.get(2)).getAsLong())
+                .isGreaterThan(JobStreamRevisions.getRevision(items.get(1)).getAsLong());
+
+        // Tasks are read only for the job queries with task criteria
+        verify(jobOperations, never()).getTasks(any());
+    }
+
+    @Test
+    public void testLiveEventsIncludedInSnapshotAreFilteredOut() {
+        // The event is emitted when the live stream is subscribed to, so it is already included in the snapshot
+        Observable<JobManagerEvent<?>> events = Observable.<JobManagerEvent<?>>just(JobUpdateEvent.newJob(newJob("oldJob"), CALL_METADATA))
+                .concatWith(jobEvents);
+        when(jobOperations.observeJobs(any(), any())).thenAnswer(invocation -> events);
+
+        AssertableSubscriber<JobChangeNotification> subscriber = observeJobs(false).test();
+        snapshot.onNext(notificationOf("oldJob"));
+        snapshot.onCompleted();
+        jobEvents.onNext(JobUpdateEvent.newJob(newJob("newJob"), CALL_METADATA));
+
+        List<JobChangeNotification> items = subscriber.getOnNextEvents();
+        assertThat(items).hasSize(3);
+        assertThat(jobIdOf(items.get(0))).isEqualTo("oldJob");
+        assertThat(items.get(1).getNotificationCase()).isEqualTo(JobChangeNotification.NotificationCase.SNAPSHOTEND);
+        assertThat(jobIdOf(items.get(2))).isEqualTo("newJob");
+    }
+
+    @Test
+    public void testBufferOverflowTerminatesSubscriber() {
+        AssertableSubscriber<JobChangeNotification> subscriber = observeJobs(false).test();
+
+        // The snapshot is not completed, so the live events are buffered
+        for (int i = 0; i <= SUBSCRIBER_BUFFER_SIZE; i++) {
+            jobEvents.onNext(JobUpdateEvent.newJob(newJob("job" + i), CALL_METADATA));
+        }
+
+        subscriber.assertNoValues();
+        subscriber.assertError(MissingBackpressureException.class);
+    }
+
+    @Test
+    public void testStreamEndMarkerOnCompletion() {
+        AssertableSubscriber<JobChangeNotification> subscriber = observeJobs(true).test();
+        snapshot.onCompleted();
+        jobEvents.onNext(JobUpdateEvent.newJob(newJob("liveJob"), CALL_METADATA));
+        jobEvents.onCompleted();
+
+        subscriber.assertCompleted();
+        List<JobChangeNotification> items = subscriber.getOnNextEvents();
+        assertThat(items).hasSize(3);
+        assertThat(JobStreamRevisions.isStreamEnd(items.get(1))).isFalse();
+        assertThat(jobIdOf(items.get(1))).isEqualTo("liveJob");
+        assertThat(JobStreamRevisions.isStreamEnd(items.get(2))).isTrue();
+        assertThat(JobStreamRevisions.getRevision(items.get(2))).isEqualTo(JobStreamRevisions.getRevision(items.get(1)));
+    }
+
+    @Test
+    public void testStreamWithoutEndMarkerFailsOnCompletion() {
+        AssertableSubscriber<JobChangeNotification> subscriber = observeJobs(false).test();
+        snapshot.onCompleted();
+        jobEvents.onNext(JobUpdateEvent.newJob(newJob("liveJob"), CALL_METADATA));
+        jobEvents.onCompleted();
+
+        // Clients which did not request the stream end marker must see an error to reconnect
+        subscriber.assertValueCount(2);
+        subscriber.assertError(StatusRuntimeException.class);
+        Status status = ((StatusRuntimeException) subscriber.getOnErrorEvents().get(0)).getStatus();
+        assertThat(status.getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+        assertThat(subscriber.getOnNextEvents()).noneMatch(JobStreamRevisions::isStreamEnd);
+    }
+
+    private Observable<JobChangeNotification> observeJobs(boolean streamEndRequested) {
+        return fanOut.observeJobs("testSubscriber", alwaysTrue(), alwaysTrue(), Optional.empty(), streamEndRequested, snapshot);
+    }
+
+    private static Job<?> newJob(String jobId) {
+        return JobGenerator.oneBatchJob().toBuilder().withId(jobId).build();
+    }
+
+    private static JobChangeNotification encode(JobManagerEvent<?> event) {
+        return notificationOf(((Job<?>) event.getCurrent()).getId());
+    }
+
+    private static JobChangeNotification notificationOf(String jobId) {
+        return JobChangeNotification.newBuilder()
+                .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder()
+                        .setJob(com.netflix.titus.grpc.protogen.Job.newBuilder().setId(jobId))
+                )
+                .build();
+    }
+
+    private static String jobIdOf(JobChangeNotification notification) {
+        return notification.getJobUpdate().getJob().getId();
+    }
+}
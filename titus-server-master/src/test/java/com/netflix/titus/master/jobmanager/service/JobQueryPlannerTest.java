@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobModel;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.service.IndexedJobQuery;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.master.jobmanager.service.DefaultV3JobOperations.IndexKind;
+import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.api.jobmanager.service.IndexedJobQuery.Index.ApplicationName;
+import static com.netflix.titus.api.jobmanager.service.IndexedJobQuery.Index.CapacityGroup;
+import static com.netflix.titus.api.jobmanager.service.IndexedJobQuery.Index.JobId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JobQueryPlannerTest {
+
+    private static final int JOB_COUNT = 10;
+
+    @SuppressWarnings("unchecked")
+    private final ReconciliationFramework<JobManagerReconcilerEvent> framework = mock(ReconciliationFramework.class);
+
+    private final Registry registry = new DefaultRegistry();
+
+    private final JobQueryPlanner planner = new JobQueryPlanner(framework, registry);
+
+    private final List<EntityHolder> jobHolders = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < JOB_COUNT; i++) {
+            Job<?> job = JobGenerator.oneBatchJob().toBuilder()
+                    .withId("job" + i)
+                    .withStatus(JobModel.newJobStatus().withState(JobState.Accepted).withTimestamp(i).build())
+                    .build();
+            jobHolders.add(EntityHolder.newRoot(job.getId(), job));
+        }
+        when(framework.orderedView(IndexKind.StatusCreationTime)).thenReturn(jobHolders);
+        when(framework.indexedView(any(), anyString())).thenReturn(Collections.emptyMap());
+        when(framework.findEngineByRootId(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void testNotIndexedQueryScansAllJobs() {
+        JobQueryPlanner.Plan plan = planner.plan((Predicate<Object>) any -> true);
+
+        assertThat(plan.getName()).isEqualTo(JobQueryPlanner.SCAN_PLAN);
+        assertThat(plan.getJobHolders()).isSameAs(jobHolders);
+    }
+
+    @Test
+    public void testMostSelectiveIndexIsUsed() {
+        when(framework.indexedView(ApplicationName, "app")).thenReturn(holdersOf(1, 2, 3, 4, 5));
+        when(framework.indexedView(CapacityGroup, "group")).thenReturn(holdersOf(7, 3));
+
+        JobQueryPlanner.Plan plan = planner.plan(new TestQuery(ImmutableMap.of(
+                ApplicationName, Collections.singleton("app"),
+                CapacityGroup, Collections.singleton("group")
+        )));
+
+        assertThat(plan.getName()).isEqualTo(CapacityGroup.name());
+        assertThat(plan.getJobHolders()).extracting(EntityHolder::getId).containsExactly("job3", "job7");
+    }
+
+    @Test
+    public void testIndexNotNarrowingResultFallsBackToScan() {
+        when(framework.indexedView(ApplicationName, "app")).thenReturn(holdersOf(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+        JobQueryPlanner.Plan plan = planner.plan(new TestQuery(ImmutableMap.of(ApplicationName, Collections.singleton("app"))));
+
+        assertThat(plan.getName()).isEqualTo(JobQueryPlanner.SCAN_PLAN);
+        assertThat(plan.getJobHolders()).isSameAs(jobHolders);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJobIdLookup() {
+        ReconciliationEngine<JobManagerReconcilerEvent> engine = mock(ReconciliationEngine.class);
+        when(engine.getReferenceView()).thenReturn(jobHolders.get(4));
+        when(framework.findEngineByRootId("job4")).thenReturn(Optional.of(engine));
+
+        JobQueryPlanner.Plan plan = planner.plan(new TestQuery(ImmutableMap.of(JobId, Collections.singleton("job4"))));
+
+        assertThat(plan.getName()).isEqualTo(JobId.name());
+        assertThat(plan.getJobHolders()).containsExactly(jobHolders.get(4));
+    }
+
+    @Test
+    public void testLatencyIsRecordedPerShapeAndPlan() {
+        JobQueryPlanner.Plan plan = planner.plan(new TestQuery(ImmutableMap.of(ApplicationName, Collections.singleton("app"))));
+        planner.recordLatency("findJobs", plan, registry.clock().monotonicTime());
+
+        assertThat(registry.timer(registry.createId(JobQueryPlanner.METRIC_QUERY_LATENCY)
+                .withTag("method", "findJobs")
+                .withTag("shape", "test")
+                .withTag("plan", ApplicationName.name())
+        ).count()).isEqualTo(1);
+    }
+
+    private Map<String, EntityHolder> holdersOf(int... indexes) {
+        ImmutableMap.Builder<String, EntityHolder> builder = ImmutableMap.builder();
+        for (int index : indexes) {
+            builder.put(jobHolders.get(index).getId(), jobHolders.get(index));
+        }
+        return builder.build();
+    }
+
+    private static class TestQuery implements Predicate<Object>, IndexedJobQuery {
+
+        private final Map<Index, Set<String>> indexedCriteria;
+
+        private TestQuery(Map<Index, Set<String>> indexedCriteria) {
+            this.indexedCriteria = indexedCriteria;
+        }
+
+        @Override
+        public boolean test(Object value) {
+            return true;
+        }
+
+        @Override
+        public Map<Index, Set<String>> getIndexedCriteria() {
+            return indexedCriteria;
+        }
+
+        @Override
+        public String getCriteriaShape() {
+            return "test";
+        }
+    }
+}
@@ -32,6 +32,7 @@ import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.mesos.ContainerEvent;
@@ -103,7 +104,7 @@ public class KubeNotificationProcessorTest {
         podEvents = DirectProcessor.create();
         reconcilerPodEvents = DirectProcessor.create();
         reconcilerContainerEvents = DirectProcessor.create();
-        processor = new KubeNotificationProcessor(mock(JobManagerConfiguration.class), new FakeDirectKube(), new FakeReconciler(), jobOperations, containerResultCodeResolver);
+        processor = new KubeNotificationProcessor(mock(JobManagerConfiguration.class), new FakeDirectKube(), new FakeReconciler(), jobOperations, containerResultCodeResolver, TitusRuntimes.internal());
         processor.enterActiveMode();
 
         when(jobOperations.findTaskById(eq(TASK.getId()))).thenReturn(Optional.of(Pair.of(JOB, TASK)));
@@ -267,6 +268,29 @@ public class KubeNotificationProcessorTest {
                 eq("Kube pod notification"), any());
     }
 
+    @Test
+    public void testPodUpdateIsSupersededOnlyByUpdateWithSameState() {
+        V1Pod waitingPod = newPod(new V1ContainerState().waiting(new V1ContainerStateWaiting()));
+        V1Pod runningPod = newPod(new V1ContainerState().running(new V1ContainerStateRunning()));
+
+        PodEvent waiting = PodEvent.onUpdate(waitingPod, waitingPod, Optional.empty());
+        PodEvent nextWaiting = PodEvent.onUpdate(waitingPod, waitingPod, Optional.empty());
+        PodEvent running = PodEvent.onUpdate(waitingPod, runningPod, Optional.empty());
+
+        assertThat(KubeNotificationProcessor.isSupersededPodUpdate(waiting, nextWaiting)).isTrue();
+        assertThat(KubeNotificationProcessor.isSupersededPodUpdate(waiting, running)).isFalse();
+        assertThat(KubeNotificationProcessor.isSupersededPodUpdate(waiting, PodEvent.onDelete(waitingPod, false, Optional.empty()))).isFalse();
+    }
+
+    private V1Pod newPod(V1ContainerState containerState) {
+        return new V1Pod()
+                .metadata(new V1ObjectMeta().name(TASK.getId()))
+                .status(new V1PodStatus()
+                        .phase(PodPhase.PENDING.getPhaseName())
+                        .addContainerStatusesItem(new V1ContainerStatus().containerID(TASK.getId()).state(containerState))
+                );
+    }
+
     private class FakeDirectKube implements DirectKubeApiServerIntegrator {
         @Override
         public Flux<PodEvent> events() {
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common.action;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.data.generator.DataGenerator;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import org.junit.Test;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobEntityHoldersTest {
+
+    private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+    private final DataGenerator<BatchJobTask> taskGenerator = batchTasks(job);
+
+    @Test
+    public void testTaskStatesFollowTaskUpdates() {
+        BatchJobTask task1 = taskInState(taskGenerator.getValue(), TaskState.Accepted);
+        BatchJobTask task2 = taskInState(taskGenerator.apply().getValue(), TaskState.Accepted);
+
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
+        jobHolder = JobEntityHolders.addTaskHolder(jobHolder, EntityHolder.newRoot(task1.getId(), task1));
+        jobHolder = JobEntityHolders.addTaskHolder(jobHolder, EntityHolder.newRoot(task2.getId(), task2));
+        assertThat(JobEntityHolders.taskStatesOf(jobHolder)).containsOnly("Accepted");
+
+        // One task moves to a new state
+        BatchJobTask startedTask1 = taskInState(task1, TaskState.Started);
+        jobHolder = JobEntityHolders.addTaskHolder(jobHolder, EntityHolder.newRoot(task1.getId(), startedTask1));
+        assertThat(JobEntityHolders.taskStatesOf(jobHolder)).containsOnly("Accepted", "Started");
+
+        // Removing the last task in a state removes the state
+        jobHolder = JobEntityHolders.removeTaskHolder(jobHolder, task2.getId()).getLeft();
+        assertThat(JobEntityHolders.taskStatesOf(jobHolder)).containsOnly("Started");
+
+        // Removing an unknown task is a no-op
+        assertThat(JobEntityHolders.removeTaskHolder(jobHolder, "missing").getRight()).isEmpty();
+        assertThat(JobEntityHolders.taskStatesOf(jobHolder)).containsOnly("Started");
+    }
+
+    @Test
+    public void testTaskStatesOfHolderWithoutCounts() {
+        BatchJobTask task = taskInState(taskGenerator.getValue(), TaskState.Launched);
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job).addChild(EntityHolder.newRoot(task.getId(), task));
+        assertThat(JobEntityHolders.taskStatesOf(jobHolder)).containsOnly("Launched");
+    }
+
+    private BatchJobTask taskInState(BatchJobTask task, TaskState taskState) {
+        return BatchJobTask.newBuilder(task).withStatus(TaskStatus.newBuilder().withState(taskState).build()).build();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.standby;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.runtime.store.v3.memory.InMemoryJobStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static com.netflix.titus.testkit.model.job.JobGenerator.oneBatchJob;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StandbyJobStateReplicatorTest {
+
+    private static final long TIMEOUT_MS = 30_000;
+
+    private static final long MAX_STEP_DOWN_AGE_MS = 30_000;
+
+    private final TestClock clock = Clocks.test();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(clock);
+    private final Registry registry = titusRuntime.getRegistry();
+
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+    private final InMemoryJobStore store = new InMemoryJobStore();
+
+    private final List<PublishSubject<String>> feeds = new CopyOnWriteArrayList<>();
+
+    private final Job<BatchJobExt> job = oneBatchJob();
+    private final BatchJobTask task = batchTasks(job).getValue();
+
+    private StandbyJobStateReplicator replicator;
+
+    @Before
+    public void setUp() {
+        when(configuration.isWarmStandbyEnabled()).thenReturn(true);
+        when(configuration.getWarmStandbyRefreshIntervalMs()).thenReturn(10L);
+        when(configuration.getWarmStandbyMaxJobRefreshesPerInterval()).thenReturn(500);
+        when(configuration.getWarmStandbyMaxStepDownAgeMs()).thenReturn(MAX_STEP_DOWN_AGE_MS);
+
+        store.storeJob(job).await();
+        store.storeTask(task).await();
+
+        JobChangeFeed changeFeed = () -> Observable.defer(() -> {
+            PublishSubject<String> feed = PublishSubject.create();
+            feeds.add(feed);
+            return feed;
+        });
+        replicator = new StandbyJobStateReplicator(configuration, store, changeFeed, titusRuntime);
+    }
+
+    @After
+    public void tearDown() {
+        replicator.shutdown();
+    }
+
+    @Test
+    public void testTaskChangeBeforeCleanStepDownIsInSnapshot() {
+        PublishSubject<String> feed = awaitSubscribedFeed();
+        feed.onNext(JobChangeFeed.LEADER_SYNCED_MARKER);
+        awaitGauge("ready", 1);
+
+        Task updatedTask = task.toBuilder().withAttributes(CollectionsExt.copyAndAdd(task.getAttributes(), "updated", "true")).build();
+        store.updateTask(updatedTask).await();
+        feed.onNext(job.getId());
+        feed.onNext(JobChangeFeed.LEADER_STEPPED_DOWN_MARKER);
+        feed.onCompleted();
+        awaitGauge("leaderSteppedDown", 1);
+
+        StandbyJobSnapshot snapshot = replicator.takeSnapshot().orElseThrow(() -> new AssertionError("Snapshot expected"));
+        assertThat(snapshot.getJobCount()).isEqualTo(1);
+
+        // The change is either already re-read from the store, or the job is marked for verification.
+        Optional<Pair<List<Task>, Integer>> tasks = snapshot.findTasks(job);
+        if (tasks.isPresent()) {
+            assertThat(tasks.get().getLeft()).containsExactly(updatedTask);
+        } else {
+            assertThat(snapshot.getJobsToVerifyCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testNoSnapshotIfStreamFailsBeforeStepDown() {
+        PublishSubject<String> feed = awaitSubscribedFeed();
+        feed.onNext(JobChangeFeed.LEADER_SYNCED_MARKER);
+        awaitGauge("ready", 1);
+
+        feed.onError(new RuntimeException("simulated connection error"));
+        awaitGauge("ready", 0);
+
+        assertThat(replicator.takeSnapshot()).isEmpty();
+    }
+
+    @Test
+    public void testResumedStreamKeepsReplica() {
+        PublishSubject<String> feed = awaitSubscribedFeed();
+        feed.onNext(JobChangeFeed.LEADER_SYNCED_MARKER);
+        awaitGauge("ready", 1);
+
+        feed.onError(new RuntimeException("simulated connection error"));
+        awaitGauge("ready", 0);
+
+        // Not notified, so only visible if the replica is reloaded from the store
+        store.storeJob(oneBatchJob()).await();
+
+        PublishSubject<String> resumedFeed = awaitSubscribedFeed(1);
+        resumedFeed.onNext(JobChangeFeed.LEADER_RESUMED_MARKER);
+        awaitGauge("ready", 1);
+        resumedFeed.onNext(JobChangeFeed.LEADER_STEPPED_DOWN_MARKER);
+        resumedFeed.onCompleted();
+        awaitGauge("leaderSteppedDown", 1);
+
+        StandbyJobSnapshot snapshot = replicator.takeSnapshot().orElseThrow(() -> new AssertionError("Snapshot expected"));
+        assertThat(snapshot.getJobCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNoSnapshotIfLeaderDidNotStepDown() {
+        PublishSubject<String> feed = awaitSubscribedFeed();
+        feed.onNext(JobChangeFeed.LEADER_SYNCED_MARKER);
+        awaitGauge("ready", 1);
+
+        assertThat(replicator.takeSnapshot()).isEmpty();
+    }
+
+    @Test
+    public void testNoSnapshotIfStepDownTooOld() {
+        PublishSubject<String> feed = awaitSubscribedFeed();
+        feed.onNext(JobChangeFeed.LEADER_SYNCED_MARKER);
+        awaitGauge("ready", 1);
+        feed.onNext(JobChangeFeed.LEADER_STEPPED_DOWN_MARKER);
+        feed.onCompleted();
+        awaitGauge("leaderSteppedDown", 1);
+
+        clock.advanceTime(MAX_STEP_DOWN_AGE_MS + 1, TimeUnit.MILLISECONDS);
+        awaitGauge("ready", 0);
+
+        assertThat(replicator.takeSnapshot()).isEmpty();
+    }
+
+    private PublishSubject<String> awaitSubscribedFeed() {
+        return awaitSubscribedFeed(0);
+    }
+
+    private PublishSubject<String> awaitSubscribedFeed(int index) {
+        await().timeout(TIMEOUT_MS, TimeUnit.MILLISECONDS).until(() -> feeds.size() > index && feeds.get(index).hasObservers());
+        return feeds.get(index);
+    }
+
+    private void awaitGauge(String name, double expected) {
+        await().timeout(TIMEOUT_MS, TimeUnit.MILLISECONDS).until(() -> {
+            PolledMeter.update(registry);
+            return registry.gauge("titusMaster.jobManager.standby." + name).value() == expected;
+        });
+    }
+}
@@ -26,6 +26,7 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.netflix.titus.api.connector.cloud.CloudConnectorException;
 import com.netflix.titus.api.connector.cloud.LoadBalancer;
 import com.netflix.titus.api.connector.cloud.LoadBalancerConnector;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
@@ -431,6 +432,39 @@ public class DefaultLoadBalancerServiceTest {
         verifyReconcilerIgnore(secondLoadBalancerId, LoadBalancerTests.ipAddresses(tasks));
     }
 
+    @Test
+    public void throttledBatchesAreRetried() {
+        String jobId = UUID.randomUUID().toString();
+        String loadBalancerId = "lb-" + UUID.randomUUID().toString();
+        int batchSize = 10;
+
+        when(client.registerAll(eq(loadBalancerId), any())).thenReturn(
+                Completable.error(CloudConnectorException.throttled(new RuntimeException("Rate exceeded"), "throttled")),
+                Completable.complete()
+        );
+        when(client.deregisterAll(any(), any())).thenReturn(Completable.complete());
+        when(v3JobOperations.observeJobs()).thenReturn(PublishSubject.create());
+        LoadBalancerTests.applyValidGetJobMock(v3JobOperations, jobId);
+        List<Task> tasks = LoadBalancerTests.buildTasksStarted(batchSize, jobId);
+        when(v3JobOperations.getTasks(jobId)).thenReturn(tasks);
+
+        LoadBalancerConfiguration configuration = LoadBalancerTests.mockConfiguration(MIN_TIME_IN_QUEUE_MS);
+        DefaultLoadBalancerService service = new DefaultLoadBalancerService(
+                runtime, configuration, client, loadBalancerStore, loadBalancerJobOperations, reconciler, validator, testScheduler);
+
+        AssertableSubscriber<Batch<TargetStateBatchable, String>> testSubscriber = service.events().test();
+
+        assertTrue(service.addLoadBalancer(jobId, loadBalancerId).await(100, TimeUnit.MILLISECONDS));
+
+        testScheduler.advanceTimeBy(FLUSH_WAIT_TIME_MS, TimeUnit.MILLISECONDS);
+        // the throttled batch is put back to the backlog, and applied again
+        testSubscriber.awaitValueCount(1, 2 * FLUSH_WAIT_TIME_MS, TimeUnit.MILLISECONDS)
+                .assertNoErrors()
+                .assertValueCount(1);
+        verify(client, times(2)).registerAll(eq(loadBalancerId), argThat(targets -> targets != null && targets.size() == batchSize));
+        verify(client, never()).deregisterAll(any(), any());
+    }
+
     @Test
     public void reconciliationErrorsDontHaltOthers() {
         String jobId = UUID.randomUUID().toString();
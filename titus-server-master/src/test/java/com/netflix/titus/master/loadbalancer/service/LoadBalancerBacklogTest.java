@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.master.loadbalancer.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.api.loadbalancer.model.LoadBalancerTarget;
+import com.netflix.titus.api.loadbalancer.model.LoadBalancerTarget.State;
+import com.netflix.titus.api.loadbalancer.model.LoadBalancerTargetState;
+import com.netflix.titus.common.util.rx.batch.Batch;
+import com.netflix.titus.common.util.rx.batch.Priority;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LoadBalancerBacklogTest {
+
+    private static final String LOAD_BALANCER_ID = "lb1";
+
+    private final LoadBalancerConfiguration configuration = mock(LoadBalancerConfiguration.class);
+
+    private LoadBalancerBacklog backlog;
+
+    @Before
+    public void setUp() {
+        when(configuration.getBacklogMaxSize()).thenReturn(3);
+        when(configuration.getLoadBalancerMaxRatePerSec()).thenReturn(10.0);
+        when(configuration.getLoadBalancerMinRatePerSec()).thenReturn(1.0);
+        when(configuration.getLoadBalancerRateIncrease()).thenReturn(1.0);
+        when(configuration.getLoadBalancerRateDecreaseFactor()).thenReturn(0.5);
+        backlog = new LoadBalancerBacklog(configuration, new DefaultRegistry());
+    }
+
+    @Test
+    public void testLatestStateOfTargetIsKept() {
+        backlog.add(Batch.of(LOAD_BALANCER_ID, update("task1", State.REGISTERED, 1)));
+        backlog.add(Batch.of(LOAD_BALANCER_ID, update("task1", State.DEREGISTERED, 2), update("task2", State.REGISTERED, 2)));
+        assertThat(backlog.getSize()).isEqualTo(2);
+
+        Batch<TargetStateBatchable, String> batch = backlog.takeIfReady(LOAD_BALANCER_ID, 0).get();
+        assertThat(batch.getItems()).extracting(TargetStateBatchable::getState).containsExactly(State.DEREGISTERED, State.REGISTERED);
+        assertThat(backlog.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testTargetsOverLimitAreRejected() {
+        List<TargetStateBatchable> rejected = backlog.add(Batch.of(LOAD_BALANCER_ID,
+                update("task1", State.REGISTERED, 1),
+                update("task2", State.REGISTERED, 1),
+                update("task3", State.REGISTERED, 1),
+                update("task4", State.REGISTERED, 1)
+        ));
+        assertThat(rejected).extracting(update -> update.getIdentifier().getTaskId()).containsExactly("task4");
+
+        // updates of targets already in the backlog are still accepted
+        assertThat(backlog.add(Batch.of(LOAD_BALANCER_ID, update("task1", State.DEREGISTERED, 2)))).isEmpty();
+    }
+
+    @Test
+    public void testOneBatchInFlightAtRateLimit() {
+        backlog.add(Batch.of(LOAD_BALANCER_ID, update("task1", State.REGISTERED, 1)));
+        Batch<TargetStateBatchable, String> first = backlog.takeIfReady(LOAD_BALANCER_ID, 0).get();
+
+        backlog.add(Batch.of(LOAD_BALANCER_ID, update("task2", State.REGISTERED, 1)));
+        assertThat(backlog.takeIfReady(LOAD_BALANCER_ID, 1_000)).isEmpty();
+        assertThat(backlog.scheduleDrain(LOAD_BALANCER_ID, 1_000)).isEqualTo(-1);
+
+        backlog.completed(first);
+        // 10 batches per second
+        assertThat(backlog.takeIfReady(LOAD_BALANCER_ID, 50)).isEmpty();
+        assertThat(backlog.scheduleDrain(LOAD_BALANCER_ID, 50)).isEqualTo(50);
+        assertThat(backlog.scheduleDrain(LOAD_BALANCER_ID, 50)).isEqualTo(-1);
+        assertThat(backlog.takeIfReady(LOAD_BALANCER_ID, 100)).isPresent();
+    }
+
+    @Test
+    public void testThrottledBatchIsRetriedAtLowerRate() {
+        backlog.add(Batch.of(LOAD_BALANCER_ID, update("task1", State.REGISTERED, 1), update("task2", State.REGISTERED, 1)));
+        Batch<TargetStateBatchable, String> batch = backlog.takeIfReady(LOAD_BALANCER_ID, 0).get();
+
+        // a newer update arrives while the batch is in-flight
+        backlog.add(Batch.of(LOAD_BALANCER_ID, update("task1", State.DEREGISTERED, 2)));
+        assertThat(backlog.throttled(batch)).isEmpty();
+        assertThat(backlog.getRatePerSec(LOAD_BALANCER_ID)).isEqualTo(5.0);
+
+        // 5 batches per second
+        assertThat(backlog.takeIfReady(LOAD_BALANCER_ID, 100)).isEmpty();
+        Optional<Batch<TargetStateBatchable, String>> retry = backlog.takeIfReady(LOAD_BALANCER_ID, 200);
+        assertThat(retry).isPresent();
+        assertThat(retry.get().getItems()).extracting(update -> update.getIdentifier().getTaskId() + ':' + update.getState())
+                .containsExactlyInAnyOrder("task1:DEREGISTERED", "task2:REGISTERED");
+
+        backlog.completed(retry.get());
+        assertThat(backlog.getRatePerSec(LOAD_BALANCER_ID)).isEqualTo(6.0);
+    }
+
+    @Test
+    public void testIdleLoadBalancerIsReleased() {
+        backlog.add(Batch.of(LOAD_BALANCER_ID, update("task1", State.REGISTERED, 1)));
+        assertThat(backlog.getLoadBalancerCount()).isEqualTo(1);
+
+        backlog.completed(backlog.takeIfReady(LOAD_BALANCER_ID, 0).get());
+        assertThat(backlog.getLoadBalancerCount()).isEqualTo(0);
+    }
+
+    private static TargetStateBatchable update(String taskId, State state, long timestamp) {
+        LoadBalancerTarget target = new LoadBalancerTarget(LOAD_BALANCER_ID, taskId, "1.1.1.1");
+        return new TargetStateBatchable(Priority.HIGH, Instant.ofEpochMilli(timestamp), new LoadBalancerTargetState(target, state));
+    }
+}
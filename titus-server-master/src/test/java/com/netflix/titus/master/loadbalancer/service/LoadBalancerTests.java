@@ -130,6 +130,11 @@ public class LoadBalancerTests {
         when(configuration.getMaxTimeMs()).thenReturn(Long.MAX_VALUE);
         when(configuration.getMinTimeMs()).thenReturn(minTimeInQueueMs);
         when(configuration.getBucketSizeMs()).thenReturn(minTimeInQueueMs);
+        when(configuration.getBacklogMaxSize()).thenReturn(Integer.MAX_VALUE);
+        when(configuration.getLoadBalancerMaxRatePerSec()).thenReturn(1_000_000.0);
+        when(configuration.getLoadBalancerMinRatePerSec()).thenReturn(1.0);
+        when(configuration.getLoadBalancerRateIncrease()).thenReturn(1.0);
+        when(configuration.getLoadBalancerRateDecreaseFactor()).thenReturn(0.5);
 
         return configuration;
     }
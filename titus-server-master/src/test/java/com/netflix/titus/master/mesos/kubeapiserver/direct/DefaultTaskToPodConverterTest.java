@@ -16,6 +16,7 @@
 
 package com.netflix.titus.master.mesos.kubeapiserver.direct;
 
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -29,10 +30,15 @@ import com.netflix.titus.api.jobmanager.model.job.LogStorageInfo;
 import com.netflix.titus.api.jobmanager.model.job.LogStorageInfo.S3LogLocation;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.env.ContainerEnvs;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.taint.TaintTolerationFactory;
 import com.netflix.titus.runtime.kubernetes.KubeConstants;
 import com.netflix.titus.testkit.model.job.JobGenerator;
+import io.kubernetes.client.openapi.models.V1Affinity;
+import io.kubernetes.client.openapi.models.V1Pod;
 import io.kubernetes.client.openapi.models.V1ResourceRequirements;
 import io.kubernetes.client.openapi.models.V1TopologySpreadConstraint;
 import io.titanframework.messages.TitanProtos.ContainerInfo;
@@ -41,7 +47,10 @@ import org.junit.Test;
 import static com.netflix.titus.master.mesos.kubeapiserver.direct.DefaultTaskToPodConverter.S3_BUCKET_NAME;
 import static com.netflix.titus.master.mesos.kubeapiserver.direct.DefaultTaskToPodConverter.S3_WRITER_ROLE;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultTaskToPodConverterTest {
@@ -58,12 +67,15 @@ public class DefaultTaskToPodConverterTest {
 
     private final LogStorageInfo<Task> logStorageInfo = mock(LogStorageInfo.class);
 
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
     private final DefaultTaskToPodConverter converter = new DefaultTaskToPodConverter(
             configuration,
             podAffinityFactory,
             taintTolerationFactory,
             ContainerEnvs.getDefaultFactory(),
-            logStorageInfo
+            logStorageInfo,
+            titusRuntime
     );
 
     @Test
@@ -143,6 +155,46 @@ public class DefaultTaskToPodConverterTest {
         testConstraintNameIsCaseInsensitive(JobFunctions.appendSoftConstraint(JobGenerator.oneBatchJob(), "ZoneBalance", "true"));
     }
 
+    @Test
+    public void testPodTemplateIsSharedByTasksOfTheSameJobRevision() throws Exception {
+        when(configuration.getPodTemplateCacheSize()).thenReturn(100);
+        when(configuration.getPodTemplateCacheTtlMs()).thenReturn(60_000L);
+        when(podAffinityFactory.buildV1Affinity(any(), any())).thenReturn(Pair.of(new V1Affinity(), Collections.emptyMap()));
+        DefaultTaskToPodConverter cachingConverter = new DefaultTaskToPodConverter(
+                configuration,
+                podAffinityFactory,
+                taintTolerationFactory,
+                ContainerEnvs.getDefaultFactory(),
+                logStorageInfo,
+                titusRuntime
+        );
+
+        Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+        BatchJobTask task1 = JobGenerator.oneBatchTask().toBuilder().withId("task1").withJobId(job.getId()).build();
+        BatchJobTask task2 = JobGenerator.oneBatchTask().toBuilder().withId("task2").withJobId(job.getId()).build();
+
+        assertThat(containerInfoOf(cachingConverter.apply(job, task1)).getTitusProvidedEnvMap()).containsEntry("TITUS_TASK_ID", "task1");
+        assertThat(containerInfoOf(cachingConverter.apply(job, task2)).getTitusProvidedEnvMap()).containsEntry("TITUS_TASK_ID", "task2");
+        verify(podAffinityFactory, times(1)).buildV1Affinity(any(), any());
+        assertThat(podTemplateLookups("hit")).isEqualTo(1);
+        assertThat(podTemplateLookups("miss")).isEqualTo(1);
+
+        // Job descriptor change
+        Job<BatchJobExt> updatedJob = job.toBuilder()
+                .withJobDescriptor(job.getJobDescriptor().toBuilder().withApplicationName("newApp").build())
+                .build();
+        assertThat(containerInfoOf(cachingConverter.apply(updatedJob, task1)).getAppName()).isEqualTo("newApp");
+        assertThat(podTemplateLookups("miss")).isEqualTo(2);
+    }
+
+    private ContainerInfo containerInfoOf(V1Pod pod) throws Exception {
+        return ContainerInfo.parseFrom(Base64.getDecoder().decode(pod.getMetadata().getAnnotations().get("containerInfo")));
+    }
+
+    private long podTemplateLookups(String result) {
+        return titusRuntime.getRegistry().counter("titusMaster.directKube.podTemplateCache.lookups", "result", result).count();
+    }
+
     private void testConstraintNameIsCaseInsensitive(Job<BatchJobExt> job) {
         List<V1TopologySpreadConstraint> constraints = converter.buildTopologySpreadConstraints(job);
         assertThat(constraints).hasSize(1);
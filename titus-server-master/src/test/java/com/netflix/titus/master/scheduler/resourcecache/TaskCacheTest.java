@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.resourcecache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import rx.subjects.PublishSubject;
+
+import static com.netflix.titus.api.jobmanager.service.JobManagerConstants.UNDEFINED_CALL_METADATA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TaskCacheTest {
+
+    private static final long CONSISTENCY_CHECK_INTERVAL_MS = 60_000;
+
+    private final TestClock clock = Clocks.test();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(clock);
+    private final SchedulerConfiguration configuration = mock(SchedulerConfiguration.class);
+    private final V3JobOperations v3JobOperations = mock(V3JobOperations.class);
+    private final PublishSubject<JobManagerEvent<?>> jobEvents = PublishSubject.create();
+
+    private final Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+    private final List<Task> tasks = new ArrayList<>();
+
+    private final TaskCache taskCache = new TaskCache(configuration, titusRuntime, v3JobOperations);
+
+    @Before
+    public void setUp() {
+        when(configuration.getTaskCacheConsistencyCheckIntervalMs()).thenReturn(CONSISTENCY_CHECK_INTERVAL_MS);
+        when(v3JobOperations.observeJobs()).thenReturn(jobEvents);
+        when(v3JobOperations.getJobsAndTasks()).thenAnswer(invocation -> Collections.singletonList(Pair.of(job, new ArrayList<>(tasks))));
+        when(v3JobOperations.findTaskById(any())).thenAnswer(invocation -> tasks.stream()
+                .filter(task -> task.getId().equals(invocation.getArgument(0)))
+                .findFirst()
+                .map(task -> Pair.of(job, task))
+        );
+
+        JobGenerator.batchTasks(job).getValues(3).forEach(task -> tasks.add(inZone(task, "zoneA")));
+    }
+
+    @Test
+    public void testRebuildOnEachIterationIfNotStarted() {
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 3);
+
+        tasks.set(0, inZone(tasks.get(0), "zoneB"));
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 2).containsEntry("zoneB", 1);
+        verify(v3JobOperations, times(2)).getJobsAndTasks();
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        taskCache.start();
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 3);
+
+        emitTaskUpdate(inZone(tasks.get(0), "zoneB"));
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 2).containsEntry("zoneB", 1);
+
+        // Finished tasks are counted until removed from the job
+        Task finished = JobFunctions.changeTaskStatus(tasks.get(1), TaskState.Finished, "test", "test", clock);
+        tasks.set(1, finished);
+        emitTaskUpdate(finished);
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 2).containsEntry("zoneB", 1);
+
+        tasks.remove(1);
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 1).containsEntry("zoneB", 1);
+
+        // Only the initial state is built from the job manager
+        verify(v3JobOperations, times(1)).getJobsAndTasks();
+    }
+
+    @Test
+    public void testIterationLocalAssignmentsAreDropped() {
+        taskCache.start();
+        taskCache.prepare();
+        taskCache.addTaskIpAllocation("ipAllocation1", tasks.get(0).getId());
+        taskCache.addOpportunisticCpuAllocation(new OpportunisticCpuAllocation(tasks.get(0).getId(), "agent1", "allocation1", 2));
+        assertThat(taskCache.getTaskByIpAllocationId("ipAllocation1")).contains(tasks.get(0).getId());
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(2);
+
+        taskCache.prepare();
+        assertThat(taskCache.getTaskByIpAllocationId("ipAllocation1")).isEmpty();
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(0);
+    }
+
+    @Test
+    public void testConsistencyCheckRepairsDivergedState() {
+        taskCache.start();
+
+        // Change the job manager state without emitting an event.
+        tasks.set(0, inZone(tasks.get(0), "zoneB"));
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 3);
+
+        clock.advanceTime(CONSISTENCY_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 2).containsEntry("zoneB", 1);
+
+        Registry registry = titusRuntime.getRegistry();
+        assertThat(registry.counter("titusMaster.scheduler.taskCache.divergences", "aggregate", "zoneBalanceCounters").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEventsDuringConsistencyCheckAreReplayed() {
+        taskCache.start();
+
+        // The event arrives after the job manager state is read, but before the rebuild completes.
+        Task moved = inZone(tasks.get(0), "zoneB");
+        when(v3JobOperations.getJobsAndTasks()).thenAnswer(invocation -> {
+            List<Pair<Job, List<Task>>> jobsAndTasks = Collections.singletonList(Pair.of(job, new ArrayList<>(tasks)));
+            tasks.set(0, moved);
+            emitTaskUpdate(moved);
+            return jobsAndTasks;
+        });
+        clock.advanceTime(CONSISTENCY_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 2).containsEntry("zoneB", 1);
+
+        Registry registry = titusRuntime.getRegistry();
+        assertThat(registry.counter("titusMaster.scheduler.taskCache.divergences", "aggregate", "zoneBalanceCounters").count()).isEqualTo(0);
+    }
+
+    private void emitTaskUpdate(Task task) {
+        jobEvents.onNext(TaskUpdateEvent.taskChange(job, task, task, UNDEFINED_CALL_METADATA));
+    }
+
+    private static Task inZone(Task task, String zoneId) {
+        return task.toBuilder().addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE, zoneId).build();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.MapEntry;
+import com.google.protobuf.Message;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.PropertiesExt;
+import com.netflix.titus.common.util.ProtobufProjection;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+
+/**
+ * Measures the cost of filtering a page of jobs and tasks with the 'fields' query parameter:
+ * <pre>
+ * ./gradlew :titus-server-runtime:jmh -PjmhInclude=ProtobufProjectionBenchmark
+ * </pre>
+ * The 'reflective*' benchmarks reproduce the previous {@code ProtobufExt.copy} implementation, which cleared the
+ * unwanted fields in a copy of each message, and are kept as a baseline. The 'projected*Conversion' benchmarks
+ * include the conversion from the core model, as done by the master for each query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtobufProjectionBenchmark {
+
+    private static final Set<String> JOB_FIELDS = asSet("id", "status.state", "jobDescriptor.owner", "jobDescriptor.attributes.stack");
+    private static final Set<String> TASK_FIELDS = asSet("id", "jobId", "status.state", "status.timestamp", "taskContext.agent.host", "taskContext.agent.zone");
+
+    @Param({"1000", "10000"})
+    private int pageSize;
+
+    private List<com.netflix.titus.api.jobmanager.model.job.Job<BatchJobExt>> coreJobs;
+    private List<com.netflix.titus.api.jobmanager.model.job.Task> coreTasks;
+    private List<Job> jobs;
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        this.coreJobs = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(pageSize)).getValues(pageSize);
+        this.coreTasks = JobGenerator.batchTasks(coreJobs.get(0)).getValues(pageSize).stream()
+                .map(ProtobufProjectionBenchmark::withRealisticState)
+                .collect(Collectors.toList());
+        this.jobs = coreJobs.stream().map(GrpcJobManagementModelConverters::toGrpcJob).collect(Collectors.toList());
+        this.tasks = coreTasks.stream().map(t -> GrpcJobManagementModelConverters.toGrpcTask(t, EmptyLogStorageInfo.empty())).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Job> reflectiveJobCopy() {
+        return jobs.stream().map(job -> reflectiveCopy(job, JOB_FIELDS)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Job> projectedJobCopy() {
+        ProtobufProjection<Job> projection = ProtobufProjection.of(Job.getDescriptor(), JOB_FIELDS);
+        return jobs.stream().map(projection::apply).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Task> reflectiveTaskCopy() {
+        return tasks.stream().map(task -> reflectiveCopy(task, TASK_FIELDS)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Task> projectedTaskCopy() {
+        ProtobufProjection<Task> projection = ProtobufProjection.of(Task.getDescriptor(), TASK_FIELDS);
+        return tasks.stream().map(projection::apply).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Task> reflectiveTaskConversion() {
+        return coreTasks.stream()
+                .map(t -> reflectiveCopy(GrpcJobManagementModelConverters.toGrpcTask(t, EmptyLogStorageInfo.empty()), TASK_FIELDS))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Task> projectedTaskConversion() {
+        ProtobufProjection<Task> projection = ProtobufProjection.of(Task.getDescriptor(), TASK_FIELDS);
+        return coreTasks.stream()
+                .map(t -> projection.apply(GrpcJobManagementModelConverters.toGrpcTask(t, EmptyLogStorageInfo.empty(), projection)))
+                .collect(Collectors.toList());
+    }
+
+    private static com.netflix.titus.api.jobmanager.model.job.Task withRealisticState(BatchJobTask task) {
+        List<TaskStatus> statusHistory = new ArrayList<>();
+        long timestamp = System.currentTimeMillis();
+        for (TaskState state : new TaskState[]{TaskState.Accepted, TaskState.Launched, TaskState.StartInitiated}) {
+            statusHistory.add(TaskStatus.newBuilder().withState(state).withReasonCode("normal").withReasonMessage("state " + state).withTimestamp(timestamp++).build());
+        }
+        Map<String, String> taskContext = new HashMap<>(task.getTaskContext());
+        taskContext.put(TaskAttributes.TASK_ATTRIBUTES_AGENT_HOST, "host-" + task.getId());
+        taskContext.put(TaskAttributes.TASK_ATTRIBUTES_AGENT_HOST_IP, "10.0.0.1");
+        taskContext.put(TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE, "us-east-1c");
+        taskContext.put(TaskAttributes.TASK_ATTRIBUTES_AGENT_REGION, "us-east-1");
+        taskContext.put(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID, "i-0123456789");
+        taskContext.put(TaskAttributes.TASK_ATTRIBUTES_AGENT_ITYPE, "m5.4xlarge");
+        return task.toBuilder()
+                .withStatus(TaskStatus.newBuilder().withState(TaskState.Started).withReasonCode("normal").withTimestamp(timestamp).build())
+                .withStatusHistory(statusHistory)
+                .withTaskContext(taskContext)
+                .build();
+    }
+
+    /**
+     * The field filtering algorithm used before {@link ProtobufProjection} was introduced.
+     */
+    private static <T extends Message> T reflectiveCopy(T entity, Set<String> fields) {
+        Map<String, Set<String>> topNames = PropertiesExt.splitNames(fields, 1);
+        Message.Builder builder = entity.toBuilder();
+        Set<Descriptors.FieldDescriptor> fieldDescriptors = new HashSet<>(builder.getAllFields().keySet());
+        for (Descriptors.FieldDescriptor field : fieldDescriptors) {
+            if (!topNames.containsKey(field.getName())) {
+                builder.clearField(field);
+                continue;
+            }
+            Set<String> nested = topNames.get(field.getName());
+            Object value = builder.getField(field);
+            if (nested == null || value == null) {
+                continue;
+            }
+            if (value instanceof Message) {
+                if (!((Message) value).getAllFields().isEmpty()) {
+                    builder.setField(field, reflectiveCopy((Message) value, nested));
+                }
+            } else if (value instanceof Collection && !((Collection<?>) value).isEmpty()) {
+                Collection<?> collection = (Collection<?>) value;
+                Object first = CollectionsExt.first(collection);
+                if (first instanceof MapEntry) {
+                    if (((MapEntry) first).getKey() instanceof String) {
+                        builder.setField(field, collection.stream()
+                                .filter(item -> nested.contains(((MapEntry) item).getKey()))
+                                .collect(Collectors.toList())
+                        );
+                    }
+                } else if (first instanceof Message) {
+                    Iterator<?> it = collection.iterator();
+                    for (int i = 0; i < collection.size(); i++) {
+                        builder.setRepeatedField(field, i, reflectiveCopy((Message) it.next(), nested));
+                    }
+                }
+            }
+        }
+        return (T) builder.build();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.admission;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.util.time.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Cache for results of external service calls made by admission validators and sanitizers. It provides:
+ * <ul>
+ * <li>request coalescing - concurrent requests for the same key share a single call</li>
+ * <li>TTL for successful results, and a separate TTL for errors for which the cacheable error predicate is true</li>
+ * <li>stale-while-revalidate - an expired value is still returned for a configured amount of time, while it is
+ * reloaded in the background</li>
+ * </ul>
+ * A load is not cancelled when a subscriber cancels (for example on timeout), so its result is cached for the next
+ * request. A load that completes without a value is not cached.
+ */
+class AdmissionLookupCache<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionLookupCache.class);
+
+    private static final String METRICS_ROOT = "titus.validation.lookupCache.";
+
+    private final AdmissionLookupCacheConfiguration configuration;
+    private final Function<K, Mono<V>> loader;
+    private final Predicate<Throwable> cacheableError;
+    private final Clock clock;
+    private final Registry registry;
+
+    private final Id requestsId;
+    private final Id loadTimeId;
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, MonoProcessor<V>> inFlight = new ConcurrentHashMap<>();
+
+    AdmissionLookupCache(String name,
+                         AdmissionLookupCacheConfiguration configuration,
+                         Function<K, Mono<V>> loader,
+                         Predicate<Throwable> cacheableError,
+                         Clock clock,
+                         Registry registry) {
+        this.configuration = configuration;
+        this.loader = loader;
+        this.cacheableError = cacheableError;
+        this.clock = clock;
+        this.registry = registry;
+
+        this.requestsId = registry.createId(METRICS_ROOT + "requests", "name", name);
+        this.loadTimeId = registry.createId(METRICS_ROOT + "loadTime", "name", name);
+    }
+
+    Mono<V> get(K key) {
+        return Mono.defer(() -> {
+            if (!configuration.isLookupCacheEnabled()) {
+                return loader.apply(key);
+            }
+
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                long age = clock.wallTime() - entry.getTimestamp();
+                if (entry.getError() != null) {
+                    if (age < configuration.getLookupCacheNegativeTtlMs()) {
+                        recordRequest("negativeHit");
+                        return Mono.error(entry.getError());
+                    }
+                } else if (age < configuration.getLookupCacheTtlMs()) {
+                    recordRequest("hit");
+                    return Mono.just(entry.getValue());
+                } else if (age < configuration.getLookupCacheTtlMs() + configuration.getLookupCacheStaleTtlMs()) {
+                    recordRequest("stale");
+                    load(key);
+                    return Mono.just(entry.getValue());
+                }
+            }
+            recordRequest("miss");
+            return load(key);
+        });
+    }
+
+    private Mono<V> load(K key) {
+        MonoProcessor<V> processor = MonoProcessor.create();
+        MonoProcessor<V> existing = inFlight.putIfAbsent(key, processor);
+        if (existing != null) {
+            recordRequest("coalesced");
+            return existing;
+        }
+
+        long startTime = clock.wallTime();
+        Mono<V> action;
+        try {
+            action = loader.apply(key);
+        } catch (Exception e) {
+            action = Mono.error(e);
+        }
+        action.subscribe(
+                value -> {
+                    recordLoadTime(startTime, "success");
+                    putEntry(key, new Entry<>(value, null, clock.wallTime()));
+                    inFlight.remove(key, processor);
+                    processor.onNext(value);
+                },
+                error -> {
+                    recordLoadTime(startTime, "error");
+                    if (cacheableError.test(error)) {
+                        putEntry(key, new Entry<>(null, error, clock.wallTime()));
+                    }
+                    inFlight.remove(key, processor);
+                    processor.onError(error);
+                },
+                () -> {
+                    if (inFlight.remove(key, processor)) {
+                        recordLoadTime(startTime, "empty");
+                        processor.onComplete();
+                    }
+                }
+        );
+        return processor;
+    }
+
+    private void putEntry(K key, Entry<V> entry) {
+        entries.put(key, entry);
+        int maxSize = configuration.getLookupCacheMaxSize();
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        // Remove expired entries first, and if still above the limit, any entries.
+        long now = clock.wallTime();
+        long maxAge = Math.max(
+                configuration.getLookupCacheTtlMs() + configuration.getLookupCacheStaleTtlMs(),
+                configuration.getLookupCacheNegativeTtlMs()
+        );
+        entries.entrySet().removeIf(e -> now - e.getValue().getTimestamp() >= maxAge);
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        logger.debug("Lookup cache size limit reached: maxSize={}, size={}", maxSize, entries.size());
+    }
+
+    private void recordRequest(String result) {
+        registry.counter(requestsId.withTag("result", result)).increment();
+    }
+
+    private void recordLoadTime(long startTime, String status) {
+        registry.timer(loadTimeId.withTag("status", status)).record(clock.wallTime() - startTime, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final Throwable error;
+        private final long timestamp;
+
+        private Entry(V value, Throwable error, long timestamp) {
+            this.value = value;
+            this.error = error;
+            this.timestamp = timestamp;
+        }
+
+        private V getValue() {
+            return value;
+        }
+
+        private Throwable getError() {
+            return error;
+        }
+
+        private long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
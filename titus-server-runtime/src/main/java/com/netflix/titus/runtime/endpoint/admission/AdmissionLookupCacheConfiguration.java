@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.admission;
+
+/**
+ * {@link AdmissionLookupCache} configuration. Validators extending it provide their own default values.
+ */
+public interface AdmissionLookupCacheConfiguration {
+
+    /**
+     * Set to false to call the external service on each request.
+     */
+    boolean isLookupCacheEnabled();
+
+    /**
+     * Amount of time a successfully loaded value is returned without reloading it.
+     */
+    long getLookupCacheTtlMs();
+
+    /**
+     * Amount of time after {@link #getLookupCacheTtlMs()} expires, during which the old value is still returned,
+     * while it is reloaded in the background.
+     */
+    long getLookupCacheStaleTtlMs();
+
+    /**
+     * Amount of time a cacheable (non-transient) error is returned without calling the external service again.
+     */
+    long getLookupCacheNegativeTtlMs();
+
+    int getLookupCacheMaxSize();
+}
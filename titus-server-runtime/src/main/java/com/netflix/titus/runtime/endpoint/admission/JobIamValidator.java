@@ -42,6 +42,8 @@ import com.netflix.titus.common.model.admission.ValidatorMetrics;
 import com.netflix.titus.common.model.sanitizer.ValidationError;
 import com.netflix.titus.common.util.archaius2.Archaius2Ext;
 import com.netflix.titus.common.util.rx.ReactorExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.time.Clocks;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -58,8 +60,19 @@ public class JobIamValidator implements AdmissionValidator<JobDescriptor>, Admis
 
     private final Supplier<List<Duration>> iamValidationHedgeThresholdsConfig;
 
+    private final AdmissionLookupCache<String, Boolean> agentAssumeCache;
+    private final AdmissionLookupCache<String, Boolean> iamAssumeCache;
+    private final AdmissionLookupCache<String, IamRole> iamRoleCache;
+
     @Inject
     public JobIamValidator(JobSecurityValidatorConfiguration configuration, IamConnector iamConnector, Registry registry) {
+        this(configuration, iamConnector, registry, Clocks.system());
+    }
+
+    public JobIamValidator(JobSecurityValidatorConfiguration configuration,
+                           IamConnector iamConnector,
+                           Registry registry,
+                           Clock clock) {
         this.configuration = configuration;
         this.iamConnector = iamConnector;
 
@@ -67,6 +80,17 @@ public class JobIamValidator implements AdmissionValidator<JobDescriptor>, Admis
         this.registry = registry;
 
         this.iamValidationHedgeThresholdsConfig = Archaius2Ext.asDurationList(configuration::getIamValidationHedgeThresholdsMs);
+
+        this.agentAssumeCache = new AdmissionLookupCache<>("iamAgentAssume", configuration,
+                iamRoleName -> canAgentAssume(iamRoleName).thenReturn(true), JobIamValidator::isPermanentError, clock, registry
+        );
+        this.iamAssumeCache = new AdmissionLookupCache<>("iamAssume", configuration,
+                iamRoleName -> iamConnector.canIamAssume(iamRoleName, configuration.getAgentIamAssumeRole()).thenReturn(true),
+                JobIamValidator::isPermanentError, clock, registry
+        );
+        this.iamRoleCache = new AdmissionLookupCache<>("iamRole", configuration,
+                iamConnector::getIamRole, JobIamValidator::isPermanentError, clock, registry
+        );
     }
 
     @Override
@@ -87,25 +111,7 @@ public class JobIamValidator implements AdmissionValidator<JobDescriptor>, Admis
         return Mono
                 .defer(() -> {
                             if (configuration.isIamRoleWithStsValidationEnabled()) {
-                                return iamConnector.canAgentAssume(iamRoleName).compose(
-                                        ReactorExt.hedged(
-                                                iamValidationHedgeThresholdsConfig.get(),
-                                                error -> {
-                                                    if (error instanceof IamConnectorException) {
-                                                        IamConnectorException iamError = (IamConnectorException) error;
-                                                        return iamError.isRetryable();
-                                                    }
-                                                    return true;
-                                                },
-                                                ImmutableMap.of(
-                                                        "caller", "jobIamValidator",
-                                                        "action", "iamConnector:canAgentAssume"
-                                                ),
-                                                registry,
-                                                Schedulers.parallel()
-                                        )
-                                );
-
+                                return agentAssumeCache.get(iamRoleName);
                             }
 
                             // Skip any IAM that is not in "friendly" format. A non-friendly format is
@@ -115,7 +121,7 @@ public class JobIamValidator implements AdmissionValidator<JobDescriptor>, Admis
                                 return Mono.just(Collections.emptySet());
                             }
 
-                            return iamConnector.canIamAssume(iamRoleName, configuration.getAgentIamAssumeRole());
+                            return iamAssumeCache.get(iamRoleName);
                         }
                 )
                 .timeout(Duration.ofMillis(configuration.getIamValidationTimeoutMs()))
@@ -162,12 +168,40 @@ public class JobIamValidator implements AdmissionValidator<JobDescriptor>, Admis
             return Mono.empty();
         }
 
-        return iamConnector.getIamRole(iamRoleName)
+        return iamRoleCache.get(iamRoleName)
                 .timeout(Duration.ofMillis(configuration.getIamValidationTimeoutMs()))
                 .map(JobIamValidator::setIamRoleFunction)
                 .onErrorReturn(JobIamValidator::skipSanitization);
     }
 
+    private Mono<Void> canAgentAssume(String iamRoleName) {
+        return iamConnector.canAgentAssume(iamRoleName).compose(
+                ReactorExt.hedged(
+                        iamValidationHedgeThresholdsConfig.get(),
+                        error -> {
+                            if (error instanceof IamConnectorException) {
+                                IamConnectorException iamError = (IamConnectorException) error;
+                                return iamError.isRetryable();
+                            }
+                            return true;
+                        },
+                        ImmutableMap.of(
+                                "caller", "jobIamValidator",
+                                "action", "iamConnector:canAgentAssume"
+                        ),
+                        registry,
+                        Schedulers.parallel()
+                )
+        );
+    }
+
+    /**
+     * Errors for roles that do not exist or cannot be assumed are cached, transient ones are not.
+     */
+    private static boolean isPermanentError(Throwable error) {
+        return error instanceof IamConnectorException && !((IamConnectorException) error).isRetryable();
+    }
+
     private static UnaryOperator<JobDescriptor> setIamRoleFunction(IamRole iamRole) {
         return entity -> {
             Container container = entity.getContainer();
@@ -30,6 +30,9 @@ import com.netflix.titus.common.model.admission.AdmissionSanitizer;
 import com.netflix.titus.common.model.admission.AdmissionValidator;
 import com.netflix.titus.common.model.admission.ValidatorMetrics;
 import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.runtime.connector.registry.RegistryClient;
 import com.netflix.titus.runtime.connector.registry.TitusRegistryException;
 import org.slf4j.Logger;
@@ -44,14 +47,37 @@ public class JobImageSanitizer implements AdmissionSanitizer<JobDescriptor> {
     private static final Logger logger = LoggerFactory.getLogger(JobImageSanitizer.class);
 
     private final JobImageSanitizerConfiguration configuration;
-    private final RegistryClient registryClient;
     private final ValidatorMetrics validatorMetrics;
+    private final AdmissionLookupCache<Pair<String, String>, String> tagCache;
+    private final AdmissionLookupCache<Pair<String, String>, String> digestCache;
 
     @Inject
     public JobImageSanitizer(JobImageSanitizerConfiguration configuration, RegistryClient registryClient, Registry spectatorRegistry) {
+        this(configuration, registryClient, spectatorRegistry, Clocks.system());
+    }
+
+    public JobImageSanitizer(JobImageSanitizerConfiguration configuration,
+                             RegistryClient registryClient,
+                             Registry spectatorRegistry,
+                             Clock clock) {
         this.configuration = configuration;
-        this.registryClient = registryClient;
         this.validatorMetrics = new ValidatorMetrics(this.getClass().getSimpleName(), spectatorRegistry);
+        this.tagCache = new AdmissionLookupCache<>(
+                "jobImageDigest",
+                new TagLookupCacheConfiguration(configuration),
+                imageAndTag -> registryClient.getImageDigest(imageAndTag.getLeft(), imageAndTag.getRight()),
+                JobImageSanitizer::isImageNotFound,
+                clock,
+                spectatorRegistry
+        );
+        this.digestCache = new AdmissionLookupCache<>(
+                "jobImageDigestCheck",
+                configuration,
+                imageAndDigest -> registryClient.getImageDigest(imageAndDigest.getLeft(), imageAndDigest.getRight()),
+                JobImageSanitizer::isImageNotFound,
+                clock,
+                spectatorRegistry
+        );
     }
 
     /**
@@ -84,12 +110,17 @@ public class JobImageSanitizer implements AdmissionSanitizer<JobDescriptor> {
         if (StringExt.isNotEmpty(image.getDigest())) {
             return checkImageDigestExist(image).then(Mono.empty());
         }
-        return registryClient.getImageDigest(image.getName(), image.getTag())
+        return tagCache.get(Pair.of(image.getName(), image.getTag()))
                 .map(digest -> image.toBuilder().withDigest(digest).build());
     }
 
     private Mono<String> checkImageDigestExist(Image image) {
-        return registryClient.getImageDigest(image.getName(), image.getDigest());
+        return digestCache.get(Pair.of(image.getName(), image.getDigest()));
+    }
+
+    private static boolean isImageNotFound(Throwable error) {
+        return error instanceof TitusRegistryException
+                && ((TitusRegistryException) error).getErrorCode() == TitusRegistryException.ErrorCode.IMAGE_NOT_FOUND;
     }
 
     private boolean isDisabled() {
@@ -135,4 +166,41 @@ public class JobImageSanitizer implements AdmissionSanitizer<JobDescriptor> {
                 JobAttributes.JOB_ATTRIBUTES_SANITIZATION_SKIPPED_IMAGE, true
         );
     }
+
+    /**
+     * Tag to digest lookups use {@link JobImageSanitizerConfiguration#getTagLookupCacheStaleTtlMs()} as the stale TTL.
+     */
+    private static class TagLookupCacheConfiguration implements AdmissionLookupCacheConfiguration {
+
+        private final JobImageSanitizerConfiguration delegate;
+
+        private TagLookupCacheConfiguration(JobImageSanitizerConfiguration delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isLookupCacheEnabled() {
+            return delegate.isLookupCacheEnabled();
+        }
+
+        @Override
+        public long getLookupCacheTtlMs() {
+            return delegate.getLookupCacheTtlMs();
+        }
+
+        @Override
+        public long getLookupCacheStaleTtlMs() {
+            return delegate.getTagLookupCacheStaleTtlMs();
+        }
+
+        @Override
+        public long getLookupCacheNegativeTtlMs() {
+            return delegate.getLookupCacheNegativeTtlMs();
+        }
+
+        @Override
+        public int getLookupCacheMaxSize() {
+            return delegate.getLookupCacheMaxSize();
+        }
+    }
 }
@@ -20,7 +20,7 @@ import com.netflix.archaius.api.annotations.Configuration;
 import com.netflix.archaius.api.annotations.DefaultValue;
 
 @Configuration(prefix = "titus.validate.job.image")
-public interface JobImageSanitizerConfiguration extends AdmissionValidatorConfiguration {
+public interface JobImageSanitizerConfiguration extends AdmissionValidatorConfiguration, AdmissionLookupCacheConfiguration {
     @DefaultValue("true")
     boolean isEnabled();
 
@@ -30,4 +30,32 @@ public interface JobImageSanitizerConfiguration extends AdmissionValidatorConfig
      */
     @DefaultValue("4500")
     long getJobImageValidationTimeoutMs();
+
+    @DefaultValue("true")
+    boolean isLookupCacheEnabled();
+
+    /**
+     * Tags may be moved to a new image, so the digest resolved for a tag is cached for a short time only. A job
+     * submitted within TTL + tag stale TTL after a tag was moved, may still get the previous digest.
+     */
+    @DefaultValue("10000")
+    long getLookupCacheTtlMs();
+
+    /**
+     * Applies to the digest existence checks only. See {@link #getTagLookupCacheStaleTtlMs()}.
+     */
+    @DefaultValue("50000")
+    long getLookupCacheStaleTtlMs();
+
+    /**
+     * Stale TTL of the tag to digest lookups. Disabled by default, so an expired digest of a moved tag is not used.
+     */
+    @DefaultValue("0")
+    long getTagLookupCacheStaleTtlMs();
+
+    @DefaultValue("5000")
+    long getLookupCacheNegativeTtlMs();
+
+    @DefaultValue("10000")
+    int getLookupCacheMaxSize();
 }
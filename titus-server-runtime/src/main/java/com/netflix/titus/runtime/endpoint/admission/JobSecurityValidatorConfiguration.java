@@ -22,7 +22,7 @@ import com.netflix.archaius.api.annotations.Configuration;
 import com.netflix.archaius.api.annotations.DefaultValue;
 
 @Configuration(prefix = "titus.validate.job.security")
-public interface JobSecurityValidatorConfiguration extends AdmissionValidatorConfiguration {
+public interface JobSecurityValidatorConfiguration extends AdmissionValidatorConfiguration, AdmissionLookupCacheConfiguration {
 
     @DefaultValue("true")
     boolean isIamValidatorEnabled();
@@ -46,4 +46,19 @@ public interface JobSecurityValidatorConfiguration extends AdmissionValidatorCon
 
     @DefaultValue("200,500,1000")
     String getIamValidationHedgeThresholdsMs();
+
+    @DefaultValue("true")
+    boolean isLookupCacheEnabled();
+
+    @DefaultValue("60000")
+    long getLookupCacheTtlMs();
+
+    @DefaultValue("300000")
+    long getLookupCacheStaleTtlMs();
+
+    @DefaultValue("10000")
+    long getLookupCacheNegativeTtlMs();
+
+    @DefaultValue("10000")
+    int getLookupCacheMaxSize();
 }
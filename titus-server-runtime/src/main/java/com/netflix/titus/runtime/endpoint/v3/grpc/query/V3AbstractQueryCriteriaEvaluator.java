@@ -17,17 +17,21 @@
 package com.netflix.titus.runtime.endpoint.v3.grpc.query;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobGroupInfo;
 import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.service.IndexedJobQuery;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.grpc.protogen.JobDescriptor;
 import com.netflix.titus.grpc.protogen.JobStatus;
@@ -36,15 +40,21 @@ import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
 import com.netflix.titus.runtime.endpoint.common.QueryUtils;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
 
-public abstract class V3AbstractQueryCriteriaEvaluator<TASK_OR_SET> implements Predicate<Pair<Job<?>, TASK_OR_SET>> {
+public abstract class V3AbstractQueryCriteriaEvaluator<TASK_OR_SET> implements Predicate<Pair<Job<?>, TASK_OR_SET>>, IndexedJobQuery {
+
+    private static final String NO_CRITERIA_SHAPE = "none";
 
     private final Predicate<Pair<Job<?>, TASK_OR_SET>> queryPredicate;
+    private final Map<Index, Set<String>> indexedCriteria;
+    private final String criteriaShape;
 
     protected V3AbstractQueryCriteriaEvaluator(List<Predicate<Pair<Job<?>, TASK_OR_SET>>> taskPredicates,
                                                JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria) {
         List<Predicate<Pair<Job<?>, TASK_OR_SET>>> predicates = createJobPredicates(criteria);
         predicates.addAll(taskPredicates);
         this.queryPredicate = matchAll(predicates);
+        this.indexedCriteria = createIndexedCriteria(criteria);
+        this.criteriaShape = createCriteriaShape(criteria);
     }
 
     @Override
@@ -52,6 +62,64 @@ public abstract class V3AbstractQueryCriteriaEvaluator<TASK_OR_SET> implements P
         return queryPredicate.test(jobListPair);
     }
 
+    @Override
+    public Map<Index, Set<String>> getIndexedCriteria() {
+        return indexedCriteria;
+    }
+
+    @Override
+    public String getCriteriaShape() {
+        return criteriaShape;
+    }
+
+    private static Map<Index, Set<String>> createIndexedCriteria(JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria) {
+        Map<Index, Set<String>> result = new EnumMap<>(Index.class);
+        if (!criteria.getJobIds().isEmpty()) {
+            result.put(Index.JobId, criteria.getJobIds());
+        }
+        if (!criteria.getTaskIds().isEmpty()) {
+            result.put(Index.TaskId, criteria.getTaskIds());
+        }
+        criteria.getAppName().ifPresent(appName -> result.put(Index.ApplicationName, Collections.singleton(appName)));
+        criteria.getCapacityGroup().ifPresent(capacityGroup -> result.put(Index.CapacityGroup, Collections.singleton(capacityGroup)));
+        criteria.getImageName().ifPresent(imageName -> result.put(Index.ImageName, Collections.singleton(imageName)));
+        if (!criteria.getTaskStates().isEmpty()) {
+            result.put(Index.TaskState, criteria.getTaskStates().stream()
+                    .map(state -> GrpcJobManagementModelConverters.toCoreTaskState(state).name())
+                    .collect(Collectors.toSet())
+            );
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static String createCriteriaShape(JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria) {
+        List<String> names = new ArrayList<>();
+        addIf(names, "jobIds", !criteria.getJobIds().isEmpty());
+        addIf(names, "taskIds", !criteria.getTaskIds().isEmpty());
+        addIf(names, "jobType", criteria.getJobType().isPresent());
+        addIf(names, "jobState", criteria.getJobState().isPresent());
+        addIf(names, "taskStates", !criteria.getTaskStates().isEmpty());
+        addIf(names, "taskStateReasons", !criteria.getTaskStateReasons().isEmpty());
+        addIf(names, "owner", criteria.getOwner().isPresent());
+        addIf(names, "appName", criteria.getAppName().isPresent());
+        addIf(names, "capacityGroup", criteria.getCapacityGroup().isPresent());
+        addIf(names, "jobGroupStack", criteria.getJobGroupStack().isPresent());
+        addIf(names, "jobGroupDetail", criteria.getJobGroupDetail().isPresent());
+        addIf(names, "jobGroupSequence", criteria.getJobGroupSequence().isPresent());
+        addIf(names, "imageName", criteria.getImageName().isPresent());
+        addIf(names, "imageTag", criteria.getImageTag().isPresent());
+        addIf(names, "labels", !criteria.getLabels().isEmpty());
+        addIf(names, "needsMigration", criteria.isNeedsMigration());
+        addIf(names, "skipSystemFailures", criteria.isSkipSystemFailures());
+        return names.isEmpty() ? NO_CRITERIA_SHAPE : String.join("+", names);
+    }
+
+    private static void addIf(List<String> names, String name, boolean condition) {
+        if (condition) {
+            names.add(name);
+        }
+    }
+
     private List<Predicate<Pair<Job<?>, TASK_OR_SET>>> createJobPredicates(JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria) {
         List<Predicate<Pair<Job<?>, TASK_OR_SET>>> predicates = new ArrayList<>();
 
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.admission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.MonoProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdmissionLookupCacheTest {
+
+    private static final long TTL_MS = 1_000;
+    private static final long STALE_TTL_MS = 5_000;
+    private static final long NEGATIVE_TTL_MS = 500;
+
+    private final AdmissionLookupCacheConfiguration configuration = mock(AdmissionLookupCacheConfiguration.class);
+    private final TestClock clock = Clocks.test();
+    private final Registry registry = new DefaultRegistry();
+
+    /**
+     * Pending loads, completed explicitly by the test.
+     */
+    private final List<MonoProcessor<String>> loads = new ArrayList<>();
+
+    private final AdmissionLookupCache<String, String> cache = new AdmissionLookupCache<>(
+            "test",
+            configuration,
+            key -> {
+                MonoProcessor<String> load = MonoProcessor.create();
+                loads.add(load);
+                return load;
+            },
+            error -> error instanceof IllegalArgumentException,
+            clock,
+            registry
+    );
+
+    @Before
+    public void setUp() {
+        when(configuration.isLookupCacheEnabled()).thenReturn(true);
+        when(configuration.getLookupCacheTtlMs()).thenReturn(TTL_MS);
+        when(configuration.getLookupCacheStaleTtlMs()).thenReturn(STALE_TTL_MS);
+        when(configuration.getLookupCacheNegativeTtlMs()).thenReturn(NEGATIVE_TTL_MS);
+        when(configuration.getLookupCacheMaxSize()).thenReturn(100);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneLoad() {
+        MonoProcessor<String> first = cache.get("key").toProcessor();
+        MonoProcessor<String> second = cache.get("key").toProcessor();
+        assertThat(loads).hasSize(1);
+
+        loads.get(0).onNext("value");
+        assertThat(first.block()).isEqualTo("value");
+        assertThat(second.block()).isEqualTo("value");
+
+        assertThat(cache.get("key").block()).isEqualTo("value");
+        assertThat(loads).hasSize(1);
+        assertThat(requests("coalesced")).isEqualTo(1);
+        assertThat(requests("hit")).isEqualTo(1);
+    }
+
+    @Test
+    public void testStaleValueIsReturnedWhileReloading() {
+        loadValue("key", "value1");
+
+        clock.advanceTime(TTL_MS, TimeUnit.MILLISECONDS);
+        assertThat(cache.get("key").block()).isEqualTo("value1");
+        assertThat(loads).hasSize(2);
+
+        loads.get(1).onNext("value2");
+        assertThat(cache.get("key").block()).isEqualTo("value2");
+        assertThat(requests("stale")).isEqualTo(1);
+    }
+
+    @Test
+    public void testExpiredValueIsReloaded() {
+        loadValue("key", "value1");
+
+        clock.advanceTime(TTL_MS + STALE_TTL_MS, TimeUnit.MILLISECONDS);
+        MonoProcessor<String> result = cache.get("key").toProcessor();
+        assertThat(result.isTerminated()).isFalse();
+
+        loads.get(1).onNext("value2");
+        assertThat(result.block()).isEqualTo("value2");
+    }
+
+    @Test
+    public void testCacheableErrorIsCachedForNegativeTtl() {
+        MonoProcessor<String> result = cache.get("key").toProcessor();
+        loads.get(0).onError(new IllegalArgumentException("not found"));
+        assertThatThrownBy(result::block).isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> cache.get("key").block()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(loads).hasSize(1);
+
+        clock.advanceTime(NEGATIVE_TTL_MS, TimeUnit.MILLISECONDS);
+        cache.get("key").subscribe();
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    public void testTransientErrorIsNotCached() {
+        MonoProcessor<String> result = cache.get("key").toProcessor();
+        loads.get(0).onError(new IllegalStateException("transient"));
+        assertThatThrownBy(result::block).isInstanceOf(IllegalStateException.class);
+
+        cache.get("key").subscribe();
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    public void testLoadIsNotCancelledByTimedOutRequest() {
+        cache.get("key").subscribe().dispose();
+        loads.get(0).onNext("value");
+
+        assertThat(cache.get("key").block()).isEqualTo("value");
+        assertThat(loads).hasSize(1);
+    }
+
+    @Test
+    public void testDisabledCache() {
+        when(configuration.isLookupCacheEnabled()).thenReturn(false);
+
+        cache.get("key").subscribe();
+        cache.get("key").subscribe();
+        assertThat(loads).hasSize(2);
+    }
+
+    private void loadValue(String key, String value) {
+        MonoProcessor<String> result = cache.get(key).toProcessor();
+        loads.get(loads.size() - 1).onNext(value);
+        assertThat(result.block()).isEqualTo(value);
+    }
+
+    private long requests(String result) {
+        return registry.counter("titus.validation.lookupCache.requests", "name", "test", "result", result).count();
+    }
+}
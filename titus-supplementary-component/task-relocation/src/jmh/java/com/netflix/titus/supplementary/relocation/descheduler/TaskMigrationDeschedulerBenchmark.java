@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.supplementary.relocation.descheduler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.eviction.model.EvictionQuota;
+import com.netflix.titus.api.eviction.model.event.EvictionEvent;
+import com.netflix.titus.api.eviction.service.ReadOnlyEvictionOperations;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.model.reference.Reference;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.supplementary.relocation.connector.Node;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures a full task migration descheduling cycle on a synthetic cluster, in which all agents are being evacuated:
+ * <pre>
+ * ./gradlew :titus-supplementary-component:task-relocation:jmh -PjmhInclude=TaskMigrationDeschedulerBenchmark
+ * </pre>
+ * Tasks are spread randomly over agents, so evicting tasks of one job changes the fitness of many other agents.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskMigrationDeschedulerBenchmark {
+
+    private static final int TASKS_PER_JOB = 100;
+
+    @Param({"5000"})
+    private int agentCount;
+
+    @Param({"100000"})
+    private int taskCount;
+
+    @Param({"1000", "10000"})
+    private long systemQuota;
+
+    @Param({"5"})
+    private long jobQuota;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+    private Map<String, Node> nodesById;
+    private Map<String, Job<?>> jobsById;
+    private Map<String, Task> tasksById;
+    private ReadOnlyEvictionOperations evictionOperations;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(123);
+
+        this.nodesById = new HashMap<>();
+        for (int i = 0; i < agentCount; i++) {
+            Node node = Node.newBuilder()
+                    .withId("agent" + i)
+                    .withServerGroupId("serverGroup" + (i % 10))
+                    .withServerGroupRelocationRequired(true)
+                    .build();
+            nodesById.put(node.getId(), node);
+        }
+
+        this.jobsById = new HashMap<>();
+        this.tasksById = new HashMap<>();
+        Job<?> jobTemplate = JobGenerator.oneBatchJob();
+        Task taskTemplate = JobGenerator.oneBatchTask();
+        TaskStatus startedStatus = TaskStatus.newBuilder().withState(TaskState.Started).build();
+        for (int i = 0; i < taskCount; i++) {
+            String jobId = "job" + (i / TASKS_PER_JOB);
+            jobsById.computeIfAbsent(jobId, id -> jobTemplate.toBuilder().withId(id).build());
+
+            Task task = taskTemplate.toBuilder()
+                    .withId(jobId + "-task" + i)
+                    .withJobId(jobId)
+                    .withStatus(startedStatus)
+                    .withTaskContext(Collections.singletonMap(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID, "agent" + random.nextInt(agentCount)))
+                    .build();
+            tasksById.put(task.getId(), task);
+        }
+
+        this.evictionOperations = new ReadOnlyEvictionOperations() {
+            @Override
+            public EvictionQuota getEvictionQuota(Reference reference) {
+                return EvictionQuota.systemQuota(systemQuota, "benchmark");
+            }
+
+            @Override
+            public Optional<EvictionQuota> findEvictionQuota(Reference reference) {
+                return Optional.of(EvictionQuota.jobQuota(reference.getName(), jobQuota, "benchmark"));
+            }
+
+            @Override
+            public Flux<EvictionEvent> events(boolean includeSnapshot) {
+                return Flux.never();
+            }
+        };
+    }
+
+    @Benchmark
+    public int deschedulingCycle() {
+        TaskMigrationDescheduler descheduler = new TaskMigrationDescheduler(
+                Collections.emptyMap(),
+                new EvacuatedAgentsAllocationTracker(nodesById, tasksById),
+                new EvictionQuotaTracker(evictionOperations, jobsById),
+                jobsById,
+                tasksById,
+                titusRuntime
+        );
+
+        int evicted = 0;
+        Optional<Pair<Node, List<Task>>> next;
+        while ((next = descheduler.nextBestMatch()).isPresent()) {
+            evicted += next.get().getRight().size();
+        }
+        return evicted;
+    }
+}
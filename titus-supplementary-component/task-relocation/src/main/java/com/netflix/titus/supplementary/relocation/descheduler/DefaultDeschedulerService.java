@@ -21,10 +21,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.spectator.api.Timer;
 import com.netflix.titus.api.eviction.service.ReadOnlyEvictionOperations;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -35,6 +37,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.supplementary.relocation.RelocationMetrics;
 import com.netflix.titus.supplementary.relocation.connector.Node;
 import com.netflix.titus.supplementary.relocation.connector.NodeDataResolver;
 import com.netflix.titus.supplementary.relocation.model.DeschedulingFailure;
@@ -52,6 +55,7 @@ public class DefaultDeschedulerService implements DeschedulerService {
 
     private final TitusRuntime titusRuntime;
     private final Clock clock;
+    private final Timer cycleTime;
 
     @Inject
     public DefaultDeschedulerService(ReadOnlyJobOperations jobOperations,
@@ -63,10 +67,20 @@ public class DefaultDeschedulerService implements DeschedulerService {
         this.nodeDataResolver = nodeDataResolver;
         this.clock = titusRuntime.getClock();
         this.titusRuntime = titusRuntime;
+        this.cycleTime = titusRuntime.getRegistry().timer(RelocationMetrics.METRIC_ROOT + "descheduler.cycleTime");
     }
 
     @Override
     public List<DeschedulingResult> deschedule(Map<String, TaskRelocationPlan> plannedAheadTaskRelocationPlans) {
+        long startTime = clock.wallTime();
+        try {
+            return doDeschedule(plannedAheadTaskRelocationPlans);
+        } finally {
+            cycleTime.record(clock.wallTime() - startTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private List<DeschedulingResult> doDeschedule(Map<String, TaskRelocationPlan> plannedAheadTaskRelocationPlans) {
         List<Pair<Job, List<Task>>> allJobsAndTasks = jobOperations.getJobsAndTasks();
         Map<String, Job<?>> jobs = allJobsAndTasks.stream().map(Pair::getLeft).collect(Collectors.toMap(Job::getId, j -> j));
         Map<String, Task> tasksById = allJobsAndTasks.stream()
@@ -16,6 +16,8 @@
 
 package com.netflix.titus.supplementary.relocation.descheduler;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -23,6 +25,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Preconditions;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.supplementary.relocation.connector.Node;
@@ -47,7 +50,18 @@ class EvacuatedAgentsAllocationTracker {
                 removableAgentsById.put(nodeId, node);
             }
         });
-        this.removableAgentsAndTasksByAgentId = transformValues(removableAgentsById, i -> Pair.of(i, RelocationUtil.findTasksOnInstance(i, tasksById.values())));
+
+        // Group tasks by agent in a single pass, instead of scanning all tasks for each removable agent.
+        Map<String, List<Task>> tasksByAgentId = new HashMap<>();
+        tasksById.values().forEach(task -> {
+            if (RelocationUtil.isAssignedToAgent(task)) {
+                String agentId = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID);
+                if (agentId != null && removableAgentsById.containsKey(agentId)) {
+                    tasksByAgentId.computeIfAbsent(agentId, id -> new ArrayList<>()).add(task);
+                }
+            }
+        });
+        this.removableAgentsAndTasksByAgentId = transformValues(removableAgentsById, i -> Pair.of(i, tasksByAgentId.getOrDefault(i.getId(), Collections.emptyList())));
 
         for (Pair<Node, List<Task>> agentTasksPair : removableAgentsAndTasksByAgentId.values()) {
             agentTasksPair.getRight().forEach(task -> removableAgentsByTaskId.put(task.getId(), agentTasksPair.getLeft()));
@@ -20,9 +20,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -40,7 +43,11 @@ class TaskMigrationDescheduler {
     private static final double FITNESS_NONE = 0.0;
     private static final double FITNESS_PERFECT = 1.0;
 
-    private static final Pair<Double, List<Task>> FITNESS_RESULT_NONE = Pair.of(FITNESS_NONE, Collections.emptyList());
+    /**
+     * Highest fitness first. Agents with the same fitness are ordered by id, to make the order total.
+     */
+    private static final Comparator<AgentFitness> FITNESS_ORDER = Comparator.comparingDouble(AgentFitness::getFitness).reversed()
+            .thenComparing(agentFitness -> agentFitness.getAgent().getId());
 
     private static final int MAX_EXPECTED_AGENT_CPUS = 64;
 
@@ -60,6 +67,10 @@ class TaskMigrationDescheduler {
     private final Map<String, Task> tasksById;
     private final Clock clock;
 
+    private TreeSet<AgentFitness> fitnessQueue;
+    private Map<String, AgentFitness> fitnessByAgentId;
+    private Map<String, Map<String, Integer>> removableAgentTaskCountsByJobId;
+
     TaskMigrationDescheduler(Map<String, TaskRelocationPlan> plannedAheadTaskRelocationPlans,
                              EvacuatedAgentsAllocationTracker evacuatedAgentsAllocationTracker,
                              EvictionQuotaTracker evictionQuotaTracker,
@@ -113,26 +124,93 @@ class TaskMigrationDescheduler {
         return result;
     }
 
+    /**
+     * Finds the removable agent with the highest fitness, and deschedules its tasks that can be evicted within
+     * the available quota.
+     * <p>
+     * Agents are kept in a priority queue, ordered by their fitness computed without the system quota limit. Evicting
+     * tasks changes only the quota of their jobs, so after each selection only the agents running more tasks of these
+     * jobs than the job quota left are re-evaluated, as only for them the number of evictable tasks changes. The
+     * system quota is applied when an agent reaches the head of the queue. As the system quota can only decrease, the
+     * fitness stored in the queue is an upper bound, and the head agent is selected only if its actual fitness is not
+     * lower than that bound of the next agent. Otherwise it is put back with the actual fitness.
+     */
     Optional<Pair<Node, List<Task>>> nextBestMatch() {
         if (evictionQuotaTracker.getSystemEvictionQuota() <= 0) {
             return Optional.empty();
         }
+        if (fitnessQueue == null) {
+            initializeFitnessQueue();
+        }
 
-        return evacuatedAgentsAllocationTracker.getRemovableAgentsById().values().stream()
-                .map(i -> Pair.of(i, computeFitness(i)))
-                .filter(p -> p.getRight().getLeft() > 0)
-                .max(Comparator.comparingDouble(p -> p.getRight().getLeft()))
-                .map(p -> {
-                    Node agent = p.getLeft();
-                    List<Task> tasks = p.getRight().getRight();
+        while (!fitnessQueue.isEmpty()) {
+            AgentFitness head = fitnessQueue.pollFirst();
+            fitnessByAgentId.remove(head.getAgent().getId());
 
-                    tasks.forEach(task -> {
-                        evacuatedAgentsAllocationTracker.descheduled(task);
-                        evictionQuotaTracker.consumeQuota(task.getJobId());
-                    });
+            AgentFitness actual = computeFitness(head.getAgent(), evictionQuotaTracker.getSystemEvictionQuota());
+            if (actual.getFitness() <= 0) {
+                continue;
+            }
+            if (!fitnessQueue.isEmpty() && FITNESS_ORDER.compare(actual, fitnessQueue.first()) > 0) {
+                enqueue(actual);
+                continue;
+            }
 
-                    return Pair.of(agent, tasks);
+            Node agent = actual.getAgent();
+            List<Task> tasks = actual.getTasks();
+            Set<String> affectedJobIds = new HashSet<>();
+            tasks.forEach(task -> {
+                evacuatedAgentsAllocationTracker.descheduled(task);
+                evictionQuotaTracker.consumeQuota(task.getJobId());
+                affectedJobIds.add(task.getJobId());
+            });
+
+            Set<String> affectedAgentIds = new HashSet<>();
+            affectedAgentIds.add(agent.getId());
+            affectedJobIds.forEach(jobId -> {
+                long jobQuota = evictionQuotaTracker.getJobEvictionQuota(jobId);
+                removableAgentTaskCountsByJobId.getOrDefault(jobId, Collections.emptyMap()).forEach((agentId, taskCount) -> {
+                    if (taskCount > jobQuota) {
+                        affectedAgentIds.add(agentId);
+                    }
                 });
+            });
+            affectedAgentIds.forEach(this::reevaluate);
+
+            return Optional.of(Pair.of(agent, tasks));
+        }
+        return Optional.empty();
+    }
+
+    private void initializeFitnessQueue() {
+        this.fitnessQueue = new TreeSet<>(FITNESS_ORDER);
+        this.fitnessByAgentId = new HashMap<>();
+        this.removableAgentTaskCountsByJobId = new HashMap<>();
+
+        evacuatedAgentsAllocationTracker.getRemovableAgentsById().values().forEach(agent -> {
+            evacuatedAgentsAllocationTracker.getTasksOnAgent(agent.getId()).forEach(task ->
+                    removableAgentTaskCountsByJobId.computeIfAbsent(task.getJobId(), jobId -> new HashMap<>()).merge(agent.getId(), 1, Integer::sum)
+            );
+            enqueue(computeFitness(agent, Long.MAX_VALUE));
+        });
+    }
+
+    private void reevaluate(String agentId) {
+        AgentFitness previous = fitnessByAgentId.remove(agentId);
+        if (previous != null) {
+            fitnessQueue.remove(previous);
+        }
+        Node agent = evacuatedAgentsAllocationTracker.getRemovableAgentsById().get(agentId);
+        if (agent != null) {
+            enqueue(computeFitness(agent, Long.MAX_VALUE));
+        }
+    }
+
+    private void enqueue(AgentFitness agentFitness) {
+        if (agentFitness.getFitness() > 0) {
+            fitnessQueue.add(agentFitness);
+            fitnessByAgentId.put(agentFitness.getAgent().getId(), agentFitness);
+        }
     }
 
     DeschedulingFailure getDeschedulingFailure(Task task) {
@@ -177,15 +255,15 @@ class TaskMigrationDescheduler {
                 .build();
     }
 
-    private Pair<Double, List<Task>> computeFitness(Node agent) {
+    private AgentFitness computeFitness(Node agent, long systemQuota) {
         List<Task> tasks = evacuatedAgentsAllocationTracker.getTasksOnAgent(agent.getId());
         if (tasks.isEmpty()) {
-            return FITNESS_RESULT_NONE;
+            return new AgentFitness(agent, FITNESS_NONE, Collections.emptyList());
         }
 
-        long terminateLimit = Math.min(tasks.size(), evictionQuotaTracker.getSystemEvictionQuota());
+        long terminateLimit = Math.min(tasks.size(), systemQuota);
         if (terminateLimit <= 0) {
-            return FITNESS_RESULT_NONE;
+            return new AgentFitness(agent, FITNESS_NONE, Collections.emptyList());
         }
 
         Map<String, List<Task>> chosen = new HashMap<>();
@@ -206,13 +284,13 @@ class TaskMigrationDescheduler {
         }
 
         if (chosenList.size() == 0) {
-            return FITNESS_RESULT_NONE;
+            return new AgentFitness(agent, FITNESS_NONE, Collections.emptyList());
         }
 
         int leftOnAgent = tasks.size() - chosenList.size();
         double fitness = Math.max(FITNESS_PERFECT - leftOnAgent * TASK_ON_AGENT_PENALTY, 0.01);
 
-        return Pair.of(fitness, chosenList);
+        return new AgentFitness(agent, fitness, chosenList);
     }
 
     private boolean canTerminate(Task task) {
@@ -230,4 +308,29 @@ class TaskMigrationDescheduler {
 
         return relocationPlan.getRelocationTime() <= clock.wallTime();
     }
+
+    private static class AgentFitness {
+
+        private final Node agent;
+        private final double fitness;
+        private final List<Task> tasks;
+
+        private AgentFitness(Node agent, double fitness, List<Task> tasks) {
+            this.agent = agent;
+            this.fitness = fitness;
+            this.tasks = tasks;
+        }
+
+        private Node getAgent() {
+            return agent;
+        }
+
+        private double getFitness() {
+            return fitness;
+        }
+
+        private List<Task> getTasks() {
+            return tasks;
+        }
+    }
 }
@@ -18,9 +18,12 @@ package com.netflix.titus.supplementary.relocation.descheduler;
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.netflix.titus.api.agent.model.AgentInstanceGroup;
@@ -146,6 +149,31 @@ public class TaskMigrationDeschedulerTest {
         assertThat(results.get().getLeft().getId()).isEqualTo(agent2);
     }
 
+    @Test
+    public void testConsecutiveMatchesRespectJobQuota() {
+        List<Node> removableAgents = nodeDataResolver.resolve().values().stream()
+                .filter(n -> n.getServerGroupId().equals("removable1"))
+                .collect(Collectors.toList());
+        List<Task> tasksOfJob1 = jobOperations.getTasks("job1");
+        List<Task> tasksOfJob2 = jobOperations.getTasks("job2");
+        for (int i = 0; i < tasksOfJob1.size(); i++) {
+            dataGenerator.placeOnAgent(removableAgents.get(i).getId(), tasksOfJob1.get(i));
+        }
+        dataGenerator.placeOnAgent(removableAgents.get(0).getId(), tasksOfJob2.get(0), tasksOfJob2.get(1));
+        dataGenerator.setQuota("job1", 2);
+        dataGenerator.setQuota("job2", 2);
+
+        TaskMigrationDescheduler descheduler = newDescheduler(Collections.emptyMap());
+        Set<String> selectedAgents = new HashSet<>();
+        Map<String, Long> evictedByJobId = new HashMap<>();
+        Optional<Pair<Node, List<Task>>> next;
+        while ((next = descheduler.nextBestMatch()).isPresent()) {
+            assertThat(selectedAgents.add(next.get().getLeft().getId())).isTrue();
+            next.get().getRight().forEach(task -> evictedByJobId.merge(task.getJobId(), 1L, Long::sum));
+        }
+        assertThat(evictedByJobId).containsEntry("job1", 2L).containsEntry("job2", 2L);
+    }
+
     @Test
     public void testFailures() {
         Task job1Task0 = jobOperations.getTasks("job1").get(0);
@@ -39,6 +39,24 @@ public class EsPublisherConfiguration {
     @Value("${titus.es.publish.enabled}")
     private boolean enabled;
 
+    @Value("${titus.es.publish.coalescingWindowMs:1000}")
+    private long coalescingWindowMs;
+
+    @Value("${titus.es.publish.minBatchSize:10}")
+    private int minBatchSize;
+
+    @Value("${titus.es.publish.maxBatchSize:1000}")
+    private int maxBatchSize;
+
+    @Value("${titus.es.publish.targetBulkLatencyMs:1000}")
+    private long targetBulkLatencyMs;
+
+    @Value("${titus.es.spool.enabled:false}")
+    private boolean spoolEnabled;
+
+    @Value("${titus.es.spool.directory:/var/tmp/titus-tasks-publisher}")
+    private String spoolDirectory;
+
     public String getTaskDocumentEsIndexDateSuffixPattern() {
         return taskDocumentEsIndexDateSuffixPattern;
     }
@@ -62,4 +80,37 @@ public class EsPublisherConfiguration {
     public boolean isEnabled() {
         return enabled;
     }
+
+    /**
+     * Time window within which multiple updates of the same task are coalesced into a single document.
+     */
+    public long getCoalescingWindowMs() {
+        return coalescingWindowMs;
+    }
+
+    public int getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * The bulk index batch size is reduced, when ES responds slower than this, and increased otherwise.
+     */
+    public long getTargetBulkLatencyMs() {
+        return targetBulkLatencyMs;
+    }
+
+    /**
+     * Set to true, to keep not yet published documents in a local disk spool, so they survive restarts and ES outages.
+     */
+    public boolean isSpoolEnabled() {
+        return spoolEnabled;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
 }
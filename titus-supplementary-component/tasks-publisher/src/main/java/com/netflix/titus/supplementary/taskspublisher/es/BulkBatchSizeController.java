@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.supplementary.taskspublisher.es;
+
+/**
+ * Adjusts the bulk index batch size to the ES response latency. The batch size grows additively while full batches are
+ * indexed within the target latency, and is halved when a bulk request is slower than the target or fails.
+ */
+class BulkBatchSizeController {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetLatencyMs;
+
+    private volatile int batchSize;
+
+    BulkBatchSizeController(int minBatchSize, int maxBatchSize, int initialBatchSize, long targetLatencyMs) {
+        this.minBatchSize = Math.max(1, minBatchSize);
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        this.targetLatencyMs = targetLatencyMs;
+        this.batchSize = Math.max(this.minBatchSize, Math.min(this.maxBatchSize, initialBatchSize));
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    synchronized void onSuccess(int indexedCount, long latencyMs) {
+        if (latencyMs > targetLatencyMs) {
+            decrease();
+        } else if (indexedCount >= batchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 10));
+        }
+    }
+
+    synchronized void onFailure() {
+        decrease();
+    }
+
+    private void decrease() {
+        batchSize = Math.max(minBatchSize, batchSize / 2);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.supplementary.taskspublisher.es;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.titus.supplementary.taskspublisher.TaskDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffer of task documents waiting to be published, which keeps only the latest document of each task. Documents are
+ * drained in the order in which their tasks were first added to the buffer. If a {@link TaskDocumentSpool} is
+ * provided, each added document is appended to it as well, and the spool segments are deleted once all documents
+ * drained from them are released. On a spool IO error, the spool is dropped and the buffer continues in memory only.
+ */
+class CoalescingTaskDocumentBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingTaskDocumentBuffer.class);
+
+    private final Counter coalescedCounter;
+    private final Counter spoolErrorsCounter;
+
+    private volatile Optional<TaskDocumentSpool> spool;
+
+    private final Map<String, TaskDocument> pending = new LinkedHashMap<>();
+
+    CoalescingTaskDocumentBuffer(Optional<TaskDocumentSpool> spool, Counter coalescedCounter, Counter spoolErrorsCounter) {
+        this.spool = spool;
+        this.coalescedCounter = coalescedCounter;
+        this.spoolErrorsCounter = spoolErrorsCounter;
+        spool.ifPresent(s -> s.recover().forEach(this::addPending));
+    }
+
+    synchronized void add(TaskDocument document) {
+        runOnSpool(s -> s.append(document));
+        addPending(document);
+    }
+
+    /**
+     * Adds back documents that could not be published. A document is dropped, if a newer one for the same task arrived
+     * in the meantime.
+     */
+    synchronized void requeue(List<TaskDocument> documents) {
+        List<TaskDocument> requeued = new ArrayList<>();
+        for (TaskDocument document : documents) {
+            if (!pending.containsKey(document.getId())) {
+                requeued.add(document);
+                pending.put(document.getId(), document);
+            }
+        }
+        runOnSpool(s -> s.appendAll(requeued));
+    }
+
+    synchronized Drained drain() {
+        long spoolCheckpoint = withSpool(TaskDocumentSpool::rotate, 0L);
+        if (pending.isEmpty()) {
+            return new Drained(Collections.emptyList(), spoolCheckpoint);
+        }
+        List<TaskDocument> documents = new ArrayList<>(pending.values());
+        pending.clear();
+        return new Drained(documents, spoolCheckpoint);
+    }
+
+    /**
+     * Must be called when all drained documents are published, or {@link #requeue(List) requeued}.
+     */
+    void release(Drained drained) {
+        spool.ifPresent(s -> s.deleteSegmentsBefore(drained.spoolCheckpoint));
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    void close() {
+        spool.ifPresent(TaskDocumentSpool::close);
+    }
+
+    private void runOnSpool(Consumer<TaskDocumentSpool> action) {
+        withSpool(s -> {
+            action.accept(s);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Runs a spool operation. On an IO error, the spool is closed and dropped, so a broken disk does not stop
+     * the publisher. Its segments are deleted (best effort), as the documents in them are kept in memory, and would
+     * be replayed as stale updates after a restart.
+     */
+    private synchronized <T> T withSpool(Function<TaskDocumentSpool, T> action, T defaultValue) {
+        if (!spool.isPresent()) {
+            return defaultValue;
+        }
+        TaskDocumentSpool current = spool.get();
+        try {
+            return action.apply(current);
+        } catch (UncheckedIOException e) {
+            logger.error("Task document spool IO error; continuing with in-memory buffering only", e);
+            spoolErrorsCounter.increment();
+            spool = Optional.empty();
+            current.close();
+            current.deleteSegmentsBefore(Long.MAX_VALUE);
+            return defaultValue;
+        }
+    }
+
+    private void addPending(TaskDocument document) {
+        if (pending.put(document.getId(), document) != null) {
+            coalescedCounter.increment();
+        }
+    }
+
+    static class Drained {
+
+        private final List<TaskDocument> documents;
+        private final long spoolCheckpoint;
+
+        private Drained(List<TaskDocument> documents, long spoolCheckpoint) {
+            this.documents = documents;
+            this.spoolCheckpoint = spoolCheckpoint;
+        }
+
+        List<TaskDocument> getDocuments() {
+            return documents;
+        }
+    }
+}
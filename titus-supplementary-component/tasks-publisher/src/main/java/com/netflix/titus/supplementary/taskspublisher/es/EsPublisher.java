@@ -15,17 +15,23 @@
  */
 package com.netflix.titus.supplementary.taskspublisher.es;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.collect.Lists;
+import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Functions;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.common.LeaderActivationListener;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.ext.elasticsearch.EsClient;
+import com.netflix.titus.ext.elasticsearch.model.BulkEsIndexResp;
 import com.netflix.titus.supplementary.taskspublisher.TaskDocument;
 import com.netflix.titus.supplementary.taskspublisher.TaskEventsGenerator;
 import com.netflix.titus.supplementary.taskspublisher.TaskPublisherRetryUtil;
@@ -34,16 +40,23 @@ import com.netflix.titus.supplementary.taskspublisher.config.EsPublisherConfigur
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
-import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+/**
+ * Publishes task documents to ES. Task updates are collected in a {@link CoalescingTaskDocumentBuffer}, so only
+ * the latest document of a task is indexed within a coalescing window. At the end of each window, the buffered
+ * documents are indexed in bulk requests, sized by {@link BulkBatchSizeController}. Documents from failed bulk requests
+ * are put back into the buffer, unless a newer document for the same task arrived in the meantime.
+ */
 public class EsPublisher implements TasksPublisher, LeaderActivationListener {
     private static final Logger logger = LoggerFactory.getLogger(EsPublisher.class);
     private static final int MAX_CONCURRENCY = 20;
     private static final String ES_RECORD_TYPE = "default";
 
-    private static final int MAX_BATCH_SIZE = 100;
-    private static final int MAX_BACKPRESSURE_BUFFER = 1000;
+    private static final int INITIAL_BATCH_SIZE = 100;
 
     private final TaskEventsGenerator taskEventsGenerator;
     private final EsClient<TaskDocument> esClient;
@@ -53,7 +66,10 @@ public class EsPublisher implements TasksPublisher, LeaderActivationListener {
     private AtomicInteger numErrors = new AtomicInteger(0);
     private AtomicInteger numTasksUpdated = new AtomicInteger(0);
     private AtomicLong lastPublishedTimestamp;
+    private CoalescingTaskDocumentBuffer buffer;
+    private BulkBatchSizeController batchSizeController;
     private Disposable subscription;
+    private Disposable taskEventsSubscription;
     private Disposable taskEventsSourceConnection;
     private final SimpleDateFormat indexDateFormat;
 
@@ -70,40 +86,100 @@ public class EsPublisher implements TasksPublisher, LeaderActivationListener {
 
     @Override
     public void activate() {
+        Counter spoolErrors = registry.counter(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "spoolErrors");
+        buffer = new CoalescingTaskDocumentBuffer(
+                openSpool(spoolErrors),
+                registry.counter(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "coalesced"),
+                spoolErrors
+        );
+        batchSizeController = new BulkBatchSizeController(
+                esPublisherConfiguration.getMinBatchSize(),
+                esPublisherConfiguration.getMaxBatchSize(),
+                INITIAL_BATCH_SIZE,
+                esPublisherConfiguration.getTargetBulkLatencyMs()
+        );
+
         ConnectableFlux<TaskDocument> taskEvents = taskEventsGenerator.getTaskEvents();
-        subscription = taskEvents.bufferTimeout(MAX_BATCH_SIZE, Duration.ofSeconds(5))
-                .onBackpressureBuffer(MAX_BACKPRESSURE_BUFFER, BufferOverflowStrategy.ERROR)
-                .flatMap(taskDocuments ->
-                                esClient.bulkIndexDocuments(
-                                        taskDocuments,
-                                        ElasticSearchUtils.buildEsIndexNameCurrent(esPublisherConfiguration.getTaskDocumentEsIndexName(), indexDateFormat),
-                                        ES_RECORD_TYPE)
-                                        .retryWhen(TaskPublisherRetryUtil.buildRetryHandler(
-                                                TaskPublisherRetryUtil.INITIAL_RETRY_DELAY_MS,
-                                                TaskPublisherRetryUtil.MAX_RETRY_DELAY_MS, 3)),
-                        MAX_CONCURRENCY)
+        taskEventsSubscription = taskEvents
                 .doOnError(e -> {
-                    logger.error("Error in indexing documents (Retrying) : ", e);
+                    logger.error("Error in task event stream (Retrying) : ", e);
                     numErrors.incrementAndGet();
                 })
                 .retryWhen(TaskPublisherRetryUtil.buildRetryHandler(TaskPublisherRetryUtil.INITIAL_RETRY_DELAY_MS,
                         TaskPublisherRetryUtil.MAX_RETRY_DELAY_MS, -1))
-                .subscribe(bulkIndexResp -> {
-                            logger.info("Received bulk response for {} items", bulkIndexResp.getItems().size());
-                            lastPublishedTimestamp.set(registry.clock().wallTime());
-                            bulkIndexResp.getItems().forEach(bulkEsIndexRespItem -> {
-                                String indexedItemId = bulkEsIndexRespItem.getIndex().getId();
-                                logger.info("Index result <{}> for task ID {}", bulkEsIndexRespItem.getIndex().getResult(), indexedItemId);
-                                numTasksUpdated.incrementAndGet();
-                            });
+                .subscribe(buffer::add, e -> logger.error("Error in task event stream ", e));
+
+        Duration coalescingWindow = Duration.ofMillis(esPublisherConfiguration.getCoalescingWindowMs());
+        subscription = Flux.interval(coalescingWindow, coalescingWindow, Schedulers.elastic())
+                .onBackpressureDrop()
+                .concatMap(tick -> publishPending())
+                .subscribe(
+                        next -> {
                         },
-                        e -> logger.error("Error in indexing documents ", e));
+                        e -> logger.error("Error in indexing documents ", e)
+                );
         taskEventsSourceConnection = taskEvents.connect();
     }
 
+    private Optional<TaskDocumentSpool> openSpool(Counter spoolErrors) {
+        if (!esPublisherConfiguration.isSpoolEnabled()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new TaskDocumentSpool(new File(esPublisherConfiguration.getSpoolDirectory())));
+        } catch (Exception e) {
+            logger.error("Cannot open task document spool in {}; buffering documents in memory only", esPublisherConfiguration.getSpoolDirectory(), e);
+            spoolErrors.increment();
+            return Optional.empty();
+        }
+    }
+
+    private Mono<Void> publishPending() {
+        CoalescingTaskDocumentBuffer.Drained drained = buffer.drain();
+        List<List<TaskDocument>> batches = Lists.partition(drained.getDocuments(), batchSizeController.getBatchSize());
+        return Flux.fromIterable(batches)
+                .flatMap(this::publishBatch, MAX_CONCURRENCY)
+                .then(Mono.fromRunnable(() -> buffer.release(drained)));
+    }
+
+    private Mono<Void> publishBatch(List<TaskDocument> taskDocuments) {
+        return Mono.defer(() -> {
+            long startTime = registry.clock().wallTime();
+            return esClient.bulkIndexDocuments(
+                    taskDocuments,
+                    ElasticSearchUtils.buildEsIndexNameCurrent(esPublisherConfiguration.getTaskDocumentEsIndexName(), indexDateFormat),
+                    ES_RECORD_TYPE)
+                    .doOnNext(bulkIndexResp -> batchSizeController.onSuccess(taskDocuments.size(), registry.clock().wallTime() - startTime))
+                    .retryWhen(TaskPublisherRetryUtil.buildRetryHandler(
+                            TaskPublisherRetryUtil.INITIAL_RETRY_DELAY_MS,
+                            TaskPublisherRetryUtil.MAX_RETRY_DELAY_MS, 3));
+        }).doOnNext(this::onBulkIndexResponse)
+                .onErrorResume(e -> {
+                    logger.error("Error in indexing documents (Will retry in the next window) : ", e);
+                    numErrors.incrementAndGet();
+                    batchSizeController.onFailure();
+                    buffer.requeue(taskDocuments);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void onBulkIndexResponse(BulkEsIndexResp bulkIndexResp) {
+        logger.info("Received bulk response for {} items", bulkIndexResp.getItems().size());
+        lastPublishedTimestamp.set(registry.clock().wallTime());
+        bulkIndexResp.getItems().forEach(bulkEsIndexRespItem -> {
+            String indexedItemId = bulkEsIndexRespItem.getIndex().getId();
+            logger.info("Index result <{}> for task ID {}", bulkEsIndexRespItem.getIndex().getResult(), indexedItemId);
+            numTasksUpdated.incrementAndGet();
+        });
+    }
+
     @Override
     public void deactivate() {
-        ReactorExt.safeDispose(subscription, taskEventsSourceConnection);
+        ReactorExt.safeDispose(subscription, taskEventsSubscription, taskEventsSourceConnection);
+        if (buffer != null) {
+            buffer.close();
+        }
     }
 
     @Override
@@ -123,6 +199,12 @@ public class EsPublisher implements TasksPublisher, LeaderActivationListener {
         PolledMeter.using(registry)
                 .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "numTasksUpdated"))
                 .monitorValue(numTasksUpdated);
+        PolledMeter.using(registry)
+                .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "pending"))
+                .monitorValue(this, self -> self.buffer == null ? 0 : self.buffer.size());
+        PolledMeter.using(registry)
+                .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "batchSize"))
+                .monitorValue(this, self -> self.batchSizeController == null ? 0 : self.batchSizeController.getBatchSize());
 
         lastPublishedTimestamp = PolledMeter.using(registry)
                 .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "lastPublishedTimestamp"))
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.supplementary.taskspublisher.es;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.titus.supplementary.taskspublisher.TaskDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local disk spool of task documents, which are not published yet. Documents are appended, one JSON document per line,
+ * to the current segment file. Segments are never modified after they are rotated out, and are deleted when all
+ * documents appended to them are known to be published (see {@link #deleteSegmentsBefore(long)}). On startup, the
+ * documents from the segments left over by a previous process are available via {@link #recover()}.
+ */
+class TaskDocumentSpool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskDocumentSpool.class);
+
+    private static final Pattern SEGMENT_NAME_RE = Pattern.compile("segment-(\\d+)\\.jsonl");
+
+    /**
+     * Documents are spooled with all their fields, as the getters define the ES document format only.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final File directory;
+
+    private long currentSegment;
+    private BufferedWriter writer;
+    private boolean currentSegmentEmpty = true;
+
+    TaskDocumentSpool(File directory) {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Cannot create spool directory: " + directory);
+        }
+        List<Long> segments = listSegments();
+        this.currentSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        this.writer = openSegment(currentSegment);
+    }
+
+    /**
+     * Reads all documents from the segments that existed before this spool was created, in the order in which they
+     * were appended.
+     */
+    synchronized List<TaskDocument> recover() {
+        List<TaskDocument> documents = new ArrayList<>();
+        for (long segment : listSegments()) {
+            if (segment >= currentSegment) {
+                continue;
+            }
+            File file = segmentFile(segment);
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        documents.add(MAPPER.readValue(line, TaskDocument.class));
+                    } catch (IOException e) {
+                        // The last line of a segment may be incomplete, if the process was terminated abruptly.
+                        logger.warn("Ignoring unreadable document in spool segment {}: {}", file, e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot read spool segment {}", file, e);
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Appends a document, and flushes it to the segment file.
+     *
+     * @throws UncheckedIOException if the document cannot be written
+     */
+    synchronized void append(TaskDocument document) {
+        appendAll(Collections.singletonList(document));
+    }
+
+    /**
+     * Appends a batch of documents, and flushes them to the segment file once.
+     *
+     * @throws UncheckedIOException if the documents cannot be written
+     */
+    synchronized void appendAll(List<TaskDocument> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        try {
+            for (TaskDocument document : documents) {
+                writer.write(MAPPER.writeValueAsString(document));
+                writer.newLine();
+            }
+            writer.flush();
+            currentSegmentEmpty = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Nothing is done if the current segment is empty.
+     *
+     * @return the current segment number. All documents appended before this call are in the segments with lower numbers.
+     * @throws UncheckedIOException if the new segment cannot be created
+     */
+    synchronized long rotate() {
+        if (currentSegmentEmpty) {
+            return currentSegment;
+        }
+        closeWriter();
+        currentSegmentEmpty = true;
+        currentSegment++;
+        writer = openSegment(currentSegment);
+        return currentSegment;
+    }
+
+    synchronized void deleteSegmentsBefore(long segment) {
+        for (long existing : listSegments()) {
+            if (existing < segment && !segmentFile(existing).delete()) {
+                logger.warn("Cannot delete spool segment {}", segmentFile(existing));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    private List<Long> listSegments() {
+        String[] names = directory.list();
+        if (names == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(names)
+                .map(SEGMENT_NAME_RE::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> Long.parseLong(matcher.group(1)))
+                .sorted(Comparator.naturalOrder())
+                .collect(Collectors.toList());
+    }
+
+    private File segmentFile(long segment) {
+        return new File(directory, String.format("segment-%019d.jsonl", segment));
+    }
+
+    private BufferedWriter openSegment(long segment) {
+        try {
+            return Files.newBufferedWriter(segmentFile(segment).toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeWriter() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Cannot close spool segment {}", segmentFile(currentSegment), e);
+        }
+    }
+}
@@ -76,6 +76,10 @@ public class TaskEventsGeneratorTest {
         EsPublisherConfiguration mockConfig = mock(EsPublisherConfiguration.class);
         when(mockConfig.getTaskDocumentEsIndexName()).thenReturn("tasks_");
         when(mockConfig.getTaskDocumentEsIndexDateSuffixPattern()).thenReturn("yyyyMM");
+        when(mockConfig.getCoalescingWindowMs()).thenReturn(100L);
+        when(mockConfig.getMinBatchSize()).thenReturn(10);
+        when(mockConfig.getMaxBatchSize()).thenReturn(1000);
+        when(mockConfig.getTargetBulkLatencyMs()).thenReturn(1000L);
         return mockConfig;
     }
 
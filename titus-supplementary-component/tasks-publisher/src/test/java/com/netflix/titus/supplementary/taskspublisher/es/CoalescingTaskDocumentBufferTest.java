@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.supplementary.taskspublisher.es;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.supplementary.taskspublisher.TaskDocument;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoalescingTaskDocumentBufferTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Registry registry = new DefaultRegistry();
+
+    private final Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+    private final BatchJobTask task1 = JobGenerator.batchTasks(job).getValue();
+    private final BatchJobTask task2 = JobGenerator.batchTasks(job).skip(1).getValue();
+
+    @Test
+    public void testLatestDocumentPerTaskIsKept() {
+        CoalescingTaskDocumentBuffer buffer = newBuffer(Optional.empty());
+
+        buffer.add(toDocument(task1, TaskState.Accepted));
+        buffer.add(toDocument(task2, TaskState.Accepted));
+        buffer.add(toDocument(task1, TaskState.Started));
+        assertThat(buffer.size()).isEqualTo(2);
+
+        CoalescingTaskDocumentBuffer.Drained drained = buffer.drain();
+        assertThat(drained.getDocuments()).extracting(TaskDocument::getId).containsExactly(task1.getId(), task2.getId());
+        assertThat(drained.getDocuments().get(0).getState()).isEqualTo(toDocument(task1, TaskState.Started).getState());
+        assertThat(buffer.size()).isZero();
+        assertThat(registry.counter(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "coalesced").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRequeueDoesNotOverrideNewerDocument() {
+        CoalescingTaskDocumentBuffer buffer = newBuffer(Optional.empty());
+
+        buffer.add(toDocument(task1, TaskState.Accepted));
+        buffer.add(toDocument(task2, TaskState.Accepted));
+        CoalescingTaskDocumentBuffer.Drained drained = buffer.drain();
+
+        TaskDocument newer = toDocument(task1, TaskState.Started);
+        buffer.add(newer);
+        buffer.requeue(drained.getDocuments());
+
+        assertThat(buffer.drain().getDocuments()).extracting(TaskDocument::getState)
+                .containsExactly(newer.getState(), toDocument(task2, TaskState.Accepted).getState());
+    }
+
+    @Test
+    public void testSpoolRecovery() throws Exception {
+        File spoolDir = temporaryFolder.newFolder();
+
+        CoalescingTaskDocumentBuffer buffer = newBuffer(Optional.of(new TaskDocumentSpool(spoolDir)));
+        buffer.add(toDocument(task1, TaskState.Accepted));
+        buffer.add(toDocument(task1, TaskState.Started));
+        buffer.add(toDocument(task2, TaskState.Accepted));
+        buffer.close();
+
+        CoalescingTaskDocumentBuffer recovered = newBuffer(Optional.of(new TaskDocumentSpool(spoolDir)));
+        assertThat(recovered.size()).isEqualTo(2);
+
+        CoalescingTaskDocumentBuffer.Drained drained = recovered.drain();
+        TaskDocument recoveredDocument = drained.getDocuments().get(0);
+        TaskDocument expectedDocument = toDocument(task1, TaskState.Started);
+        assertThat(recoveredDocument.getId()).isEqualTo(expectedDocument.getId());
+        assertThat(recoveredDocument.getState()).isEqualTo(expectedDocument.getState());
+        assertThat(recoveredDocument.getJobId()).isEqualTo(expectedDocument.getJobId());
+
+        // Segments are deleted only after the drained documents are released.
+        assertThat(spoolDir.list()).hasSize(2);
+        recovered.release(drained);
+        assertThat(spoolDir.list()).hasSize(1);
+        recovered.close();
+
+        assertThat(newBuffer(Optional.of(new TaskDocumentSpool(spoolDir))).size()).isZero();
+    }
+
+    @Test
+    public void testRequeuedDocumentsAreSpooled() throws Exception {
+        File spoolDir = temporaryFolder.newFolder();
+
+        CoalescingTaskDocumentBuffer buffer = newBuffer(Optional.of(new TaskDocumentSpool(spoolDir)));
+        buffer.add(toDocument(task1, TaskState.Accepted));
+        CoalescingTaskDocumentBuffer.Drained drained = buffer.drain();
+        buffer.requeue(drained.getDocuments());
+        buffer.release(drained);
+        buffer.close();
+
+        CoalescingTaskDocumentBuffer recovered = newBuffer(Optional.of(new TaskDocumentSpool(spoolDir)));
+        assertThat(recovered.drain().getDocuments()).extracting(TaskDocument::getId).containsExactly(task1.getId());
+    }
+
+    @Test
+    public void testAppendedDocumentsAreFlushed() throws Exception {
+        File spoolDir = temporaryFolder.newFolder();
+
+        CoalescingTaskDocumentBuffer buffer = newBuffer(Optional.of(new TaskDocumentSpool(spoolDir)));
+        buffer.add(toDocument(task1, TaskState.Accepted));
+
+        // The spool is not closed, as if the process was terminated.
+        CoalescingTaskDocumentBuffer recovered = newBuffer(Optional.of(new TaskDocumentSpool(spoolDir)));
+        assertThat(recovered.drain().getDocuments()).extracting(TaskDocument::getId).containsExactly(task1.getId());
+    }
+
+    @Test
+    public void testSpoolIoErrorFallsBackToMemory() throws Exception {
+        File spoolDir = temporaryFolder.newFolder();
+        TaskDocumentSpool spool = new TaskDocumentSpool(spoolDir);
+
+        CoalescingTaskDocumentBuffer buffer = newBuffer(Optional.of(spool));
+        buffer.add(toDocument(task1, TaskState.Accepted));
+
+        // Writes to a closed spool fail with an IO error.
+        spool.close();
+        buffer.add(toDocument(task2, TaskState.Accepted));
+        assertThat(registry.counter(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "spoolErrors").count()).isEqualTo(1);
+        assertThat(spoolDir.list()).isEmpty();
+
+        buffer.add(toDocument(task1, TaskState.Started));
+        CoalescingTaskDocumentBuffer.Drained drained = buffer.drain();
+        assertThat(drained.getDocuments()).extracting(TaskDocument::getId).containsExactly(task1.getId(), task2.getId());
+        buffer.requeue(drained.getDocuments());
+        buffer.release(drained);
+        assertThat(buffer.size()).isEqualTo(2);
+        assertThat(registry.counter(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "spoolErrors").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNoDocuments() {
+        CoalescingTaskDocumentBuffer buffer = newBuffer(Optional.empty());
+        assertThat(buffer.drain().getDocuments()).isEqualTo(Collections.emptyList());
+        buffer.requeue(Arrays.asList(toDocument(task1, TaskState.Accepted)));
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    private CoalescingTaskDocumentBuffer newBuffer(Optional<TaskDocumentSpool> spool) {
+        return new CoalescingTaskDocumentBuffer(
+                spool,
+                registry.counter(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "coalesced"),
+                registry.counter(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "spoolErrors")
+        );
+    }
+
+    private TaskDocument toDocument(BatchJobTask task, TaskState state) {
+        BatchJobTask withState = task.toBuilder()
+                .withStatus(TaskStatus.newBuilder().withState(state).withTimestamp(System.currentTimeMillis()).build())
+                .build();
+        return TaskDocument.fromV3Task(withState, job, ElasticSearchUtils.DATE_FORMAT, Collections.emptyMap());
+    }
+}
@@ -17,6 +17,7 @@
 package com.netflix.titus.testkit.embedded.cell.master;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
@@ -55,7 +56,12 @@ import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.api.loadbalancer.model.sanitizer.LoadBalancerJobValidator;
 import com.netflix.titus.api.loadbalancer.model.sanitizer.NoOpLoadBalancerJobValidator;
 import com.netflix.titus.api.loadbalancer.store.LoadBalancerStore;
+import com.netflix.titus.api.supervisor.model.MasterInstance;
+import com.netflix.titus.api.supervisor.model.MasterState;
+import com.netflix.titus.api.supervisor.model.MasterStatus;
+import com.netflix.titus.api.supervisor.model.ServerPort;
 import com.netflix.titus.api.supervisor.service.LeaderActivator;
+import com.netflix.titus.api.supervisor.service.LeaderElector;
 import com.netflix.titus.api.supervisor.service.MasterDescription;
 import com.netflix.titus.api.supervisor.service.MasterMonitor;
 import com.netflix.titus.common.runtime.TitusRuntime;
@@ -139,8 +145,10 @@ public class EmbeddedTitusMaster {
     private final InstanceCloudConnector cloudInstanceConnector;
     private final MesosSchedulerDriverFactory mesosSchedulerDriverFactory;
     private final Pair<String, Integer> remoteCloud;
+    private final EmbeddedTitusMaster warmStandbyOf;
 
     private LifecycleInjector injector;
+    private volatile boolean running;
     private final List<AuditLogEvent> auditLogs = new CopyOnWriteArrayList<>();
 
     private ManagedChannel grpcChannel;
@@ -163,6 +171,7 @@ public class EmbeddedTitusMaster {
         this.jobStore = builder.v3JobStore == null ? new InMemoryJobStore() : builder.v3JobStore;
         this.cassandraJobStore = builder.cassandraJobStore;
         this.agentStore = builder.agentStore == null ? new InMemoryAgentStore() : builder.agentStore;
+        this.warmStandbyOf = builder.warmStandbyOf;
 
         String resourceDir = TitusMaster.class.getClassLoader().getResource("static").toExternalForm();
 
@@ -216,7 +225,11 @@ public class EmbeddedTitusMaster {
                                       bind(MesosSchedulerDriverFactory.class).toInstance(mesosSchedulerDriverFactory);
 
                                       bind(MasterDescription.class).toInstance(masterDescription);
-                                      bind(MasterMonitor.class).to(LocalMasterMonitor.class);
+                                      if (warmStandbyOf == null) {
+                                          bind(MasterMonitor.class).to(LocalMasterMonitor.class);
+                                      } else {
+                                          bind(MasterMonitor.class).toInstance(new StandbyMasterMonitor(masterDescription, warmStandbyOf));
+                                      }
                                       bind(AgentStore.class).toInstance(agentStore);
 
                                       bind(VirtualMachineMasterService.class).to(EmbeddedVirtualMachineMasterService.class);
@@ -227,6 +240,10 @@ public class EmbeddedTitusMaster {
                                       bind(LoadBalancerConnector.class).to(NoOpLoadBalancerConnector.class);
                                       bind(LoadBalancerJobValidator.class).to(NoOpLoadBalancerJobValidator.class);
                                       bind(OpportunisticCpuAvailabilityProvider.class).toInstance(() -> new HashMap<>(opportunisticCpuAvailability));
+
+                                      if (warmStandbyOf != null) {
+                                          bind(LeaderElector.class).toInstance(new StandbyLeaderElector());
+                                      }
                                   }
 
                                   @Provides
@@ -269,7 +286,10 @@ public class EmbeddedTitusMaster {
 
         injector.getInstance(ContainerEventBus.class).submitInOrder(new ContainerEventBus.ContainerStartedEvent());
 
-        injector.getInstance(LeaderActivator.class).becomeLeader();
+        running = true;
+        if (warmStandbyOf == null) {
+            injector.getInstance(LeaderActivator.class).becomeLeader();
+        }
         injector.getInstance(AuditLogService.class).auditLogEvents().subscribe(auditLogs::add);
 
         if (enableREST) {
@@ -295,7 +315,15 @@ public class EmbeddedTitusMaster {
         return new EmbeddedJettyModule(apiPort);
     }
 
+    /**
+     * Activates a master started as a warm standby.
+     */
+    public void becomeLeader() {
+        injector.getInstance(LeaderActivator.class).becomeLeader();
+    }
+
     public void shutdown() {
+        running = false;
         if (grpcChannel != null) {
             grpcChannel.shutdown();
             grpcChannel = null;
@@ -466,6 +494,75 @@ public class EmbeddedTitusMaster {
         opportunisticCpuAvailability.put(machineId, availability);
     }
 
+    /**
+     * Leader elector of a warm standby master, which never joins the leader election. The standby master is activated
+     * explicitly with {@link #becomeLeader()}.
+     */
+    private static class StandbyLeaderElector implements LeaderElector {
+
+        @Override
+        public boolean join() {
+            return false;
+        }
+
+        @Override
+        public boolean leaveIfNotLeader() {
+            return false;
+        }
+
+        @Override
+        public Observable<MasterState> awaitElection() {
+            return Observable.never();
+        }
+    }
+
+    /**
+     * Master monitor of a warm standby master, which reports the given embedded master as the leader while it is
+     * running, so the standby connects to its GRPC endpoint, as it would in a real deployment.
+     */
+    private static class StandbyMasterMonitor extends LocalMasterMonitor {
+
+        private final EmbeddedTitusMaster leader;
+
+        private StandbyMasterMonitor(MasterDescription masterDescription, EmbeddedTitusMaster leader) {
+            super(masterDescription);
+            this.leader = leader;
+        }
+
+        @Override
+        public Observable<List<MasterInstance>> observeMasters() {
+            return super.observeMasters().map(masters -> {
+                if (!leader.running) {
+                    return masters;
+                }
+                List<MasterInstance> withLeader = new ArrayList<>(masters);
+                withLeader.add(newLeaderInstance());
+                return withLeader;
+            });
+        }
+
+        private MasterInstance newLeaderInstance() {
+            return MasterInstance.newBuilder()
+                    .withInstanceId("embeddedLeader")
+                    .withInstanceGroupId("embeddedGroupId")
+                    .withIpAddress("127.0.0.1")
+                    .withStatus(MasterStatus.newBuilder()
+                            .withState(MasterState.LeaderActivated)
+                            .withMessage("Embedded TitusMaster activated")
+                            .build()
+                    )
+                    .withStatusHistory(Collections.emptyList())
+                    .withServerPorts(Collections.singletonList(ServerPort.newBuilder()
+                            .withPortNumber(leader.getGrpcPort())
+                            .withProtocol("grpc")
+                            .withSecure(false)
+                            .withDescription("GRPC endpoint")
+                            .build()
+                    ))
+                    .build();
+        }
+    }
+
     public static class Builder {
 
         private Properties props = new Properties();
@@ -483,6 +580,7 @@ public class EmbeddedTitusMaster {
         private SimulatedCloud simulatedCloud;
         private Pair<String, Integer> remoteCloud;
         private SystemDisruptionBudgetDescriptor systemDisruptionBudgetDescriptor;
+        private EmbeddedTitusMaster warmStandbyOf;
 
         public Builder() {
             props.put("titusMaster.job.configuration.defaultSecurityGroups", "sg-12345,sg-34567");
@@ -539,6 +637,17 @@ public class EmbeddedTitusMaster {
             return this;
         }
 
+        /**
+         * Start this master as a warm standby of the given leader. The standby shares the job store with the leader,
+         * and is activated by calling {@link EmbeddedTitusMaster#becomeLeader()}.
+         */
+        public Builder withWarmStandbyOf(EmbeddedTitusMaster leader) {
+            this.warmStandbyOf = leader;
+            this.v3JobStore = leader.getJobStore();
+            props.put("titusMaster.jobManager.warmStandbyEnabled", "true");
+            return this;
+        }
+
         public Builder withAgentStore(AgentStore agentStore) {
             this.agentStore = agentStore;
             return this;